@@ -2,6 +2,7 @@ package brs;
 
 import brs.crypto.Crypto;
 import brs.fluxcapacitor.FluxValues;
+import brs.peer.BlockFrames;
 import brs.peer.Peer;
 import brs.util.Convert;
 import brs.util.JSON;
@@ -45,7 +46,9 @@ public class Block {
   private final AtomicLong generatorId = new AtomicLong();
   private long nonce;
 
-  private BigInteger pocTime = null;
+  private volatile BigInteger pocTime = null;
+  private volatile BlockchainProcessor.BlockNotAcceptedException verificationFailure = null;
+  private volatile BigInteger headerHit = null;
 
   private final byte[] blockATs;
 
@@ -112,6 +115,29 @@ public class Block {
     return pocTime != null;
   }
 
+  /**
+   * @return why pre-verification rejected the block, null if it was not rejected (yet)
+   */
+  public BlockchainProcessor.BlockNotAcceptedException getVerificationFailure() {
+    return verificationFailure;
+  }
+
+  public void setVerificationFailure(BlockchainProcessor.BlockNotAcceptedException verificationFailure) {
+    this.verificationFailure = verificationFailure;
+  }
+
+  /**
+   * @return the hit proven when the header of the block was checked before it was downloaded, null if its
+   * deadline was not checked then
+   */
+  public BigInteger getHeaderHit() {
+    return headerHit;
+  }
+
+  public void setHeaderHit(BigInteger headerHit) {
+    this.headerHit = headerHit;
+  }
+
   public void setPeer(Peer peer) {
     this.downloadedFrom = peer;
   }
@@ -306,6 +332,86 @@ public class Block {
     }
   }
 
+  static Block parseBlock(BlockFrames.Frame frame, int height) throws BurstException.ValidationException {
+    try {
+      return parseBytes(frame.getBlockBytes(), frame.getTransactionBytes(), null, height);
+    } catch (BurstException.ValidationException | RuntimeException e) {
+      logger.debug("Failed to parse binary block of " + frame.getLength() + " bytes");
+      throw e;
+    }
+  }
+
+  /**
+   * Parses the {@link #getBytes()} of a block without its transactions, as served by "getBlockHeaders".
+   * The id is computed from the bytes; the transactions of the returned block must not be accessed.
+   */
+  public static Block parseHeader(byte[] headerBytes, int height) throws BurstException.ValidationException {
+    long id = Convert.fullHashToId(Crypto.sha256().digest(headerBytes));
+    return parseBytes(ByteBuffer.wrap(headerBytes).order(ByteOrder.LITTLE_ENDIAN), null, id, height);
+  }
+
+  private static Block parseBytes(ByteBuffer buffer, List<ByteBuffer> transactionsData, Long headerId, int height) throws BurstException.ValidationException {
+    int version = buffer.getInt();
+    int timestamp = buffer.getInt();
+    long previousBlock = buffer.getLong();
+    int transactionCount = buffer.getInt();
+    long totalAmountNQT;
+    long totalFeeNQT;
+    if (version < 3) {
+      totalAmountNQT = buffer.getInt() * Constants.ONE_BURST;
+      totalFeeNQT = buffer.getInt() * Constants.ONE_BURST;
+    } else {
+      totalAmountNQT = buffer.getLong();
+      totalFeeNQT = buffer.getLong();
+    }
+    int payloadLength = buffer.getInt();
+    byte[] payloadHash = new byte[32];
+    buffer.get(payloadHash);
+    byte[] generatorPublicKey = new byte[32];
+    buffer.get(generatorPublicKey);
+    byte[] generationSignature = new byte[32];
+    buffer.get(generationSignature);
+    byte[] previousBlockHash = null;
+    if (version > 1) {
+      previousBlockHash = new byte[32];
+      buffer.get(previousBlockHash);
+    }
+    long nonce = buffer.getLong();
+    byte[] blockATs = null;
+    if (buffer.remaining() > 64) {
+      blockATs = new byte[buffer.remaining() - 64];
+      buffer.get(blockATs);
+    }
+    byte[] blockSignature = new byte[64];
+    buffer.get(blockSignature);
+
+    if (transactionsData == null) {
+      if (transactionCount < 0 || transactionCount > Burst.getFluxCapacitor().getValue(FluxValues.MAX_NUMBER_TRANSACTIONS, height)) {
+        throw new BurstException.NotValidException("Block header announces " + transactionCount + " transactions");
+      }
+      return new Block(version, timestamp, previousBlock, totalAmountNQT, totalFeeNQT,
+          payloadLength, payloadHash, generatorPublicKey, generationSignature, blockSignature,
+          previousBlockHash, null, 0, 0, height, headerId, nonce, blockATs);
+    }
+
+    if (transactionsData.size() != transactionCount) {
+      throw new BurstException.NotValidException("Block header announces " + transactionCount + " transactions but " + transactionsData.size() + " were sent");
+    }
+    SortedMap<Long, Transaction> blockTransactions = new TreeMap<>();
+    for (ByteBuffer transactionData : transactionsData) {
+      Transaction transaction = Transaction.parseTransaction(transactionData, height);
+      if (transaction.getSignature() != null) {
+        if (blockTransactions.put(transaction.getId(), transaction) != null) {
+          throw new BurstException.NotValidException("Block contains duplicate transactions: " + transaction.getStringId());
+        }
+      }
+    }
+
+    return new Block(version, timestamp, previousBlock, totalAmountNQT, totalFeeNQT,
+        payloadLength, payloadHash, generatorPublicKey, generationSignature, blockSignature,
+        previousBlockHash, new ArrayList<>(blockTransactions.values()), nonce, blockATs, height);
+  }
+
   public byte[] getBytes() {
     ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + (version < 3 ? (4 + 4) : (8 + 8)) + 4
         + 32 + 32 + (32 + 32) + 8 + (blockATs != null ? blockATs.length : 0) + 64);
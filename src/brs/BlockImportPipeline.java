@@ -0,0 +1,139 @@
+package brs;
+
+import brs.util.DownloadCacheImpl;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Couples the stages of block sync: download (fetch and parse), verify (PoC and signature pre-verification)
+ * and import (pushBlock). The download cache is the bounded buffer between them: blocks enter it
+ * unverified, leave the unverified part once verified and are removed when pushed. A stage that runs out of
+ * work waits until the stage before it signals new blocks, or the stage after it frees space, instead of
+ * polling. Every stage records how many blocks it handled and how long that took.
+ */
+public final class BlockImportPipeline {
+
+  public enum Stage {
+    DOWNLOAD, VERIFY, IMPORT
+  }
+
+  private final DownloadCacheImpl downloadCache;
+  private final Map<Stage, StageState> stages = new EnumMap<>(Stage.class);
+
+  public BlockImportPipeline(DownloadCacheImpl downloadCache) {
+    this.downloadCache = downloadCache;
+    for (Stage stage : Stage.values()) {
+      stages.put(stage, new StageState());
+    }
+  }
+
+  /**
+   * Wakes up the given stage, or lets its next {@link #await} return immediately if it is busy.
+   */
+  public void signal(Stage stage) {
+    StageState state = stages.get(stage);
+    state.lock.lock();
+    try {
+      state.pending = true;
+      state.signalled.signalAll();
+    } finally {
+      state.lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until the stage is signalled or the timeout passed. Interruption is passed on to the caller's thread.
+   */
+  public void await(Stage stage, long timeoutMs) {
+    StageState state = stages.get(stage);
+    state.lock.lock();
+    try {
+      if (!state.pending) {
+        state.signalled.await(timeoutMs, TimeUnit.MILLISECONDS);
+      }
+      state.pending = false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      state.lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for the verify stage to finish the given block.
+   *
+   * @return whether the block is verified
+   * @throws BlockchainProcessor.BlockNotAcceptedException if the verify stage rejected the block
+   */
+  public boolean awaitVerification(Block block, long timeoutMs) throws BlockchainProcessor.BlockNotAcceptedException {
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    while (!block.isVerified() && !Thread.currentThread().isInterrupted()) {
+      if (block.getVerificationFailure() != null) {
+        throw block.getVerificationFailure();
+      }
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        break;
+      }
+      await(Stage.IMPORT, remaining);
+    }
+    return block.isVerified();
+  }
+
+  /**
+   * @param startNanos {@link System#nanoTime()} when the stage started working on the blocks
+   */
+  public void recordBlocks(Stage stage, long startNanos, int blocks) {
+    if (blocks <= 0) {
+      return;
+    }
+    StageState state = stages.get(stage);
+    state.blocks.add(blocks);
+    state.nanos.add(System.nanoTime() - startNanos);
+  }
+
+  public long getBlockCount(Stage stage) {
+    return stages.get(stage).blocks.sum();
+  }
+
+  public double getAverageMillisPerBlock(Stage stage) {
+    StageState state = stages.get(stage);
+    long blocks = state.blocks.sum();
+    return blocks == 0 ? 0 : state.nanos.sum() / 1000000d / blocks;
+  }
+
+  /**
+   * @return the number of blocks waiting to be handled by the given stage
+   */
+  public int getQueueDepth(Stage stage) {
+    switch (stage) {
+      case VERIFY:
+        return downloadCache.getUnverifiedSize();
+      case IMPORT:
+        return Math.max(downloadCache.size() - downloadCache.getUnverifiedSize(), 0);
+      default:
+        return 0;
+    }
+  }
+
+  public int getCacheBytes() {
+    return downloadCache.getBlockCacheSize();
+  }
+
+  public boolean isCacheFull() {
+    return downloadCache.isFull();
+  }
+
+  private static final class StageState {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition signalled = lock.newCondition();
+    private boolean pending;
+    private final LongAdder blocks = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+  }
+}
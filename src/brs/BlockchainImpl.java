@@ -24,9 +24,39 @@ public class BlockchainImpl implements Blockchain {
   }
 
   private final AtomicReference<Block> lastBlock = new AtomicReference<>();
+  // the last block pushed by a thread whose blocks are not committed yet, only that thread sees it
+  private final ThreadLocal<Block> heldBackLastBlock = new ThreadLocal<>();
+
+  /**
+   * Keeps the last blocks set by the calling thread to itself until {@link #publishLastBlock()}, other threads
+   * go on seeing the current last block.
+   */
+  void holdBackLastBlock() {
+    heldBackLastBlock.set(getLastBlock());
+  }
+
+  /**
+   * Makes the last block set by the calling thread since {@link #holdBackLastBlock()} the last block for all.
+   */
+  void publishLastBlock() {
+    Block block = heldBackLastBlock.get();
+    heldBackLastBlock.remove();
+    setLastBlock(block);
+  }
+
+  /**
+   * Drops the last block set by the calling thread since {@link #holdBackLastBlock()}.
+   */
+  void discardLastBlock() {
+    heldBackLastBlock.remove();
+  }
 
   @Override
   public Block getLastBlock() {
+    Block heldBack = heldBackLastBlock.get();
+    if (heldBack != null) {
+      return heldBack;
+    }
     long stamp = bcsl.tryOptimisticRead();
     Block retBlock= lastBlock.get();
     if (!bcsl.validate(stamp)) {
@@ -42,6 +72,10 @@ public class BlockchainImpl implements Blockchain {
 
   @Override
   public void setLastBlock(Block block) {
+    if (heldBackLastBlock.get() != null) {
+      heldBackLastBlock.set(block);
+      return;
+    }
     long stamp = bcsl.writeLock();
     try {
       lastBlock.set(block);
@@ -51,6 +85,13 @@ public class BlockchainImpl implements Blockchain {
   }
 
   void setLastBlock(Block previousBlock, Block block) {
+    if (heldBackLastBlock.get() != null) {
+      if (heldBackLastBlock.get() != previousBlock) {
+        throw new IllegalStateException("Last block is no longer previous block");
+      }
+      heldBackLastBlock.set(block);
+      return;
+    }
     long stamp = bcsl.writeLock();
     try {
       if (! lastBlock.compareAndSet(previousBlock, block)) {
@@ -63,6 +104,10 @@ public class BlockchainImpl implements Blockchain {
 
   @Override
   public int getHeight() {
+    Block heldBack = heldBackLastBlock.get();
+    if (heldBack != null) {
+      return heldBack.getHeight();
+    }
     long stamp = bcsl.tryOptimisticRead();  
     Block last = lastBlock.get();
     if (!bcsl.validate(stamp)) {
@@ -95,6 +140,10 @@ public class BlockchainImpl implements Blockchain {
   }
   
   private Block getSafelastBlock() {
+    Block heldBack = heldBackLastBlock.get();
+    if (heldBack != null) {
+      return heldBack;
+    }
     long stamp = bcsl.tryOptimisticRead();
     Block block = lastBlock.get();
     if (!bcsl.validate(stamp)) {
@@ -22,6 +22,8 @@ public interface BlockchainProcessor extends Observable<Block, BlockchainProcess
 
   boolean isScanning();
 
+  BlockImportPipeline getImportPipeline();
+
   int getMinRollbackHeight();
 
   void processPeerBlock(JsonObject request, Peer peer) throws BurstException;
@@ -41,7 +43,7 @@ public interface BlockchainProcessor extends Observable<Block, BlockchainProcess
 
   class BlockNotAcceptedException extends BurstException {
 
-    BlockNotAcceptedException(String message) {
+    public BlockNotAcceptedException(String message) {
       super(message);
     }
 
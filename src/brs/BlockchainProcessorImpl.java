@@ -1,5 +1,6 @@
 package brs;
 
+import brs.BulkBlockImport.BulkBlockNotAcceptedException;
 import brs.at.AT_Block;
 import brs.at.AT_Controller;
 import brs.at.AT_Exception;
@@ -12,6 +13,8 @@ import brs.db.store.BlockchainStore;
 import brs.db.store.DerivedTableManager;
 import brs.db.store.Stores;
 import brs.fluxcapacitor.FluxValues;
+import brs.peer.BlockFrames;
+import brs.peer.ParallelBlockDownloader;
 import brs.peer.Peer;
 import brs.peer.Peers;
 import brs.props.PropertyService;
@@ -19,6 +22,7 @@ import brs.props.Props;
 import brs.services.*;
 import brs.statistics.StatisticsManagerImpl;
 import brs.transactionduplicates.TransactionDuplicatesCheckerImpl;
+import brs.unconfirmedtransactions.BlockTemplate;
 import brs.unconfirmedtransactions.UnconfirmedTransactionStore;
 import brs.util.*;
 import com.google.gson.JsonArray;
@@ -35,6 +39,10 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -42,14 +50,17 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static brs.Constants.*;
 
 public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
     private static final int MAX_TIMESTAMP_DIFFERENCE = 15;
+    private static final int SCAN_PAGE_SIZE = 1440;
+    private static final int SCAN_CHECKPOINT_INTERVAL = 100;
+    private static final int SCAN_REPORT_INTERVAL = 5000;
     private final Logger logger = LoggerFactory.getLogger(BlockchainProcessorImpl.class);
     private final Stores stores;
     private final BlockchainImpl blockchain;
@@ -72,6 +83,14 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
     private final IndirectIncomingService indirectIncomingService;
     private final int oclUnverifiedQueue;
     private final Semaphore gpuUsage = new Semaphore(2);
+    private final ParallelBlockDownloader blockDownloader;
+    private final BlockImportPipeline importPipeline;
+    private final HeaderChainValidator headerChainValidator;
+    private final boolean headersFirstSync;
+    private final int bulkImportBlocksBehind;
+    private final BulkBlockImport bulkBlockImport;
+    private final ScanCheckpoint scanCheckpoint;
+    private final int scanThreads;
     private final boolean trimDerivedTables;
     private final AtomicInteger lastTrimHeight = new AtomicInteger();
     private final Listeners<Block, Event> blockListeners = new Listeners<>();
@@ -119,14 +138,22 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
         trimDerivedTables = propertyService.getBoolean(Props.DB_TRIM_DERIVED_TABLES);
 
+        blockDownloader = new ParallelBlockDownloader(propertyService.getInt(Props.BRS_BLOCK_DOWNLOAD_PEERS),
+                propertyService.getInt(Props.BRS_BLOCK_DOWNLOAD_CHUNK_SIZE), propertyService.getInt(Props.BRS_BLOCK_DOWNLOAD_TIMEOUT_MS));
+
+        importPipeline = new BlockImportPipeline(downloadCache);
+
+        headerChainValidator = new HeaderChainValidator(blockService, generator, timeService, downloadCache);
+        headersFirstSync = propertyService.getBoolean(Props.BRS_HEADERS_FIRST_SYNC);
+        bulkImportBlocksBehind = propertyService.getInt(Props.BRS_BULK_IMPORT_BLOCKS_BEHIND);
+        bulkBlockImport = new BulkBlockImport(stores, blockchain, downloadCache, this::pushBlock, this::announcePushedBlock,
+                this::isBulkImporting, propertyService.getInt(Props.BRS_BULK_IMPORT_COMMIT_INTERVAL));
+
         forceScan = propertyService.getBoolean(Props.DEV_FORCE_SCAN);
         validateAtScan = propertyService.getBoolean(Props.DEV_FORCE_VALIDATE);
-
-        blockListeners.addListener(block -> {
-            if (block.getHeight() % 5000 == 0) {
-                logger.info("processed block " + block.getHeight());
-            }
-        }, Event.BLOCK_SCANNED);
+        scanCheckpoint = new ScanCheckpoint(propertyService.getString(Props.DB_SCAN_CHECKPOINT_FILE));
+        int numCores = propertyService.getInt(Props.CPU_NUM_CORES);
+        scanThreads = numCores > 0 ? numCores : Runtime.getRuntime().availableProcessors();
 
         blockListeners.addListener(block -> {
             if (block.getHeight() % 5000 == 0) {
@@ -136,6 +163,7 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         }, Event.BLOCK_PUSHED);
 
         blockListeners.addListener(block -> transactionProcessor.revalidateUnconfirmedTransactions(), Event.BLOCK_PUSHED);
+        blockListeners.addListener(block -> transactionProcessor.compactMempoolJournal(), Event.BLOCK_PUSHED);
 
         if (trimDerivedTables) {
             blockListeners.addListener(block -> {
@@ -157,7 +185,13 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
         threadPool.runBeforeStart(() -> {
             addGenesisBlock();
-            if (forceScan) {
+            derivedTableManager.startUndoLog(blockchain.getHeight());
+            int interruptedScanHeight = scanCheckpoint.getHeight();
+            if (interruptedScanHeight >= 0) {
+                logger.info("Resuming interrupted blockchain scan at height " + interruptedScanHeight);
+                validateAtScan |= scanCheckpoint.isValidate();
+                scan(interruptedScanHeight, true);
+            } else if (forceScan) {
                 scan(0);
             }
         }, false);
@@ -237,7 +271,9 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
 
                             if (downloadCache.isFull()) {
-                                return;
+                                // wait for the import stage to free up space
+                                importPipeline.await(BlockImportPipeline.Stage.DOWNLOAD, Constants.BLOCK_PROCESS_THREAD_DELAY);
+                                continue;
                             }
                             peerHasMore = true;
                             Peer peer = Peers.getAnyPeer(Peer.State.CONNECTED);
@@ -313,76 +349,39 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                                 }
                             }
 
+                            // download blocks from peer
+                            Block lastBlock = downloadCache.getBlock(commonBlockId);
+                            if (lastBlock == null) {
+                                logger.info("Error: lastBlock is null");
+                                return;
+                            }
+
+                            // check the chain on the peer's block headers before spending bandwidth on its blocks
+                            if (headersFirstSync && headerChainValidator.check(peer, lastBlock, saveInCache ? null : curCumulativeDifficulty,
+                                    betterCumulativeDifficulty) == HeaderChainValidator.Result.REJECTED) {
+                                logger.debug("Peer {} offered an invalid chain after block {}", peer.getPeerAddress(), lastBlock.getHeight());
+                                return;
+                            }
+
+                            // far behind? split the missing range over several peers
+                            if (saveInCache && blockDownloader.isEnabled()
+                                    && lastBlockchainFeederHeight.get() - lastBlock.getHeight() > blockDownloader.getChunkSize()) {
+                                downloadInParallel(peer, lastBlock.getHeight() + 1, lastBlockchainFeederHeight.get());
+                                return;
+                            }
+
                             //   List<Block> forkBlocks = new ArrayList<>();
-                            JsonArray nextBlocks = getNextBlocks(peer, commonBlockId);
+                            BlockFrames nextBlocks = getNextBlocks(peer, commonBlockId);
                             if (nextBlocks == null || nextBlocks.size() == 0) {
                                 logger.debug("Peer did not feed us any blocks");
                                 return;
                             }
 
-                            // download blocks from peer
-                            Block lastBlock = downloadCache.getBlock(commonBlockId);
+                            // loop blocks and make sure they fit in chain
+                            lastBlock = addDownloadedBlocks(peer, nextBlocks, lastBlock, saveInCache);
                             if (lastBlock == null) {
-                                logger.info("Error: lastBlock is null");
                                 return;
                             }
-                            // loop blocks and make sure they fit in chain
-
-                            Block block;
-                            JsonObject blockData;
-                            List<Block> blocks = new ArrayList<>();
-
-                            for (JsonElement o : nextBlocks) {
-                                int height = lastBlock.getHeight() + 1;
-                                blockData = JSON.getAsJsonObject(o);
-                                try {
-                                    block = Block.parseBlock(blockData, height);
-                                    if (block == null) {
-                                        logger.debug("Unable to process downloaded blocks.");
-                                        return;
-                                    }
-                                    // Make sure it maps back to chain
-                                    if (lastBlock.getId() != block.getPreviousBlockId()) {
-                                        logger.debug("Discarding downloaded data. Last downloaded blocks is rubbish");
-                                        logger.debug("DB blockID: " + lastBlock.getId() + " DB blockheight:"
-                                                + lastBlock.getHeight() + " Downloaded previd:"
-                                                + block.getPreviousBlockId());
-                                        return;
-                                    }
-                                    // set height and cumulative difficulty to block
-                                    block.setHeight(height);
-                                    block.setPeer(peer);
-                                    block.setByteLength(JSON.toJsonString(blockData).length());
-                                    blockService.calculateBaseTarget(block, lastBlock);
-                                    if (saveInCache) {
-                                        if (downloadCache.getLastBlockId() == block.getPreviousBlockId()) { //still maps back? we might have got announced/forged blocks
-                                            if (!downloadCache.addBlock(block)) {
-                                                //we stop the loop since cahce has been locked
-                                                return;
-                                            }
-                                            logger.debug("Added from download: Id: " + block.getId() + " Height: " + block.getHeight());
-                                        }
-                                    } else {
-                                        downloadCache.addForkBlock(block);
-                                    }
-                                    lastBlock = block;
-                                } catch (BlockOutOfOrderException e) {
-                                    logger.info(e.toString() + " - autoflushing cache to get rid of it", e);
-                                    downloadCache.resetCache();
-                                    return;
-                                } catch (RuntimeException | BurstException.ValidationException e) {
-                                    logger.info("Failed to parse block: {}" + e.toString(), e);
-                                    logger.info("Failed to parse block trace: " + Arrays.toString(e.getStackTrace()));
-                                    peer.blacklist(e, "pulled invalid data using getCumulativeDifficulty");
-                                    return;
-                                } catch (Exception e) {
-                                    logger.warn("Unhandled exception {}" + e.toString(), e);
-                                    logger.warn("Unhandled exception trace: " + Arrays.toString(e.getStackTrace()));
-                                }
-                                //executor shutdown?
-                                if (Thread.currentThread().isInterrupted())
-                                    return;
-                            } // end block loop
 
                             logger.trace("Unverified blocks: " + downloadCache.getUnverifiedSize());
                             logger.trace("Blocks in cache: {}", downloadCache.size());
@@ -413,6 +412,116 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 } // end while
             }
 
+            /**
+             * Parses the downloaded blocks, makes sure they map back to lastBlock and adds them to
+             * the download cache, or to the fork list if saveInCache is false.
+             *
+             * @return the last block that was added, or null if the downloaded data was discarded
+             */
+            private Block addDownloadedBlocks(Peer peer, BlockFrames nextBlocks, Block lastBlock, boolean saveInCache) {
+                Block block;
+                long startNanos = System.nanoTime();
+                int addedBlocks = 0;
+
+                try {
+                    for (int i = 0; i < nextBlocks.size(); i++) {
+                        int height = lastBlock.getHeight() + 1;
+                        try {
+                            int byteLength;
+                            if (nextBlocks.isBinary()) {
+                                BlockFrames.Frame frame = nextBlocks.getFrame(i);
+                                block = Block.parseBlock(frame, height);
+                                byteLength = frame.getLength();
+                            } else {
+                                JsonObject blockData = nextBlocks.getJson(i);
+                                block = Block.parseBlock(blockData, height);
+                                byteLength = JSON.toJsonString(blockData).length();
+                            }
+                            if (block == null) {
+                                logger.debug("Unable to process downloaded blocks.");
+                                return null;
+                            }
+                            // Make sure it maps back to chain
+                            if (lastBlock.getId() != block.getPreviousBlockId()) {
+                                logger.debug("Discarding downloaded data. Last downloaded blocks is rubbish");
+                                logger.debug("DB blockID: " + lastBlock.getId() + " DB blockheight:"
+                                        + lastBlock.getHeight() + " Downloaded previd:"
+                                        + block.getPreviousBlockId());
+                                return null;
+                            }
+                            // Make sure it is the block of the header we checked, if we did
+                            if (headersFirstSync) {
+                                try {
+                                    block.setHeaderHit(headerChainValidator.checkBody(block));
+                                } catch (BlockNotAcceptedException e) {
+                                    peer.blacklist(e, "served a block that does not match the confirmed block headers");
+                                    return null;
+                                }
+                            }
+                            // set height and cumulative difficulty to block
+                            block.setHeight(height);
+                            block.setPeer(peer);
+                            block.setByteLength(byteLength);
+                            blockService.calculateBaseTarget(block, lastBlock);
+                            if (saveInCache) {
+                                if (downloadCache.getLastBlockId() == block.getPreviousBlockId()) { //still maps back? we might have got announced/forged blocks
+                                    if (!downloadCache.addBlock(block)) {
+                                        //we stop the loop since cahce has been locked
+                                        return null;
+                                    }
+                                    addedBlocks++;
+                                    logger.debug("Added from download: Id: " + block.getId() + " Height: " + block.getHeight());
+                                }
+                            } else {
+                                downloadCache.addForkBlock(block);
+                            }
+                            lastBlock = block;
+                        } catch (BlockOutOfOrderException e) {
+                            logger.info(e.toString() + " - autoflushing cache to get rid of it", e);
+                            downloadCache.resetCache();
+                            return null;
+                        } catch (RuntimeException | BurstException.ValidationException e) {
+                            logger.info("Failed to parse block: {}" + e.toString(), e);
+                            logger.info("Failed to parse block trace: " + Arrays.toString(e.getStackTrace()));
+                            peer.blacklist(e, "pulled invalid data using getCumulativeDifficulty");
+                            return null;
+                        } catch (Exception e) {
+                            logger.warn("Unhandled exception {}" + e.toString(), e);
+                            logger.warn("Unhandled exception trace: " + Arrays.toString(e.getStackTrace()));
+                        }
+                        //executor shutdown?
+                        if (Thread.currentThread().isInterrupted())
+                            return null;
+                    } // end block loop
+                    return lastBlock;
+                } finally {
+                    if (addedBlocks > 0) {
+                        importPipeline.recordBlocks(BlockImportPipeline.Stage.DOWNLOAD, startNanos, addedBlocks);
+                        importPipeline.signal(BlockImportPipeline.Stage.VERIFY);
+                        importPipeline.signal(BlockImportPipeline.Stage.IMPORT);
+                    }
+                }
+            }
+
+            private void downloadInParallel(Peer feeder, int fromHeight, int toHeight) {
+                logger.debug("Downloading blocks " + fromHeight + " - " + toHeight + " in chunks of "
+                        + blockDownloader.getChunkSize() + " blocks from several peers");
+                int chunks = blockDownloader.download(feeder, fromHeight, toHeight, (peer, blocks) -> {
+                    if (downloadCache.isFull()) {
+                        return ParallelBlockDownloader.ChunkResult.STOP;
+                    }
+                    long previousBlockId = blocks.getPreviousBlockId(0);
+                    Block lastBlock = downloadCache.getLastBlock();
+                    if (lastBlock.getId() != previousBlockId) {
+                        return ParallelBlockDownloader.ChunkResult.REJECTED;
+                    }
+                    return addDownloadedBlocks(peer, blocks, lastBlock, true) == null
+                            ? ParallelBlockDownloader.ChunkResult.STOP
+                            : ParallelBlockDownloader.ChunkResult.ACCEPTED;
+                });
+                logger.trace("Added " + chunks + " chunks from parallel download, blocks in cache: " + downloadCache.size());
+            }
+
             private long getCommonMilestoneBlockId(Peer peer) throws InterruptedException {
 
                 String lastMilestoneBlockId = null;
@@ -497,18 +606,13 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 throw new InterruptedException("interrupted");
             }
 
-            private JsonArray getNextBlocks(Peer peer, long curBlockId) {
+            private BlockFrames getNextBlocks(Peer peer, long curBlockId) {
 
                 JsonObject request = new JsonObject();
                 request.addProperty("requestType", "getNextBlocks");
                 request.addProperty("blockId", Convert.toUnsignedLong(curBlockId));
                 logger.debug("Getting next Blocks after " + curBlockId + " from " + peer.getPeerAddress());
-                JsonObject response = peer.send(JSON.prepareRequest(request));
-                if (response == null) {
-                    return null;
-                }
-
-                JsonArray nextBlocks = JSON.getAsJsonArray(response.get("nextBlocks"));
+                BlockFrames nextBlocks = peer.sendBlocksRequest(request);
                 if (nextBlocks == null) {
                     return null;
                 }
@@ -611,7 +715,11 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         //resetting cache because we have blocks that cannot be processed.
         //pushblock removes the block from cache.
         Runnable blockImporterThread = () -> {
-            while (!Thread.interrupted() && ThreadPool.running.get() && downloadCache.size() > 0) {
+            while (!Thread.interrupted() && ThreadPool.running.get()) {
+                if (downloadCache.size() == 0) {
+                    importPipeline.await(BlockImportPipeline.Stage.IMPORT, Constants.BLOCK_PROCESS_THREAD_DELAY);
+                    continue;
+                }
                 try {
                     Block lastBlock = blockchain.getLastBlock();
                     Long lastId = lastBlock.getId();
@@ -623,17 +731,35 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                     }
                     try {
                         if (!currentBlock.isVerified()) {
-                            downloadCache.removeUnverified(currentBlock.getId());
-                            blockService.preVerify(currentBlock);
-                            logger.debug("block was not preverified");
+                            // leave it to the verify stage, unless that is not going to pick the block up
+                            if (!downloadCache.isUnverified(currentBlock.getId()) || downloadCache.getUnverifiedSize() > getVerifyQueueThreshold()) {
+                                importPipeline.awaitVerification(currentBlock, Constants.BLOCK_PROCESS_THREAD_DELAY);
+                            }
+                            if (!currentBlock.isVerified()) {
+                                downloadCache.removeUnverified(currentBlock.getId());
+                                long verifyStart = System.nanoTime();
+                                blockService.preVerify(currentBlock);
+                                importPipeline.recordBlocks(BlockImportPipeline.Stage.VERIFY, verifyStart, 1);
+                                logger.debug("block was not preverified");
+                            }
                         }
-                        pushBlock(currentBlock); //pushblock removes the block from cache.
+                        long importStart = System.nanoTime();
+                        int importedBlocks = 1;
+                        if (isBulkImporting()) {
+                            importedBlocks = pushBlocksInBulk(currentBlock);
+                        } else {
+                            pushBlock(currentBlock); //pushblock removes the block from cache.
+                        }
+                        importPipeline.recordBlocks(BlockImportPipeline.Stage.IMPORT, importStart, importedBlocks);
+                        importPipeline.signal(BlockImportPipeline.Stage.DOWNLOAD);
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                     } catch (BlockNotAcceptedException e) {
                         logger.error("Block not accepted", e);
-                        blacklistClean(currentBlock, e, "found invalid pull/push data during importing the block");
-                        autoPopOff(currentBlock.getHeight());
+                        // in bulk, the blocks before the rejected one are in the chain already
+                        Block rejectedBlock = e instanceof BulkBlockNotAcceptedException ? ((BulkBlockNotAcceptedException) e).getBlock() : currentBlock;
+                        blacklistClean(rejectedBlock, e, "found invalid pull/push data during importing the block");
+                        autoPopOff(rejectedBlock.getHeight());
                         break;
                     }
                 } catch (Exception exception) {
@@ -648,14 +774,9 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         //verify using java
         Runnable pocVerificationThread = () -> {
             boolean verifyWithOcl;
-            int queueThreshold = oclVerify ? oclUnverifiedQueue : 0;
+            int queueThreshold = getVerifyQueueThreshold();
 
             while (!Thread.interrupted() && ThreadPool.running.get()) {
-                try {
-                    Thread.sleep(10);
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
-                }
                 int unVerified = downloadCache.getUnverifiedSize();
                 if (unVerified > queueThreshold) { //Is there anything to verify
                     if (unVerified >= oclUnverifiedQueue && oclVerify) { //should we use Ocl?
@@ -683,8 +804,15 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                             pos += 1;
                         }
                         try {
-                            OCLPoC.validatePoC(blocks, poCVersion, blockService);
+                            long verifyStart = System.nanoTime();
+                            List<Block> pocBlocks = new LinkedList<>(blocks);
+                            preVerifyHeaderProvenBlocks(pocBlocks);
+                            if (!pocBlocks.isEmpty()) {
+                                OCLPoC.validatePoC(pocBlocks, poCVersion, blockService);
+                            }
                             downloadCache.removeUnverifiedBatch(blocks);
+                            importPipeline.recordBlocks(BlockImportPipeline.Stage.VERIFY, verifyStart, blocks.size());
+                            importPipeline.signal(BlockImportPipeline.Stage.IMPORT);
                         } catch (OCLPoC.PreValidateFailException e) {
                             logger.info(e.toString(), e);
                             blacklistClean(e.getBlock(), e, "found invalid pull/push data during processing the pocVerification");
@@ -695,15 +823,44 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                         } finally {
                             gpuUsage.release();
                         }
+                    } else if (!oclVerify && unVerified > 1) { //verify using java, several nonces at once
+                        List<Block> blocks = downloadCache.getFirstUnverifiedBlocks(ScoopGenerator.LANES);
+                        if (!blocks.isEmpty()) {
+                            try {
+                                long verifyStart = System.nanoTime();
+                                int verifiedBlocks = blocks.size();
+                                int pocVersion = downloadCache.getPoCVersion(blocks.get(0).getId());
+                                preVerifyHeaderProvenBlocks(blocks);
+                                if (!blocks.isEmpty()) {
+                                    CpuPoC.validatePoC(blocks, pocVersion, blockService);
+                                }
+                                importPipeline.recordBlocks(BlockImportPipeline.Stage.VERIFY, verifyStart, verifiedBlocks);
+                                importPipeline.signal(BlockImportPipeline.Stage.IMPORT);
+                            } catch (OCLPoC.PreValidateFailException e) {
+                                logger.info(e.toString(), e);
+                                blacklistClean(e.getBlock(), e, "found invalid pull/push data during processing the pocVerification");
+                                importPipeline.signal(BlockImportPipeline.Stage.IMPORT);
+                            }
+                        }
                     } else { //verify using java
                         try {
-                            blockService.preVerify(downloadCache.getFirstUnverifiedBlock());
+                            Block unverifiedBlock = downloadCache.getFirstUnverifiedBlock();
+                            if (unverifiedBlock != null) {
+                                long verifyStart = System.nanoTime();
+                                blockService.preVerify(unverifiedBlock);
+                                importPipeline.recordBlocks(BlockImportPipeline.Stage.VERIFY, verifyStart, 1);
+                                importPipeline.signal(BlockImportPipeline.Stage.IMPORT);
+                            }
                         } catch (InterruptedException e) {
                             Thread.currentThread().interrupt();
                         } catch (BlockNotAcceptedException e) {
                             logger.error("Block failed to preverify: ", e);
+                            // the importer may be waiting for this block, the failure is recorded on it
+                            importPipeline.signal(BlockImportPipeline.Stage.IMPORT);
                         }
                     }
+                } else {
+                    importPipeline.await(BlockImportPipeline.Stage.VERIFY, Constants.BLOCK_PROCESS_THREAD_DELAY);
                 }
             }
         };
@@ -716,6 +873,37 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         }
     }
 
+    /**
+     * Pre-verifies the blocks whose header was checked before they were downloaded, their hit is known already.
+     * Only the blocks that still need their scoop generated are left in the list.
+     */
+    private void preVerifyHeaderProvenBlocks(List<Block> blocks) {
+        Iterator<Block> iterator = blocks.iterator();
+        while (iterator.hasNext()) {
+            Block block = iterator.next();
+            if (block.getHeaderHit() != null) {
+                try {
+                    blockService.preVerify(block);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (BlockNotAcceptedException e) {
+                    throw new OCLPoC.PreValidateFailException("Block failed to prevalidate", e, block);
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    private int getVerifyQueueThreshold() {
+        return oclVerify ? oclUnverifiedQueue : 0;
+    }
+
+    @Override
+    public BlockImportPipeline getImportPipeline() {
+        return importPipeline;
+    }
+
     public final Boolean getOclVerify() {
         return oclVerify;
     }
@@ -807,7 +995,10 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
             newBlock.setHeight(chainblock.getHeight() + 1);
             newBlock.setByteLength(newBlock.toString().length());
             blockService.calculateBaseTarget(newBlock, chainblock);
-            downloadCache.addBlock(newBlock);
+            if (downloadCache.addBlock(newBlock)) {
+                importPipeline.signal(BlockImportPipeline.Stage.VERIFY);
+                importPipeline.signal(BlockImportPipeline.Stage.IMPORT);
+            }
             logger.debug("Peer {} added block from Announce: Id: {} Height: {}", peer.getPeerAddress(), newBlock.getId(), newBlock.getHeight());
         } else {
             logger.debug("Peer {} sent us block: {} which is not the follow-up block for {}", peer.getPeerAddress(), newBlock.getPreviousBlockId(), chainblock.getId());
@@ -875,9 +1066,34 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
         }
     }
 
+    private boolean isBulkImporting() {
+        return bulkImportBlocksBehind > 0
+                && lastBlockchainFeederHeight.get() - blockchain.getHeight() > bulkImportBlocksBehind;
+    }
+
+    /**
+     * Pushes the given block and the verified blocks following it in one database transaction, see
+     * {@link BulkBlockImport}.
+     *
+     * @return the number of blocks pushed
+     */
+    private int pushBlocksInBulk(Block firstBlock) throws BlockNotAcceptedException {
+        synchronized (transactionProcessor.getUnconfirmedTransactionsSyncObj()) {
+            return bulkBlockImport.push(firstBlock);
+        }
+    }
+
+    /**
+     * Pushes the block in a transaction of its own, or as part of the transaction of
+     * {@link #pushBlocksInBulk(Block)} when one is open.
+     */
     private void pushBlock(final Block block) throws BlockNotAcceptedException {
         synchronized (transactionProcessor.getUnconfirmedTransactionsSyncObj()) {
-            stores.beginTransaction();
+            final boolean inBulk = stores.isInTransaction();
+            final Savepoint savepoint = inBulk ? stores.setSavepoint() : null;
+            if (!inBulk) {
+                stores.beginTransaction();
+            }
             int curTime = timeService.getEpochTime();
 
             Block previousLastBlock = null;
@@ -1114,38 +1330,36 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                 blockService.setPrevious(block, previousLastBlock);
                 blockListeners.notify(block, Event.BEFORE_BLOCK_ACCEPT);
                 transactionProcessor.removeForgedTransactions(block.getTransactions());
-                transactionProcessor.requeueAllUnconfirmedTransactions();
+                transactionProcessor.requeueTouchedUnconfirmedTransactions();
                 accountService.flushAccountTable();
                 addBlock(block);
                 downloadCache.removeBlock(block); // We make sure downloadCache do not have this block anymore.
                 accept(block, remainingAmount, remainingFee);
                 derivedTableManager.getDerivedTables().forEach(DerivedTable::finish);
-                stores.commitTransaction();
+                if (!inBulk) {
+                    stores.commitTransaction();
+                }
 
             } catch (BlockNotAcceptedException | ArithmeticException e) {
-                stores.rollbackTransaction();
+                rollbackBlock(savepoint);
                 blockchain.setLastBlock(previousLastBlock);
                 downloadCache.resetCache();
                 throw e;
             } catch (SQLException e) {
-                stores.rollbackTransaction();
+                rollbackBlock(savepoint);
                 blockchain.setLastBlock(previousLastBlock);
                 downloadCache.resetCache();
             } finally {
-                if (connection != null) {
-                    try {
-                        connection.close();
-                    } catch (SQLException e) {
-                        //
-                    }
+                // the connection belongs to the transaction, it is closed when the transaction ends
+                if (!inBulk) {
+                    stores.endTransaction();
                 }
-                stores.endTransaction();
             }
             logger.debug("Successfully pushed " + block.getId() + " (height " + block.getHeight() + ")");
             statisticsManager.blockAdded();
-            blockListeners.notify(block, Event.BLOCK_PUSHED);
-            if (blockTimestamp >= timeService.getEpochTime() - MAX_TIMESTAMP_DIFFERENCE) {
-                Peers.sendToSomePeers(block);
+            if (!inBulk) {
+                // not committed yet otherwise, the bulk import announces it after the commit
+                announcePushedBlock(block);
             }
             if (block.getHeight() >= autoPopOffLastStuckHeight) {
                 autoPopOffNumberOfBlocks = 0;
@@ -1154,6 +1368,21 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
     }
 
+    private void announcePushedBlock(Block block) {
+        blockListeners.notify(block, Event.BLOCK_PUSHED);
+        if (block.getTimestamp() >= timeService.getEpochTime() - MAX_TIMESTAMP_DIFFERENCE) {
+            Peers.sendToSomePeers(block);
+        }
+    }
+
+    private void rollbackBlock(Savepoint savepoint) {
+        if (savepoint != null) {
+            stores.rollbackToSavepoint(savepoint);
+        } else {
+            stores.rollbackTransaction();
+        }
+    }
+
     private void accept(Block block, Long remainingAmount, Long remainingFee)
             throws BlockNotAcceptedException {
         subscriptionService.clearRemovals();
@@ -1225,9 +1454,10 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
                         poppedOffBlocks.add(block);
                         block = popLastBlock();
                     }
-                    derivedTableManager.getDerivedTables().forEach(table -> table.rollback(commonBlock.getHeight()));
-                    dbCacheManager.flushCache();
+                    // the tables drop the cached entries of whatever they roll back, the rest of the caches stays warm
+                    derivedTableManager.rollback(commonBlock.getHeight());
                     stores.commitTransaction();
+                    transactionProcessor.touchAllAccounts();
                     downloadCache.resetCache();
                 } catch (RuntimeException e) {
                     stores.rollbackTransaction();
@@ -1291,93 +1521,28 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
                 final TransactionDuplicatesCheckerImpl transactionDuplicatesChecker = new TransactionDuplicatesCheckerImpl();
 
-                Function<Transaction, Long> priorityCalculator = transaction -> {
-                    int age = blockTimestamp + 1 - transaction.getTimestamp();
-                    if (age < 0) age = 1;
-                    return transaction.getTransType() != 0 ? ((long) age) * transaction.getTransType() : ((long) age) * transaction.getFeeNQT();
-                };
+                Function<Transaction, Long> priorityCalculator = transaction -> BlockTemplate.priority(transaction, blockTimestamp);
+
+                Predicate<Transaction> inclusionFilter = transaction -> // Normal filtering
+                        transaction.getVersion() == transactionProcessor.getTransactionVersion(previousBlock.getHeight())
+                                && transaction.getExpiration() >= blockTimestamp
+                                && transaction.getTimestamp() <= blockTimestamp + MAX_TIMESTAMP_DIFFERENCE
+                                && (
+                                !Burst.getFluxCapacitor().getValue(FluxValues.AUTOMATED_TRANSACTION_BLOCK)
+                                        || economicClustering.verifyFork(transaction)
+                        )
+                                && preCheckUnconfirmedTransaction(transactionDuplicatesChecker, unconfirmedTransactionStore, transaction); // Extra check for transactions that are to be considered
 
                 // Map of slot number -> transaction
                 Map<Long, Transaction> transactionsToBeIncluded;
-                Stream<Transaction> inclusionCandidates = unconfirmedTransactionStore.getAll().stream()
-                        .filter(transaction -> // Normal filtering
-                                transaction.getVersion() == transactionProcessor.getTransactionVersion(previousBlock.getHeight())
-                                        && transaction.getExpiration() >= blockTimestamp
-                                        && transaction.getTimestamp() <= blockTimestamp + MAX_TIMESTAMP_DIFFERENCE
-                                        && (
-                                        !Burst.getFluxCapacitor().getValue(FluxValues.AUTOMATED_TRANSACTION_BLOCK)
-                                                || economicClustering.verifyFork(transaction)
-                                ))
-                        .filter(transaction -> preCheckUnconfirmedTransaction(transactionDuplicatesChecker, unconfirmedTransactionStore, transaction)); // Extra check for transactions that are to be considered
 
                 if (Burst.getFluxCapacitor().getValue(FluxValues.PRE_DYMAXION)) {
-                    // In this step we get all unconfirmed transactions and then sort them by slot, followed by priority
-                    Map<Long, Map<Long, Transaction>> unconfirmedTransactionsOrderedBySlotThenPriority = new HashMap<>();
-                    inclusionCandidates.collect(Collectors.toMap(tx -> tx, priorityCalculator)).forEach((transaction, priority) -> {
-
-                        byte transType = transaction.getTransType();
-                        long slot;
-
-                        if (transType == 1 || transType == 2 || transType == 3) {
-                            slot = 1000;
-                        } else {
-                            slot = (transaction.getFeeNQT() - (transaction.getFeeNQT() % FEE_QUANT)) / FEE_QUANT;
-                        }
-
-
-                        unconfirmedTransactionsOrderedBySlotThenPriority.computeIfAbsent(slot, k -> new HashMap<>());
-                        unconfirmedTransactionsOrderedBySlotThenPriority.get(slot).put(priority, transaction);
-                    });
-
-                    // In this step we sort through each slot and find the highest priority transaction in each.
-                    AtomicLong highestSlot = new AtomicLong();
-                    unconfirmedTransactionsOrderedBySlotThenPriority.keySet()
-                            .forEach(slot -> {
-                                if (highestSlot.get() < slot) {
-                                    highestSlot.set(slot);
-                                }
-                            });
-                    List<Long> slotsWithNoTransactions = new ArrayList<>();
-                    for (long slot = 1; slot <= highestSlot.get(); slot++) {
-                        Map<Long, Transaction> transactions = unconfirmedTransactionsOrderedBySlotThenPriority.get(slot);
-                        if (transactions == null || transactions.size() == 0) {
-                            slotsWithNoTransactions.add(slot);
-                        }
-                    }
-                    Map<Long, Transaction> unconfirmedTransactionsOrderedBySlot = new HashMap<>();
-                    unconfirmedTransactionsOrderedBySlotThenPriority.forEach((slot, transactions) -> {
-                        AtomicLong highestPriority = new AtomicLong();
-                        transactions.keySet().forEach(priority -> {
-                            if (highestPriority.get() < priority) {
-                                highestPriority.set(priority);
-                            }
-                        });
-                        unconfirmedTransactionsOrderedBySlot.put(slot, transactions.get(highestPriority.get()));
-                        transactions.remove(highestPriority.get()); // This is to help with filling slots with no transactions
-                    });
-
-                    // If a slot does not have any transactions in it, the next highest priority transaction from the slot above should be used.
-                    slotsWithNoTransactions.sort(Comparator.reverseOrder());
-                    slotsWithNoTransactions.forEach(emptySlot -> {
-                        long slotNumberToTakeFrom = emptySlot;
-                        Map<Long, Transaction> slotToTakeFrom = null;
-                        while (slotToTakeFrom == null || slotToTakeFrom.size() == 0) {
-                            slotNumberToTakeFrom++;
-                            if (slotNumberToTakeFrom > highestSlot.get()) return;
-                            slotToTakeFrom = unconfirmedTransactionsOrderedBySlotThenPriority.get(slotNumberToTakeFrom);
-                        }
-                        AtomicLong highestPriority = new AtomicLong();
-                        slotToTakeFrom.keySet().forEach(priority -> {
-                            if (highestPriority.get() < priority) {
-                                highestPriority.set(priority);
-                            }
-                        });
-                        unconfirmedTransactionsOrderedBySlot.put(emptySlot, slotToTakeFrom.get(highestPriority.get()));
-                        slotToTakeFrom.remove(highestPriority.get());
-                    });
-                    transactionsToBeIncluded = unconfirmedTransactionsOrderedBySlot;
+                    // The store keeps its transactions by slot, so only the ones that would be picked are checked
+                    transactionsToBeIncluded = unconfirmedTransactionStore.getBlockTemplate().fillSlots(blockTimestamp, inclusionFilter);
                 } else { // Before Pre-Dymaxion HF, just choose highest priority
-                    Map<Long, Transaction> transactionsOrderedByPriority = inclusionCandidates.collect(Collectors.toMap(priorityCalculator, tx -> tx));
+                    Map<Long, Transaction> transactionsOrderedByPriority = unconfirmedTransactionStore.getAll().stream()
+                            .filter(inclusionFilter)
+                            .collect(Collectors.toMap(priorityCalculator, tx -> tx));
                     Map<Long, Transaction> transactionsOrderedBySlot = new HashMap<>();
                     AtomicLong currentSlot = new AtomicLong(1);
                     transactionsOrderedByPriority.keySet()
@@ -1510,8 +1675,223 @@ public final class BlockchainProcessorImpl implements BlockchainProcessor {
 
     @Override
     public void scan(int height) {
-        throw new UnsupportedOperationException(
-                "scan is disabled for the moment - please use the pop off feature");
+        scan(height, false);
+    }
+
+    /**
+     * Rolls the derived tables back to {@code height - 1} and applies the stored blocks from {@code height} on
+     * again. With validation on, the proof of capacity and transaction signatures of upcoming blocks are
+     * pre-verified on worker threads while the blocks are applied in order. Progress is checkpointed, so a scan
+     * that is interrupted is resumed at the next start instead of leaving the derived tables half rebuilt.
+     *
+     * @param resume whether an interrupted scan is continued, in which case the derived tables are only trimmed
+     *               up to the checkpoint and the usual rollback limit does not apply
+     */
+    private void scan(int height, boolean resume) {
+        synchronized (downloadCache) {
+            synchronized (transactionProcessor.getUnconfirmedTransactionsSyncObj()) {
+                int blockchainHeight = blockchain.getHeight();
+                if (height < 0 || height > blockchainHeight + 1) {
+                    throw new IllegalArgumentException("Scan height " + height + " is outside of the blockchain of height " + blockchainHeight);
+                }
+                if (!resume && height > 0 && height - 1 < getMinRollbackHeight()) {
+                    throw new IllegalArgumentException("Rollback to height " + (height - 1) + " not supported, "
+                            + "derived tables are trimmed up to height " + getMinRollbackHeight() + ", scan from height 0 instead");
+                }
+                boolean validate = validateAtScan;
+                isScanning.set(true);
+                logger.info("Scanning blockchain starting from height " + height + "...");
+                if (validate) {
+                    logger.info("Also verifying signatures and proofs of capacity on " + scanThreads + " threads...");
+                }
+                try {
+                    scanCheckpoint.save(height, validate);
+                    Block lastBlock = rollbackForScan(height);
+                    blockListeners.notify(lastBlock, Event.RESCAN_BEGIN);
+                    lastBlock = replayBlocks(lastBlock, validate);
+                    scanCheckpoint.clear();
+                    blockListeners.notify(lastBlock, Event.RESCAN_END);
+                    validateAtScan = false;
+                    logger.info("...done at height " + blockchain.getHeight());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.info("Blockchain scan interrupted at height " + blockchain.getHeight() + ", it will be resumed at the next start");
+                } finally {
+                    downloadCache.resetCache();
+                    isScanning.set(false);
+                }
+            }
+        }
+    }
+
+    private Block rollbackForScan(int height) {
+        try {
+            stores.beginTransaction();
+            transactionProcessor.requeueAllUnconfirmedTransactions();
+            for (DerivedTable table : derivedTableManager.getDerivedTables()) {
+                if (height == 0) {
+                    table.truncate();
+                } else {
+                    table.rollback(height - 1);
+                }
+            }
+            dbCacheManager.flushCache();
+            stores.commitTransaction();
+        } catch (RuntimeException e) {
+            stores.rollbackTransaction();
+            throw e;
+        } finally {
+            stores.endTransaction();
+        }
+        Block lastBlock = height == 0 ? blockDb.findBlock(Genesis.GENESIS_BLOCK_ID) : blockchain.getBlockAtHeight(height - 1);
+        blockchain.setLastBlock(lastBlock);
+        return lastBlock;
+    }
+
+    /**
+     * Applies the blocks after {@code lastBlock} one by one. The next page of blocks is loaded, and with
+     * validation pre-verified, while the current page is applied. The first block that can not be applied is
+     * deleted from the database along with all blocks after it.
+     *
+     * @return the last block that was applied
+     */
+    private Block replayBlocks(Block lastBlock, boolean validate) throws InterruptedException {
+        ExecutorService verifyService = validate ? Executors.newFixedThreadPool(scanThreads) : null;
+        long startNanos = System.nanoTime();
+        int scannedBlocks = 0;
+        ScanPage next = null;
+        try {
+            ScanPage page = new ScanPage(blockchain.getBlocksAfter(lastBlock.getId(), SCAN_PAGE_SIZE), verifyService);
+            while (!page.blocks.isEmpty()) {
+                if (!ThreadPool.running.get()) {
+                    throw new InterruptedException();
+                }
+                next = new ScanPage(blockchain.getBlocksAfter(page.blocks.get(page.blocks.size() - 1).getId(), SCAN_PAGE_SIZE), verifyService);
+                for (int i = 0; i < page.blocks.size(); i++) {
+                    Block block = page.blocks.get(i);
+                    try {
+                        applyScannedBlock(block, validate, page.awaitVerification(i));
+                    } catch (BlockNotAcceptedException | RuntimeException e) {
+                        logger.warn("Applying block " + block.getStringId() + " at height " + block.getHeight()
+                                + " failed, deleting it and all blocks after it from the database", e);
+                        next.cancel();
+                        page.cancel();
+                        transactionProcessor.processLater(block.getTransactions());
+                        blockDb.deleteBlocksFrom(block.getId());
+                        return lastBlock;
+                    }
+                    lastBlock = block;
+                    scannedBlocks++;
+                    if (scannedBlocks % SCAN_CHECKPOINT_INTERVAL == 0) {
+                        scanCheckpoint.save(block.getHeight() + 1, validate);
+                    }
+                    if (scannedBlocks % SCAN_REPORT_INTERVAL == 0) {
+                        logScanProgress(block, scannedBlocks, startNanos);
+                    }
+                }
+                page = next;
+                next = null;
+            }
+            logScanProgress(lastBlock, scannedBlocks, startNanos);
+            return lastBlock;
+        } finally {
+            if (next != null) {
+                next.cancel();
+            }
+            if (verifyService != null) {
+                verifyService.shutdownNow();
+            }
+        }
+    }
+
+    private void applyScannedBlock(Block block, boolean validate, BlockNotAcceptedException verificationFailure) throws BlockNotAcceptedException {
+        Block previousLastBlock = blockchain.getLastBlock();
+        stores.beginTransaction();
+        try {
+            if (block.getPreviousBlockId() != previousLastBlock.getId()) {
+                throw new BlockOutOfOrderException("Database blocks in the wrong order at height " + block.getHeight());
+            }
+            if (verificationFailure != null) {
+                throw verificationFailure;
+            }
+            if (validate) {
+                if (block.getHeight() > 7 && !blockService.verifyGenerationSignature(block)) {
+                    throw new BlockNotAcceptedException("Generation signature verification failed for block " + block.getHeight());
+                }
+                if (!blockService.verifyBlockSignature(block)) {
+                    throw new BlockNotAcceptedException("Block signature verification failed for block " + block.getHeight());
+                }
+            }
+            blockListeners.notify(block, Event.BEFORE_BLOCK_ACCEPT);
+            transactionProcessor.requeueTouchedUnconfirmedTransactions();
+            accountService.flushAccountTable();
+            blockchain.setLastBlock(block);
+            block.getTransactions().forEach(indirectIncomingService::processTransaction);
+            accept(block, null, null);
+            derivedTableManager.getDerivedTables().forEach(DerivedTable::finish);
+            stores.commitTransaction();
+        } catch (BlockNotAcceptedException | RuntimeException e) {
+            stores.rollbackTransaction();
+            blockchain.setLastBlock(previousLastBlock);
+            throw e;
+        } finally {
+            stores.endTransaction();
+        }
+        blockListeners.notify(block, Event.BLOCK_SCANNED);
+    }
+
+    private void logScanProgress(Block block, int scannedBlocks, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1000000000d;
+        logger.info(String.format("Scanned %d blocks up to height %d, %.1f blocks/s", scannedBlocks, block.getHeight(),
+                seconds > 0 ? scannedBlocks / seconds : 0));
+    }
+
+    /**
+     * A page of stored blocks with their pre-verification, if the scan validates.
+     */
+    private final class ScanPage {
+        private final List<? extends Block> blocks;
+        private final List<Future<?>> verifications = new ArrayList<>();
+
+        private ScanPage(List<? extends Block> blocks, ExecutorService verifyService) {
+            this.blocks = blocks;
+            if (verifyService != null) {
+                for (Block block : blocks) {
+                    verifications.add(verifyService.submit(() -> {
+                        blockService.preVerify(block);
+                        return null;
+                    }));
+                }
+            }
+        }
+
+        /**
+         * @return the reason the block at the given index failed pre-verification, or null
+         */
+        private BlockNotAcceptedException awaitVerification(int index) throws InterruptedException {
+            if (verifications.isEmpty()) {
+                return null;
+            }
+            try {
+                verifications.get(index).get();
+                if (!blocks.get(index).isVerified()) {
+                    return new BlockNotAcceptedException("Proof of capacity could not be verified for block " + blocks.get(index).getHeight());
+                }
+                return null;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof BlockNotAcceptedException) {
+                    return (BlockNotAcceptedException) e.getCause();
+                }
+                if (e.getCause() instanceof InterruptedException) {
+                    throw (InterruptedException) e.getCause();
+                }
+                return new BlockNotAcceptedException("Pre-verification failed for block " + blocks.get(index).getHeight() + ": " + e.getCause());
+            }
+        }
+
+        private void cancel() {
+            verifications.forEach(verification -> verification.cancel(true));
+        }
     }
 
 }
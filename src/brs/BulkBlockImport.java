@@ -0,0 +1,122 @@
+package brs;
+
+import brs.BlockchainProcessor.BlockNotAcceptedException;
+import brs.db.store.Stores;
+import brs.util.DownloadCacheImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Pushes a block and the verified blocks following it in the download cache in one database transaction, up
+ * to the commit interval. Every block still gets its own versions of the rows it changes, so any of them can
+ * be popped off later. A block that is not accepted only undoes its own changes, up to the savepoint set for
+ * it, and the blocks before it are committed. Until the commit, only the importing thread sees the pushed
+ * blocks as the last block, and they are announced once committed.
+ */
+final class BulkBlockImport {
+
+  interface BlockPusher {
+    /**
+     * Pushes the block within the open transaction, rolling back to a savepoint of its own if it is not accepted.
+     */
+    void push(Block block) throws BlockNotAcceptedException;
+  }
+
+  private final Stores stores;
+  private final BlockchainImpl blockchain;
+  private final DownloadCacheImpl downloadCache;
+  private final BlockPusher pusher;
+  private final Consumer<Block> announcer;
+  private final BooleanSupplier stillBehind;
+  private final int commitInterval;
+
+  BulkBlockImport(Stores stores, BlockchainImpl blockchain, DownloadCacheImpl downloadCache, BlockPusher pusher,
+                  Consumer<Block> announcer, BooleanSupplier stillBehind, int commitInterval) {
+    this.stores = stores;
+    this.blockchain = blockchain;
+    this.downloadCache = downloadCache;
+    this.pusher = pusher;
+    this.announcer = announcer;
+    this.stillBehind = stillBehind;
+    this.commitInterval = Math.max(commitInterval, 1);
+  }
+
+  /**
+   * @return the number of blocks pushed
+   * @throws BulkBlockNotAcceptedException naming the block that was not accepted
+   */
+  int push(Block firstBlock) throws BlockNotAcceptedException {
+    List<Block> pushedBlocks = new ArrayList<>();
+    boolean commit = false;
+    blockchain.holdBackLastBlock();
+    stores.beginTransaction();
+    try {
+      Block block = firstBlock;
+      while (block != null) {
+        try {
+          pusher.push(block);
+        } catch (BlockNotAcceptedException e) {
+          // only the rejected block was rolled back
+          commit = true;
+          throw new BulkBlockNotAcceptedException(block, e);
+        }
+        pushedBlocks.add(block);
+        if (pushedBlocks.size() >= commitInterval || !stillBehind.getAsBoolean()) {
+          break;
+        }
+        block = nextVerifiedBlock();
+      }
+      commit = true;
+    } finally {
+      boolean committed = false;
+      try {
+        if (commit) {
+          stores.commitTransaction();
+          committed = true;
+        } else {
+          stores.rollbackTransaction();
+          downloadCache.resetCache();
+        }
+      } finally {
+        stores.endTransaction();
+        if (committed) {
+          blockchain.publishLastBlock();
+          pushedBlocks.forEach(announcer);
+        } else {
+          blockchain.discardLastBlock();
+        }
+      }
+    }
+    return pushedBlocks.size();
+  }
+
+  private Block nextVerifiedBlock() {
+    Block lastBlock = blockchain.getLastBlock();
+    Block block = downloadCache.getNextBlock(lastBlock.getId());
+    if (block != null && (block.getHeight() != lastBlock.getHeight() + 1 || !block.isVerified())) {
+      return null;
+    }
+    return block;
+  }
+
+  /**
+   * A block pushed in bulk that was not accepted, the blocks of the bulk before it are committed.
+   */
+  static final class BulkBlockNotAcceptedException extends BlockNotAcceptedException {
+
+    private final Block block;
+
+    private BulkBlockNotAcceptedException(Block block, BlockNotAcceptedException cause) {
+      super(cause.getMessage());
+      initCause(cause);
+      this.block = block;
+    }
+
+    Block getBlock() {
+      return block;
+    }
+  }
+}
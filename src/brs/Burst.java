@@ -4,6 +4,8 @@ import brs.AT.HandleATBlockTransactionsListener;
 import brs.assetexchange.AssetExchange;
 import brs.assetexchange.AssetExchangeImpl;
 import brs.blockchainlistener.DevNullListener;
+import brs.crypto.Crypto;
+import brs.crypto.SignatureVerifier;
 import brs.db.BlockDb;
 import brs.db.cache.DBCacheManagerImpl;
 import brs.db.sql.Db;
@@ -20,6 +22,7 @@ import brs.http.API;
 import brs.http.APITransactionManager;
 import brs.http.APITransactionManagerImpl;
 import brs.peer.Peers;
+import brs.props.Prop;
 import brs.props.PropertyService;
 import brs.props.PropertyServiceImpl;
 import brs.props.Props;
@@ -73,6 +76,7 @@ public final class Burst {
 
     private static API api;
     private static Server apiV2Server;
+    private static NonceSubmitter nonceSubmitter;
 
     private static ArrayBlockingQueue pledgeQueue;
 
@@ -159,6 +163,7 @@ public final class Burst {
     private static void loadWallet(PropertyService propertyService) {
         //validateVersionNotDev(propertyService);
         Burst.propertyService = propertyService;
+        Crypto.init(propertyService);
 
         try {
             long startTime = System.currentTimeMillis();
@@ -168,7 +173,7 @@ public final class Burst {
             final DerivedTableManager derivedTableManager = new DerivedTableManager();
 
             final StatisticsManagerImpl statisticsManager = new StatisticsManagerImpl(timeService);
-            dbCacheManager = new DBCacheManagerImpl(statisticsManager);
+            dbCacheManager = new DBCacheManagerImpl(propertyService, statisticsManager);
 
             threadPool = new ThreadPool(propertyService);
 
@@ -177,7 +182,7 @@ public final class Burst {
             Db.init(propertyService, dbCacheManager);
             dbs = Db.getDbsByDatabaseType();
 
-            stores = new Stores(derivedTableManager, dbCacheManager, timeService, propertyService);
+            stores = new Stores(derivedTableManager, timeService, propertyService);
 
             final TransactionDb transactionDb = dbs.getTransactionDb();
             final BlockDb blockDb = dbs.getBlockDb();
@@ -195,8 +200,10 @@ public final class Burst {
 
             final TransactionService transactionService = new TransactionServiceImpl(accountService, blockchain);
 
+            final SignatureVerifier signatureVerifier = new SignatureVerifier(getThreads(propertyService, Props.CPU_SIGNATURE_VERIFY_THREADS));
+
             transactionProcessor = new TransactionProcessorImpl(propertyService, economicClustering, blockchain, stores, timeService, dbs,
-                    accountService, transactionService, threadPool);
+                    accountService, transactionService, threadPool, signatureVerifier);
 
             final ATService atService = new ATServiceImpl(stores.getAtStore());
             final SubscriptionService subscriptionService = new SubscriptionServiceImpl(stores.getSubscriptionStore(), transactionDb, blockchain, aliasService, accountService);
@@ -209,7 +216,7 @@ public final class Burst {
 
             final IndirectIncomingService indirectIncomingService = new IndirectIncomingServiceImpl(stores.getIndirectIncomingStore(), propertyService);
 
-            final BlockService blockService = new BlockServiceImpl(accountService, transactionService, blockchain, downloadCache, generator);
+            final BlockService blockService = new BlockServiceImpl(accountService, transactionService, blockchain, downloadCache, generator, signatureVerifier);
             blockchainProcessor = new BlockchainProcessorImpl(threadPool, blockService, transactionProcessor, blockchain, propertyService, subscriptionService,
                     timeService, derivedTableManager,
                     blockDb, transactionDb, economicClustering, blockchainStore, stores, escrowService, transactionService, downloadCache, generator, statisticsManager,
@@ -232,15 +239,18 @@ public final class Burst {
 
             TransactionType.init(blockchain, fluxCapacitor, accountService, digitalGoodsStoreService, aliasService, assetExchange, subscriptionService, escrowService);
 
+            nonceSubmitter = new NonceSubmitter(blockchain, accountService, generator,
+                    getThreads(propertyService, Props.CPU_NONCE_SUBMIT_THREADS), propertyService.getInt(Props.API_NONCE_SUBMIT_QUEUE_SIZE));
+
             api = new API(transactionProcessor, blockchain, blockchainProcessor, parameterService,
                     accountService, aliasService, assetExchange, escrowService, digitalGoodsStoreService,
                     subscriptionService, atService, timeService, economicClustering, propertyService, threadPool,
-                    transactionService, blockService, generator, apiTransactionManager, feeSuggestionCalculator, deepLinkQRCodeGenerator, indirectIncomingService);
+                    transactionService, blockService, generator, apiTransactionManager, feeSuggestionCalculator, deepLinkQRCodeGenerator, indirectIncomingService, nonceSubmitter);
 
             if (propertyService.getBoolean(Props.API_V2_SERVER)) {
                 int port = propertyService.getBoolean(Props.DEV_TESTNET) ? propertyService.getInt(Props.DEV_API_V2_PORT) : propertyService.getInt(Props.API_V2_PORT);
                 logger.info("Starting V2 API Server on port {}", port);
-                BrsService apiV2 = new BrsService(blockchainProcessor, blockchain, blockService, accountService, generator, transactionProcessor, timeService, feeSuggestionCalculator, atService, aliasService, indirectIncomingService, fluxCapacitor, escrowService, assetExchange, subscriptionService, digitalGoodsStoreService, propertyService);
+                BrsService apiV2 = new BrsService(blockchainProcessor, blockchain, blockService, accountService, generator, transactionProcessor, timeService, feeSuggestionCalculator, atService, aliasService, indirectIncomingService, fluxCapacitor, escrowService, assetExchange, subscriptionService, digitalGoodsStoreService, propertyService, nonceSubmitter);
                 apiV2Server = ServerBuilder.forPort(port).addService(apiV2).build().start();
             } else {
                 logger.info("Not starting V2 API Server - it is disabled.");
@@ -285,6 +295,14 @@ public final class Burst {
         blockchainProcessor.addListener(devNullListener, BlockchainProcessor.Event.AFTER_BLOCK_APPLY);
     }
 
+    private static int getThreads(PropertyService propertyService, Prop<Integer> threadsProp) {
+        int threads = propertyService.getInt(threadsProp);
+        if (threads <= 0) {
+            threads = propertyService.getInt(Props.CPU_NUM_CORES);
+        }
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
     private static void shutdown() {
         shutdown(false);
     }
@@ -320,11 +338,16 @@ public final class Burst {
             api.shutdown();
         if (apiV2Server != null)
             apiV2Server.shutdownNow();
+        if (nonceSubmitter != null)
+            nonceSubmitter.shutdown();
         Peers.shutdown(threadPool);
         threadPool.shutdown();
+        if (transactionProcessor != null)
+            transactionProcessor.closeMempoolJournal();
         if (!ignoreDBShutdown) {
             Db.shutdown();
         }
+        Crypto.wipePublicKeyCache();
         dbCacheManager.close();
         if (blockchainProcessor != null && blockchainProcessor.getOclVerify()) {
             OCLPoC.destroy();
@@ -0,0 +1,44 @@
+package brs;
+
+import brs.services.BlockService;
+import brs.util.ScoopGenerator;
+
+import java.util.Collection;
+
+/**
+ * Verifies the proof of capacity of a batch of blocks on the CPU, the counterpart of {@link OCLPoC} for nodes
+ * without a GPU. The scoops of {@link ScoopGenerator#LANES} blocks are generated at once by the multi-lane
+ * Shabal implementation, which keeps the SIMD units busy where hashing one nonce after the other can not.
+ */
+final class CpuPoC {
+
+  private CpuPoC() {
+  }
+
+  static void validatePoC(Collection<Block> blocks, int pocVersion, BlockService blockService) {
+    long[] ids = new long[blocks.size()];
+    long[] nonces = new long[blocks.size()];
+    int[] scoopNums = new int[blocks.size()];
+    int i = 0;
+    for (Block block : blocks) {
+      ids[i] = block.getGeneratorId();
+      nonces[i] = block.getNonce();
+      scoopNums[i] = blockService.getScoopNum(block);
+      i++;
+    }
+
+    byte[][] scoops = ScoopGenerator.getScoops(ids, nonces, scoopNums, pocVersion == 2);
+
+    i = 0;
+    for (Block block : blocks) {
+      try {
+        blockService.preVerify(block, scoops[i++]);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (BlockchainProcessor.BlockNotAcceptedException e) {
+        throw new OCLPoC.PreValidateFailException("Block failed to prevalidate", e, block);
+      }
+    }
+  }
+}
@@ -2,6 +2,7 @@ package brs;
 
 import brs.crypto.Crypto;
 import brs.fluxcapacitor.FluxCapacitor;
+import brs.fluxcapacitor.FluxValues;
 import brs.props.PropertyService;
 import brs.props.Props;
 import brs.services.TimeService;
@@ -12,10 +13,12 @@ import org.slf4j.LoggerFactory;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +32,20 @@ public class GeneratorImpl implements Generator {
     private static final ConcurrentMap<Long, GeneratorStateImpl> generators = new ConcurrentHashMap<>();
     private static final Collection<? extends GeneratorState> allGenerators = Collections.unmodifiableCollection(generators.values());
 
+    private static final int HIT_CACHE_SIZE = 10000;
+    private static final long FORGE_RETRY_DELAY_MS = 500;
+
+    // the best nonce of every account for the block after scheduledLastBlockId, ordered by deadline; entries an
+    // account has since improved on stay in the queue until they come up, and are skipped then
+    private static final Object scheduleLock = new Object();
+    private static final PriorityQueue<GeneratorStateImpl> forgingSchedule = new PriorityQueue<>(Comparator.comparing(GeneratorStateImpl::getDeadline));
+    private static long scheduledLastBlockId;
+    // nonces that did not get a block generated, given another try once the rest of the schedule had theirs
+    private static final List<GeneratorStateImpl> retrySchedule = new ArrayList<>();
+    private static long retryAtMillis;
+
+    private final HitCache hitCache = new HitCache(HIT_CACHE_SIZE);
+
     private final Blockchain blockchain;
     private final TimeService timeService;
     private final FluxCapacitor fluxCapacitor;
@@ -42,28 +59,31 @@ public class GeneratorImpl implements Generator {
         return () -> {
 
             try {
-                if (blockchainProcessor.isScanning()) {
-                    return;
-                }
-                try {
-                    long currentBlock = blockchain.getLastBlock().getHeight();
-                    Iterator<Entry<Long, GeneratorStateImpl>> it = generators.entrySet().iterator();
-                    while (it.hasNext() && !Thread.currentThread().isInterrupted() && ThreadPool.running.get()) {
-                        Entry<Long, GeneratorStateImpl> generator = it.next();
-                        if (currentBlock < generator.getValue().getBlock()) {
-                            try {
-                                generator.getValue().forge(blockchainProcessor);
-                            } catch (BlockchainProcessor.BlockNotAcceptedException e) {
-                                it.remove();
-                                throw e;
-                            }
-                        } else {
-                            it.remove();
+                while (!Thread.currentThread().isInterrupted() && ThreadPool.running.get()) {
+                    if (blockchainProcessor.isScanning()) {
+                        return;
+                    }
+                    GeneratorStateImpl next = nextToForge();
+                    if (next == null) {
+                        continue;
+                    }
+                    try {
+                        next.forge(blockchainProcessor);
+                    } catch (BlockchainProcessor.BlockNotAcceptedException e) {
+                        generators.remove(next.getAccountId(), next);
+                        logger.debug("Error in block generation thread", e);
+                        continue;
+                    }
+                    synchronized (scheduleLock) {
+                        if (blockchain.getLastBlock().getId() == scheduledLastBlockId && generators.get(next.getAccountId()) == next) {
+                            // the block was not generated, go on with the next nonce and try this one again later
+                            retrySchedule.add(next);
+                            retryAtMillis = System.currentTimeMillis() + FORGE_RETRY_DELAY_MS;
                         }
                     }
-                } catch (BlockchainProcessor.BlockNotAcceptedException e) {
-                    logger.debug("Error in block generation thread", e);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } catch (Exception t) {
                 logger.info("CRITICAL ERROR. PLEASE REPORT TO THE DEVELOPERS.\n" + t.toString(), t);
                 System.exit(1);
@@ -72,8 +92,61 @@ public class GeneratorImpl implements Generator {
         };
     }
 
+    /**
+     * Waits until the deadline of the best nonce has passed, a better nonce arrives or the last block changes.
+     *
+     * @return the nonce to forge with now, taken off the schedule, or null if there is none yet
+     */
+    private GeneratorStateImpl nextToForge() throws InterruptedException {
+        synchronized (scheduleLock) {
+            Block lastBlock = blockchain.getLastBlock();
+            if (lastBlock.getId() != scheduledLastBlockId) {
+                clearSchedule(lastBlock.getId());
+            }
+            long retryWaitMillis = retryAtMillis - System.currentTimeMillis();
+            if (!retrySchedule.isEmpty() && retryWaitMillis <= 0) {
+                forgingSchedule.addAll(retrySchedule);
+                retrySchedule.clear();
+            }
+            GeneratorStateImpl next = forgingSchedule.peek();
+            while (next != null && generators.get(next.getAccountId()) != next) {
+                forgingSchedule.poll();
+                next = forgingSchedule.peek();
+            }
+            if (next == null) {
+                // woken up by new nonces and by pushed or popped blocks
+                scheduleLock.wait(retrySchedule.isEmpty() ? 0 : retryWaitMillis);
+                return null;
+            }
+            long forgeTimeMillis = (lastBlock.getTimestamp() + next.getDeadline().min(BigInteger.valueOf(Integer.MAX_VALUE)).longValue() + 1) * 1000L;
+            long waitMillis = forgeTimeMillis - timeService.getEpochTimeMillis();
+            if (waitMillis > 0) {
+                scheduleLock.wait(retrySchedule.isEmpty() ? waitMillis : Math.min(waitMillis, retryWaitMillis));
+                return null;
+            }
+            return forgingSchedule.poll();
+        }
+    }
+
+    private static void clearSchedule(long lastBlockId) {
+        forgingSchedule.clear();
+        retrySchedule.clear();
+        generators.clear();
+        scheduledLastBlockId = lastBlockId;
+    }
+
+    private static void wakeUpScheduler() {
+        synchronized (scheduleLock) {
+            scheduleLock.notifyAll();
+        }
+    }
+
     @Override
     public void generateForBlockchainProcessor(ThreadPool threadPool, BlockchainProcessor blockchainProcessor) {
+        // hits of popped off heights may be asked for again with another generation signature at the same height
+        blockchainProcessor.addListener(block -> hitCache.clear(), BlockchainProcessor.Event.BLOCK_POPPED);
+        blockchainProcessor.addListener(block -> wakeUpScheduler(), BlockchainProcessor.Event.BLOCK_PUSHED);
+        blockchainProcessor.addListener(block -> wakeUpScheduler(), BlockchainProcessor.Event.BLOCK_POPPED);
         threadPool.scheduleThread("GenerateBlocks", generateBlockThread(blockchainProcessor), 500, TimeUnit.MILLISECONDS);
     }
 
@@ -102,9 +175,21 @@ public class GeneratorImpl implements Generator {
         long id = Convert.fullHashToId(publicKeyHash);
 
         GeneratorStateImpl generator = new GeneratorStateImpl(secretPhrase, nonce, publicKey, id);
-        GeneratorStateImpl curGen = generators.get(id);
-        if (curGen == null || generator.getBlock() > curGen.getBlock() || generator.getDeadline().compareTo(curGen.getDeadline()) < 0) {
-            generators.put(id, generator);
+        boolean scheduled;
+        synchronized (scheduleLock) {
+            if (generator.lastBlockId != scheduledLastBlockId && generator.lastBlockId == blockchain.getLastBlock().getId()) {
+                clearSchedule(generator.lastBlockId);
+            }
+            GeneratorStateImpl curGen = generators.get(id);
+            scheduled = generator.lastBlockId == scheduledLastBlockId
+                    && (curGen == null || generator.getDeadline().compareTo(curGen.getDeadline()) < 0);
+            if (scheduled) {
+                generators.put(id, generator);
+                forgingSchedule.add(generator);
+                scheduleLock.notifyAll();
+            }
+        }
+        if (scheduled) {
             listeners.notify(generator, Event.NONCE_SUBMITTED);
             logger.debug("Account " + Convert.toUnsignedLong(id) + " started mining, deadline " + generator.getDeadline() + " seconds");
         } else {
@@ -137,12 +222,17 @@ public class GeneratorImpl implements Generator {
 
     @Override
     public BigInteger calculateHit(long accountId, long nonce, byte[] genSig, int scoop, int blockHeight) {
-        MiningPlot plot = new MiningPlot(accountId, nonce, blockHeight, fluxCapacitor);
+        BigInteger cachedHit = hitCache.get(accountId, nonce, genSig, scoop, blockHeight);
+        if (cachedHit != null) {
+            return cachedHit;
+        }
         MessageDigest shabal256 = Crypto.shabal256();
         shabal256.update(genSig);
-        plot.hashScoop(shabal256, scoop);
+        ScoopGenerator.hashScoop(shabal256, accountId, nonce, scoop, fluxCapacitor.getValue(FluxValues.POC2, blockHeight));
         byte[] hash = shabal256.digest();
-        return new BigInteger(1, new byte[]{hash[7], hash[6], hash[5], hash[4], hash[3], hash[2], hash[1], hash[0]});
+        BigInteger hit = new BigInteger(1, new byte[]{hash[7], hash[6], hash[5], hash[4], hash[3], hash[2], hash[1], hash[0]});
+        hitCache.put(accountId, nonce, genSig, scoop, blockHeight, hit);
+        return hit;
     }
 
     @Override
@@ -191,6 +281,7 @@ public class GeneratorImpl implements Generator {
         private final BigInteger deadline;
         private final long nonce;
         private final long block;
+        private final long lastBlockId;
 
         private GeneratorStateImpl(String secretPhrase, Long nonce, byte[] publicKey, Long account) {
             this.secretPhrase = secretPhrase;
@@ -202,6 +293,7 @@ public class GeneratorImpl implements Generator {
             Block lastBlock = blockchain.getLastBlock();
 
             this.block = (long) lastBlock.getHeight() + 1;
+            this.lastBlockId = lastBlock.getId();
 
             byte[] lastGenSig = lastBlock.getGenerationSignature();
             Long lastGenerator = lastBlock.getGeneratorId();
@@ -210,6 +302,8 @@ public class GeneratorImpl implements Generator {
 
             int scoopNum = calculateScoop(newGenSig, lastBlock.getHeight() + 1L);
 
+            hitCache.advance(newGenSig, lastBlock.getHeight() + 1);
+
             deadline = calculateDeadline(accountId, nonce, newGenSig, scoopNum, lastBlock.getBaseTarget(), lastBlock.getHeight() + 1);
         }
 
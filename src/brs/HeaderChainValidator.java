@@ -0,0 +1,233 @@
+package brs;
+
+import brs.peer.Peer;
+import brs.services.BlockService;
+import brs.services.TimeService;
+import brs.util.Convert;
+import brs.util.DownloadCacheImpl;
+import brs.util.JSON;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Checks the chain a peer offers from its block headers before the full blocks are downloaded: every header
+ * has to link to the one before it and carry the generation signature derived from its predecessor, and the
+ * base targets recomputed from the headers have to add up to the cumulative difficulty the peer claims. Block
+ * signatures are left to the full verification, as the key they are checked against depends on the reward
+ * recipient assignments in our account state.
+ * <p>
+ * Proving that the deadline of a header had passed at its timestamp takes a scoop computation, too much to do
+ * for a full response on the download thread. Only a random sample of the headers, always including the last
+ * one, has its deadline checked here: a chain made up to look heavy needs many invalid deadlines, and is
+ * unlikely to get a single one past the sample.
+ * <p>
+ * The ids of the confirmed headers are kept, so the downloaded blocks can be matched against them: a block
+ * following a confirmed header that is not the confirmed one is rejected. A block whose header was in the
+ * sample takes the hit proven by it as its {@link Block#getHeaderHit() header hit}, which pre-verification
+ * trusts instead of computing the PoC again. Every other block has its PoC verified in full as usual.
+ */
+final class HeaderChainValidator {
+
+  private static final Logger logger = LoggerFactory.getLogger(HeaderChainValidator.class);
+
+  private static final int MAX_HEADERS = 1440;
+  private static final int HIT_SAMPLE_SIZE = 32;
+  private static final int MAX_TIMESTAMP_DIFFERENCE = 15;
+
+  enum Result {
+    /** The headers form a valid chain, go ahead and download the blocks. */
+    CONFIRMED,
+    /** The headers are invalid or do not beat our chain, the peer should not be downloaded from. */
+    REJECTED,
+    /** The peer did not serve headers, download the blocks as usual. */
+    UNAVAILABLE
+  }
+
+  private final BlockService blockService;
+  private final Generator generator;
+  private final TimeService timeService;
+  private final DownloadCacheImpl downloadCache;
+
+  private Peer confirmedPeer;
+  private long confirmedLastId;
+  private final Map<Long, Block> confirmedHeaders = new HashMap<>();
+  private final Map<Long, Long> confirmedNextIds = new HashMap<>();
+
+  HeaderChainValidator(BlockService blockService, Generator generator, TimeService timeService, DownloadCacheImpl downloadCache) {
+    this.blockService = blockService;
+    this.generator = generator;
+    this.timeService = timeService;
+    this.downloadCache = downloadCache;
+  }
+
+  /**
+   * Fetches and checks the headers following {@code commonBlock} from the peer. A chain that was confirmed by
+   * an earlier call is not fetched again as long as its bodies are still being downloaded.
+   *
+   * @param ourCumulativeDifficulty the cumulative difficulty a fork has to beat, null if the headers extend our chain
+   * @param claimedCumulativeDifficulty the cumulative difficulty the peer reported for its chain
+   */
+  synchronized Result check(Peer peer, Block commonBlock, BigInteger ourCumulativeDifficulty, BigInteger claimedCumulativeDifficulty) {
+    if (peer == confirmedPeer && ourCumulativeDifficulty == null
+        && confirmedHeaders.containsKey(commonBlock.getId()) && commonBlock.getId() != confirmedLastId) {
+      return Result.CONFIRMED;
+    }
+    confirmedPeer = null;
+    confirmedHeaders.clear();
+    confirmedNextIds.clear();
+
+    JsonObject request = new JsonObject();
+    request.addProperty("requestType", "getBlockHeaders");
+    request.addProperty("blockId", Convert.toUnsignedLong(commonBlock.getId()));
+    request.addProperty("numHeaders", MAX_HEADERS);
+    JsonObject response = peer.send(JSON.prepareRequest(request));
+    if (response == null) {
+      return Result.UNAVAILABLE;
+    }
+    JsonArray blockHeaders = JSON.getAsJsonArray(response.get("blockHeaders"));
+    if (blockHeaders == null) {
+      return Result.UNAVAILABLE;
+    }
+    if (blockHeaders.size() > MAX_HEADERS) {
+      peer.blacklist("obsolete or rogue peer sends too many block headers");
+      return Result.REJECTED;
+    }
+
+    Map<Long, Block> headers = new HashMap<>();
+    List<Block> chain = new ArrayList<>(blockHeaders.size() + 1);
+    chain.add(commonBlock);
+    Block previous = commonBlock;
+    try {
+      for (JsonElement blockHeader : blockHeaders) {
+        Block header = Block.parseHeader(Convert.parseHexString(JSON.getAsString(blockHeader)), previous.getHeight() + 1);
+        String error = verify(header, previous, headers);
+        if (error != null) {
+          peer.blacklist("served invalid block header at height " + header.getHeight() + ": " + error);
+          return Result.REJECTED;
+        }
+        headers.put(header.getId(), header);
+        chain.add(header);
+        previous = header;
+      }
+      for (int index : sampleHitChecks(chain.size() - 1)) {
+        Block header = chain.get(index);
+        String error = verifyHit(header, chain.get(index - 1));
+        if (error != null) {
+          peer.blacklist("served invalid block header at height " + header.getHeight() + ": " + error);
+          return Result.REJECTED;
+        }
+      }
+    } catch (BurstException.ValidationException | BlockchainProcessor.BlockOutOfOrderException | RuntimeException e) {
+      peer.blacklist(e, "served unparseable block headers");
+      return Result.REJECTED;
+    }
+
+    // a full response means the peer has more, so its chain only has to be at least as heavy as far as we got
+    if (blockHeaders.size() < MAX_HEADERS) {
+      if (previous.getCumulativeDifficulty().compareTo(claimedCumulativeDifficulty) < 0) {
+        peer.blacklist("block headers add up to less than the claimed cumulative difficulty");
+        return Result.REJECTED;
+      }
+      if (ourCumulativeDifficulty != null && previous.getCumulativeDifficulty().compareTo(ourCumulativeDifficulty) <= 0) {
+        peer.blacklist("block headers do not beat our cumulative difficulty");
+        return Result.REJECTED;
+      }
+    }
+
+    logger.debug("Peer {} served {} valid block headers up to height {}", peer.getPeerAddress(), headers.size(), previous.getHeight());
+    confirmedPeer = peer;
+    confirmedLastId = previous.getId();
+    confirmedHeaders.putAll(headers);
+    confirmedHeaders.put(commonBlock.getId(), commonBlock);
+    for (Block header : headers.values()) {
+      confirmedNextIds.put(header.getPreviousBlockId(), header.getId());
+    }
+    return Result.CONFIRMED;
+  }
+
+  /**
+   * Matches a downloaded block against the confirmed headers.
+   *
+   * @return the hit proven by the header of the block, null if no header was confirmed after its previous block
+   * or the header was not in the sample whose deadlines were checked
+   * @throws BlockchainProcessor.BlockNotAcceptedException if a different header was confirmed after its previous block
+   */
+  synchronized BigInteger checkBody(Block block) throws BlockchainProcessor.BlockNotAcceptedException {
+    Long confirmedId = confirmedNextIds.get(block.getPreviousBlockId());
+    if (confirmedId == null) {
+      return null;
+    }
+    if (confirmedId != block.getId()) {
+      throw new BlockchainProcessor.BlockNotAcceptedException("Block " + Convert.toUnsignedLong(block.getId()) + " at height "
+          + block.getHeight() + " does not match the confirmed header " + Convert.toUnsignedLong(confirmedId));
+    }
+    return confirmedHeaders.get(confirmedId).getPocTime();
+  }
+
+  private String verify(Block header, Block previous, Map<Long, Block> headers) throws BlockchainProcessor.BlockOutOfOrderException {
+    if (header.getPreviousBlockId() != previous.getId()) {
+      return "does not link to the previous header";
+    }
+    if (header.getTimestamp() > timeService.getEpochTime() + MAX_TIMESTAMP_DIFFERENCE || header.getTimestamp() <= previous.getTimestamp()) {
+      return "invalid timestamp " + header.getTimestamp();
+    }
+    byte[] generationSignature = generator.calculateGenerationSignature(previous.getGenerationSignature(), previous.getGeneratorId());
+    if (!Arrays.equals(header.getGenerationSignature(), generationSignature)) {
+      return "wrong generation signature";
+    }
+
+    blockService.calculateBaseTarget(header, previous, id -> {
+      Block block = headers.get(id);
+      return block != null ? block : downloadCache.getBlock(id);
+    });
+    return null;
+  }
+
+  /**
+   * @param headers the number of headers, the first one is at position 1 of the chain
+   * @return the positions of the headers whose deadlines are checked, in chain order
+   */
+  static Collection<Integer> sampleHitChecks(int headers) {
+    SortedSet<Integer> sample = new TreeSet<>();
+    if (headers <= HIT_SAMPLE_SIZE) {
+      for (int index = 1; index <= headers; index++) {
+        sample.add(index);
+      }
+      return sample;
+    }
+    // the last header carries the cumulative difficulty the chain is judged by
+    sample.add(headers);
+    Random random = ThreadLocalRandom.current();
+    while (sample.size() < HIT_SAMPLE_SIZE) {
+      sample.add(1 + random.nextInt(headers));
+    }
+    return sample;
+  }
+
+  private String verifyHit(Block header, Block previous) {
+    BigInteger pocTime = generator.calculateHit(header.getGeneratorId(), header.getNonce(), header.getGenerationSignature(),
+        blockService.getScoopNum(header), header.getHeight());
+    BigInteger deadline = pocTime.divide(BigInteger.valueOf(previous.getBaseTarget()));
+    if (BigInteger.valueOf((long) header.getTimestamp() - previous.getTimestamp()).compareTo(deadline) <= 0) {
+      return "deadline " + deadline + " had not passed";
+    }
+    // handed to the block of this header by checkBody, so its PoC is not computed again
+    header.setPocTime(pocTime);
+    return null;
+  }
+}
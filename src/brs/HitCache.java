@@ -0,0 +1,101 @@
+package brs;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hits computed for the generation signature currently being mined on. A nonce submitted by a miner is
+ * verified again when the block it forges is pushed, and pools tend to submit the same nonce more than once;
+ * each of these would otherwise generate the scoop again. Hits for that generation signature are kept, whether
+ * they were computed for a submitted nonce or for a block of that height; once the cache is full, the least
+ * recently used hit makes room for a new one. All entries are dropped once nonces for a newer generation
+ * signature arrive, and when blocks are popped off.
+ */
+final class HitCache {
+
+  private final int maxSize;
+
+  private volatile Generation generation = new Generation(null, -1, 0);
+
+  HitCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  BigInteger get(long accountId, long nonce, byte[] generationSignature, int scoop, int height) {
+    Generation current = generation;
+    return current.matches(generationSignature, height) ? current.hits.get(new Key(accountId, nonce, scoop)) : null;
+  }
+
+  /**
+   * Makes the generation signature the one hits are cached for, dropping the hits of the previous one.
+   */
+  synchronized void advance(byte[] generationSignature, int height) {
+    if (!generation.matches(generationSignature, height)) {
+      generation = new Generation(generationSignature.clone(), height, maxSize);
+    }
+  }
+
+  void put(long accountId, long nonce, byte[] generationSignature, int scoop, int height, BigInteger hit) {
+    Generation current = generation;
+    if (current.matches(generationSignature, height)) {
+      current.hits.put(new Key(accountId, nonce, scoop), hit);
+    }
+  }
+
+  /**
+   * Drops all hits, nothing is cached until the next {@link #advance}.
+   */
+  synchronized void clear() {
+    generation = new Generation(null, -1, 0);
+  }
+
+  private static final class Generation {
+    private final byte[] generationSignature;
+    private final int height;
+    private final Map<Key, BigInteger> hits;
+
+    private Generation(byte[] generationSignature, int height, int maxSize) {
+      this.generationSignature = generationSignature;
+      this.height = height;
+      this.hits = Collections.synchronizedMap(new LinkedHashMap<Key, BigInteger>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, BigInteger> eldest) {
+          return size() > maxSize;
+        }
+      });
+    }
+
+    private boolean matches(byte[] generationSignature, int height) {
+      return height == this.height && this.generationSignature != null && Arrays.equals(generationSignature, this.generationSignature);
+    }
+  }
+
+  private static final class Key {
+    private final long accountId;
+    private final long nonce;
+    private final int scoop;
+
+    private Key(long accountId, long nonce, int scoop) {
+      this.accountId = accountId;
+      this.nonce = nonce;
+      this.scoop = scoop;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return accountId == key.accountId && nonce == key.nonce && scoop == key.scoop;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(accountId) * 31 * 31 + Long.hashCode(nonce) * 31 + scoop;
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package brs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the bytes of the accepted unconfirmed transactions in a memory-mapped file, so they can be taken up
+ * again right after a restart instead of waiting for peers to send them.
+ * <p>
+ * Transactions are only ever appended, as a length followed by the transaction bytes; a length of 0 marks
+ * the end. The length is written after the bytes, so a record cut short by a crash is never read. Forged and
+ * expired transactions are left in place until the journal is compacted, which rewrites it with the
+ * transactions still unconfirmed. Compaction runs on a thread of its own and writes the new journal next to
+ * the current one, appends only wait for the few records appended meanwhile to be copied over and the files
+ * to be switched.
+ * <p>
+ * Mappings are not released explicitly, an old one stays until its buffer is collected. Where a file still
+ * mapped cannot be replaced, compaction fails and the journal keeps growing until the next restart.
+ */
+final class MempoolJournal {
+
+  private static final Logger logger = LoggerFactory.getLogger(MempoolJournal.class);
+
+  private static final int INITIAL_SIZE = 1 << 20;
+  private static final int MAX_TRANSACTION_SIZE = 1 << 16;
+
+  private final Path path;
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int position;
+  private boolean appendedSinceCompaction;
+
+  private final Object compactionLock = new Object();
+  private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+  private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "MempoolJournalCompactor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  MempoolJournal(String fileName) {
+    this.path = Paths.get(fileName);
+    try {
+      open();
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not open mempool journal " + path, e);
+    }
+  }
+
+  /**
+   * @return the bytes of every transaction in the journal, in the order they were accepted
+   */
+  synchronized List<byte[]> read() {
+    List<byte[]> transactions = new ArrayList<>();
+    if (buffer == null) {
+      return transactions;
+    }
+    int offset = 0;
+    while (offset < position) {
+      int length = buffer.getInt(offset);
+      byte[] bytes = new byte[length];
+      ByteBuffer record = buffer.duplicate();
+      record.position(offset + 4);
+      record.get(bytes);
+      transactions.add(bytes);
+      offset += 4 + length;
+    }
+    return transactions;
+  }
+
+  synchronized void append(Collection<? extends Transaction> transactions) {
+    if (channel == null) {
+      return;
+    }
+    try {
+      for (Transaction transaction : transactions) {
+        write(transaction.getBytes());
+        appendedSinceCompaction = true;
+      }
+    } catch (IOException e) {
+      logger.warn("Could not append to mempool journal " + path, e);
+    }
+  }
+
+  /**
+   * Compacts the journal in the background, unless a compaction is still waiting to run.
+   */
+  void compactLater(Supplier<Collection<Transaction>> unconfirmedTransactions) {
+    if (compactionScheduled.compareAndSet(false, true)) {
+      compactor.execute(() -> {
+        compactionScheduled.set(false);
+        compact(unconfirmedTransactions);
+      });
+    }
+  }
+
+  /**
+   * Rewrites the journal with just the transactions still unconfirmed. Skipped while nothing was appended,
+   * transactions forged in the meantime are dropped when they are taken up again anyway.
+   * <p>
+   * The unconfirmed transactions are read together with the end of the journal, under the journal lock, so
+   * no transaction appended before can be missing. The journal lock is then released while they are
+   * written, and taken again to copy the records appended since and switch the files. A transaction
+   * appended right after it was read can end up twice in the new journal, which taking it up again ignores.
+   */
+  void compact(Supplier<Collection<Transaction>> unconfirmedTransactions) {
+    synchronized (compactionLock) {
+      Collection<Transaction> transactions;
+      int compactedPosition;
+      synchronized (this) {
+        if (channel == null || !appendedSinceCompaction) {
+          return;
+        }
+        transactions = unconfirmedTransactions.get();
+        compactedPosition = position;
+        appendedSinceCompaction = false;
+      }
+
+      Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+      try {
+        try (FileChannel tempChannel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+          for (Transaction transaction : transactions) {
+            byte[] bytes = transaction.getBytes();
+            ByteBuffer record = ByteBuffer.allocate(4 + bytes.length);
+            record.putInt(bytes.length).put(bytes).flip();
+            writeFully(tempChannel, record);
+          }
+          synchronized (this) {
+            if (channel == null) {
+              return;
+            }
+            ByteBuffer appended = buffer.duplicate();
+            appended.limit(position).position(compactedPosition);
+            writeFully(tempChannel, appended);
+            writeFully(tempChannel, ByteBuffer.allocate(4));
+            tempChannel.force(false);
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            reopen();
+          }
+        }
+      } catch (IOException e) {
+        logger.warn("Could not compact mempool journal " + path + ", keeping it as it is", e);
+        synchronized (this) {
+          appendedSinceCompaction = true;
+        }
+        try {
+          Files.deleteIfExists(tempFile);
+        } catch (IOException deleteFailed) {
+          logger.debug("Could not delete " + tempFile, deleteFailed);
+        }
+      }
+    }
+  }
+
+  void close() throws IOException {
+    compactor.shutdownNow();
+    synchronized (this) {
+      closeFile();
+    }
+  }
+
+  private void closeFile() throws IOException {
+    if (channel != null) {
+      buffer.force();
+      channel.close();
+      channel = null;
+      buffer = null;
+    }
+  }
+
+  private void reopen() {
+    try {
+      closeFile();
+      open();
+    } catch (IOException e) {
+      logger.warn("Could not reopen mempool journal " + path + ", journaling stopped", e);
+      channel = null;
+      buffer = null;
+    }
+  }
+
+  private void open() throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    map(Math.max(channel.size(), INITIAL_SIZE));
+    position = 0;
+    while (position + 4 <= buffer.capacity()) {
+      int length = buffer.getInt(position);
+      if (length <= 0 || length > MAX_TRANSACTION_SIZE || position + 4 + length > buffer.capacity()) {
+        break;
+      }
+      position += 4 + length;
+    }
+  }
+
+  private void map(long size) throws IOException {
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+  }
+
+  private void write(byte[] bytes) throws IOException {
+    // room for the record and the end mark after it
+    long needed = (long) position + 4 + bytes.length + 4;
+    if (needed > buffer.capacity()) {
+      map(Math.max(needed, 2L * buffer.capacity()));
+    }
+    ByteBuffer record = buffer.duplicate();
+    record.position(position + 4);
+    record.put(bytes);
+    buffer.putInt(position + 4 + bytes.length, 0);
+    buffer.putInt(position, bytes.length);
+    position += 4 + bytes.length;
+  }
+}
@@ -0,0 +1,248 @@
+package brs;
+
+import brs.crypto.Crypto;
+import brs.grpc.handlers.SubmitNonceHandler;
+import brs.grpc.proto.ApiException;
+import brs.services.AccountService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes submitted nonces on a bounded pool of workers instead of the API request threads, so a pool
+ * submitting for thousands of miners does not tie up the API server while plots are being generated.
+ * <p>
+ * Every submission is bound to the height it is meant for and is rejected without generating anything once
+ * the blockchain has moved past it. The same nonce submitted again while it is still waiting is processed
+ * only once. Of the nonces processed for an account, the {@link Generator} keeps the best deadline.
+ * Batches are remembered until the height changes, so their results can be fetched later.
+ */
+public final class NonceSubmitter {
+
+  private static final Logger logger = LoggerFactory.getLogger(NonceSubmitter.class);
+
+  private static final int MAX_BATCHES = 1000;
+
+  private final Blockchain blockchain;
+  private final AccountService accountService;
+  private final Generator generator;
+  private final ThreadPoolExecutor workers;
+
+  private final ConcurrentMap<Submission, CompletableFuture<Generator.GeneratorState>> pending = new ConcurrentHashMap<>();
+  // batch ids are all it takes to read a batch, so they must not be guessable
+  private final SecureRandom batchIds = new SecureRandom();
+  private final Map<Long, Batch> batches = new LinkedHashMap<Long, Batch>() {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, Batch> eldest) {
+      return size() > MAX_BATCHES;
+    }
+  };
+
+  public NonceSubmitter(Blockchain blockchain, AccountService accountService, Generator generator, int threads, int queueSize) {
+    this.blockchain = blockchain;
+    this.accountService = accountService;
+    this.generator = generator;
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+      Thread thread = new Thread(runnable, "NonceSubmitter-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Queues a nonce.
+   *
+   * @param accountId the account mined for, 0 to mine for the account of the secret phrase
+   * @param height the height the nonce was found for, 0 for the next block
+   * @return completes with the generator state once the deadline is known, or exceptionally with an
+   * {@link ApiException} if the submission was rejected
+   */
+  public CompletableFuture<Generator.GeneratorState> submit(String secretPhrase, long nonce, long accountId, int height) {
+    int nextHeight = blockchain.getHeight() + 1;
+    if (height != 0 && height != nextHeight) {
+      return failed("Given block height does not match current blockchain height");
+    }
+    if (secretPhrase == null || secretPhrase.isEmpty()) {
+      return failed("Missing Passphrase");
+    }
+
+    Submission submission = new Submission(secretPhrase, nonce, accountId, nextHeight);
+    CompletableFuture<Generator.GeneratorState> result = new CompletableFuture<>();
+    CompletableFuture<Generator.GeneratorState> queued = pending.putIfAbsent(submission, result);
+    if (queued != null) {
+      return queued;
+    }
+    try {
+      workers.execute(() -> process(submission, result));
+    } catch (RejectedExecutionException e) {
+      pending.remove(submission);
+      result.completeExceptionally(new ApiException("Too many nonces waiting to be processed"));
+    }
+    return result;
+  }
+
+  /**
+   * Queues the nonces of several miners at once.
+   *
+   * @return the id the results can be fetched with by {@link #getBatch}
+   */
+  public long submitBatch(String secretPhrase, long[] accountIds, long[] nonces, int height) {
+    List<BatchEntry> entries = new ArrayList<>(nonces.length);
+    for (int i = 0; i < nonces.length; i++) {
+      entries.add(new BatchEntry(accountIds[i], nonces[i], submit(secretPhrase, nonces[i], accountIds[i], height)));
+    }
+    long batchId;
+    synchronized (batches) {
+      dropOutdatedBatches();
+      do {
+        batchId = batchIds.nextLong();
+      } while (batchId == 0 || batches.containsKey(batchId));
+      batches.put(batchId, new Batch(blockchain.getHeight() + 1, Collections.unmodifiableList(entries)));
+    }
+    return batchId;
+  }
+
+  /**
+   * @return the submissions of the batch, or null if it is unknown or the height it was for has passed
+   */
+  public List<BatchEntry> getBatch(long batchId) {
+    synchronized (batches) {
+      dropOutdatedBatches();
+      Batch batch = batches.get(batchId);
+      return batch == null ? null : batch.entries;
+    }
+  }
+
+  public void shutdown() {
+    workers.shutdownNow();
+  }
+
+  private void dropOutdatedBatches() {
+    int nextHeight = blockchain.getHeight() + 1;
+    batches.values().removeIf(batch -> batch.height != nextHeight);
+  }
+
+  private void process(Submission submission, CompletableFuture<Generator.GeneratorState> result) {
+    try {
+      if (submission.height != blockchain.getHeight() + 1) {
+        throw new ApiException("Given block height does not match current blockchain height");
+      }
+      result.complete(addNonce(submission));
+    } catch (ApiException e) {
+      result.completeExceptionally(e);
+    } catch (RuntimeException e) {
+      logger.debug("Error processing submitted nonce", e);
+      result.completeExceptionally(new ApiException("Failed to create generator"));
+    } finally {
+      pending.remove(submission);
+    }
+  }
+
+  private Generator.GeneratorState addNonce(Submission submission) throws ApiException {
+    byte[] secretPublicKey = Crypto.getPublicKey(submission.secretPhrase);
+    Account secretAccount = accountService.getAccount(secretPublicKey);
+    if (secretAccount != null) {
+      SubmitNonceHandler.verifySecretAccount(accountService, blockchain, secretAccount, submission.accountId);
+    }
+
+    Generator.GeneratorState generatorState;
+    if (submission.accountId == 0 || secretAccount == null) {
+      generatorState = generator.addNonce(submission.secretPhrase, submission.nonce, secretPublicKey);
+    } else {
+      Account genAccount = accountService.getAccount(submission.accountId);
+      if (genAccount == null || genAccount.getPublicKey() == null) {
+        throw new ApiException("Passthrough mining requires public key in blockchain");
+      }
+      generatorState = generator.addNonce(submission.secretPhrase, submission.nonce, genAccount.getPublicKey());
+    }
+    if (generatorState == null) {
+      throw new ApiException("Failed to create generator");
+    }
+    return generatorState;
+  }
+
+  private static CompletableFuture<Generator.GeneratorState> failed(String message) {
+    CompletableFuture<Generator.GeneratorState> result = new CompletableFuture<>();
+    result.completeExceptionally(new ApiException(message));
+    return result;
+  }
+
+  public static final class BatchEntry {
+    private final long accountId;
+    private final long nonce;
+    private final CompletableFuture<Generator.GeneratorState> result;
+
+    private BatchEntry(long accountId, long nonce, CompletableFuture<Generator.GeneratorState> result) {
+      this.accountId = accountId;
+      this.nonce = nonce;
+      this.result = result;
+    }
+
+    public long getAccountId() {
+      return accountId;
+    }
+
+    public long getNonce() {
+      return nonce;
+    }
+
+    public CompletableFuture<Generator.GeneratorState> getResult() {
+      return result;
+    }
+  }
+
+  private static final class Batch {
+    private final int height;
+    private final List<BatchEntry> entries;
+
+    private Batch(int height, List<BatchEntry> entries) {
+      this.height = height;
+      this.entries = entries;
+    }
+  }
+
+  private static final class Submission {
+    private final String secretPhrase;
+    private final long nonce;
+    private final long accountId;
+    private final int height;
+
+    private Submission(String secretPhrase, long nonce, long accountId, int height) {
+      this.secretPhrase = secretPhrase;
+      this.nonce = nonce;
+      this.accountId = accountId;
+      this.height = height;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Submission)) {
+        return false;
+      }
+      Submission submission = (Submission) o;
+      return nonce == submission.nonce && accountId == submission.accountId && height == submission.height
+          && secretPhrase.equals(submission.secretPhrase);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(secretPhrase, nonce, accountId, height);
+    }
+  }
+}
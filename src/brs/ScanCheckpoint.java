@@ -0,0 +1,84 @@
+package brs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Remembers the height a running blockchain scan has reached in a small file, so a scan that was interrupted
+ * can be resumed from there on the next start. While the file exists the derived tables are behind the blocks
+ * in the database and must not be trusted.
+ */
+final class ScanCheckpoint {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScanCheckpoint.class);
+
+  private static final String HEIGHT = "height";
+  private static final String VALIDATE = "validate";
+
+  private final Path path;
+
+  ScanCheckpoint(String fileName) {
+    this.path = Paths.get(fileName);
+  }
+
+  /**
+   * @return the height the interrupted scan has to continue at, or -1 if there is no interrupted scan
+   */
+  int getHeight() {
+    Properties properties = load();
+    return properties == null ? -1 : Integer.parseInt(properties.getProperty(HEIGHT, "-1"));
+  }
+
+  boolean isValidate() {
+    Properties properties = load();
+    return properties != null && Boolean.parseBoolean(properties.getProperty(VALIDATE));
+  }
+
+  /**
+   * @param height the height up to which (exclusive) the derived tables are known to be complete
+   */
+  void save(int height, boolean validate) {
+    Properties properties = new Properties();
+    properties.setProperty(HEIGHT, Integer.toString(height));
+    properties.setProperty(VALIDATE, Boolean.toString(validate));
+    try {
+      Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+      try (OutputStream out = Files.newOutputStream(tempFile)) {
+        properties.store(out, "Blockchain scan in progress, do not edit");
+      }
+      Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not write scan checkpoint " + path, e);
+    }
+  }
+
+  void clear() {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      logger.warn("Could not delete scan checkpoint " + path, e);
+    }
+  }
+
+  private Properties load() {
+    if (!Files.exists(path)) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(path)) {
+      properties.load(in);
+      return properties;
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read scan checkpoint " + path, e);
+    }
+  }
+}
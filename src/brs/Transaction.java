@@ -3,6 +3,7 @@ package brs;
 import brs.Appendix.AbstractAppendix;
 import brs.TransactionType.Payment;
 import brs.crypto.Crypto;
+import brs.crypto.SignatureVerifier;
 import brs.fluxcapacitor.FluxValues;
 import brs.transactionduplicates.TransactionDuplicationKey;
 import brs.util.Convert;
@@ -154,56 +155,79 @@ public class Transaction implements Comparable<Transaction> {
         try {
             ByteBuffer buffer = ByteBuffer.wrap(bytes);
             buffer.order(ByteOrder.LITTLE_ENDIAN);
-            byte type = buffer.get();
-            byte subtype = buffer.get();
-            byte version = (byte) ((subtype & 0xF0) >> 4);
-            subtype = (byte) (subtype & 0x0F);
-            int timestamp = buffer.getInt();
-            short deadline = buffer.getShort();
-            byte[] senderPublicKey = new byte[32];
-            buffer.get(senderPublicKey);
-            long recipientId = buffer.getLong();
-            long amountNQT = buffer.getLong();
-            long feeNQT = buffer.getLong();
-            byte transType = buffer.get();
-            long ransomTime = buffer.getLong();
-            String referencedTransactionFullHash = null;
-            byte[] referencedTransactionFullHashBytes = new byte[32];
-            buffer.get(referencedTransactionFullHashBytes);
-            if (Convert.emptyToNull(referencedTransactionFullHashBytes) != null) {
-                referencedTransactionFullHash = Convert.toHexString(referencedTransactionFullHashBytes);
-            }
-            byte[] signature = new byte[64];
-            buffer.get(signature);
-            signature = Convert.emptyToNull(signature);
-            int flags = 0;
-            int ecBlockHeight = 0;
-            long ecBlockId = 0;
-            if (version > 0) {
-                flags = buffer.getInt();
-                ecBlockHeight = buffer.getInt();
-                ecBlockId = buffer.getLong();
-            }
-            TransactionType transactionType = TransactionType.findTransactionType(type, subtype);
-            Transaction.Builder builder = new Transaction.Builder(version, senderPublicKey, amountNQT, feeNQT, transType,ransomTime,
-                    timestamp, deadline, transactionType.parseAttachment(buffer, version))
-                    .referencedTransactionFullHash(referencedTransactionFullHash)
-                    .signature(signature)
-                    .ecBlockHeight(ecBlockHeight)
-                    .ecBlockId(ecBlockId);
-            if (transactionType.hasRecipient()) {
-                builder.recipientId(recipientId);
-            }
-
-            transactionType.parseAppendices(builder, flags, version, buffer);
-
-            return builder.build();
+            return parseTransactionBytes(buffer).build();
         } catch (BurstException.NotValidException | RuntimeException e) {
             logger.debug("Failed to parse transaction bytes: " + Convert.toHexString(bytes));
             throw e;
         }
     }
 
+    /**
+     * Parses a transaction from the little endian {@link #getBytes()} representation in the remaining bytes of
+     * the buffer, as received as part of a block at the given height.
+     */
+    static Transaction parseTransaction(ByteBuffer buffer, int height) throws BurstException.ValidationException {
+        ByteBuffer bytes = buffer.duplicate();
+        try {
+            return parseTransactionBytes(buffer).height(height).build();
+        } catch (BurstException.NotValidException | RuntimeException e) {
+            byte[] transactionBytes = new byte[bytes.remaining()];
+            bytes.get(transactionBytes);
+            logger.debug("Failed to parse transaction bytes: " + Convert.toHexString(transactionBytes));
+            throw e;
+        }
+    }
+
+    private static Transaction.Builder parseTransactionBytes(ByteBuffer buffer) throws BurstException.ValidationException {
+        byte type = buffer.get();
+        byte subtype = buffer.get();
+        byte version = (byte) ((subtype & 0xF0) >> 4);
+        subtype = (byte) (subtype & 0x0F);
+        int timestamp = buffer.getInt();
+        short deadline = buffer.getShort();
+        byte[] senderPublicKey = new byte[32];
+        buffer.get(senderPublicKey);
+        long recipientId = buffer.getLong();
+        long amountNQT = buffer.getLong();
+        long feeNQT = buffer.getLong();
+        byte transType = buffer.get();
+        long ransomTime = buffer.getLong();
+        String referencedTransactionFullHash = null;
+        byte[] referencedTransactionFullHashBytes = new byte[32];
+        buffer.get(referencedTransactionFullHashBytes);
+        if (Convert.emptyToNull(referencedTransactionFullHashBytes) != null) {
+            referencedTransactionFullHash = Convert.toHexString(referencedTransactionFullHashBytes);
+        }
+        byte[] signature = new byte[64];
+        buffer.get(signature);
+        signature = Convert.emptyToNull(signature);
+        int flags = 0;
+        int ecBlockHeight = 0;
+        long ecBlockId = 0;
+        if (version > 0) {
+            flags = buffer.getInt();
+            ecBlockHeight = buffer.getInt();
+            ecBlockId = buffer.getLong();
+        }
+        TransactionType transactionType = TransactionType.findTransactionType(type, subtype);
+        if (transactionType == null) {
+            throw new BurstException.NotValidException("Invalid transaction type: " + type + ", " + subtype);
+        }
+        Transaction.Builder builder = new Transaction.Builder(version, senderPublicKey, amountNQT, feeNQT, transType,ransomTime,
+                timestamp, deadline, transactionType.parseAttachment(buffer, version))
+                .referencedTransactionFullHash(referencedTransactionFullHash)
+                .signature(signature)
+                .ecBlockHeight(ecBlockHeight)
+                .ecBlockId(ecBlockId);
+        if (transactionType.hasRecipient()) {
+            builder.recipientId(recipientId);
+        }
+
+        transactionType.parseAppendices(builder, flags, version, buffer);
+
+        return builder;
+    }
+
     static Transaction parseTransaction(JsonObject transactionData, int height) throws BurstException.NotValidException {
         try {
             byte type = JSON.getAsByte(transactionData.get("type"));
@@ -577,6 +601,13 @@ public class Transaction implements Comparable<Transaction> {
         return Crypto.verify(signature, data, senderPublicKey, useNQT());
     }
 
+    /**
+     * Adds the check done by {@link #verifySignature()} to a parallel check.
+     */
+    public void addSignatureCheck(SignatureVerifier.ParallelCheck signatures) {
+        signatures.add(signature, zeroSignature(getBytes()), senderPublicKey, useNQT());
+    }
+
     public int getSize() {
         return signatureOffset() + 64 + (version > 0 ? 4 + 4 + 8 : 0) + appendagesSize;
     }
@@ -1,6 +1,7 @@
 package brs;
 
 import brs.BurstException.ValidationException;
+import brs.crypto.SignatureVerifier;
 import brs.db.store.Dbs;
 import brs.db.store.Stores;
 import brs.fluxcapacitor.FluxValues;
@@ -22,11 +23,18 @@ import com.google.gson.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -52,12 +60,19 @@ public class TransactionProcessorImpl implements TransactionProcessor {
   private final Blockchain blockchain;
   private final AccountService accountService;
   private final UnconfirmedTransactionStore unconfirmedTransactionStore;
+  private final SignatureVerifier signatureVerifier;
   private final Function<Peer, List<Transaction>> foodDispenser;
   private final BiConsumer<Peer, List<Transaction>> doneFeedingLog;
 
+  // accounts whose unconfirmed balance changed since the reservations were last checked
+  private final Set<Long> touchedAccounts = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean allAccountsTouched = new AtomicBoolean();
+
+  private final MempoolJournal mempoolJournal;
+
   public TransactionProcessorImpl(PropertyService propertyService,
       EconomicClustering economicClustering, Blockchain blockchain, Stores stores, TimeService timeService, Dbs dbs, AccountService accountService,
-      TransactionService transactionService, ThreadPool threadPool) {
+      TransactionService transactionService, ThreadPool threadPool, SignatureVerifier signatureVerifier) {
     this.economicClustering = economicClustering;
     this.blockchain = blockchain;
     this.timeService = timeService;
@@ -67,12 +82,25 @@ public class TransactionProcessorImpl implements TransactionProcessor {
 
     this.accountService = accountService;
     this.transactionService = transactionService;
+    this.signatureVerifier = signatureVerifier;
 
     this.testUnconfirmedTransactions = propertyService.getBoolean(Props.BRS_TEST_UNCONFIRMED_TRANSACTIONS);
     this.unconfirmedTransactionStore = stores.getUnconfirmedTransactionStore();
 
     this.foodDispenser = (unconfirmedTransactionStore::getAllFor);
     this.doneFeedingLog = (unconfirmedTransactionStore::markFingerPrintsOf);
+    Peers.addListener(unconfirmedTransactionStore::forgetPeer, Peers.Event.REMOVE);
+    accountService.addListener(account -> touchedAccounts.add(account.getId()), Account.Event.UNCONFIRMED_BALANCE);
+
+    String mempoolJournalFile = propertyService.getString(Props.DB_MEMPOOL_JOURNAL_FILE);
+    if (mempoolJournalFile.isEmpty()) {
+      this.mempoolJournal = null;
+    } else {
+      this.mempoolJournal = new MempoolJournal(mempoolJournalFile);
+      // after the blockchain is loaded, but before the peer threads start asking for transactions
+      threadPool.runBeforeStart(this::restoreJournaledTransactions, true);
+      addListener(mempoolJournal::append, Event.ADDED_UNCONFIRMED_TRANSACTIONS);
+    }
 
       Runnable getUnconfirmedTransactions = () -> {
           try {
@@ -208,7 +236,7 @@ public class TransactionProcessorImpl implements TransactionProcessor {
       return null;
     }
 
-    processedTransactions = processTransactions(Collections.singleton(transaction), null);
+    processedTransactions = processTransactions(Collections.singleton(transaction), null, false);
 
     if(! processedTransactions.isEmpty()) {
       return broadcastToPeers(true);
@@ -262,10 +290,35 @@ public class TransactionProcessorImpl implements TransactionProcessor {
 
   void requeueAllUnconfirmedTransactions() {
     synchronized (unconfirmedTransactionsSyncObj) {
+      allAccountsTouched.set(false);
+      touchedAccounts.clear();
       unconfirmedTransactionStore.resetAccountBalances();
     }
   }
 
+  /**
+   * Like {@link #requeueAllUnconfirmedTransactions()}, but only for the accounts whose balance changed since,
+   * or for all of them after blocks were popped off.
+   */
+  void requeueTouchedUnconfirmedTransactions() {
+    synchronized (unconfirmedTransactionsSyncObj) {
+      if (allAccountsTouched.get()) {
+        requeueAllUnconfirmedTransactions();
+        return;
+      }
+      List<Long> accountIds = new ArrayList<>(touchedAccounts);
+      touchedAccounts.removeAll(accountIds);
+      unconfirmedTransactionStore.resetAccountBalances(accountIds);
+    }
+  }
+
+  /**
+   * Balances were rolled back without going through the account service, so the next requeue checks every account.
+   */
+  void touchAllAccounts() {
+    allAccountsTouched.set(true);
+  }
+
   @Override
   public int getTransactionVersion(int previousBlockHeight) {
     return Burst.getFluxCapacitor().getValue(FluxValues.DIGITAL_GOODS_STORE, previousBlockHeight) ? 1 : 0;
@@ -308,10 +361,66 @@ public class TransactionProcessorImpl implements TransactionProcessor {
         throw e;
       }
     }
-    return processTransactions(transactions, peer);
+    return processTransactions(verifySignatures(dropKnownTransactions(transactions, peer)), peer, true);
+  }
+
+  /**
+   * Drops the transactions that are out of their time window, already known or repeated in the list, so their
+   * signatures are not checked for nothing. {@link #processTransactions} checks them again under the lock.
+   */
+  private List<Transaction> dropKnownTransactions(List<Transaction> transactions, Peer peer) {
+    int curTime = timeService.getEpochTime();
+    Set<Long> transactionIds = new HashSet<>();
+    List<Transaction> newTransactions = new ArrayList<>(transactions.size());
+    for (Transaction transaction : transactions) {
+      if (!isInTimeWindow(transaction, curTime) || !transactionIds.add(transaction.getId())) {
+        continue;
+      }
+      if (unconfirmedTransactionStore.exists(transaction.getId()) || dbs.getTransactionDb().hasTransaction(transaction.getId())) {
+        unconfirmedTransactionStore.markFingerPrintsOf(peer, Collections.singletonList(transaction));
+        continue;
+      }
+      newTransactions.add(transaction);
+    }
+    return newTransactions;
+  }
+
+  private static boolean isInTimeWindow(Transaction transaction, int curTime) {
+    return transaction.getTimestamp() <= curTime + 15 && transaction.getExpiration() >= curTime
+        && transaction.getDeadline() <= 1440;
+  }
+
+  /**
+   * Checks the signatures of all transactions in parallel, before taking the unconfirmed transactions lock.
+   *
+   * @return the transactions with a valid signature
+   */
+  private List<Transaction> verifySignatures(List<Transaction> transactions) {
+    SignatureVerifier.ParallelCheck signatures = signatureVerifier.newParallelCheck();
+    for (Transaction transaction : transactions) {
+      transaction.addSignatureCheck(signatures);
+    }
+    boolean[] validSignatures;
+    try {
+      validSignatures = signatures.verifyInParallel();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Collections.emptyList();
+    }
+
+    List<Transaction> verifiedTransactions = new ArrayList<>(transactions.size());
+    for (int i = 0; i < transactions.size(); i++) {
+      Transaction transaction = transactions.get(i);
+      if (validSignatures[i]) {
+        verifiedTransactions.add(transaction);
+      } else if (accountService.getAccount(transaction.getSenderId()) != null) {
+        logger.debug("Transaction " + JSON.toJsonString(transaction.getJsonObject()) + " failed to verify");
+      }
+    }
+    return verifiedTransactions;
   }
 
-  private List<Transaction> processTransactions(Collection<Transaction> transactions, Peer peer) throws BurstException.ValidationException {
+  private List<Transaction> processTransactions(Collection<Transaction> transactions, Peer peer, boolean signaturesVerified) throws BurstException.ValidationException {
     synchronized (unconfirmedTransactionsSyncObj) {
       if (transactions.isEmpty()) {
         return Collections.emptyList();
@@ -322,9 +431,7 @@ public class TransactionProcessorImpl implements TransactionProcessor {
       for (Transaction transaction : transactions) {
 
         try {
-          int curTime = timeService.getEpochTime();
-          if (transaction.getTimestamp() > curTime + 15 || transaction.getExpiration() < curTime
-              || transaction.getDeadline() > 1440) {
+          if (!isInTimeWindow(transaction, timeService.getEpochTime())) {
             continue;
           }
 
@@ -340,7 +447,7 @@ public class TransactionProcessorImpl implements TransactionProcessor {
               continue;
             }
 
-            if (!(transaction.verifySignature() && transactionService.verifyPublicKey(transaction))) {
+            if (!((signaturesVerified || transaction.verifySignature()) && transactionService.verifyPublicKey(transaction))) {
               if (accountService.getAccount(transaction.getSenderId()) != null) {
                 logger.debug("Transaction " + JSON.toJsonString(transaction.getJsonObject()) + " failed to verify");
               }
@@ -384,6 +491,56 @@ public class TransactionProcessorImpl implements TransactionProcessor {
     return peersToSendTo.size();
   }
 
+  /**
+   * Takes up the transactions of the mempool journal again, checking them the same way as transactions
+   * received from peers. Parsing and validation run in parallel.
+   */
+  private void restoreJournaledTransactions() {
+    List<byte[]> journaledTransactions = mempoolJournal.read();
+    if (journaledTransactions.isEmpty()) {
+      return;
+    }
+    int height = blockchain.getHeight();
+    List<Transaction> transactions = journaledTransactions.parallelStream()
+        .map(bytes -> {
+          try {
+            Transaction transaction = Transaction.parseTransaction(ByteBuffer.wrap(bytes), height);
+            transactionService.validate(transaction);
+            return economicClustering.verifyFork(transaction) ? transaction : null;
+          } catch (BurstException.ValidationException | RuntimeException e) {
+            return null;
+          }
+        })
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+    try {
+      int restored = processTransactions(verifySignatures(dropKnownTransactions(transactions, null)), null, true).size();
+      logger.info("Restored {} of {} journaled unconfirmed transactions", restored, journaledTransactions.size());
+    } catch (BurstException.ValidationException e) {
+      logger.warn("Could not restore journaled unconfirmed transactions", e);
+    }
+    mempoolJournal.compact(unconfirmedTransactionStore::getAll);
+  }
+
+  /**
+   * Drops forged and expired transactions from the mempool journal, in the background.
+   */
+  void compactMempoolJournal() {
+    if (mempoolJournal != null) {
+      mempoolJournal.compactLater(unconfirmedTransactionStore::getAll);
+    }
+  }
+
+  void closeMempoolJournal() {
+    if (mempoolJournal != null) {
+      try {
+        mempoolJournal.close();
+      } catch (IOException e) {
+        logger.warn("Could not close mempool journal", e);
+      }
+    }
+  }
+
   public void revalidateUnconfirmedTransactions() {
     final List<Transaction> invalidTransactions = new ArrayList<>();
 
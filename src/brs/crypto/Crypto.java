@@ -1,5 +1,7 @@
 package brs.crypto;
 
+import brs.props.PropertyService;
+import brs.props.Props;
 import burst.kit.crypto.BurstCrypto;
 import burst.kit.entity.BurstID;
 
@@ -8,9 +10,18 @@ import java.security.MessageDigest;
 public final class Crypto {
   static final BurstCrypto burstCrypto = BurstCrypto.getInstance();
 
+  private static volatile PublicKeyCache publicKeyCache;
+
   private Crypto() {
   } //never
 
+  /**
+   * Starts caching the public keys derived from secret phrases, nothing is cached before.
+   */
+  public static void init(PropertyService propertyService) {
+    publicKeyCache = new PublicKeyCache(propertyService.getInt(Props.API_PUBLIC_KEY_CACHE_SIZE), propertyService.getInt(Props.API_PUBLIC_KEY_CACHE_TTL_MS));
+  }
+
   public static MessageDigest sha256() {
     return burstCrypto.getSha256();
   }
@@ -24,7 +35,36 @@ public final class Crypto {
   }
 
   public static byte[] getPublicKey(String secretPhrase) {
-    return burstCrypto.getPublicKey(secretPhrase);
+    final PublicKeyCache cache = publicKeyCache;
+    if (cache == null) {
+      return burstCrypto.getPublicKey(secretPhrase);
+    }
+    return cache.getPublicKey(secretPhrase, burstCrypto::getPublicKey, Crypto::getAccountId);
+  }
+
+  /**
+   * @return the id of the account of the secret phrase, as {@code Account.getId(getPublicKey(secretPhrase))}
+   */
+  public static long getAccountId(String secretPhrase) {
+    final PublicKeyCache cache = publicKeyCache;
+    if (cache == null) {
+      return getAccountId(burstCrypto.getPublicKey(secretPhrase));
+    }
+    return cache.getAccountId(secretPhrase, burstCrypto::getPublicKey, Crypto::getAccountId);
+  }
+
+  /**
+   * Forgets all public keys derived from secret phrases so far.
+   */
+  public static void wipePublicKeyCache() {
+    final PublicKeyCache cache = publicKeyCache;
+    if (cache != null) {
+      cache.wipe();
+    }
+  }
+
+  private static long getAccountId(byte[] publicKey) {
+    return burstCrypto.hashToId(sha256().digest(publicKey)).getSignedLongId();
   }
 
   public static byte[] getPrivateKey(String secretPhrase) {
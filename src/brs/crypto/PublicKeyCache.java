@@ -0,0 +1,96 @@
+package brs.crypto;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Public keys and account ids derived from secret phrases, so a wallet or pool reusing the same secret does
+ * not pay for a Curve25519 scalar multiplication on every request.
+ * <p>
+ * Entries are looked up by an HMAC of the secret phrase under a random key that only lives in this process;
+ * the secret phrase itself is never kept. Entries expire after a while and the least recently used ones are
+ * dropped when the cache is full.
+ */
+final class PublicKeyCache {
+
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+
+  private final int maxSize;
+  private final long ttlMillis;
+  private final byte[] macKey = new byte[32];
+  private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(this::newMac);
+  private final Map<ByteBuffer, CachedKey> entries;
+
+  PublicKeyCache(int maxSize, long ttlMillis) {
+    this.maxSize = maxSize;
+    this.ttlMillis = ttlMillis;
+    new SecureRandom().nextBytes(macKey);
+    this.entries = new LinkedHashMap<ByteBuffer, CachedKey>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ByteBuffer, CachedKey> eldest) {
+        return size() > PublicKeyCache.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * @param derive computes the public key if it is not cached
+   */
+  byte[] getPublicKey(String secretPhrase, Function<String, byte[]> derive, Function<byte[], Long> accountId) {
+    return getCachedKey(secretPhrase, derive, accountId).publicKey.clone();
+  }
+
+  long getAccountId(String secretPhrase, Function<String, byte[]> derive, Function<byte[], Long> accountId) {
+    return getCachedKey(secretPhrase, derive, accountId).accountId;
+  }
+
+  synchronized void wipe() {
+    entries.clear();
+  }
+
+  private CachedKey getCachedKey(String secretPhrase, Function<String, byte[]> derive, Function<byte[], Long> accountId) {
+    ByteBuffer key = ByteBuffer.wrap(mac.get().doFinal(secretPhrase.getBytes(StandardCharsets.UTF_8)));
+    long now = System.currentTimeMillis();
+    synchronized (this) {
+      CachedKey cached = entries.get(key);
+      if (cached != null && cached.expires > now) {
+        return cached;
+      }
+    }
+    byte[] publicKey = derive.apply(secretPhrase);
+    CachedKey cached = new CachedKey(publicKey, accountId.apply(publicKey), now + ttlMillis);
+    synchronized (this) {
+      entries.put(key, cached);
+    }
+    return cached;
+  }
+
+  private Mac newMac() {
+    try {
+      Mac newMac = Mac.getInstance(MAC_ALGORITHM);
+      newMac.init(new SecretKeySpec(macKey, MAC_ALGORITHM));
+      return newMac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class CachedKey {
+    private final byte[] publicKey;
+    private final long accountId;
+    private final long expires;
+
+    private CachedKey(byte[] publicKey, long accountId, long expires) {
+      this.publicKey = publicKey;
+      this.accountId = accountId;
+      this.expires = expires;
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package brs.crypto;
+
+/**
+ * Shabal-256 over several messages of the same length at once. The state words of all lanes are stored next to
+ * each other, so every step of the compression function is a plain loop over the lanes that the JIT can turn
+ * into SIMD instructions. Follows the sphlib implementation also used by the OpenCL kernel in genscoop.cl.
+ * <p>
+ * Instances keep their state between calls and must not be shared between threads.
+ */
+public final class Shabal256Lanes {
+
+  public static final int HASH_SIZE = 32;
+
+  private static final int BLOCK_SIZE = 64;
+
+  private static final int[] A_INIT = {
+      0x52F84552, 0xE54B7999, 0x2D8EE3EC, 0xB9645191, 0xE0078B86, 0xBB7C44C9, 0xD2B5C1CA, 0xB0D2EB8C,
+      0x14CE5A45, 0x22AF50DC, 0xEFFDBC6B, 0xEB21B74A
+  };
+
+  private static final int[] B_INIT = {
+      0xB555C6EE, 0x3E710596, 0xA72A652F, 0x9301515F, 0xDA28C1FA, 0x696FD868, 0x9CB6BF72, 0x0AFE4002,
+      0xA6E03615, 0x5138C1D4, 0xBE216306, 0xB38B8890, 0x3EA8B96B, 0x3299ACE4, 0x30924DD4, 0x55CB34A5
+  };
+
+  private static final int[] C_INIT = {
+      0xB405F031, 0xC4233EBA, 0xB3733979, 0xC0DD9D55, 0xC51C28AE, 0xA327B8E1, 0x56C56167, 0xED614433,
+      0x88B59D60, 0x60E2CEBA, 0x758B4B8B, 0x83E82A7F, 0xBC968828, 0xE6E00BF7, 0xBA839E55, 0x9B491C60
+  };
+
+  private final int lanes;
+  // word w of lane l is at index w * lanes + l
+  private final int[] a;
+  private final int[] b;
+  private final int[] c;
+  private final int[] m;
+  private final int[] swap;
+  private int wLow;
+  private int wHigh;
+
+  public Shabal256Lanes(int lanes) {
+    this.lanes = lanes;
+    this.a = new int[12 * lanes];
+    this.b = new int[16 * lanes];
+    this.c = new int[16 * lanes];
+    this.m = new int[16 * lanes];
+    this.swap = new int[16 * lanes];
+  }
+
+  public int getLanes() {
+    return lanes;
+  }
+
+  /**
+   * Hashes {@code length} bytes at {@code offset} of the first {@code count} inputs and writes each hash to
+   * {@code outOffset} of the output of the same lane. An output may be the input array, as long as the
+   * ranges do not overlap.
+   */
+  public void digest(byte[][] inputs, int offset, int length, int count, byte[][] outputs, int outOffset) {
+    if (count < 1 || count > lanes) {
+      throw new IllegalArgumentException("Invalid number of lanes " + count);
+    }
+    for (int w = 0; w < 12; w++) {
+      for (int l = 0; l < count; l++) {
+        a[w * lanes + l] = A_INIT[w];
+      }
+    }
+    for (int w = 0; w < 16; w++) {
+      for (int l = 0; l < count; l++) {
+        b[w * lanes + l] = B_INIT[w];
+        c[w * lanes + l] = C_INIT[w];
+      }
+    }
+    wLow = 1;
+    wHigh = 0;
+
+    int end = offset + length;
+    int position = offset;
+    for (; position + BLOCK_SIZE <= end; position += BLOCK_SIZE) {
+      for (int w = 0; w < 16; w++) {
+        for (int l = 0; l < count; l++) {
+          m[w * lanes + l] = readInt(inputs[l], position + 4 * w);
+        }
+      }
+      inputBlockAdd(count);
+      xorW(count);
+      applyP(count);
+      inputBlockSub(count);
+      swapBC();
+      if (++wLow == 0) {
+        wHigh++;
+      }
+    }
+
+    int remaining = end - position;
+    for (int l = 0; l < count; l++) {
+      for (int w = 0; w < 16; w++) {
+        int word = 0;
+        for (int i = 0; i < 4; i++) {
+          int index = 4 * w + i;
+          int value = index < remaining ? inputs[l][position + index] & 0xFF : index == remaining ? 0x80 : 0;
+          word |= value << (8 * i);
+        }
+        m[w * lanes + l] = word;
+      }
+    }
+    inputBlockAdd(count);
+    xorW(count);
+    applyP(count);
+    for (int i = 0; i < 3; i++) {
+      swapBC();
+      xorW(count);
+      applyP(count);
+    }
+
+    for (int l = 0; l < count; l++) {
+      for (int w = 0; w < 8; w++) {
+        writeInt(outputs[l], outOffset + 4 * w, b[(8 + w) * lanes + l]);
+      }
+    }
+  }
+
+  private void inputBlockAdd(int count) {
+    for (int i = 0; i < 16 * lanes; i += lanes) {
+      for (int l = i; l < i + count; l++) {
+        b[l] += m[l];
+      }
+    }
+  }
+
+  private void inputBlockSub(int count) {
+    for (int i = 0; i < 16 * lanes; i += lanes) {
+      for (int l = i; l < i + count; l++) {
+        c[l] -= m[l];
+      }
+    }
+  }
+
+  private void xorW(int count) {
+    for (int l = 0; l < count; l++) {
+      a[l] ^= wLow;
+      a[lanes + l] ^= wHigh;
+    }
+  }
+
+  private void swapBC() {
+    System.arraycopy(b, 0, swap, 0, b.length);
+    System.arraycopy(c, 0, b, 0, c.length);
+    System.arraycopy(swap, 0, c, 0, swap.length);
+  }
+
+  private void applyP(int count) {
+    for (int i = 0; i < 16 * lanes; i += lanes) {
+      for (int l = i; l < i + count; l++) {
+        b[l] = Integer.rotateLeft(b[l], 17);
+      }
+    }
+    for (int j = 0; j < 3; j++) {
+      for (int i = 0; i < 16; i++) {
+        int a0 = ((i + 16 * j) % 12) * lanes;
+        int a1 = ((i + 16 * j + 11) % 12) * lanes;
+        int b0 = i * lanes;
+        int b1 = ((i + 13) % 16) * lanes;
+        int b2 = ((i + 9) % 16) * lanes;
+        int b3 = ((i + 6) % 16) * lanes;
+        int c0 = ((8 - i + 16) % 16) * lanes;
+        int m0 = i * lanes;
+        for (int l = 0; l < count; l++) {
+          int xa0 = ((a[a0 + l] ^ (Integer.rotateLeft(a[a1 + l], 15) * 5) ^ c[c0 + l]) * 3)
+              ^ b[b1 + l] ^ (b[b2 + l] & ~b[b3 + l]) ^ m[m0 + l];
+          a[a0 + l] = xa0;
+          b[b0 + l] = ~(Integer.rotateLeft(b[b0 + l], 1) ^ xa0);
+        }
+      }
+    }
+    for (int j = 0; j < 36; j++) {
+      int a0 = (j % 12) * lanes;
+      int c0 = ((j + 3) % 16) * lanes;
+      for (int l = 0; l < count; l++) {
+        a[a0 + l] += c[c0 + l];
+      }
+    }
+  }
+
+  private static int readInt(byte[] data, int offset) {
+    return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 | (data[offset + 2] & 0xFF) << 16 | data[offset + 3] << 24;
+  }
+
+  private static void writeInt(byte[] data, int offset, int value) {
+    data[offset] = (byte) value;
+    data[offset + 1] = (byte) (value >>> 8);
+    data[offset + 2] = (byte) (value >>> 16);
+    data[offset + 3] = (byte) (value >>> 24);
+  }
+}
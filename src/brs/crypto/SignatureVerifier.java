@@ -0,0 +1,128 @@
+package brs.crypto;
+
+import brs.util.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Verifies many (signature, message, public key) tuples, as found in blocks and in transaction lists
+ * received from peers, in parallel on a shared pool.
+ * <p>
+ * This is not batch verification in the cryptographic sense: each signature is still checked on its own
+ * by {@link Crypto#verify}. A parallel check pays for the hand-over to the pool once, rejects entries
+ * without signature or key before doing any curve arithmetic and, when only the first bad signature
+ * matters, does not verify entries after one that already failed.
+ */
+public final class SignatureVerifier {
+
+  /** Fewer signatures are verified on the calling thread. */
+  private static final int MIN_PARALLEL_CHECKS = 8;
+
+  private final ForkJoinPool pool;
+
+  /**
+   * @param threads the number of threads verifying signatures, 1 or less to verify on the calling thread
+   */
+  public SignatureVerifier(int threads) {
+    this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+  }
+
+  public ParallelCheck newParallelCheck() {
+    return new ParallelCheck();
+  }
+
+  public final class ParallelCheck {
+    private final List<byte[]> signatures = new ArrayList<>();
+    private final List<byte[]> messages = new ArrayList<>();
+    private final List<byte[]> publicKeys = new ArrayList<>();
+    private final List<Boolean> enforceCanonical = new ArrayList<>();
+
+    private ParallelCheck() {
+    }
+
+    /**
+     * Adds a signature check with the same arguments as {@link Crypto#verify}.
+     */
+    public ParallelCheck add(byte[] signature, byte[] message, byte[] publicKey, boolean enforceCanonical) {
+      this.signatures.add(signature);
+      this.messages.add(message);
+      this.publicKeys.add(publicKey);
+      this.enforceCanonical.add(enforceCanonical);
+      return this;
+    }
+
+    public int size() {
+      return signatures.size();
+    }
+
+    /**
+     * @return whether each signature is valid, in the order they were added
+     */
+    public boolean[] verifyInParallel() throws InterruptedException {
+      boolean[] results = new boolean[size()];
+      run(i -> results[i] = verify(i));
+      return results;
+    }
+
+    /**
+     * @return the position of the first invalid signature in the order they were added, or -1 if all are valid
+     */
+    public int findFirstInvalidInParallel() throws InterruptedException {
+      AtomicInteger firstInvalid = new AtomicInteger(Integer.MAX_VALUE);
+      run(i -> {
+        if (i < firstInvalid.get() && !verify(i)) {
+          firstInvalid.accumulateAndGet(i, Math::min);
+        }
+      });
+      return firstInvalid.get() == Integer.MAX_VALUE ? -1 : firstInvalid.get();
+    }
+
+    private boolean verify(int i) {
+      byte[] signature = signatures.get(i);
+      byte[] publicKey = publicKeys.get(i);
+      if (signature == null || publicKey == null) {
+        return false;
+      }
+      return Crypto.verify(signature, messages.get(i), publicKey, enforceCanonical.get(i));
+    }
+
+    private void run(IntConsumer check) throws InterruptedException {
+      if (pool == null || size() < MIN_PARALLEL_CHECKS) {
+        for (int i = 0; i < size(); i++) {
+          if (Thread.currentThread().isInterrupted() || !ThreadPool.running.get()) {
+            throw new InterruptedException();
+          }
+          check.accept(i);
+        }
+        return;
+      }
+
+      Future<?> verification = pool.submit(() -> IntStream.range(0, size()).parallel().forEach(i -> {
+        if (ThreadPool.running.get()) {
+          check.accept(i);
+        }
+      }));
+      try {
+        verification.get();
+      } catch (InterruptedException e) {
+        verification.cancel(true);
+        throw e;
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new IllegalStateException(e.getCause());
+      }
+      if (!ThreadPool.running.get()) {
+        throw new InterruptedException();
+      }
+    }
+  }
+}
@@ -8,6 +8,14 @@ public interface BurstKey {
     BurstKey newKey(T t);
 
     BurstKey newKey(Record rs);
+
+    /**
+     * @return how many entities of the table to keep in memory between transactions, 0 to always read them
+     * from the database
+     */
+    default int getCacheSize() {
+      return 0;
+    }
   }
 
   long[] getPKValues();
@@ -1,8 +1,18 @@
 package brs.db;
 
+import java.util.Collection;
+
 public interface DerivedTable {
   void rollback(int height);
 
+  /**
+   * Rolls back to the height knowing which keys were changed above it, tables that can make use of that
+   * override this.
+   */
+  default void rollback(int height, Collection<BurstKey> changedKeys) {
+    rollback(height);
+  }
+
   void truncate();
 
   void trim(int height);
@@ -36,6 +36,11 @@ public interface EntityTable<T> extends DerivedTable {
 
   int getCount();
 
+  /**
+   * @return the number of entities matching the condition, including those inserted in the running transaction
+   */
+  int getCount(Condition condition);
+
   int getRowCount();
 
   void insert(T t);
@@ -1,6 +1,5 @@
 package brs.db;
 
-import org.ehcache.Cache;
 import org.jooq.*;
 
 import java.util.Collection;
@@ -14,6 +13,13 @@ public interface VersionedBatchEntityTable<T> extends DerivedTable, EntityTable<
   @Override
   T get(BurstKey dbKey);
 
+  /**
+   * Looks up many entities at once, also within a transaction.
+   *
+   * @return the entities found by key, keys without an entity are left out
+   */
+  Map<BurstKey, T> get(Collection<BurstKey> dbKeys);
+
   @Override
   void insert(T t);
 
@@ -56,6 +62,9 @@ public interface VersionedBatchEntityTable<T> extends DerivedTable, EntityTable<
   @Override
   int getCount();
 
+  @Override
+  int getCount(Condition condition);
+
   @Override
   int getRowCount();
 
@@ -67,7 +76,5 @@ public interface VersionedBatchEntityTable<T> extends DerivedTable, EntityTable<
 
   Map<BurstKey, T> getBatch();
 
-  Cache getCache();
-
   void flushCache();
 }
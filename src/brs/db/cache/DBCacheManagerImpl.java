@@ -1,7 +1,8 @@
 package brs.db.cache;
 
-import brs.Account;
 import brs.db.BurstKey;
+import brs.props.Prop;
+import brs.props.PropertyService;
 import brs.statistics.StatisticsManagerImpl;
 import org.ehcache.Cache;
 import org.ehcache.CacheManager;
@@ -10,31 +11,33 @@ import org.ehcache.config.CacheConfiguration;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.CacheManagerBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.jooq.Record;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DBCacheManagerImpl {
 
   private final CacheManager cacheManager;
 
+  private final PropertyService propertyService;
+
   private final StatisticsManagerImpl statisticsManager;
 
   private final boolean statisticsEnabled;
 
-  private final HashMap<String, CacheConfiguration<BurstKey, ?>> caches = new HashMap<>();
+  private final HashMap<String, CacheConfiguration<BurstKey, Record>> caches = new HashMap<>();
+
+  private final Map<String, VersionedCache> versionedCaches = new ConcurrentHashMap<>();
 
-  public DBCacheManagerImpl(StatisticsManagerImpl statisticsManager) {
+  public DBCacheManagerImpl(PropertyService propertyService, StatisticsManagerImpl statisticsManager) {
+    this.propertyService = propertyService;
     this.statisticsManager = statisticsManager;
     statisticsEnabled = true;
 
-    caches.put("account", CacheConfigurationBuilder.newCacheConfigurationBuilder(BurstKey.class, Account.class, ResourcePoolsBuilder.heap(8192)).build());
-
-    CacheManagerBuilder cacheBuilder = CacheManagerBuilder.newCacheManagerBuilder();
-    for (Map.Entry<String, CacheConfiguration<BurstKey, ?>> cache : caches.entrySet()) {
-      cacheBuilder = cacheBuilder.withCache(cache.getKey(), cache.getValue());
-    }
-    cacheManager = cacheBuilder.build(true);
+    cacheManager = CacheManagerBuilder.newCacheManagerBuilder().build(true);
   }
 
   public void close() {
@@ -52,11 +55,96 @@ public class DBCacheManagerImpl {
     return statisticsEnabled ? new StatisticsCache<>(cache, name, statisticsManager) : cache;
   }
 
+  /**
+   * Sets up the cache of an entity table that opted in through its key factory, holding the latest committed
+   * rows of the table. How many rows are kept can be changed per table with DB.Cache.&lt;table&gt;, 0 turns the
+   * cache of the table off.
+   *
+   * @return the cache of the table, null if it is not cached
+   */
+  public synchronized Cache<BurstKey, Record> getEntityCache(String name, int defaultSize) {
+    if (!caches.containsKey(name)) {
+      final int size = getCacheSize(name, defaultSize);
+      if (size <= 0) {
+        return null;
+      }
+      CacheConfiguration<BurstKey, Record> configuration = CacheConfigurationBuilder.newCacheConfigurationBuilder(BurstKey.class, Record.class, ResourcePoolsBuilder.heap(size)).build();
+      cacheManager.createCache(name, configuration);
+      caches.put(name, configuration);
+      versionedCaches.put(name, new VersionedCache(getEHCache(name, Record.class)));
+    }
+    return getCache(name, Record.class);
+  }
+
+  private int getCacheSize(String name, int defaultSize) {
+    return propertyService.getInt(new Prop<>("DB.Cache." + name, defaultSize));
+  }
+
   public void flushCache() {
-    for (Map.Entry<String, CacheConfiguration<BurstKey, ?>> cacheEntry : caches.entrySet()) {
-      Cache<?,?> cache = getEHCache(cacheEntry.getKey(), cacheEntry.getValue().getValueType());
-      if ( cache != null )
-        cache.clear();
+    versionedCaches.values().forEach(VersionedCache::clear);
+  }
+
+  /**
+   * @return the version of the cache to pass to {@link #putLoaded} for an entity read from the database
+   * after this call, 0 if there is no such cache
+   */
+  public long getVersion(String name) {
+    VersionedCache cache = versionedCaches.get(name);
+    return cache != null ? cache.version : 0;
+  }
+
+  /**
+   * Caches a row read from the database, unless the cache changed since the given version was taken: the row
+   * may have been read before that change was committed, and would then bring back an older state.
+   */
+  public void putLoaded(String name, BurstKey key, Record row, long version) {
+    VersionedCache cache = versionedCaches.get(name);
+    if (cache != null) {
+      cache.putLoaded(key, row, version);
+    }
+  }
+
+  public void remove(String name, Collection<BurstKey> keys) {
+    VersionedCache cache = versionedCaches.get(name);
+    if (cache != null) {
+      cache.remove(keys);
+    }
+  }
+
+  public void clear(String name) {
+    VersionedCache cache = versionedCaches.get(name);
+    if (cache != null) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * Counts the changes of a cache, reads of the cache itself do not lock.
+   */
+  private static final class VersionedCache {
+    private final Cache<BurstKey, Record> cache;
+    private volatile long version = 1;
+
+    private VersionedCache(Cache<BurstKey, Record> cache) {
+      this.cache = cache;
+    }
+
+    private synchronized void putLoaded(BurstKey key, Record row, long loadedAt) {
+      if (version == loadedAt) {
+        cache.putIfAbsent(key, row);
+      }
+    }
+
+    private synchronized void remove(Collection<BurstKey> keys) {
+      version++;
+      for (BurstKey key : keys) {
+        cache.remove(key);
+      }
+    }
+
+    private synchronized void clear() {
+      version++;
+      cache.clear();
     }
   }
 }
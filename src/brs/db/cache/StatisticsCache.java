@@ -26,7 +26,15 @@ class StatisticsCache<K, V> implements Cache<K, V> {
 
   @Override
   public V get(K k) throws CacheLoadingException {
-    return wrappedCache.get(k);
+    final V result = wrappedCache.get(k);
+
+    if(result != null) {
+      statisticsManager.foundObjectInCache(cacheName);
+    } else {
+      statisticsManager.didNotFindObjectInCache(cacheName);
+    }
+
+    return result;
   }
 
   @Override
@@ -36,15 +44,7 @@ class StatisticsCache<K, V> implements Cache<K, V> {
 
   @Override
   public boolean containsKey(K k) {
-    final boolean result = wrappedCache.containsKey(k);
-
-    if(result) {
-      statisticsManager.foundObjectInCache(cacheName);
-    } else {
-      statisticsManager.didNotFindObjectInCache(cacheName);
-    }
-
-    return result;
+    return wrappedCache.containsKey(k);
   }
 
   @Override
@@ -2,15 +2,18 @@ package brs.db.sql;
 
 import brs.Burst;
 import brs.db.BurstKey;
+import brs.db.DerivedTable;
 import brs.db.cache.DBCacheManagerImpl;
 import brs.db.store.Dbs;
 import brs.props.PropertyService;
 import brs.props.Props;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.ehcache.Cache;
 import org.flywaydb.core.Flyway;
 import org.flywaydb.core.api.configuration.FluentConfiguration;
 import org.jooq.DSLContext;
+import org.jooq.Record;
 import org.jooq.SQLDialect;
 import org.jooq.conf.Settings;
 import org.jooq.impl.DSL;
@@ -23,10 +26,15 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 public final class Db {
 
@@ -37,6 +45,10 @@ public final class Db {
   private static final ThreadLocal<Connection> localConnection = new ThreadLocal<>();
   private static final ThreadLocal<Map<String, Map<BurstKey, Object>>> transactionCaches = new ThreadLocal<>();
   private static final ThreadLocal<Map<String, Map<BurstKey, Object>>> transactionBatches = new ThreadLocal<>();
+  private static final ThreadLocal<Set<DerivedTable>> tablesToFinish = new ThreadLocal<>();
+  // keys whose rows the transaction changed by table, null for the whole table, their shared cache entries are
+  // not used by the transaction and dropped once it commits
+  private static final ThreadLocal<Map<String, Set<BurstKey>>> transactionCacheChanges = new ThreadLocal<>();
 
   private static DBCacheManagerImpl dbCacheManager;
 
@@ -239,6 +251,8 @@ public final class Db {
       localConnection.set(con);
       transactionCaches.set(new HashMap<>());
       transactionBatches.set(new HashMap<>());
+      tablesToFinish.set(new LinkedHashSet<>());
+      transactionCacheChanges.set(new HashMap<>());
 
       return con;
     }
@@ -247,17 +261,100 @@ public final class Db {
     }
   }
 
+  /**
+   * Has the table finished before the current transaction commits, for tables holding back writes.
+   */
+  static void finishBeforeCommit(DerivedTable table) {
+    tablesToFinish.get().add(table);
+  }
+
   public static void commitTransaction() {
     Connection con = localConnection.get();
     if (con == null) {
       throw new IllegalStateException("Not in transaction");
     }
+    tablesToFinish.get().forEach(DerivedTable::finish);
+    tablesToFinish.get().clear();
     try {
       con.commit();
     }
     catch (SQLException e) {
       throw new RuntimeException(e.toString(), e);
     }
+    forgetCacheChanges();
+  }
+
+  static Cache<BurstKey, Record> getEntityCache(String table, int defaultSize) {
+    return dbCacheManager.getEntityCache(table, defaultSize);
+  }
+
+  /**
+   * @return the version to pass to {@link #cacheLoadedRow}, taken before the row is read
+   */
+  static long getEntityCacheVersion(String table) {
+    return dbCacheManager.getVersion(table);
+  }
+
+  /**
+   * Keeps a latest row read from the database in the shared cache of its table, unless the running transaction
+   * changed it: the shared cache only holds what is committed.
+   */
+  static void cacheLoadedRow(String table, BurstKey key, Record row, long version) {
+    if (!isCachedEntityChanged(table, key)) {
+      dbCacheManager.putLoaded(table, key, row, version);
+    }
+  }
+
+  /**
+   * @return whether the running transaction changed the row, so its shared cache entry is outdated for it
+   */
+  static boolean isCachedEntityChanged(String table, BurstKey key) {
+    if (!isInTransaction()) {
+      return false;
+    }
+    Map<String, Set<BurstKey>> changes = transactionCacheChanges.get();
+    if (!changes.containsKey(table)) {
+      return false;
+    }
+    Set<BurstKey> keys = changes.get(table);
+    return keys == null || keys.contains(key);
+  }
+
+  static void forgetCachedEntity(String table, BurstKey key) {
+    if (!isInTransaction()) {
+      dbCacheManager.remove(table, Collections.singleton(key));
+      return;
+    }
+    Map<String, Set<BurstKey>> changes = transactionCacheChanges.get();
+    if (!changes.containsKey(table)) {
+      changes.put(table, new HashSet<>());
+    }
+    Set<BurstKey> keys = changes.get(table);
+    if (keys != null) {
+      keys.add(key);
+    }
+  }
+
+  static void forgetCachedEntities(String table) {
+    if (!isInTransaction()) {
+      dbCacheManager.clear(table);
+      return;
+    }
+    transactionCacheChanges.get().put(table, null);
+  }
+
+  /**
+   * Drops the shared cache entries of the rows the transaction changed, once the changes are committed.
+   */
+  private static void forgetCacheChanges() {
+    for (Map.Entry<String, Set<BurstKey>> changes : transactionCacheChanges.get().entrySet()) {
+      if (changes.getValue() == null) {
+        dbCacheManager.clear(changes.getKey());
+      } else {
+        dbCacheManager.remove(changes.getKey(), changes.getValue());
+      }
+    }
+    transactionCacheChanges.get().clear();
   }
 
   public static void rollbackTransaction() {
@@ -273,7 +370,42 @@ public final class Db {
     }
     transactionCaches.get().clear();
     transactionBatches.get().clear();
-    dbCacheManager.flushCache();
+    tablesToFinish.get().clear();
+    // nothing the transaction changed went to the shared cache
+    transactionCacheChanges.get().clear();
+  }
+
+  /**
+   * Marks a point within the current transaction that {@link #rollbackToSavepoint(Savepoint)} can go back to,
+   * undoing only what came after it.
+   */
+  public static Savepoint setSavepoint() {
+    Connection con = localConnection.get();
+    if (con == null) {
+      throw new IllegalStateException("Not in transaction");
+    }
+    try {
+      return con.setSavepoint();
+    }
+    catch (SQLException e) {
+      throw new RuntimeException(e.toString(), e);
+    }
+  }
+
+  public static void rollbackToSavepoint(Savepoint savepoint) {
+    Connection con = localConnection.get();
+    if (con == null) {
+      throw new IllegalStateException("Not in transaction");
+    }
+    try {
+      con.rollback(savepoint);
+    }
+    catch (SQLException e) {
+      throw new RuntimeException(e.toString(), e);
+    }
+    transactionCaches.get().clear();
+    transactionBatches.get().clear();
+    // what came before the savepoint is still uncommitted, so its changes stay recorded
   }
 
   public static void endTransaction() {
@@ -286,6 +418,8 @@ public final class Db {
     transactionCaches.set(null);
     transactionBatches.get().clear();
     transactionBatches.set(null);
+    tablesToFinish.set(null);
+    transactionCacheChanges.set(null);
     DbUtils.close(con);
   }
 }
@@ -1,5 +1,7 @@
 package brs.db.sql;
 
+import brs.Burst;
+import brs.db.BurstKey;
 import brs.db.DerivedTable;
 import brs.db.store.DerivedTableManager;
 import org.jooq.DSLContext;
@@ -16,15 +18,25 @@ public abstract class DerivedSqlTable implements DerivedTable {
   final Field<Integer> heightField;
   final Field<Boolean> latestField;
 
+  private final DerivedTableManager derivedTableManager;
+
   DerivedSqlTable(String table, TableImpl<?> tableClass, DerivedTableManager derivedTableManager) {
     this.table      = table;
     this.tableClass = tableClass;
+    this.derivedTableManager = derivedTableManager;
     logger.trace("Creating derived table for "+table);
     derivedTableManager.registerDerivedTable(this);
     this.heightField = tableClass.field("height", Integer.class);
     this.latestField = tableClass.field("latest", Boolean.class);
   }
 
+  /**
+   * Notes in the undo log that the row of the key is written at the current height.
+   */
+  void recordChange(BurstKey key) {
+    derivedTableManager.recordChange(this, Burst.getBlockchain().getHeight(), key);
+  }
+
   @Override
   public void rollback(int height) {
     if (!Db.isInTransaction()) {
@@ -4,6 +4,7 @@ import brs.Burst;
 import brs.db.BurstKey;
 import brs.db.EntityTable;
 import brs.db.store.DerivedTableManager;
+import org.ehcache.Cache;
 import org.jooq.*;
 import org.jooq.impl.DSL;
 import org.jooq.impl.TableImpl;
@@ -17,6 +18,7 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
   final DbKey.Factory<T> dbKeyFactory;
   private final boolean multiversion;
   private final List<SortField<?>> defaultSort;
+  private final Cache<BurstKey, Record> entityCache;
 
   final Field<Integer> heightField;
   final Field<Boolean> latestField;
@@ -38,6 +40,7 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
       }
     }
     defaultSort.add(heightField.desc());
+    this.entityCache = Db.getEntityCache(table, this.dbKeyFactory.getCacheSize());
   }
 
   private Map<BurstKey, T> getCache() {
@@ -69,12 +72,11 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
   @Override
   public T get(BurstKey nxtKey) {
     DbKey dbKey = (DbKey) nxtKey;
-    if (Db.isInTransaction()) {
-      T t = getCache().get(dbKey);
-      if (t != null) {
-        return t;
-      }
+    T cached = getCached(dbKey);
+    if (cached != null) {
+      return cached;
     }
+    final long cacheVersion = Db.getEntityCacheVersion(table);
     try (DSLContext ctx = Db.getDSLContext()) {
       SelectQuery<Record> query = ctx.selectQuery();
       query.addFrom(tableClass);
@@ -84,10 +86,52 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
       }
       query.addLimit(1);
 
-      return get(ctx, query, true);
+      flushPendingWrites();
+      Record record = query.fetchOne();
+      return record != null ? getLatest(ctx, dbKey, record, cacheVersion) : null;
+    }
+  }
+
+  /**
+   * The shared cache only holds committed rows, never entities: every hit loads a new instance, so what a
+   * transaction changes in place is not seen by anybody else before it is committed.
+   *
+   * @return the entity if the running transaction has it already or its row is in the shared cache, null if
+   * it has to be read from the database
+   */
+  T getCached(BurstKey dbKey) {
+    if (Db.isInTransaction()) {
+      T t = getCache().get(dbKey);
+      if (t != null) {
+        return t;
+      }
+    }
+    if (entityCache == null || Db.isCachedEntityChanged(table, dbKey)) {
+      return null;
+    }
+    Record record = entityCache.get(dbKey);
+    if (record == null) {
+      return null;
+    }
+    try (DSLContext ctx = Db.getDSLContext()) {
+      return get(ctx, record, true);
     }
   }
 
+  /**
+   * Loads the entity of the latest row of its key and keeps the row in the shared cache.
+   *
+   * @param cacheVersion taken with {@link Db#getEntityCacheVersion} before the row was read, a newer version
+   * committed meanwhile wins over the row
+   */
+  T getLatest(DSLContext ctx, BurstKey dbKey, Record record, long cacheVersion) {
+    if (entityCache != null) {
+      record.detach();
+      Db.cacheLoadedRow(table, dbKey, record, cacheVersion);
+    }
+    return get(ctx, record, true);
+  }
+
   @Override
   public T get(BurstKey nxtKey, int height) {
     DbKey dbKey = (DbKey) nxtKey;
@@ -112,6 +156,7 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
       query.addOrderBy(heightField.desc());
       query.addLimit(1);
 
+      flushPendingWrites();
       return get(ctx, query, false);
     }
   }
@@ -127,6 +172,7 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
       }
       query.addLimit(1);
 
+      flushPendingWrites();
       return get(ctx, query, true);
     }
   }
@@ -154,14 +200,18 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
       query.addOrderBy(heightField.desc());
       query.addLimit(1);
 
+      flushPendingWrites();
       return get(ctx, query, false);
     }
   }
 
   private T get(DSLContext ctx, SelectQuery<Record> query, boolean cache) {
-    final boolean doCache = cache && Db.isInTransaction();
     Record record = query.fetchOne();
-    if (record == null) return null;
+    return record != null ? get(ctx, record, cache) : null;
+  }
+
+  private T get(DSLContext ctx, Record record, boolean cache) {
+    final boolean doCache = cache && Db.isInTransaction();
     T t = null;
     DbKey dbKey = null;
     if (doCache) {
@@ -240,22 +290,8 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
 
   @Override
   public Collection<T> getManyBy(DSLContext ctx, SelectQuery<? extends Record> query, boolean cache) {
-    final boolean doCache = cache && Db.isInTransaction();
-    return query.fetch(record -> {
-      T t = null;
-      DbKey dbKey = null;
-      if (doCache) {
-        dbKey = (DbKey) dbKeyFactory.newKey(record);
-        t = getCache().get(dbKey);
-      }
-      if (t == null) {
-        t = load(ctx, record);
-        if (doCache) {
-          Db.getCache(table).put(dbKey, t);
-        }
-      }
-      return t;
-    });
+    flushPendingWrites();
+    return query.fetch(record -> get(ctx, record, cache));
   }
 
   @Override
@@ -318,13 +354,23 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
 
   @Override
   public int getCount() {
+    flushPendingWrites();
     DSLContext ctx = Db.getDSLContext();
     SelectJoinStep<?> r = ctx.selectCount().from(tableClass);
     return ( multiversion ? r.where(latestField.isTrue()) : r ).fetchOne(0, int.class);
   }
 
+  @Override
+  public int getCount(Condition condition) {
+    flushPendingWrites();
+    DSLContext ctx = Db.getDSLContext();
+    SelectConditionStep<?> r = ctx.selectCount().from(tableClass).where(condition);
+    return ( multiversion ? r.and(latestField.isTrue()) : r ).fetchOne(0, int.class);
+  }
+
   @Override
   public int getRowCount() {
+    flushPendingWrites();
     DSLContext ctx = Db.getDSLContext();
     return ctx.selectCount().from(tableClass).fetchOne(0, int.class);
   }
@@ -335,6 +381,7 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
       throw new IllegalStateException("Not in transaction");
     }
     DbKey dbKey = (DbKey) dbKeyFactory.newKey(t);
+    recordChange(dbKey);
     T cachedT = getCache().get(dbKey);
     if (cachedT == null) {
       Db.getCache(table).put(dbKey, t);
@@ -342,6 +389,10 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
       throw new IllegalStateException("Different instance found in Db cache, perhaps trying to save an object "
                                       + "that was read outside the current transaction");
     }
+    forgetCachedEntity(dbKey);
+    if (collectWrite(dbKey, t)) {
+      return;
+    }
     try (DSLContext ctx = Db.getDSLContext()) {
       if (multiversion) {
         UpdateQuery query = ctx.updateQuery(tableClass);
@@ -359,13 +410,45 @@ public abstract class EntitySqlTable<T> extends DerivedSqlTable implements Entit
 
   @Override
   public void rollback(int height) {
+    flushPendingWrites();
     super.rollback(height);
     Db.getCache(table).clear();
+    flushEntityCache();
   }
 
   @Override
   public void truncate() {
+    flushPendingWrites();
     super.truncate();
     Db.getCache(table).clear();
+    flushEntityCache();
+  }
+
+  /**
+   * Lets a table hold back the write of an inserted entity to send it together with others later.
+   *
+   * @return whether the write was taken, otherwise it is done right away
+   */
+  boolean collectWrite(DbKey dbKey, T t) {
+    return false;
+  }
+
+  /**
+   * Sends the writes held back by {@link #collectWrite(DbKey, Object)}, the database has to see them before it
+   * is queried.
+   */
+  void flushPendingWrites() {
+  }
+
+  void forgetCachedEntity(BurstKey dbKey) {
+    if (entityCache != null) {
+      Db.forgetCachedEntity(table, dbKey);
+    }
+  }
+
+  void flushEntityCache() {
+    if (entityCache != null) {
+      Db.forgetCachedEntities(table);
+    }
   }
 }
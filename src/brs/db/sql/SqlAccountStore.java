@@ -2,9 +2,9 @@ package brs.db.sql;
 
 import brs.Account;
 import brs.Burst;
+import brs.db.BurstKey;
 import brs.db.VersionedBatchEntityTable;
 import brs.db.VersionedEntityTable;
-import brs.db.cache.DBCacheManagerImpl;
 import brs.db.store.AccountStore;
 import brs.db.store.DerivedTableManager;
 import brs.util.Convert;
@@ -22,6 +22,11 @@ public class SqlAccountStore implements AccountStore {
         public DbKey newKey(Account account) {
             return (DbKey) account.nxtKey;
         }
+
+        @Override
+        public int getCacheSize() {
+            return 8192;
+        }
     };
     private static final DbKey.LongKeyFactory<Account.RewardRecipientAssignment> rewardRecipientAssignmentDbKeyFactory
             = new DbKey.LongKeyFactory<Account.RewardRecipientAssignment>(REWARD_RECIP_ASSIGN.ACCOUNT_ID) {
@@ -29,6 +34,11 @@ public class SqlAccountStore implements AccountStore {
         public DbKey newKey(Account.RewardRecipientAssignment assignment) {
             return (DbKey) assignment.burstKey;
         }
+
+        @Override
+        public int getCacheSize() {
+            return 4096;
+        }
     };
     private static final org.slf4j.Logger logger = LoggerFactory.getLogger(SqlAccountStore.class);
     private static final DbKey.LinkKeyFactory<Account.AccountAsset> accountAssetDbKeyFactory
@@ -37,6 +47,11 @@ public class SqlAccountStore implements AccountStore {
         public DbKey newKey(Account.AccountAsset accountAsset) {
             return (DbKey) accountAsset.burstKey;
         }
+
+        @Override
+        public int getCacheSize() {
+            return 8192;
+        }
     };
 
 
@@ -54,7 +69,7 @@ public class SqlAccountStore implements AccountStore {
     private final VersionedEntityTable<Account.AccountRansom> accountRansomTable;
 
 
-    public SqlAccountStore(DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager) {
+    public SqlAccountStore(DerivedTableManager derivedTableManager) {
         rewardRecipientAssignmentTable = new VersionedEntitySqlTable<Account.RewardRecipientAssignment>("reward_recip_assign", brs.schema.Tables.REWARD_RECIP_ASSIGN, rewardRecipientAssignmentDbKeyFactory, derivedTableManager) {
 
             @Override
@@ -63,11 +78,10 @@ public class SqlAccountStore implements AccountStore {
             }
 
             @Override
-            protected void save(DSLContext ctx, Account.RewardRecipientAssignment assignment) {
-                ctx.mergeInto(REWARD_RECIP_ASSIGN, REWARD_RECIP_ASSIGN.ACCOUNT_ID, REWARD_RECIP_ASSIGN.PREV_RECIP_ID, REWARD_RECIP_ASSIGN.RECIP_ID, REWARD_RECIP_ASSIGN.FROM_HEIGHT, REWARD_RECIP_ASSIGN.HEIGHT, REWARD_RECIP_ASSIGN.LATEST)
+            protected Query saveQuery(DSLContext ctx, Account.RewardRecipientAssignment assignment) {
+                return ctx.mergeInto(REWARD_RECIP_ASSIGN, REWARD_RECIP_ASSIGN.ACCOUNT_ID, REWARD_RECIP_ASSIGN.PREV_RECIP_ID, REWARD_RECIP_ASSIGN.RECIP_ID, REWARD_RECIP_ASSIGN.FROM_HEIGHT, REWARD_RECIP_ASSIGN.HEIGHT, REWARD_RECIP_ASSIGN.LATEST)
                         .key(REWARD_RECIP_ASSIGN.ACCOUNT_ID, REWARD_RECIP_ASSIGN.HEIGHT)
-                        .values(assignment.accountId, assignment.getPrevRecipientId(), assignment.getRecipientId(), assignment.getFromHeight(), Burst.getBlockchain().getHeight(), true)
-                        .execute();
+                        .values(assignment.accountId, assignment.getPrevRecipientId(), assignment.getRecipientId(), assignment.getFromHeight(), Burst.getBlockchain().getHeight(), true);
             }
         };
 
@@ -88,11 +102,10 @@ public class SqlAccountStore implements AccountStore {
             }
 
             @Override
-            protected void save(DSLContext ctx, Account.AccountAsset accountAsset) {
-                ctx.mergeInto(ACCOUNT_ASSET, ACCOUNT_ASSET.ACCOUNT_ID, ACCOUNT_ASSET.ASSET_ID, ACCOUNT_ASSET.QUANTITY, ACCOUNT_ASSET.UNCONFIRMED_QUANTITY, ACCOUNT_ASSET.HEIGHT, ACCOUNT_ASSET.LATEST)
+            protected Query saveQuery(DSLContext ctx, Account.AccountAsset accountAsset) {
+                return ctx.mergeInto(ACCOUNT_ASSET, ACCOUNT_ASSET.ACCOUNT_ID, ACCOUNT_ASSET.ASSET_ID, ACCOUNT_ASSET.QUANTITY, ACCOUNT_ASSET.UNCONFIRMED_QUANTITY, ACCOUNT_ASSET.HEIGHT, ACCOUNT_ASSET.LATEST)
                         .key(ACCOUNT_ASSET.ACCOUNT_ID, ACCOUNT_ASSET.ASSET_ID, ACCOUNT_ASSET.HEIGHT)
-                        .values(accountAsset.accountId, accountAsset.assetId, accountAsset.getQuantityQNT(), accountAsset.getUnconfirmedQuantityQNT(), Burst.getBlockchain().getHeight(), true)
-                        .execute();
+                        .values(accountAsset.accountId, accountAsset.assetId, accountAsset.getQuantityQNT(), accountAsset.getUnconfirmedQuantityQNT(), Burst.getBlockchain().getHeight(), true);
             }
 
             @Override
@@ -117,11 +130,10 @@ public class SqlAccountStore implements AccountStore {
             }
 
             @Override
-            protected void save(DSLContext ctx, Account.AccountRansom accountRansom) {
-                ctx.mergeInto(ACCOUNT_RANSOM, ACCOUNT_RANSOM.ACCOUNT_ID, ACCOUNT_RANSOM.RANSOM, ACCOUNT_RANSOM.APPLY_TIME, ACCOUNT_RANSOM.HEIGHT,ACCOUNT_RANSOM.LATEST)
+            protected Query saveQuery(DSLContext ctx, Account.AccountRansom accountRansom) {
+                return ctx.mergeInto(ACCOUNT_RANSOM, ACCOUNT_RANSOM.ACCOUNT_ID, ACCOUNT_RANSOM.RANSOM, ACCOUNT_RANSOM.APPLY_TIME, ACCOUNT_RANSOM.HEIGHT,ACCOUNT_RANSOM.LATEST)
                         .key(ACCOUNT_ASSET.ACCOUNT_ID)
-                        .values(accountRansom.getAccountId(), accountRansom.getRansom(), accountRansom.getApplyTime(), Burst.getBlockchain().getHeight(), true)
-                        .execute();
+                        .values(accountRansom.getAccountId(), accountRansom.getRansom(), accountRansom.getApplyTime(), Burst.getBlockchain().getHeight(), true);
             }
 
             @Override
@@ -130,7 +142,7 @@ public class SqlAccountStore implements AccountStore {
             }
         };
 
-        accountTable = new VersionedBatchEntitySqlTable<Account>("account", brs.schema.Tables.ACCOUNT, accountDbKeyFactory, derivedTableManager, dbCacheManager, Account.class) {
+        accountTable = new VersionedBatchEntitySqlTable<Account>("account", brs.schema.Tables.ACCOUNT, accountDbKeyFactory, derivedTableManager) {
             @Override
             protected Account load(DSLContext ctx, Record rs) {
                 return new SqlAccount(rs);
@@ -196,8 +208,7 @@ public class SqlAccountStore implements AccountStore {
 
     @Override
     public int getAssetAccountsCount(long assetId) {
-        DSLContext ctx = Db.getDSLContext();
-        return ctx.selectCount().from(ACCOUNT_ASSET).where(ACCOUNT_ASSET.ASSET_ID.eq(assetId)).and(ACCOUNT_ASSET.LATEST.isTrue()).fetchOne(0, int.class);
+        return accountAssetTable.getCount(ACCOUNT_ASSET.ASSET_ID.eq(assetId));
     }
 
     @Override
@@ -205,6 +216,19 @@ public class SqlAccountStore implements AccountStore {
         return accountDbKeyFactory;
     }
 
+    @Override
+    public Map<Long, Account> getAccounts(Collection<Long> ids) {
+        List<BurstKey> keys = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            keys.add(accountDbKeyFactory.newKey(id));
+        }
+        Map<Long, Account> accounts = new HashMap<>();
+        for (Account account : accountTable.get(keys).values()) {
+            accounts.put(account.getId(), account);
+        }
+        return accounts;
+    }
+
     @Override
     public Collection<Account.RewardRecipientAssignment> getAccountsWithRewardRecipient(Long recipientId) {
         return getRewardRecipientAssignmentTable().getManyBy(getAccountsWithRewardRecipientClause(recipientId, Burst.getBlockchain().getHeight() + 1), 0, -1);
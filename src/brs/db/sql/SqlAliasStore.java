@@ -72,6 +72,11 @@ public class SqlAliasStore implements AliasStore {
       public BurstKey newKey(Alias alias) {
         return alias.dbKey;
       }
+
+      @Override
+      public int getCacheSize() {
+        return 4096;
+      }
     };
 
   @Override
@@ -21,6 +21,11 @@ public class SqlAssetStore implements AssetStore {
         return asset.dbKey;
       }
 
+      @Override
+      public int getCacheSize() {
+        return 1024;
+      }
+
     };
   private final EntitySqlTable<Asset> assetTable;
 
@@ -16,10 +16,11 @@ import static brs.schema.Tables.INDIRECT_INCOMING;
 
 public class SqlIndirectIncomingStore implements IndirectIncomingStore {
 
+    private final BurstKey.LinkKeyFactory<IndirectIncoming> indirectIncomingDbKeyFactory;
     private final EntitySqlTable<IndirectIncoming> indirectIncomingTable;
 
     public SqlIndirectIncomingStore(DerivedTableManager derivedTableManager) {
-        BurstKey.LinkKeyFactory<IndirectIncoming> indirectIncomingDbKeyFactory = new DbKey.LinkKeyFactory<IndirectIncoming>("account_id", "transaction_id") {
+        this.indirectIncomingDbKeyFactory = new DbKey.LinkKeyFactory<IndirectIncoming>("account_id", "transaction_id") {
             @Override
             public BurstKey newKey(IndirectIncoming indirectIncoming) {
                 return newKey(indirectIncoming.getAccountId(), indirectIncoming.getTransactionId());
@@ -56,6 +57,10 @@ public class SqlIndirectIncomingStore implements IndirectIncomingStore {
 
     @Override
     public void addIndirectIncomings(Collection<IndirectIncoming> indirectIncomings) {
+        // saved without insert(), so the rows have to be noted in the undo log here for pop-offs to remove them
+        for (IndirectIncoming indirectIncoming : indirectIncomings) {
+            indirectIncomingTable.recordChange(indirectIncomingDbKeyFactory.newKey(indirectIncoming));
+        }
         try (DSLContext ctx = Db.getDSLContext()) {
             indirectIncomingTable.save(ctx, indirectIncomings.toArray(new IndirectIncoming[0]));
         }
@@ -9,6 +9,7 @@ import brs.db.store.OrderStore;
 import brs.schema.tables.records.AskOrderRecord;
 import brs.schema.tables.records.BidOrderRecord;
 import org.jooq.DSLContext;
+import org.jooq.Query;
 import org.jooq.Record;
 import org.jooq.SelectQuery;
 import org.jooq.SortField;
@@ -40,8 +41,8 @@ public class SqlOrderStore implements OrderStore {
       }
 
       @Override
-      protected void save(DSLContext ctx, Order.Ask ask) {
-        saveAsk(ctx, ask);
+      protected Query saveQuery(DSLContext ctx, Order.Ask ask) {
+        return saveAsk(ctx, ask);
       }
 
       @Override
@@ -60,8 +61,8 @@ public class SqlOrderStore implements OrderStore {
       }
 
       @Override
-      protected void save(DSLContext ctx, Order.Bid bid) {
-        saveBid(ctx, bid);
+      protected Query saveQuery(DSLContext ctx, Order.Bid bid) {
+        return saveBid(ctx, bid);
       }
 
       @Override
@@ -139,11 +140,10 @@ public class SqlOrderStore implements OrderStore {
     return askOrderTable.getManyBy(brs.schema.Tables.ASK_ORDER.ASSET_ID.eq(assetId), from, to);
   }
 
-  private void saveAsk(DSLContext ctx, Order.Ask ask) {
-    ctx.mergeInto(ASK_ORDER, ASK_ORDER.ID, ASK_ORDER.ACCOUNT_ID, ASK_ORDER.ASSET_ID, ASK_ORDER.PRICE, ASK_ORDER.QUANTITY, ASK_ORDER.CREATION_HEIGHT, ASK_ORDER.HEIGHT, ASK_ORDER.LATEST)
+  private Query saveAsk(DSLContext ctx, Order.Ask ask) {
+    return ctx.mergeInto(ASK_ORDER, ASK_ORDER.ID, ASK_ORDER.ACCOUNT_ID, ASK_ORDER.ASSET_ID, ASK_ORDER.PRICE, ASK_ORDER.QUANTITY, ASK_ORDER.CREATION_HEIGHT, ASK_ORDER.HEIGHT, ASK_ORDER.LATEST)
             .key(ASK_ORDER.ID, ASK_ORDER.HEIGHT)
-            .values(ask.getId(), ask.getAccountId(), ask.getAssetId(), ask.getPriceNQT(), ask.getQuantityQNT(), ask.getHeight(), Burst.getBlockchain().getHeight(), true)
-            .execute();
+            .values(ask.getId(), ask.getAccountId(), ask.getAssetId(), ask.getPriceNQT(), ask.getQuantityQNT(), ask.getHeight(), Burst.getBlockchain().getHeight(), true);
   }
 
   @Override
@@ -205,11 +205,10 @@ public class SqlOrderStore implements OrderStore {
     return result.hasNext() ? result.next() : null;
   }
 
-  private void saveBid(DSLContext ctx, Order.Bid bid) {
-    ctx.mergeInto(BID_ORDER, BID_ORDER.ID, BID_ORDER.ACCOUNT_ID, BID_ORDER.ASSET_ID, BID_ORDER.PRICE, BID_ORDER.QUANTITY, BID_ORDER.CREATION_HEIGHT, BID_ORDER.HEIGHT, BID_ORDER.LATEST)
+  private Query saveBid(DSLContext ctx, Order.Bid bid) {
+    return ctx.mergeInto(BID_ORDER, BID_ORDER.ID, BID_ORDER.ACCOUNT_ID, BID_ORDER.ASSET_ID, BID_ORDER.PRICE, BID_ORDER.QUANTITY, BID_ORDER.CREATION_HEIGHT, BID_ORDER.HEIGHT, BID_ORDER.LATEST)
             .key(BID_ORDER.ID, BID_ORDER.HEIGHT)
-            .values(bid.getId(), bid.getAccountId(), bid.getAssetId(), bid.getPriceNQT(), bid.getQuantityQNT(), bid.getHeight(), Burst.getBlockchain().getHeight(), true)
-            .execute();
+            .values(bid.getId(), bid.getAccountId(), bid.getAssetId(), bid.getPriceNQT(), bid.getQuantityQNT(), bid.getHeight(), Burst.getBlockchain().getHeight(), true);
   }
 
   class SqlAsk extends Order.Ask {
@@ -58,6 +58,7 @@ public abstract class ValuesSqlTable<T,V> extends DerivedSqlTable implements Val
       throw new IllegalStateException("Not in transaction");
     }
     DbKey dbKey = (DbKey)dbKeyFactory.newKey(t);
+    recordChange(dbKey);
     Db.getCache(table).put(dbKey, values);
     try ( DSLContext ctx = Db.getDSLContext() ) {
       if (multiversion) {
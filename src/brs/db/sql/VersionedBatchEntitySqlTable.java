@@ -2,9 +2,7 @@ package brs.db.sql;
 
 import brs.db.BurstKey;
 import brs.db.VersionedBatchEntityTable;
-import brs.db.cache.DBCacheManagerImpl;
 import brs.db.store.DerivedTableManager;
-import org.ehcache.Cache;
 import org.jooq.*;
 import org.jooq.impl.TableImpl;
 
@@ -12,13 +10,10 @@ import java.util.*;
 
 public abstract class VersionedBatchEntitySqlTable<T> extends VersionedEntitySqlTable<T> implements VersionedBatchEntityTable<T> {
 
-  private final DBCacheManagerImpl dbCacheManager;
-  private final Class<T> tClass;
+  private static final int MAX_KEYS_PER_QUERY = 1000;
 
-  VersionedBatchEntitySqlTable(String table, TableImpl<?> tableClass, DbKey.Factory<T> dbKeyFactory, DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager, Class<T> tClass) {
+  VersionedBatchEntitySqlTable(String table, TableImpl<?> tableClass, DbKey.Factory<T> dbKeyFactory, DerivedTableManager derivedTableManager) {
     super(table, tableClass, dbKeyFactory, derivedTableManager);
-    this.dbCacheManager = dbCacheManager;
-    this.tClass = tClass;
   }
   
   private void assertInTransaction() {
@@ -39,32 +34,74 @@ public abstract class VersionedBatchEntitySqlTable<T> extends VersionedEntitySql
   public boolean delete(T t) {
     assertNotInTransaction();
     DbKey dbKey = (DbKey)dbKeyFactory.newKey(t);
-    getCache().remove(dbKey);
+    recordChange(dbKey);
+    forgetCachedEntity(dbKey);
     getBatch().remove(dbKey);
     return true;
   }
 
   @Override
   public T get(BurstKey dbKey) {
-    if (getCache().containsKey(dbKey)) {
-      return getCache().get(dbKey);
-    }
-    else if (Db.isInTransaction() && getBatch().containsKey(dbKey)) {
+    if (Db.isInTransaction() && getBatch().containsKey(dbKey)) {
       return getBatch().get(dbKey);
     }
-    T item = super.get(dbKey);
-    if (item != null) {
-      getCache().put(dbKey, item);
+    // caches what it reads
+    return super.get(dbKey);
+  }
+
+  @Override
+  public Map<BurstKey, T> get(Collection<BurstKey> dbKeys) {
+    Map<BurstKey, T> found = new HashMap<>();
+    List<BurstKey> toLoad = new ArrayList<>();
+    for (BurstKey dbKey : dbKeys) {
+      T t = Db.isInTransaction() ? getBatch().get(dbKey) : null;
+      if (t == null) {
+        t = getCached(dbKey);
+      }
+      if (t != null) {
+        found.put(dbKey, t);
+      } else {
+        toLoad.add(dbKey);
+      }
+    }
+    String[] pkColumns = dbKeyFactory.getPKColumns();
+    if (pkColumns.length != 1) {
+      for (BurstKey dbKey : toLoad) {
+        T t = get(dbKey);
+        if (t != null) {
+          found.put(dbKey, t);
+        }
+      }
+      return found;
     }
-    return item;
+    // what the running transaction changed is in the batch, so the latest rows of the other keys are current
+    Field<Long> pkField = tableClass.field(pkColumns[0], Long.class);
+    long cacheVersion = Db.getEntityCacheVersion(table);
+    DSLContext ctx = Db.getDSLContext();
+    for (int from = 0; from < toLoad.size(); from += MAX_KEYS_PER_QUERY) {
+      List<Long> chunk = new ArrayList<>();
+      for (BurstKey dbKey : toLoad.subList(from, Math.min(from + MAX_KEYS_PER_QUERY, toLoad.size()))) {
+        chunk.add(dbKey.getPKValues()[0]);
+      }
+      SelectQuery<Record> query = ctx.selectQuery();
+      query.addFrom(tableClass);
+      query.addConditions(pkField.in(chunk));
+      query.addConditions(latestField.isTrue());
+      for (Record record : query.fetch()) {
+        BurstKey dbKey = dbKeyFactory.newKey(record);
+        found.put(dbKey, getLatest(ctx, dbKey, record, cacheVersion));
+      }
+    }
+    return found;
   }
 
   @Override
   public void insert(T t) {
     assertNotInTransaction();
     BurstKey key = dbKeyFactory.newKey(t);
+    recordChange(key);
+    forgetCachedEntity(key);
     getBatch().put(key, t);
-    getCache().put(key, t);
   }
 
   @Override
@@ -76,24 +113,7 @@ public abstract class VersionedBatchEntitySqlTable<T> extends VersionedEntitySql
     }
 
     DSLContext ctx = Db.getDSLContext();
-    UpdateQuery updateQuery = ctx.updateQuery(tableClass);
-    updateQuery.addValue(latestField, false);
-    for (String idColumn : dbKeyFactory.getPKColumns()) {
-      updateQuery.addConditions(tableClass.field(idColumn, Long.class).eq(0L));
-    }
-    updateQuery.addConditions(latestField.isTrue());
-
-    BatchBindStep updateBatch = ctx.batch(updateQuery);
-    for (BurstKey dbKey : keySet) {
-      List<Object> bindArgs = new ArrayList<>();
-      bindArgs.add(false);
-      for (long pkValue : dbKey.getPKValues()) {
-        bindArgs.add(pkValue);
-      }
-      updateBatch.bind(bindArgs.toArray());
-    }
-    updateBatch.execute();
-
+    unsetLatest(ctx, keySet);
     bulkInsert(ctx, getBatch().values());
     getBatch().clear();
   }
@@ -176,6 +196,12 @@ public abstract class VersionedBatchEntitySqlTable<T> extends VersionedEntitySql
     return super.getCount();
   }
 
+  @Override
+  public int getCount(Condition condition) {
+    assertInTransaction();
+    return super.getCount(condition);
+  }
+
   @Override
   public int getRowCount() {
     assertInTransaction();
@@ -188,6 +214,17 @@ public abstract class VersionedBatchEntitySqlTable<T> extends VersionedEntitySql
     getBatch().clear();
   }
 
+  @Override
+  public void rollback(int height, Collection<BurstKey> changedKeys) {
+    super.rollback(height, changedKeys);
+    getBatch().clear();
+  }
+
+  @Override
+  void flushPendingWrites() {
+    // the batch of this table holds entities, it is only written by finish()
+  }
+
   @Override
   public void truncate() {
     super.truncate();
@@ -199,13 +236,8 @@ public abstract class VersionedBatchEntitySqlTable<T> extends VersionedEntitySql
     return Db.getBatch(table);
   }
 
-  @Override
-  public Cache<BurstKey, T> getCache() {
-    return dbCacheManager.getCache(table, tClass);
-  }
-
   @Override
   public void flushCache() {
-    getCache().clear();
+    Db.forgetCachedEntities(table);
   }
 }
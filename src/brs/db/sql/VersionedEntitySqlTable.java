@@ -9,17 +9,109 @@ import org.jooq.impl.DSL;
 import org.jooq.impl.TableImpl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> implements VersionedEntityTable<T> {
 
+  private static final int MAX_KEYS_PER_ROLLBACK = 1000;
+
   VersionedEntitySqlTable(String table, TableImpl<?> tableClass, BurstKey.Factory<T> dbKeyFactory, DerivedTableManager derivedTableManager) {
     super(table, tableClass, dbKeyFactory, true, derivedTableManager);
   }
 
+  /**
+   * Tables that return the statement saving an entity here, instead of overriding
+   * {@link #save(DSLContext, Object)}, have their writes collected while a block is applied and sent as one
+   * batch when the block is finished, before the transaction commits or before the table is queried.
+   *
+   * @return the statement saving the entity at the current height, null if the table saves entities itself
+   */
+  protected Query saveQuery(DSLContext ctx, T t) {
+    return null;
+  }
+
+  @Override
+  void save(DSLContext ctx, T t) {
+    Query query = saveQuery(ctx, t);
+    if (query != null) {
+      query.execute();
+    }
+  }
+
+  @Override
+  boolean collectWrite(DbKey dbKey, T t) {
+    Query query = saveQuery(Db.getDSLContext(), t);
+    if (query == null) {
+      return false;
+    }
+    // built right away, so the entity is saved as it was when inserted like an immediate write would
+    Db.<Query>getBatch(table).put(dbKey, query);
+    Db.finishBeforeCommit(this);
+    return true;
+  }
+
+  @Override
+  void flushPendingWrites() {
+    if (!Db.isInTransaction()) {
+      return;
+    }
+    Map<BurstKey, Query> pendingWrites = Db.getBatch(table);
+    if (pendingWrites.isEmpty()) {
+      return;
+    }
+
+    DSLContext ctx = Db.getDSLContext();
+    unsetLatest(ctx, pendingWrites.keySet());
+    ctx.batch(new ArrayList<>(pendingWrites.values())).execute();
+    pendingWrites.clear();
+  }
+
+  /**
+   * Takes the latest flag off the current versions of the keys in one batch, before their new versions are
+   * written.
+   */
+  void unsetLatest(DSLContext ctx, Collection<BurstKey> dbKeys) {
+    UpdateQuery<?> updateQuery = ctx.updateQuery(tableClass);
+    updateQuery.addValue(latestField, false);
+    for (String idColumn : dbKeyFactory.getPKColumns()) {
+      updateQuery.addConditions(tableClass.field(idColumn, Long.class).eq(0L));
+    }
+    updateQuery.addConditions(latestField.isTrue());
+
+    BatchBindStep updateBatch = ctx.batch(updateQuery);
+    for (BurstKey dbKey : dbKeys) {
+      List<Object> bindArgs = new ArrayList<>();
+      bindArgs.add(false);
+      for (long pkValue : dbKey.getPKValues()) {
+        bindArgs.add(pkValue);
+      }
+      updateBatch.bind(bindArgs.toArray());
+    }
+    updateBatch.execute();
+  }
+
+  @Override
+  public void finish() {
+    flushPendingWrites();
+  }
+
   @Override
   public void rollback(int height) {
-    rollback(table, tableClass, heightField, latestField, height, dbKeyFactory);
+    flushPendingWrites();
+    for (DbKey dbKey : rollback(table, tableClass, heightField, latestField, height, dbKeyFactory)) {
+      forgetCachedEntity(dbKey);
+    }
+  }
+
+  @Override
+  public void rollback(int height, Collection<BurstKey> changedKeys) {
+    flushPendingWrites();
+    rollback(table, tableClass, heightField, latestField, height, dbKeyFactory, changedKeys);
+    for (BurstKey dbKey : changedKeys) {
+      forgetCachedEntity(dbKey);
+    }
   }
 
   @Override
@@ -31,6 +123,11 @@ public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> imple
       throw new IllegalStateException("Not in transaction");
     }
     DbKey dbKey = (DbKey) dbKeyFactory.newKey(t);
+    recordChange(dbKey);
+    // the delete writes the entity itself if it has to
+    if (Db.isInTransaction()) {
+      Db.getBatch(table).remove(dbKey);
+    }
     try ( DSLContext ctx = Db.getDSLContext() ) {
       SelectQuery<Record> countQuery = ctx.selectQuery();
       countQuery.addFrom(tableClass);
@@ -59,22 +156,31 @@ public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> imple
       }
     } finally {
       Db.getCache(table).remove(dbKey);
+      forgetCachedEntity(dbKey);
     }
   }
 
   @Override
   public final void trim(int height) {
+    flushPendingWrites();
     trim(tableClass, heightField, height, dbKeyFactory);
   }
 
-  static void rollback(final String table, final TableImpl<?> tableClass, Field<Integer> heightField, Field<Boolean> latestField, final int height, final DbKey.Factory<?> dbKeyFactory) {
+  /**
+   * Deletes everything newer than the given height and sets the latest flag on the newest remaining version of
+   * every key changed above it, with one statement per step whatever the number of keys.
+   *
+   * @return the keys that were changed above the height
+   */
+  static List<DbKey> rollback(final String table, final TableImpl<?> tableClass, Field<Integer> heightField, Field<Boolean> latestField, final int height, final DbKey.Factory<?> dbKeyFactory) {
     if (!Db.isInTransaction()) {
       throw new IllegalStateException("Not in transaction");
     }
 
+    final List<DbKey> dbKeys;
     try (DSLContext ctx = Db.getDSLContext()) {
-      // get dbKey's for entries whose stuff newer than height would be deleted, to allow fixing
-      // their latest flag of the "potential" remaining newest entry
+      // get dbKey's for entries whose stuff newer than height would be deleted, to know which cached entries
+      // are gone and to leave the tables untouched if there are none
       SelectQuery<Record> selectForDeleteQuery = ctx.selectQuery();
       selectForDeleteQuery.addFrom(tableClass);
       selectForDeleteQuery.addConditions(heightField.gt(height));
@@ -82,31 +188,138 @@ public abstract class VersionedEntitySqlTable<T> extends EntitySqlTable<T> imple
         selectForDeleteQuery.addSelect(tableClass.field(column, Long.class));
       }
       selectForDeleteQuery.setDistinct(true);
-      List<DbKey> dbKeys = selectForDeleteQuery.fetch(r -> (DbKey) dbKeyFactory.newKey(r));
-
-      // delete all entries > height
-      DeleteQuery deleteQuery = ctx.deleteQuery(tableClass);
-      deleteQuery.addConditions(heightField.gt(height));
-      deleteQuery.execute();
-
-      // update latest flags for remaining entries, if there any remaining (per deleted dbKey)
-      for (DbKey dbKey : dbKeys) {
-        SelectQuery<Record> selectMaxHeightQuery = ctx.selectQuery();
-        selectMaxHeightQuery.addFrom(tableClass);
-        selectMaxHeightQuery.addConditions(dbKey.getPKConditions(tableClass));
-        selectMaxHeightQuery.addSelect(DSL.max(heightField));
-        Integer maxHeight = selectMaxHeightQuery.fetchOne().get(DSL.max(heightField));
-
-        if (maxHeight != null) {
-          UpdateQuery setLatestQuery = ctx.updateQuery(tableClass);
-          setLatestQuery.addConditions(dbKey.getPKConditions(tableClass));
-          setLatestQuery.addConditions(heightField.eq(maxHeight));
-          setLatestQuery.addValue(latestField, true);
-          setLatestQuery.execute();
-        }
+      dbKeys = selectForDeleteQuery.fetch(r -> (DbKey) dbKeyFactory.newKey(r));
+      if (!dbKeys.isEmpty()) {
+        rollbackRows(ctx, tableClass, heightField, latestField, height, dbKeyFactory, DSL.trueCondition());
       }
     }
-    Db.getCache(table).clear();
+    forgetTransactionCached(table, dbKeys);
+    return dbKeys;
+  }
+
+  /**
+   * Same as above when the keys changed above the height are known already, keys that turn out not to have
+   * changed are no harm. Only the rows of those keys are touched.
+   */
+  static void rollback(final String table, final TableImpl<?> tableClass, Field<Integer> heightField, Field<Boolean> latestField, final int height, final DbKey.Factory<?> dbKeyFactory, Collection<? extends BurstKey> changedKeys) {
+    if (!Db.isInTransaction()) {
+      throw new IllegalStateException("Not in transaction");
+    }
+
+    try (DSLContext ctx = Db.getDSLContext()) {
+      List<BurstKey> keys = new ArrayList<>(changedKeys);
+      for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_ROLLBACK) {
+        Condition ofKeys = keyCondition(tableClass, dbKeyFactory, keys.subList(from, Math.min(from + MAX_KEYS_PER_ROLLBACK, keys.size())));
+        rollbackRows(ctx, tableClass, heightField, latestField, height, dbKeyFactory, ofKeys);
+      }
+    }
+    forgetTransactionCached(table, changedKeys);
+  }
+
+  private static void rollbackRows(DSLContext ctx, TableImpl<?> tableClass, Field<Integer> heightField, Field<Boolean> latestField, int height, DbKey.Factory<?> dbKeyFactory, Condition ofKeys) {
+    // the newest version up to height becomes the latest one again, set before the newer versions are deleted
+    // while it is still known which keys they belong to
+    switch (ctx.family()) {
+      case MYSQL:
+      case MARIADB:
+        setLatestJoined(ctx, tableClass, heightField, latestField, height, dbKeyFactory, ofKeys);
+        break;
+      default:
+        setLatestCorrelated(ctx, tableClass, heightField, latestField, height, dbKeyFactory, ofKeys);
+        break;
+    }
+
+    // delete all entries > height
+    DeleteQuery deleteQuery = ctx.deleteQuery(tableClass);
+    deleteQuery.addConditions(heightField.gt(height));
+    deleteQuery.addConditions(ofKeys);
+    deleteQuery.execute();
+  }
+
+  private static void forgetTransactionCached(String table, Collection<? extends BurstKey> dbKeys) {
+    Map<BurstKey, Object> cache = Db.getCache(table);
+    for (BurstKey dbKey : dbKeys) {
+      cache.remove(dbKey);
+    }
+  }
+
+  private static Condition keyCondition(TableImpl<?> tableClass, DbKey.Factory<?> dbKeyFactory, Collection<? extends BurstKey> keys) {
+    String[] pkColumns = dbKeyFactory.getPKColumns();
+    if (pkColumns.length == 1) {
+      List<Long> ids = new ArrayList<>(keys.size());
+      for (BurstKey key : keys) {
+        ids.add(key.getPKValues()[0]);
+      }
+      return tableClass.field(pkColumns[0], Long.class).in(ids);
+    }
+    Condition condition = DSL.falseCondition();
+    for (BurstKey key : keys) {
+      condition = condition.or(DSL.and(((DbKey) key).getPKConditions(tableClass)));
+    }
+    return condition;
+  }
+
+  /**
+   * MariaDB does not allow a subquery on the table being updated, so the newest versions are joined in as a
+   * derived table, which it materializes first.
+   */
+  private static void setLatestJoined(DSLContext ctx, TableImpl<?> tableClass, Field<Integer> heightField, Field<Boolean> latestField, int height, DbKey.Factory<?> dbKeyFactory, Condition ofKeys) {
+    SelectQuery<Record> changedKeysQuery = ctx.selectQuery();
+    changedKeysQuery.addFrom(tableClass);
+    changedKeysQuery.addConditions(heightField.gt(height));
+    changedKeysQuery.addConditions(ofKeys);
+    for (String column : dbKeyFactory.getPKColumns()) {
+      changedKeysQuery.addSelect(tableClass.field(column, Long.class));
+    }
+    changedKeysQuery.setDistinct(true);
+    Table<?> changedKeys = changedKeysQuery.asTable("c");
+
+    Table<?> versions = tableClass.as("b");
+    Field<Integer> versionHeight = versions.field(heightField.getName(), Integer.class);
+    SelectQuery<Record> maxHeightQuery = ctx.selectQuery();
+    maxHeightQuery.addFrom(versions);
+    Condition changed = DSL.trueCondition();
+    for (String column : dbKeyFactory.getPKColumns()) {
+      Field<Long> pkField = versions.field(column, Long.class);
+      changed = changed.and(pkField.eq(changedKeys.field(column, Long.class)));
+      maxHeightQuery.addSelect(pkField);
+      maxHeightQuery.addGroupBy(pkField);
+    }
+    maxHeightQuery.addJoin(changedKeys, changed);
+    maxHeightQuery.addConditions(versionHeight.le(height));
+    maxHeightQuery.addSelect(DSL.max(versionHeight).as("max_height"));
+    Table<?> maxHeights = maxHeightQuery.asTable("m");
+
+    Condition newest = heightField.eq(maxHeights.field("max_height", Integer.class));
+    for (String column : dbKeyFactory.getPKColumns()) {
+      newest = newest.and(tableClass.field(column, Long.class).eq(maxHeights.field(column, Long.class)));
+    }
+    ctx.update(tableClass.join(maxHeights).on(newest))
+      .set(latestField, true)
+      .execute();
+  }
+
+  private static void setLatestCorrelated(DSLContext ctx, TableImpl<?> tableClass, Field<Integer> heightField, Field<Boolean> latestField, int height, DbKey.Factory<?> dbKeyFactory, Condition ofKeys) {
+    Table<?> versions = tableClass.as("b");
+    SelectQuery<Record> maxHeightQuery = ctx.selectQuery();
+    maxHeightQuery.addFrom(versions);
+    maxHeightQuery.addSelect(DSL.max(versions.field(heightField.getName(), Integer.class)));
+    maxHeightQuery.addConditions(versions.field(heightField.getName(), Integer.class).le(height));
+    dbKeyFactory.applySelfJoin(maxHeightQuery, versions, tableClass);
+
+    Table<?> newerVersions = tableClass.as("c");
+    SelectQuery<Record> changedQuery = ctx.selectQuery();
+    changedQuery.addFrom(newerVersions);
+    changedQuery.addConditions(newerVersions.field(heightField.getName(), Integer.class).gt(height));
+    dbKeyFactory.applySelfJoin(changedQuery, newerVersions, tableClass);
+
+    UpdateQuery<?> setLatestQuery = ctx.updateQuery(tableClass);
+    setLatestQuery.addValue(latestField, true);
+    setLatestQuery.addConditions(heightField.le(height));
+    setLatestQuery.addConditions(ofKeys);
+    setLatestQuery.addConditions(heightField.eq(maxHeightQuery.<Integer>asField()));
+    setLatestQuery.addConditions(DSL.exists(changedQuery));
+    setLatestQuery.execute();
   }
 
   static void trim(final TableImpl<?> tableClass, Field<Integer> heightField, final int height, final DbKey.Factory dbKeyFactory) {
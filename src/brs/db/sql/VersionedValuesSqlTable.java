@@ -1,9 +1,12 @@
 package brs.db.sql;
 
+import brs.db.BurstKey;
 import brs.db.VersionedValuesTable;
 import brs.db.store.DerivedTableManager;
 import org.jooq.impl.TableImpl;
 
+import java.util.Collection;
+
 public abstract class VersionedValuesSqlTable<T, V> extends ValuesSqlTable<T, V> implements VersionedValuesTable<T, V> {
   VersionedValuesSqlTable(String table, TableImpl<?> tableClass, DbKey.Factory<T> dbKeyFactory, DerivedTableManager derivedTableManager) {
     super(table, tableClass, dbKeyFactory, true, derivedTableManager);
@@ -14,6 +17,11 @@ public abstract class VersionedValuesSqlTable<T, V> extends ValuesSqlTable<T, V>
     VersionedEntitySqlTable.rollback(table, tableClass, heightField, latestField, height, dbKeyFactory);
   }
 
+  @Override
+  public final void rollback(int height, Collection<BurstKey> changedKeys) {
+    VersionedEntitySqlTable.rollback(table, tableClass, heightField, latestField, height, dbKeyFactory, changedKeys);
+  }
+
   @Override
   public final void trim(int height) {
     VersionedEntitySqlTable.trim(tableClass, heightField, height, dbKeyFactory);
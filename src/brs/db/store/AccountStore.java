@@ -6,6 +6,7 @@ import brs.db.VersionedBatchEntityTable;
 import brs.db.VersionedEntityTable;
 
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Interface for Database operations related to Accounts
@@ -26,6 +27,12 @@ public interface AccountStore {
 
   BurstKey.LongKeyFactory<Account> getAccountKeyFactory();
 
+  /**
+   * Loads several accounts at once, the ones that are not cached with a single query
+   * @return the accounts found by id, unknown accounts are left out
+   */
+  Map<Long, Account> getAccounts(Collection<Long> ids);
+
   Collection<Account.RewardRecipientAssignment> getAccountsWithRewardRecipient(Long recipientId);
 
   Collection<Account.AccountAsset> getAssets(int from, int to, Long id);
@@ -1,10 +1,13 @@
 package brs.db.store;
 
+import brs.db.BurstKey;
 import brs.db.DerivedTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DerivedTableManager {
@@ -13,6 +16,8 @@ public class DerivedTableManager {
 
   private final List<DerivedTable> derivedTables = new CopyOnWriteArrayList<>();
 
+  private final UndoLog undoLog = new UndoLog();
+
   public List<DerivedTable> getDerivedTables() {
     return derivedTables;
   }
@@ -22,4 +27,36 @@ public class DerivedTableManager {
     derivedTables.add(table);
   }
 
+  /**
+   * Starts keeping track of the changes made to the derived tables, the tables must not hold anything above
+   * the given height yet.
+   */
+  public void startUndoLog(int height) {
+    undoLog.start(height);
+  }
+
+  public void recordChange(DerivedTable table, int height, BurstKey key) {
+    undoLog.record(table, height, key);
+  }
+
+  /**
+   * Rolls every derived table back to the height. Within reach of the undo log only the tables changed above
+   * the height are rolled back, and just for the keys they changed.
+   */
+  public void rollback(int height) {
+    final Map<DerivedTable, Set<BurstKey>> changes = undoLog.changesAbove(height);
+    if (changes == null) {
+      logger.debug("Rollback to " + height + " is beyond the undo log, rolling back all derived tables");
+      derivedTables.forEach(table -> table.rollback(height));
+    } else {
+      for (DerivedTable table : derivedTables) {
+        final Set<BurstKey> changedKeys = changes.get(table);
+        if (changedKeys != null) {
+          table.rollback(height, changedKeys);
+        }
+      }
+    }
+    undoLog.rollback(height);
+  }
+
 }
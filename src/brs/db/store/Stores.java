@@ -1,11 +1,12 @@
 package brs.db.store;
 
-import brs.db.cache.DBCacheManagerImpl;
 import brs.db.sql.*;
 import brs.props.PropertyService;
 import brs.services.TimeService;
 import brs.unconfirmedtransactions.UnconfirmedTransactionStore;
-import brs.unconfirmedtransactions.UnconfirmedTransactionStoreImpl;
+import brs.unconfirmedtransactions.ShardedUnconfirmedTransactionStore;
+
+import java.sql.Savepoint;
 
 public class Stores {
   private final AccountStore accountStore;
@@ -22,8 +23,8 @@ public class Stores {
   private final UnconfirmedTransactionStore unconfirmedTransactionStore;
   private final IndirectIncomingStore indirectIncomingStore;
 
-  public Stores(DerivedTableManager derivedTableManager, DBCacheManagerImpl dbCacheManager, TimeService timeService, PropertyService propertyService) {
-    this.accountStore                = new SqlAccountStore(derivedTableManager, dbCacheManager);
+  public Stores(DerivedTableManager derivedTableManager, TimeService timeService, PropertyService propertyService) {
+    this.accountStore                = new SqlAccountStore(derivedTableManager);
     this.aliasStore                  = new SqlAliasStore(derivedTableManager);
     this.assetStore                  = new SqlAssetStore(derivedTableManager);
     this.assetTransferStore          = new SqlAssetTransferStore(derivedTableManager);
@@ -33,7 +34,7 @@ public class Stores {
     this.orderStore                  = new SqlOrderStore(derivedTableManager);
     this.tradeStore                  = new SqlTradeStore(derivedTableManager);
     this.subscriptionStore           = new SqlSubscriptionStore(derivedTableManager);
-    this.unconfirmedTransactionStore = new UnconfirmedTransactionStoreImpl(timeService, propertyService, accountStore);
+    this.unconfirmedTransactionStore = new ShardedUnconfirmedTransactionStore(timeService, propertyService, accountStore);
     this.indirectIncomingStore       = new SqlIndirectIncomingStore(derivedTableManager);
     this.blockchainStore             = new SqlBlockchainStore(indirectIncomingStore);
   }
@@ -78,6 +79,18 @@ public class Stores {
     Db.rollbackTransaction();
   }
 
+  public boolean isInTransaction() {
+    return Db.isInTransaction();
+  }
+
+  public Savepoint setSavepoint() {
+    return Db.setSavepoint();
+  }
+
+  public void rollbackToSavepoint(Savepoint savepoint) {
+    Db.rollbackToSavepoint(savepoint);
+  }
+
   public void endTransaction() {
     Db.endTransaction();
   }
@@ -0,0 +1,59 @@
+package brs.db.store;
+
+import brs.Constants;
+import brs.db.BurstKey;
+import brs.db.DerivedTable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Remembers, for the last {@link Constants#MAX_ROLLBACK} heights, which keys every derived table wrote at
+ * which height, so popping off a few blocks only has to touch the tables and keys those blocks changed.
+ * <p>
+ * Every row above the covered height has been recorded here. Rows written before the node started, and the
+ * heights dropped once they are too old, are not, so a rollback below the covered height has to go through
+ * every table. Writes of transactions that were rolled back stay recorded, they only cost a needless check.
+ */
+class UndoLog {
+
+  private final TreeMap<Integer, Map<DerivedTable, Set<BurstKey>>> changesByHeight = new TreeMap<>();
+  private int coveredFrom = Integer.MAX_VALUE;
+
+  synchronized void start(int height) {
+    coveredFrom = height;
+  }
+
+  synchronized void record(DerivedTable table, int height, BurstKey key) {
+    changesByHeight.computeIfAbsent(height, h -> new HashMap<>())
+      .computeIfAbsent(table, t -> new HashSet<>())
+      .add(key);
+
+    while (changesByHeight.firstKey() <= changesByHeight.lastKey() - Constants.MAX_ROLLBACK) {
+      coveredFrom = Math.max(coveredFrom, changesByHeight.pollFirstEntry().getKey());
+    }
+  }
+
+  /**
+   * @return the keys changed above the height by table, null if the log does not reach back that far
+   */
+  synchronized Map<DerivedTable, Set<BurstKey>> changesAbove(int height) {
+    if (height < coveredFrom) {
+      return null;
+    }
+    final Map<DerivedTable, Set<BurstKey>> changes = new HashMap<>();
+    for (Map<DerivedTable, Set<BurstKey>> changesAtHeight : changesByHeight.tailMap(height, false).values()) {
+      for (Map.Entry<DerivedTable, Set<BurstKey>> tableChanges : changesAtHeight.entrySet()) {
+        changes.computeIfAbsent(tableChanges.getKey(), t -> new HashSet<>()).addAll(tableChanges.getValue());
+      }
+    }
+    return changes;
+  }
+
+  synchronized void rollback(int height) {
+    changesByHeight.tailMap(height, false).clear();
+  }
+}
@@ -3,24 +3,24 @@ package brs.grpc.handlers;
 import brs.Account;
 import brs.Blockchain;
 import brs.Generator;
-import brs.crypto.Crypto;
+import brs.NonceSubmitter;
 import brs.grpc.GrpcApiHandler;
 import brs.grpc.proto.ApiException;
 import brs.grpc.proto.BrsApi;
+import brs.grpc.proto.ProtoBuilder;
 import brs.services.AccountService;
+import io.grpc.stub.StreamObserver;
 
-import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 public class SubmitNonceHandler implements GrpcApiHandler<BrsApi.SubmitNonceRequest, BrsApi.SubmitNonceResponse> {
 
-    private final Blockchain blockchain;
-    private final AccountService accountService;
-    private final Generator generator;
+    private final NonceSubmitter nonceSubmitter;
 
-    public SubmitNonceHandler(Blockchain blockchain, AccountService accountService, Generator generator) {
-        this.blockchain = blockchain;
-        this.accountService = accountService;
-        this.generator = generator;
+    public SubmitNonceHandler(NonceSubmitter nonceSubmitter) {
+        this.nonceSubmitter = nonceSubmitter;
     }
 
     public static void verifySecretAccount(AccountService accountService, Blockchain blockchain, Account secretAccount, long accountId) throws ApiException {
@@ -56,42 +56,33 @@ public class SubmitNonceHandler implements GrpcApiHandler<BrsApi.SubmitNonceRequ
 
     @Override
     public BrsApi.SubmitNonceResponse handleRequest(BrsApi.SubmitNonceRequest request) throws Exception {
-        String secret = request.getSecretPhrase();
-        long nonce = request.getNonce();
-        long accountId = request.getAccount();
-        int submissionHeight = request.getBlockHeight();
-
-        if (submissionHeight != 0 && submissionHeight != blockchain.getHeight() + 1) {
-            throw new ApiException("Given block height does not match current blockchain height");
-        }
-
-        if (Objects.equals(secret, "")) {
-            throw new ApiException("Missing Passphrase");
-        }
-
-        byte[] secretPublicKey = Crypto.getPublicKey(secret);
-        Account secretAccount = accountService.getAccount(secretPublicKey);
-        if (secretAccount != null) {
-            verifySecretAccount(accountService, blockchain, secretAccount, accountId);
+        try {
+            return buildResponse(submit(request).get());
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
         }
+    }
 
-        Generator.GeneratorState generatorState;
-        if (accountId == 0 || secretAccount == null) {
-            generatorState = generator.addNonce(secret, nonce);
-        } else {
-            Account genAccount = accountService.getAccount(accountId);
-            if (genAccount == null || genAccount.getPublicKey() == null) {
-                throw new ApiException("Passthrough mining requires public key in blockchain");
+    /**
+     * Answers once the nonce has been processed by the {@link NonceSubmitter}, without blocking the calling thread.
+     */
+    @Override
+    public void handleRequest(BrsApi.SubmitNonceRequest request, StreamObserver<BrsApi.SubmitNonceResponse> responseObserver) {
+        submit(request).whenComplete((generatorState, throwable) -> {
+            if (throwable != null) {
+                responseObserver.onError(ProtoBuilder.buildError(throwable instanceof CompletionException ? throwable.getCause() : throwable));
             } else {
-                byte[] publicKey = genAccount.getPublicKey();
-                generatorState = generator.addNonce(secret, nonce, publicKey);
+                responseObserver.onNext(buildResponse(generatorState));
+                responseObserver.onCompleted();
             }
-        }
+        });
+    }
 
-        if (generatorState == null) {
-            throw new ApiException("Failed to create generator");
-        }
+    private CompletableFuture<Generator.GeneratorState> submit(BrsApi.SubmitNonceRequest request) {
+        return nonceSubmitter.submit(request.getSecretPhrase(), request.getNonce(), request.getAccount(), request.getBlockHeight());
+    }
 
+    private static BrsApi.SubmitNonceResponse buildResponse(Generator.GeneratorState generatorState) {
         return BrsApi.SubmitNonceResponse.newBuilder().setDeadline(generatorState.getDeadline().longValueExact()).build();
     }
 }
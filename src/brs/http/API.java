@@ -41,9 +41,11 @@ public final class API {
   static boolean enableDebugAPI;
   private static final Logger logger = LoggerFactory.getLogger(API.class);
   private static Server apiServer;
+  private static MiningInfoServlet miningInfoServlet;
 
   private static final String apiPath = "/burst";
   private static final String apiTestPath = "/test";
+  private static final String miningInfoPath = "/miningInfo";
 
   public API(TransactionProcessor transactionProcessor,
       Blockchain blockchain, BlockchainProcessor blockchainProcessor, ParameterService parameterService,
@@ -52,7 +54,8 @@ public final class API {
       SubscriptionService subscriptionService, ATService atService,
       TimeService timeService, EconomicClustering economicClustering, PropertyService propertyService,
       ThreadPool threadPool, TransactionService transactionService, BlockService blockService,
-      Generator generator, APITransactionManager apiTransactionManager, FeeSuggestionCalculator feeSuggestionCalculator, DeeplinkQRCodeGenerator deepLinkQRCodeGenerator, IndirectIncomingService indirectIncomingService) {
+      Generator generator, APITransactionManager apiTransactionManager, FeeSuggestionCalculator feeSuggestionCalculator, DeeplinkQRCodeGenerator deepLinkQRCodeGenerator, IndirectIncomingService indirectIncomingService,
+      NonceSubmitter nonceSubmitter) {
 
     enableDebugAPI = propertyService.getBoolean(Props.API_DEBUG);
     List<String> allowedBotHostsList = propertyService.getStringList(Props.API_ALLOWED);
@@ -134,7 +137,7 @@ public final class API {
       APIServlet apiServlet = new APIServlet(transactionProcessor, blockchain, blockchainProcessor, parameterService,
               accountService, aliasService, assetExchange, escrowService, digitalGoodsStoreService,
               subscriptionService, atService, timeService, economicClustering, transactionService, blockService, generator, propertyService,
-              apiTransactionManager, feeSuggestionCalculator, deepLinkQRCodeGenerator, indirectIncomingService);
+              apiTransactionManager, feeSuggestionCalculator, deepLinkQRCodeGenerator, indirectIncomingService, nonceSubmitter);
       ServletHolder apiServletHolder = new ServletHolder(apiServlet);
       apiHandler.addServlet(apiServletHolder, apiPath);
       
@@ -157,12 +160,17 @@ public final class API {
 
       apiHandler.addServlet(new ServletHolder(new APITestServlet(apiServlet)), apiTestPath);
 
+      miningInfoServlet = new MiningInfoServlet(blockchain, blockchainProcessor, generator, threadPool, propertyService.getString(Props.API_ALLOWED_ORIGINS));
+      ServletHolder miningInfoServletHolder = new ServletHolder(miningInfoServlet);
+      miningInfoServletHolder.setAsyncSupported(true);
+      apiHandler.addServlet(miningInfoServletHolder, miningInfoPath);
+
       RewriteHandler rewriteHandler = new RewriteHandler();
       rewriteHandler.setRewriteRequestURI(true);
       rewriteHandler.setRewritePathInfo(false);
       rewriteHandler.setOriginalPathAttribute("requestedPath");
       rewriteHandler.setHandler(apiHandler);
-      Rule rewriteToRoot = new RegexOrExistsRewriteRule(new File(propertyService.getString(Props.API_UI_DIR)), "^(?!"+regexpEscapeUrl(apiPath)+"|"+regexpEscapeUrl(apiTestPath)+").*$", "/index.html");
+      Rule rewriteToRoot = new RegexOrExistsRewriteRule(new File(propertyService.getString(Props.API_UI_DIR)), "^(?!"+regexpEscapeUrl(apiPath)+"|"+regexpEscapeUrl(apiTestPath)+"|"+regexpEscapeUrl(miningInfoPath)+").*$", "/index.html");
       rewriteHandler.addRule(rewriteToRoot);
       apiHandlers.addHandler(rewriteHandler);
 
@@ -204,6 +212,9 @@ public final class API {
   }
 
   public void shutdown() {
+    if (miningInfoServlet != null) {
+      miningInfoServlet.shutdown();
+    }
     if (apiServer != null) {
       try {
         apiServer.stop();
@@ -38,7 +38,8 @@ public final class APIServlet extends HttpServlet {
                       EscrowService escrowService, DGSGoodsStoreService digitalGoodsStoreService,
                       SubscriptionService subscriptionService, ATService atService, TimeService timeService, EconomicClustering economicClustering, TransactionService transactionService,
                       BlockService blockService, Generator generator, PropertyService propertyService, APITransactionManager apiTransactionManager, FeeSuggestionCalculator feeSuggestionCalculator,
-                      DeeplinkQRCodeGenerator deeplinkQRCodeGenerator, IndirectIncomingService indirectIncomingService) {
+                      DeeplinkQRCodeGenerator deeplinkQRCodeGenerator, IndirectIncomingService indirectIncomingService,
+                      NonceSubmitter nonceSubmitter) {
 
         enforcePost = propertyService.getBoolean(Props.API_SERVER_ENFORCE_POST);
         acceptSurplusParams = propertyService.getBoolean(Props.API_ACCEPT_SURPLUS_PARAMS);
@@ -136,6 +137,8 @@ public final class APIServlet extends HttpServlet {
         map.put("transferAsset", new TransferAsset(parameterService, blockchain, apiTransactionManager, accountService));
         map.put("getMiningInfo", new GetMiningInfo(blockchain, generator));
         map.put("submitNonce", new SubmitNonce(accountService, blockchain, generator));
+        map.put("submitNonces", new SubmitNonces(nonceSubmitter));
+        map.put("getNonceSubmissions", new GetNonceSubmissions(nonceSubmitter));
         map.put("getRewardRecipient", new GetRewardRecipient(parameterService, blockchain, accountService));
         map.put("setRewardRecipient", new SetRewardRecipient(parameterService, blockchain, accountService, apiTransactionManager));
         map.put("getAccountsWithRewardRecipient", new GetAccountsWithRewardRecipient(parameterService, accountService));
@@ -192,6 +195,22 @@ public final class APIServlet extends HttpServlet {
         }
     }
 
+    /**
+     * @return whether the request comes from a host allowed to use the API
+     */
+    static boolean isAllowed(HttpServletRequest req) throws IOException {
+        if (API.allowedBotHosts == null) {
+            return true;
+        }
+        InetAddress remoteAddress = InetAddress.getByName(req.getRemoteHost());
+        for (Subnet allowedSubnet : API.allowedBotHosts) {
+            if (allowedSubnet.isInNet(remoteAddress)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void process(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         resp.setHeader("Access-Control-Allow-Methods", "GET, POST");
         resp.setHeader("Access-Control-Allow-Origin", allowedOrigins);
@@ -205,19 +224,9 @@ public final class APIServlet extends HttpServlet {
 
             long startTime = System.currentTimeMillis();
 
-            if (API.allowedBotHosts != null) {
-                InetAddress remoteAddress = InetAddress.getByName(req.getRemoteHost());
-                boolean allowed = false;
-                for (Subnet allowedSubnet : API.allowedBotHosts) {
-                    if (allowedSubnet.isInNet(remoteAddress)) {
-                        allowed = true;
-                        break;
-                    }
-                }
-                if (!allowed) {
-                    response = ERROR_NOT_ALLOWED;
-                    return;
-                }
+            if (!isAllowed(req)) {
+                response = ERROR_NOT_ALLOWED;
+                return;
             }
 
             String requestType = req.getParameter("requestType");
@@ -1,6 +1,7 @@
 package brs.http;
 
 import brs.Block;
+import brs.BlockImportPipeline;
 import brs.Blockchain;
 import brs.BlockchainProcessor;
 import brs.Burst;
@@ -10,6 +11,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Locale;
 
 import static brs.http.common.ResultFields.TIME_RESPONSE;
 
@@ -40,6 +42,19 @@ final class GetBlockchainStatus extends APIServlet.APIRequestHandler {
     response.addProperty("lastBlockchainFeeder", lastBlockchainFeeder == null ? null : lastBlockchainFeeder.getAnnouncedAddress());
     response.addProperty("lastBlockchainFeederHeight", blockchainProcessor.getLastBlockchainFeederHeight());
     response.addProperty("isScanning", blockchainProcessor.isScanning());
+
+    BlockImportPipeline importPipeline = blockchainProcessor.getImportPipeline();
+    JsonObject importStatus = new JsonObject();
+    importStatus.addProperty("cacheBytes", importPipeline.getCacheBytes());
+    importStatus.addProperty("cacheFull", importPipeline.isCacheFull());
+    for (BlockImportPipeline.Stage stage : BlockImportPipeline.Stage.values()) {
+      JsonObject stageStatus = new JsonObject();
+      stageStatus.addProperty("queued", importPipeline.getQueueDepth(stage));
+      stageStatus.addProperty("blocks", importPipeline.getBlockCount(stage));
+      stageStatus.addProperty("averageMillisPerBlock", importPipeline.getAverageMillisPerBlock(stage));
+      importStatus.add(stage.name().toLowerCase(Locale.ENGLISH), stageStatus);
+    }
+    response.add("blockImport", importStatus);
     return response;
   }
 
@@ -0,0 +1,70 @@
+package brs.http;
+
+import brs.Generator;
+import brs.NonceSubmitter;
+import brs.util.Convert;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static brs.http.common.Parameters.*;
+import static brs.http.common.ResultFields.*;
+
+/**
+ * Reports the deadlines of a batch queued by {@link SubmitNonces}. Nonces that were not processed yet are
+ * reported as pending; batches for a block that was already forged are forgotten.
+ */
+final class GetNonceSubmissions extends APIServlet.APIRequestHandler {
+
+    private final NonceSubmitter nonceSubmitter;
+
+    GetNonceSubmissions(NonceSubmitter nonceSubmitter) {
+        super(new APITag[]{APITag.MINING}, BATCH_ID_PARAMETER);
+        this.nonceSubmitter = nonceSubmitter;
+    }
+
+    @Override
+    JsonElement processRequest(HttpServletRequest req) {
+        JsonObject response = new JsonObject();
+
+        List<NonceSubmitter.BatchEntry> batch;
+        try {
+            batch = nonceSubmitter.getBatch(Convert.parseUnsignedLong(req.getParameter(BATCH_ID_PARAMETER)));
+        } catch (RuntimeException e) {
+            response.addProperty(RESULT_RESPONSE, "Invalid batch id");
+            return response;
+        }
+        if (batch == null) {
+            response.addProperty(RESULT_RESPONSE, "Unknown batch or block height has changed");
+            return response;
+        }
+
+        JsonArray submissions = new JsonArray();
+        for (NonceSubmitter.BatchEntry entry : batch) {
+            JsonObject submission = new JsonObject();
+            submission.addProperty(ACCOUNT_RESPONSE, Convert.toUnsignedLong(entry.getAccountId()));
+            submission.addProperty(NONCE_RESPONSE, Convert.toUnsignedLong(entry.getNonce()));
+            CompletableFuture<Generator.GeneratorState> result = entry.getResult();
+            if (!result.isDone()) {
+                submission.addProperty(RESULT_RESPONSE, "pending");
+            } else {
+                try {
+                    Generator.GeneratorState generatorState = result.join();
+                    submission.addProperty(RESULT_RESPONSE, "success");
+                    submission.addProperty(DEADLINE_RESPONSE, generatorState.getDeadline());
+                } catch (CompletionException e) {
+                    submission.addProperty(RESULT_RESPONSE, e.getCause().getMessage());
+                }
+            }
+            submissions.add(submission);
+        }
+        response.addProperty(RESULT_RESPONSE, "success");
+        response.add(SUBMISSIONS_RESPONSE, submissions);
+        return response;
+    }
+}
@@ -0,0 +1,292 @@
+package brs.http;
+
+import brs.Block;
+import brs.Blockchain;
+import brs.BlockchainProcessor;
+import brs.Generator;
+import brs.http.common.Parameters;
+import brs.util.Convert;
+import brs.util.ThreadPool;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes mining info to miners instead of having them poll {@code getMiningInfo}.
+ * <ul>
+ * <li>{@code GET /miningInfo?height=h} answers right away if the next block is not {@code h}, otherwise the
+ * request is held until a new block is pushed (long-poll), or until the poll timeout has passed.</li>
+ * <li>{@code GET /miningInfo} with {@code Accept: text/event-stream} or {@code stream=true} opens a
+ * Server-Sent Events stream receiving every new mining info.</li>
+ * </ul>
+ * The payload is serialized once per block and the same bytes are written to every waiting miner, off the
+ * thread that pushed the block. Writes do not block: a miner that has not taken the previous write yet only
+ * gets the latest payload once it has, and one that takes longer than the write timeout is disconnected.
+ */
+public final class MiningInfoServlet extends HttpServlet {
+
+    private static final Logger logger = LoggerFactory.getLogger(MiningInfoServlet.class);
+
+    private static final long LONG_POLL_TIMEOUT_MS = 25000;
+    private static final int HEARTBEAT_SECONDS = 15;
+    private static final long WRITE_TIMEOUT_MS = 10000;
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Blockchain blockchain;
+    private final Generator generator;
+    private final String allowedOrigins;
+
+    private volatile Payload payload;
+    private final Set<Client> longPolls = ConcurrentHashMap.newKeySet();
+    private final Set<Client> streams = ConcurrentHashMap.newKeySet();
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MiningInfoNotifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    MiningInfoServlet(Blockchain blockchain, BlockchainProcessor blockchainProcessor, Generator generator, ThreadPool threadPool, String allowedOrigins) {
+        this.blockchain = blockchain;
+        this.generator = generator;
+        this.allowedOrigins = allowedOrigins;
+        blockchainProcessor.addListener(this::onBlock, BlockchainProcessor.Event.BLOCK_PUSHED);
+        threadPool.scheduleThread("MiningInfoHeartbeat", () -> notifier.execute(this::sendHeartbeats), HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setHeader("Access-Control-Allow-Origin", allowedOrigins);
+        resp.setHeader("Cache-Control", "no-cache, no-store, must-revalidate, private");
+
+        if (!APIServlet.isAllowed(req)) {
+            resp.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        Payload current = getPayload();
+        String accept = req.getHeader("Accept");
+        if (Parameters.isTrue(req.getParameter("stream")) || accept != null && accept.contains("text/event-stream")) {
+            resp.setContentType("text/event-stream; charset=UTF-8");
+            Client stream = startAsync(req, resp, streams, 0);
+            stream.send(current.event, false);
+            if (current != payload) {
+                // a block came in meanwhile, make sure the stream does not miss it
+                notifier.execute(() -> stream.send(getPayload().event, false));
+            }
+            return;
+        }
+
+        resp.setContentType("text/plain; charset=UTF-8");
+        String height = req.getParameter("height");
+        if (height == null || !height.equals(current.height)) {
+            resp.getOutputStream().write(current.json);
+            return;
+        }
+        Client longPoll = startAsync(req, resp, longPolls, LONG_POLL_TIMEOUT_MS);
+        if (current != payload) {
+            notifier.execute(() -> {
+                if (longPolls.remove(longPoll)) {
+                    longPoll.send(getPayload().json, true);
+                }
+            });
+        }
+    }
+
+    private Client startAsync(HttpServletRequest req, HttpServletResponse resp, Set<Client> waiters, long timeout) throws IOException {
+        AsyncContext asyncContext = req.startAsync();
+        asyncContext.setTimeout(timeout);
+        Client client = new Client(asyncContext, resp.getOutputStream(), waiters);
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                waiters.remove(client);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (waiters.remove(client)) {
+                    client.send(getPayload().json, true);
+                } else {
+                    // timed out while still writing the answer
+                    client.disconnect(null);
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                waiters.remove(client);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        waiters.add(client);
+        client.out.setWriteListener(client);
+        return client;
+    }
+
+    private void onBlock(Block block) {
+        payload = new Payload(block);
+        notifier.execute(this::notifyWaiters);
+    }
+
+    private void notifyWaiters() {
+        Payload current = getPayload();
+        for (Client longPoll : longPolls) {
+            if (longPolls.remove(longPoll)) {
+                longPoll.send(current.json, true);
+            }
+        }
+        for (Client stream : streams) {
+            stream.send(current.event, false);
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (Client stream : streams) {
+            if (stream.isStalled()) {
+                stream.disconnect(null);
+            } else {
+                stream.sendIfIdle(HEARTBEAT);
+            }
+        }
+    }
+
+    private Payload getPayload() {
+        Payload current = payload;
+        Block lastBlock = blockchain.getLastBlock();
+        if (current == null || current.lastBlockId != lastBlock.getId()) {
+            current = new Payload(lastBlock);
+            payload = current;
+        }
+        return current;
+    }
+
+    void shutdown() {
+        notifier.shutdownNow();
+    }
+
+    /**
+     * A waiting miner. The response is written in non-blocking mode: what is sent while a write is still in
+     * progress replaces what was waiting to be written, and goes out once the miner took the previous bytes.
+     */
+    private final class Client implements WriteListener {
+        private final AsyncContext asyncContext;
+        private final ServletOutputStream out;
+        private final Set<Client> waiters;
+
+        private byte[] pending;
+        private boolean flushPending;
+        private boolean completeWhenWritten;
+        private long writingSince;
+
+        private Client(AsyncContext asyncContext, ServletOutputStream out, Set<Client> waiters) {
+            this.asyncContext = asyncContext;
+            this.out = out;
+            this.waiters = waiters;
+        }
+
+        synchronized void send(byte[] bytes, boolean complete) {
+            pending = bytes;
+            completeWhenWritten |= complete;
+            write();
+        }
+
+        synchronized void sendIfIdle(byte[] bytes) {
+            if (writingSince == 0 && pending == null) {
+                send(bytes, false);
+            }
+        }
+
+        synchronized boolean isStalled() {
+            return writingSince != 0 && System.currentTimeMillis() - writingSince > WRITE_TIMEOUT_MS;
+        }
+
+        @Override
+        public synchronized void onWritePossible() {
+            write();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            disconnect(t);
+        }
+
+        private void write() {
+            try {
+                while (out.isReady()) {
+                    if (pending != null) {
+                        byte[] bytes = pending;
+                        pending = null;
+                        out.write(bytes);
+                        flushPending = true;
+                    } else if (flushPending) {
+                        flushPending = false;
+                        out.flush();
+                    } else {
+                        writingSince = 0;
+                        if (completeWhenWritten) {
+                            asyncContext.complete();
+                        }
+                        return;
+                    }
+                }
+                // the miner has not taken all bytes yet, onWritePossible goes on once it did
+                if (writingSince == 0) {
+                    writingSince = System.currentTimeMillis();
+                }
+            } catch (IOException | RuntimeException e) {
+                disconnect(e);
+            }
+        }
+
+        void disconnect(Throwable cause) {
+            if (cause != null) {
+                logger.debug("Miner disconnected from mining info", cause);
+            }
+            waiters.remove(this);
+            try {
+                asyncContext.complete();
+            } catch (RuntimeException ignored) {
+                // Ignore any errors attempting to disconnect as we may already be disconnected
+            }
+        }
+    }
+
+    private final class Payload {
+        private final long lastBlockId;
+        private final String height;
+        private final byte[] json;
+        private final byte[] event;
+
+        private Payload(Block lastBlock) {
+            this.lastBlockId = lastBlock.getId();
+            this.height = Long.toString((long) lastBlock.getHeight() + 1);
+            byte[] newGenSig = generator.calculateGenerationSignature(lastBlock.getGenerationSignature(), lastBlock.getGeneratorId());
+            JsonObject response = new JsonObject();
+            response.addProperty("height", height);
+            response.addProperty("generationSignature", Convert.toHexString(newGenSig));
+            response.addProperty("baseTarget", Long.toString(lastBlock.getBaseTarget()));
+            String serialized = response.toString();
+            this.json = serialized.getBytes(StandardCharsets.UTF_8);
+            this.event = ("data: " + serialized + "\n\n").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -64,7 +64,7 @@ final class ReadMessage extends APIServlet.APIRequestHandler {
     String secretPhrase = Convert.emptyToNull(req.getParameter(SECRET_PHRASE_PARAMETER));
     if (secretPhrase != null) {
       if (encryptedMessage != null) {
-        long readerAccountId = Account.getId(Crypto.getPublicKey(secretPhrase));
+        long readerAccountId = Crypto.getAccountId(secretPhrase);
         Account account = senderAccount.getId() == readerAccountId ? accountService.getAccount(transaction.getRecipientId()) : senderAccount;
         if (account != null) {
           try {
@@ -38,19 +38,22 @@ final class Scan extends APIServlet.APIRequestHandler {
         height = Integer.parseInt(req.getParameter(HEIGHT_PARAMETER));
       } catch (NumberFormatException ignore) {}
       long start = System.currentTimeMillis();
+      int startHeight;
       if (numBlocks > 0) {
-        blockchainProcessor.scan(blockchain.getHeight() - numBlocks + 1);
+        startHeight = blockchain.getHeight() - numBlocks + 1;
       }
       else if (height >= 0) {
-        blockchainProcessor.scan(height);
+        startHeight = height;
       }
       else {
         response.addProperty(ERROR_RESPONSE, "invalid numBlocks or height");
         return response;
       }
+      blockchainProcessor.scan(startHeight);
       long end = System.currentTimeMillis();
       response.addProperty(DONE_RESPONSE, true);
       response.addProperty(SCAN_TIME_RESPONSE, (end - start)/1000);
+      response.addProperty(SCAN_BLOCKS_PER_SECOND_RESPONSE, (blockchain.getHeight() - startHeight + 1) * 1000 / Math.max(end - start, 1));
     }
     catch (RuntimeException e) {
       response.addProperty(ERROR_RESPONSE, e.toString());
@@ -0,0 +1,85 @@
+package brs.http;
+
+import brs.NonceSubmitter;
+import brs.util.Convert;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import javax.servlet.http.HttpServletRequest;
+
+import static brs.http.common.Parameters.*;
+import static brs.http.common.ResultFields.*;
+
+/**
+ * Queues the nonces of many miners at once, given as {@code accountId:nonce} pairs separated by {@code ;}.
+ * Responds right away with a batch id, the deadlines can be fetched with {@link GetNonceSubmissions}.
+ */
+final class SubmitNonces extends APIServlet.APIRequestHandler {
+
+    private static final int MAX_NONCES = 1000;
+
+    private final NonceSubmitter nonceSubmitter;
+
+    SubmitNonces(NonceSubmitter nonceSubmitter) {
+        super(new APITag[]{APITag.MINING}, SECRET_PHRASE_PARAMETER, NONCES_PARAMETER, BLOCK_HEIGHT_PARAMETER);
+        this.nonceSubmitter = nonceSubmitter;
+    }
+
+    @Override
+    JsonElement processRequest(HttpServletRequest req) {
+        JsonObject response = new JsonObject();
+
+        String secret = Convert.emptyToNull(req.getParameter(SECRET_PHRASE_PARAMETER));
+        if (secret == null) {
+            response.addProperty(RESULT_RESPONSE, "Missing Passphrase");
+            return response;
+        }
+        secret = secret.replaceAll("\\+", " ");
+
+        String noncesString = Convert.emptyToNull(req.getParameter(NONCES_PARAMETER));
+        if (noncesString == null) {
+            response.addProperty(RESULT_RESPONSE, "Nonces not specified");
+            return response;
+        }
+        String[] pairs = noncesString.split(";", MAX_NONCES + 1);
+        if (pairs.length > MAX_NONCES) {
+            response.addProperty(RESULT_RESPONSE, "At most " + MAX_NONCES + " nonces can be submitted at once");
+            return response;
+        }
+
+        int height = 0;
+        String submissionHeight = Convert.emptyToNull(req.getParameter(BLOCK_HEIGHT_PARAMETER));
+        if (submissionHeight != null) {
+            try {
+                height = Integer.parseInt(submissionHeight);
+            } catch (NumberFormatException e) {
+                response.addProperty(RESULT_RESPONSE, "Given block height is not a number");
+                return response;
+            }
+        }
+
+        long[] accountIds = new long[pairs.length];
+        long[] nonces = new long[pairs.length];
+        try {
+            for (int i = 0; i < pairs.length; i++) {
+                String[] pair = pairs[i].split(":", 2);
+                accountIds[i] = Convert.parseUnsignedLong(pair[0]);
+                nonces[i] = Convert.parseUnsignedLong(pair[1]);
+            }
+        } catch (RuntimeException e) {
+            response.addProperty(RESULT_RESPONSE, "Nonces must be given as accountId:nonce;accountId:nonce");
+            return response;
+        }
+
+        long batchId = nonceSubmitter.submitBatch(secret, accountIds, nonces, height);
+        response.addProperty(RESULT_RESPONSE, "success");
+        response.addProperty(BATCH_ID_RESPONSE, Convert.toUnsignedLong(batchId));
+        response.addProperty(QUEUED_RESPONSE, pairs.length);
+        return response;
+    }
+
+    @Override
+    boolean requirePost() {
+        return true;
+    }
+}
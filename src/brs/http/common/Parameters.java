@@ -110,6 +110,8 @@ public final class Parameters {
   public static final String ESCROW_ID_PARAMETER = "escrowId";
   public static final String SUBSCRIPTION_ID_PARAMETER = "subscriptionId";
   public static final String BLOCK_HEIGHT_PARAMETER = "blockheight";
+  public static final String NONCES_PARAMETER = "nonces";
+  public static final String BATCH_ID_PARAMETER = "batchId";
   public static final String SUBSCRIPTIONS_RESPONSE = "subscriptions";
   public static final String ESCROWS_RESPONSE = "escrows";
   public static final String ACCOUNTS_RESPONSE = "accounts";
@@ -20,6 +20,7 @@ public class ResultFields {
   public static final String BLOCKS_RESPONSE = "blocks";
   public static final String DONE_RESPONSE = "done";
   public static final String SCAN_TIME_RESPONSE = "scanTime";
+  public static final String SCAN_BLOCKS_PER_SECOND_RESPONSE = "blocksPerSecond";
   public static final String BROADCASTED_RESPONSE = "broadcasted";
   public static final String NUMBER_PEERS_SENT_TO_RESPONSE = "numberPeersSentTo";
   public static final String UNSIGNED_TRANSACTION_BYTES_RESPONSE = "unsignedTransactionBytes";
@@ -147,4 +148,8 @@ public class ResultFields {
   public static final String PRIORITY_FEE_RESPONSE = "priority";
   public static final String WRONG_PLEDGE_RESPONSE = "wrong recipient id";
   public static final String INVALID_ACCOUNT = "invalid account";
+  public static final String BATCH_ID_RESPONSE = "batchId";
+  public static final String QUEUED_RESPONSE = "queued";
+  public static final String SUBMISSIONS_RESPONSE = "submissions";
+  public static final String RESULT_RESPONSE = "result";
 }
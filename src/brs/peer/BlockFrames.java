@@ -0,0 +1,239 @@
+package brs.peer;
+
+import brs.Block;
+import brs.Constants;
+import brs.Transaction;
+import brs.fluxcapacitor.FluxValue;
+import brs.fluxcapacitor.FluxValues;
+import brs.util.Convert;
+import brs.util.JSON;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Blocks as returned by "getNextBlocks" and "getBlocksFromHeight", either as the classic JSON array
+ * or in the binary form that peers negotiate by sending {@value #BINARY_PARAMETER}=true and
+ * answering with the {@value #CONTENT_TYPE} content type.
+ * <p>
+ * Binary layout (big endian lengths): {@code int blockCount}, then per block
+ * {@code int length, Block.getBytes(), int transactionCount} followed by
+ * {@code int length, Transaction.getBytes()} for every transaction.
+ * A response is read into a single buffer, bounded by the largest response a peer can legitimately send,
+ * and its frames are handed out as slices of that buffer.
+ */
+public final class BlockFrames {
+
+  public static final String CONTENT_TYPE = "application/x-brs-blocks";
+  public static final String BINARY_PARAMETER = "binary";
+
+  static final int MAX_BLOCKS = 1440;
+  private static final int PREVIOUS_BLOCK_ID_OFFSET = 4 + 4;
+
+  // a block frame at most holds the header with AT states as large as the payload, and the payload itself
+  // with the length of every transaction in front of it
+  private static final int MAX_PAYLOAD_LENGTH = largest(FluxValues.MAX_PAYLOAD_LENGTH);
+  private static final int MAX_BLOCK_FRAME_BYTES = 4 + Constants.BLOCK_HEADER_LENGTH + MAX_PAYLOAD_LENGTH
+      + 4 + 4 * largest(FluxValues.MAX_NUMBER_TRANSACTIONS) + MAX_PAYLOAD_LENGTH;
+  static final int MAX_RESPONSE_BYTES = 4 + MAX_BLOCKS * MAX_BLOCK_FRAME_BYTES;
+  private static final int INITIAL_READ_BUFFER_BYTES = 64 * 1024;
+
+  private final JsonArray jsonBlocks;
+  private final List<Frame> frames;
+
+  private BlockFrames(JsonArray jsonBlocks, List<Frame> frames) {
+    this.jsonBlocks = jsonBlocks;
+    this.frames = frames;
+  }
+
+  public static BlockFrames of(JsonArray jsonBlocks) {
+    return new BlockFrames(jsonBlocks, null);
+  }
+
+  public boolean isBinary() {
+    return frames != null;
+  }
+
+  public int size() {
+    return isBinary() ? frames.size() : jsonBlocks.size();
+  }
+
+  public JsonObject getJson(int index) {
+    return JSON.getAsJsonObject(jsonBlocks.get(index));
+  }
+
+  public Frame getFrame(int index) {
+    return frames.get(index);
+  }
+
+  public long getPreviousBlockId(int index) {
+    if (isBinary()) {
+      return frames.get(index).block.getLong(PREVIOUS_BLOCK_ID_OFFSET);
+    }
+    return Convert.parseUnsignedLong(JSON.getAsString(getJson(index).get("previousBlock")));
+  }
+
+  /**
+   * Only blocks from version 3 on carry their full amounts in {@link Block#getBytes()}.
+   */
+  static boolean canEncode(List<? extends Block> blocks) {
+    for (Block block : blocks) {
+      if (block.getVersion() < 3) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static void write(List<? extends Block> blocks, OutputStream outputStream) throws IOException {
+    DataOutputStream out = new DataOutputStream(outputStream);
+    out.writeInt(blocks.size());
+    for (Block block : blocks) {
+      byte[] blockBytes = block.getBytes();
+      out.writeInt(blockBytes.length);
+      out.write(blockBytes);
+      List<Transaction> transactions = block.getTransactions();
+      out.writeInt(transactions.size());
+      for (Transaction transaction : transactions) {
+        byte[] transactionBytes = transaction.getBytes();
+        out.writeInt(transactionBytes.length);
+        out.write(transactionBytes);
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * @throws IllegalArgumentException if the data is not a well-formed binary response or longer than
+   * {@link #MAX_RESPONSE_BYTES}
+   */
+  static BlockFrames read(InputStream inputStream) throws IOException {
+    return read(inputStream, MAX_RESPONSE_BYTES);
+  }
+
+  static BlockFrames read(InputStream inputStream, int maxBytes) throws IOException {
+    byte[] buffer = new byte[Math.min(INITIAL_READ_BUFFER_BYTES, maxBytes)];
+    int length = 0;
+    while (true) {
+      if (length == buffer.length) {
+        if (length == maxBytes) {
+          if (inputStream.read() != -1) {
+            throw new IllegalArgumentException("Binary response is longer than " + maxBytes + " bytes");
+          }
+          break;
+        }
+        buffer = Arrays.copyOf(buffer, (int) Math.min(2L * buffer.length, maxBytes));
+      }
+      int numberOfBytes = inputStream.read(buffer, length, buffer.length - length);
+      if (numberOfBytes == -1) {
+        break;
+      }
+      length += numberOfBytes;
+    }
+    return read(ByteBuffer.wrap(buffer, 0, length));
+  }
+
+  /**
+   * @throws IllegalArgumentException if the data is not a well-formed binary response
+   */
+  static BlockFrames read(ByteBuffer data) {
+    try {
+      return readFrames(data);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Binary response ends in the middle of a frame", e);
+    }
+  }
+
+  private static BlockFrames readFrames(ByteBuffer data) {
+    int blockCount = data.getInt();
+    if (blockCount < 0 || blockCount > MAX_BLOCKS) {
+      throw new IllegalArgumentException("Invalid number of blocks in binary response: " + blockCount);
+    }
+    List<Frame> frames = new ArrayList<>(blockCount);
+    for (int i = 0; i < blockCount; i++) {
+      int start = data.position();
+      ByteBuffer block = slice(data);
+      int transactionCount = data.getInt();
+      if (transactionCount < 0 || transactionCount > data.remaining() / 4) {
+        throw new IllegalArgumentException("Invalid number of transactions in binary response: " + transactionCount);
+      }
+      List<ByteBuffer> transactions = new ArrayList<>(transactionCount);
+      for (int j = 0; j < transactionCount; j++) {
+        transactions.add(slice(data));
+      }
+      frames.add(new Frame(block, Collections.unmodifiableList(transactions), data.position() - start));
+    }
+    if (data.hasRemaining()) {
+      throw new IllegalArgumentException("Binary response has " + data.remaining() + " trailing bytes");
+    }
+    return new BlockFrames(null, frames);
+  }
+
+  private static int largest(FluxValue<Integer> value) {
+    int largest = value.getDefaultValue();
+    for (FluxValue.ValueChange<Integer> change : value.getValueChanges()) {
+      largest = Math.max(largest, change.getNewValue());
+    }
+    return largest;
+  }
+
+  private static ByteBuffer slice(ByteBuffer data) {
+    int length = data.getInt();
+    if (length < 0 || length > data.remaining()) {
+      throw new IllegalArgumentException("Invalid frame length in binary response: " + length);
+    }
+    ByteBuffer frame = data.slice();
+    frame.limit(length);
+    frame.order(ByteOrder.LITTLE_ENDIAN);
+    data.position(data.position() + length);
+    return frame;
+  }
+
+  public static final class Frame {
+    private final ByteBuffer block;
+    private final List<ByteBuffer> transactions;
+    private final int length;
+
+    private Frame(ByteBuffer block, List<ByteBuffer> transactions, int length) {
+      this.block = block;
+      this.transactions = transactions;
+      this.length = length;
+    }
+
+    /**
+     * @return a little endian view of the {@link Block#getBytes()} of this block
+     */
+    public ByteBuffer getBlockBytes() {
+      return block.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return little endian views of the {@link Transaction#getBytes()} of the block's transactions
+     */
+    public List<ByteBuffer> getTransactionBytes() {
+      List<ByteBuffer> views = new ArrayList<>(transactions.size());
+      for (ByteBuffer transaction : transactions) {
+        views.add(transaction.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+      }
+      return views;
+    }
+
+    /**
+     * @return the number of bytes this block took on the wire
+     */
+    public int getLength() {
+      return length;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package brs.peer;
+
+import brs.Block;
+import brs.Blockchain;
+import brs.util.Convert;
+import brs.util.JSON;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Returns the {@link Block#getBytes()} of up to {@value #MAX_HEADERS} blocks following "blockId", without their
+ * transactions, so a peer can check a chain's generation signatures and difficulty before downloading it.
+ */
+final class GetBlockHeaders extends PeerServlet.PeerRequestHandler {
+
+  static final int MAX_HEADERS = 1440;
+
+  private final Blockchain blockchain;
+
+  GetBlockHeaders(Blockchain blockchain) {
+    this.blockchain = blockchain;
+  }
+
+
+  @Override
+  JsonElement processRequest(JsonObject request, Peer peer) {
+
+    JsonObject response = new JsonObject();
+
+    long blockId = Convert.parseUnsignedLong(JSON.getAsString(request.get("blockId")));
+    int numHeaders = MAX_HEADERS;
+    if (request.has("numHeaders")) {
+      numHeaders = Math.max(Math.min(JSON.getAsInt(request.get("numHeaders")), MAX_HEADERS), 1);
+    }
+
+    JsonArray blockHeaders = new JsonArray();
+    for (Block block : blockchain.getBlocksAfter(blockId, numHeaders)) {
+      blockHeaders.add(Convert.toHexString(block.getBytes()));
+    }
+
+    response.add("blockHeaders", blockHeaders);
+
+    return response;
+  }
+
+}
@@ -3,14 +3,13 @@ package brs.peer;
 import brs.Block;
 import brs.Blockchain;
 import brs.util.JSON;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
-import java.util.ArrayList;
 import java.util.List;
 
-final class GetBlocksFromHeight extends PeerServlet.PeerRequestHandler {
+final class GetBlocksFromHeight extends PeerServlet.BlocksPeerRequestHandler {
+
+  static final int MAX_BLOCKS = 1400;
 
   private final Blockchain blockchain;
 
@@ -20,8 +19,7 @@ final class GetBlocksFromHeight extends PeerServlet.PeerRequestHandler {
 
 
   @Override
-  JsonElement processRequest(JsonObject request, Peer peer) {
-    JsonObject response = new JsonObject();
+  List<? extends Block> getBlocks(JsonObject request) {
     int blockHeight = JSON.getAsInt(request.get("height"));
     int numBlocks = 100;
 
@@ -30,7 +28,7 @@ final class GetBlocksFromHeight extends PeerServlet.PeerRequestHandler {
     } catch (Exception e) {}
 
     //small failsafe
-    if(numBlocks < 1 || numBlocks > 1400) {
+    if(numBlocks < 1 || numBlocks > MAX_BLOCKS) {
     	numBlocks = 100;
     }
     if(blockHeight < 0) {
@@ -38,15 +36,7 @@ final class GetBlocksFromHeight extends PeerServlet.PeerRequestHandler {
     }
     	    
     long blockId =  blockchain.getBlockIdAtHeight(blockHeight);
-    List<? extends Block> blocks = blockchain.getBlocksAfter(blockId, numBlocks);
-    List<Block> nextBlocks = new ArrayList<>(blocks);
-
-    JsonArray nextBlocksArray = new JsonArray();
-    for (Block nextBlock : nextBlocks) {
-      nextBlocksArray.add(nextBlock.getJsonObject());
-    }
-    response.add("nextBlocks", nextBlocksArray);
-    return response;
+    return blockchain.getBlocksAfter(blockId, numBlocks);
   }
 
 }
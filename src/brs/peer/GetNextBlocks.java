@@ -5,14 +5,12 @@ import brs.Blockchain;
 import brs.Constants;
 import brs.util.Convert;
 import brs.util.JSON;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import java.util.ArrayList;
 import java.util.List;
 
-final class GetNextBlocks extends PeerServlet.PeerRequestHandler {
+final class GetNextBlocks extends PeerServlet.BlocksPeerRequestHandler {
 
   private final Blockchain blockchain;
 
@@ -22,9 +20,7 @@ final class GetNextBlocks extends PeerServlet.PeerRequestHandler {
 
 
   @Override
-  JsonElement processRequest(JsonObject request, Peer peer) {
-
-    JsonObject response = new JsonObject();
+  List<? extends Block> getBlocks(JsonObject request) {
 
     List<Block> nextBlocks = new ArrayList<>();
     int totalLength = 0;
@@ -40,13 +36,7 @@ final class GetNextBlocks extends PeerServlet.PeerRequestHandler {
       totalLength += length;
     }
 
-    JsonArray nextBlocksArray = new JsonArray();
-    for (Block nextBlock : nextBlocks) {
-      nextBlocksArray.add(nextBlock.getJsonObject());
-    }
-    response.add("nextBlocks", nextBlocksArray);
-
-    return response;
+    return nextBlocks;
   }
 
 }
@@ -0,0 +1,225 @@
+package brs.peer;
+
+import brs.util.ThreadPool;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static brs.Constants.MIN_VERSION;
+
+/**
+ * Splits a missing height range into chunks and fetches them from several connected peers at once
+ * using "getBlocksFromHeight". Chunks are handed to the consumer strictly in height order, so the
+ * download cache is still filled sequentially. Chunks that time out, come back short or do not map
+ * onto the chain are requested again from another peer.
+ */
+public final class ParallelBlockDownloader {
+
+  private static final Logger logger = LoggerFactory.getLogger(ParallelBlockDownloader.class);
+
+  private static final int MAX_ATTEMPTS_PER_CHUNK = 3;
+
+  public enum ChunkResult {
+    /** All blocks of the chunk were added, continue with the next one. */
+    ACCEPTED,
+    /** The chunk does not fit on our chain, ask another peer for it. */
+    REJECTED,
+    /** Stop downloading, e.g. because the cache is full or locked. */
+    STOP
+  }
+
+  public interface ChunkConsumer {
+    ChunkResult accept(Peer peer, BlockFrames blocks);
+  }
+
+  private final int maxPeers;
+  private final int chunkSize;
+  private final long chunkTimeoutMs;
+  private final ExecutorService downloadService;
+
+  public ParallelBlockDownloader(int maxPeers, int chunkSize, long chunkTimeoutMs) {
+    this.maxPeers = Math.max(maxPeers, 1);
+    this.chunkSize = Math.max(Math.min(chunkSize, GetBlocksFromHeight.MAX_BLOCKS), 1);
+    this.chunkTimeoutMs = chunkTimeoutMs;
+    AtomicInteger threadNumber = new AtomicInteger();
+    // daemon threads, an abandoned request must not keep the node from shutting down
+    this.downloadService = Executors.newFixedThreadPool(this.maxPeers, runnable -> {
+      Thread thread = new Thread(runnable, "BlockDownloader-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public boolean isEnabled() {
+    return maxPeers > 1;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Downloads the blocks at heights {@code fromHeight} to {@code toHeight} (both inclusive).
+   *
+   * @param feeder the peer we found the common milestone block with, used as fallback for retries
+   * @return the number of chunks that were accepted by the consumer
+   */
+  public int download(Peer feeder, int fromHeight, int toHeight, ChunkConsumer consumer) {
+    List<Peer> downloadPeers = selectPeers(feeder);
+    Deque<Chunk> window = new ArrayDeque<>();
+    int nextHeight = fromHeight;
+    int peerIndex = 0;
+    int acceptedChunks = 0;
+
+    try {
+      while (!Thread.currentThread().isInterrupted() && ThreadPool.running.get()) {
+        while (window.size() < downloadPeers.size() * 2 && nextHeight <= toHeight) {
+          Chunk chunk = new Chunk(nextHeight, Math.min(chunkSize, toHeight - nextHeight + 1));
+          chunk.request(downloadPeers.get(peerIndex++ % downloadPeers.size()));
+          window.addLast(chunk);
+          nextHeight += chunk.count;
+        }
+
+        Chunk head = window.peekFirst();
+        if (head == null) {
+          return acceptedChunks;
+        }
+
+        BlockFrames blocks = head.await();
+        if (blocks == null || blocks.size() == 0 || blocks.size() > head.count
+            || (blocks.size() < head.count && head.fromHeight + head.count <= toHeight)) {
+          if (!retry(head, downloadPeers, feeder, "returned no or incomplete blocks")) {
+            return acceptedChunks;
+          }
+          continue;
+        }
+
+        ChunkResult result = consumer.accept(head.peer, blocks);
+        if (result == ChunkResult.REJECTED) {
+          downloadPeers.remove(head.peer);
+          if (downloadPeers.isEmpty() || !retry(head, downloadPeers, feeder, "served blocks that do not map back to our chain")) {
+            return acceptedChunks;
+          }
+          continue;
+        }
+        if (result == ChunkResult.STOP) {
+          return acceptedChunks;
+        }
+
+        window.pollFirst();
+        acceptedChunks++;
+        if (blocks.size() < head.count) {
+          // the peers have nothing beyond this height (yet)
+          return acceptedChunks;
+        }
+      }
+      return acceptedChunks;
+    } finally {
+      for (Chunk chunk : window) {
+        chunk.cancel();
+      }
+    }
+  }
+
+  private boolean retry(Chunk chunk, List<Peer> downloadPeers, Peer feeder, String reason) {
+    logger.debug("Peer {} {} for heights {} - {}", chunk.peer.getPeerAddress(), reason, chunk.fromHeight, chunk.fromHeight + chunk.count - 1);
+    if (++chunk.attempts >= MAX_ATTEMPTS_PER_CHUNK) {
+      logger.debug("Giving up on heights {} - {} after {} attempts", chunk.fromHeight, chunk.fromHeight + chunk.count - 1, chunk.attempts);
+      return false;
+    }
+    Peer nextPeer = null;
+    for (Peer peer : downloadPeers) {
+      if (peer != chunk.peer && !peer.isBlacklisted()) {
+        nextPeer = peer;
+        break;
+      }
+    }
+    if (nextPeer == null) {
+      nextPeer = feeder;
+    }
+    if (nextPeer.isBlacklisted()) {
+      return false;
+    }
+    chunk.request(nextPeer);
+    return true;
+  }
+
+  private List<Peer> selectPeers(Peer feeder) {
+    List<Peer> candidates = new ArrayList<>();
+    for (Peer peer : Peers.getPeers(Peer.State.CONNECTED)) {
+      if (peer != feeder && !peer.isBlacklisted() && peer.isHigherOrEqualVersionThan(MIN_VERSION)) {
+        candidates.add(peer);
+      }
+    }
+    Collections.shuffle(candidates);
+
+    List<Peer> selected = new ArrayList<>(maxPeers);
+    selected.add(feeder);
+    for (Peer peer : candidates) {
+      if (selected.size() >= maxPeers) {
+        break;
+      }
+      selected.add(peer);
+    }
+    return selected;
+  }
+
+  private final class Chunk {
+    private final int fromHeight;
+    private final int count;
+    private int attempts;
+    private Peer peer;
+    private Future<BlockFrames> response;
+    private long requestedAt;
+
+    private Chunk(int fromHeight, int count) {
+      this.fromHeight = fromHeight;
+      this.count = count;
+    }
+
+    private void request(Peer peer) {
+      cancel();
+      this.peer = peer;
+      JsonObject request = new JsonObject();
+      request.addProperty("requestType", "getBlocksFromHeight");
+      request.addProperty("height", fromHeight - 1);
+      request.addProperty("numBlocks", count);
+      requestedAt = System.currentTimeMillis();
+      response = downloadService.submit(() -> peer.sendBlocksRequest(request));
+    }
+
+    private BlockFrames await() {
+      try {
+        long remaining = Math.max(chunkTimeoutMs - (System.currentTimeMillis() - requestedAt), 1);
+        BlockFrames blocks = response.get(remaining, TimeUnit.MILLISECONDS);
+        if (blocks != null && blocks.size() > BlockFrames.MAX_BLOCKS) {
+          peer.blacklist("obsolete or rogue peer sends too many nextBlocks");
+          return null;
+        }
+        return blocks;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      } catch (ExecutionException e) {
+        logger.debug("Error downloading blocks from " + peer.getPeerAddress(), e);
+        return null;
+      } catch (TimeoutException e) {
+        return null;
+      }
+    }
+
+    private void cancel() {
+      if (response != null) {
+        response.cancel(true);
+      }
+    }
+  }
+}
@@ -85,4 +85,12 @@ public interface Peer extends Comparable<Peer> {
 
   JsonObject send(JsonElement request);
 
+  /**
+   * Sends a "getNextBlocks" or "getBlocksFromHeight" request, offering the peer to answer in the binary block format.
+   * Peers not supporting it answer with JSON as usual.
+   *
+   * @return the returned blocks, or null if the request failed or the peer returned an error
+   */
+  BlockFrames sendBlocksRequest(JsonObject request);
+
 }
@@ -7,6 +7,7 @@ import brs.util.Convert;
 import brs.util.CountingInputStream;
 import brs.util.CountingOutputStream;
 import brs.util.JSON;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.slf4j.Logger;
@@ -296,6 +297,28 @@ final class PeerImpl implements Peer {
 
   @Override
   public JsonObject send(final JsonElement request) {
+    return send(request, null);
+  }
+
+  @Override
+  public BlockFrames sendBlocksRequest(final JsonObject request) {
+    request.addProperty(BlockFrames.BINARY_PARAMETER, true);
+    AtomicReference<BlockFrames> binaryResponse = new AtomicReference<>();
+    JsonObject response = send(JSON.prepareRequest(request), binaryResponse);
+    if (binaryResponse.get() != null) {
+      return binaryResponse.get();
+    }
+    if (response == null || response.get("error") != null) {
+      return null;
+    }
+    JsonArray nextBlocks = JSON.getAsJsonArray(response.get("nextBlocks"));
+    return nextBlocks == null ? null : BlockFrames.of(nextBlocks);
+  }
+
+  /**
+   * @param binaryResponse if not null, a {@link BlockFrames#CONTENT_TYPE} response is accepted and stored in here
+   */
+  private JsonObject send(final JsonElement request, final AtomicReference<BlockFrames> binaryResponse) {
 
     JsonObject response;
 
@@ -342,7 +365,20 @@ final class PeerImpl implements Peer {
         if ("gzip".equals(connection.getHeaderField("Content-Encoding"))) {
           responseStream = new GZIPInputStream(cis);
         }
-        if ((Peers.communicationLoggingMask & Peers.LOGGING_MASK_200_RESPONSES) != 0) {
+        if (binaryResponse != null && BlockFrames.CONTENT_TYPE.equals(connection.getContentType())) {
+          try (InputStream inputStream = new BufferedInputStream(responseStream)) {
+            binaryResponse.set(BlockFrames.read(inputStream));
+          } catch (IllegalArgumentException e) {
+            // same as a JSON response with too many or unreadable blocks
+            blacklist(e, "sent a malformed binary block response");
+          }
+          if (binaryResponse.get() != null && (Peers.communicationLoggingMask & Peers.LOGGING_MASK_200_RESPONSES) != 0) {
+            log += " >>> [binary, " + binaryResponse.get().size() + " blocks, length: " + cis.getCount() + "]";
+            showLog = true;
+          }
+          response = null;
+        }
+        else if ((Peers.communicationLoggingMask & Peers.LOGGING_MASK_200_RESPONSES) != 0) {
           ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
           byte[] buffer = new byte[1024];
           int numberOfBytes;
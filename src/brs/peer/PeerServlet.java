@@ -1,5 +1,6 @@
 package brs.peer;
 
+import brs.Block;
 import brs.Blockchain;
 import brs.BlockchainProcessor;
 import brs.TransactionProcessor;
@@ -8,6 +9,7 @@ import brs.services.TimeService;
 import brs.util.CountingInputStream;
 import brs.util.CountingOutputStream;
 import brs.util.JSON;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.slf4j.Logger;
@@ -22,6 +24,7 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static brs.Constants.PROTOCOL;
@@ -39,6 +42,29 @@ public final class PeerServlet extends HttpServlet {
     abstract ExtendedProcessRequest extendedProcessRequest(JsonObject request, Peer peer);
   }
 
+  /**
+   * Handler for requests answered with a list of blocks, which can be sent either as JSON
+   * or, if the requesting peer asked for it, as {@link BlockFrames}.
+   */
+  abstract static class BlocksPeerRequestHandler extends PeerRequestHandler {
+    abstract List<? extends Block> getBlocks(JsonObject request);
+
+    @Override
+    JsonElement processRequest(JsonObject request, Peer peer) {
+      return toJson(getBlocks(request));
+    }
+
+    static JsonElement toJson(List<? extends Block> blocks) {
+      JsonObject response = new JsonObject();
+      JsonArray nextBlocksArray = new JsonArray();
+      for (Block nextBlock : blocks) {
+        nextBlocksArray.add(nextBlock.getJsonObject());
+      }
+      response.add("nextBlocks", nextBlocksArray);
+      return response;
+    }
+  }
+
   static class ExtendedProcessRequest {
     final JsonElement response;
     final RequestLifecycleHook afterRequestHook;
@@ -67,6 +93,7 @@ public final class PeerServlet extends HttpServlet {
     map.put("getNextBlockIds", new GetNextBlockIds(blockchain));
     map.put("getBlocksFromHeight", new GetBlocksFromHeight(blockchain));
     map.put("getNextBlocks", new GetNextBlocks(blockchain));
+    map.put("getBlockHeaders", new GetBlockHeaders(blockchain));
     map.put("getPeers", GetPeers.instance);
     map.put("getUnconfirmedTransactions", new GetUnconfirmedTransactions(transactionProcessor));
     map.put("processBlock", new ProcessBlock(blockchain, blockchainProcessor));
@@ -114,6 +141,7 @@ public final class PeerServlet extends HttpServlet {
     JsonElement response;
 
     ExtendedProcessRequest extendedProcessRequest = null;
+    List<? extends Block> binaryBlocks = null;
 
     String requestType = "unknown";
     try {
@@ -148,6 +176,14 @@ public final class PeerServlet extends HttpServlet {
           if(peerRequestHandler instanceof ExtendedPeerRequestHandler) {
             extendedProcessRequest = ((ExtendedPeerRequestHandler) peerRequestHandler).extendedProcessRequest(request, peer);
             response = extendedProcessRequest.response;
+          } else if (peerRequestHandler instanceof BlocksPeerRequestHandler && wantsBinary(request)) {
+            List<? extends Block> blocks = ((BlocksPeerRequestHandler) peerRequestHandler).getBlocks(request);
+            if (BlockFrames.canEncode(blocks)) {
+              binaryBlocks = blocks;
+              response = null;
+            } else {
+              response = BlocksPeerRequestHandler.toJson(blocks);
+            }
           } else {
             response = peerRequestHandler.processRequest(request, peer);
           }
@@ -168,15 +204,24 @@ public final class PeerServlet extends HttpServlet {
       response = json;
     }
 
-    resp.setContentType("text/plain; charset=UTF-8");
     try {
       long byteCount;
 
-      CountingOutputStream cos = new CountingOutputStream(resp.getOutputStream());
-      try (Writer writer = new OutputStreamWriter(cos, StandardCharsets.UTF_8)) {
-        JSON.writeTo(response, writer);
+      if (binaryBlocks != null) {
+        resp.setContentType(BlockFrames.CONTENT_TYPE);
+        CountingOutputStream cos = new CountingOutputStream(resp.getOutputStream());
+        try (OutputStream out = new BufferedOutputStream(cos)) {
+          BlockFrames.write(binaryBlocks, out);
+        }
+        byteCount = cos.getCount();
+      } else {
+        resp.setContentType("text/plain; charset=UTF-8");
+        CountingOutputStream cos = new CountingOutputStream(resp.getOutputStream());
+        try (Writer writer = new OutputStreamWriter(cos, StandardCharsets.UTF_8)) {
+          JSON.writeTo(response, writer);
+        }
+        byteCount = cos.getCount();
       }
-      byteCount = cos.getCount();
       if (peer != null) {
         peer.updateUploadedVolume(byteCount);
       }
@@ -192,4 +237,8 @@ public final class PeerServlet extends HttpServlet {
     }
   }
 
+  private static boolean wantsBinary(JsonObject request) {
+    return JSON.getAsBoolean(request.get(BlockFrames.BINARY_PARAMETER));
+  }
+
 }
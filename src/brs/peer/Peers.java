@@ -636,7 +636,7 @@ public final class Peers {
     // threadPool.shutdownExecutor(blocksSendingService);
   }
 
-  private static boolean addListener(Listener<Peer> listener, Event eventType) {
+  public static boolean addListener(Listener<Peer> listener, Event eventType) {
     return Peers.listeners.addListener(listener, eventType);
   }
 
@@ -56,6 +56,8 @@ public class Props {
 
   // CPU options
   public static final Prop<Integer> CPU_NUM_CORES = new Prop<>("CPU.NumCores", -1);
+  public static final Prop<Integer> CPU_SIGNATURE_VERIFY_THREADS = new Prop<>("CPU.SignatureVerifyThreads", 0);
+  public static final Prop<Integer> CPU_NONCE_SUBMIT_THREADS = new Prop<>("CPU.NonceSubmitThreads", 0);
 
 
   // DB options
@@ -67,6 +69,8 @@ public class Props {
 
   public static final Prop<Boolean> DB_TRIM_DERIVED_TABLES = new Prop<>("DB.trimDerivedTables", true);
   public static final Prop<Integer> DB_MAX_ROLLBACK        = new Prop<>("DB.maxRollback", 1440);
+  public static final Prop<String>  DB_SCAN_CHECKPOINT_FILE = new Prop<>("DB.scanCheckpointFile", "scan.checkpoint");
+  public static final Prop<String>  DB_MEMPOOL_JOURNAL_FILE = new Prop<>("DB.mempoolJournalFile", "mempool.journal");
 
   public static final Prop<Boolean> BRS_TEST_UNCONFIRMED_TRANSACTIONS = new Prop<>("brs.testUnconfirmedTransactions", false);
 
@@ -74,6 +78,12 @@ public class Props {
 
 
   public static final Prop<Integer> BRS_BLOCK_CACHE_MB = new Prop<>("brs.blockCacheMB", 40);
+  public static final Prop<Integer> BRS_BLOCK_DOWNLOAD_PEERS = new Prop<>("brs.blockDownloadPeers", 4);
+  public static final Prop<Integer> BRS_BLOCK_DOWNLOAD_CHUNK_SIZE = new Prop<>("brs.blockDownloadChunkSize", 100);
+  public static final Prop<Integer> BRS_BLOCK_DOWNLOAD_TIMEOUT_MS = new Prop<>("brs.blockDownloadTimeout_ms", 20000);
+  public static final Prop<Boolean> BRS_HEADERS_FIRST_SYNC = new Prop<>("brs.headersFirstSync", true);
+  public static final Prop<Integer> BRS_BULK_IMPORT_BLOCKS_BEHIND = new Prop<>("brs.bulkImportBlocksBehind", 1440);
+  public static final Prop<Integer> BRS_BULK_IMPORT_COMMIT_INTERVAL = new Prop<>("brs.bulkImportCommitInterval", 100);
 
   // P2P options
 
@@ -126,6 +136,9 @@ public class Props {
   public static final Prop<Integer> API_SERVER_IDLE_TIMEOUT = new Prop<>("API.ServerIdleTimeout", 30000);
   public static final Prop<Boolean> API_SERVER_ENFORCE_POST = new Prop<>("API.ServerEnforcePOST", true);
   public static final Prop<String> API_ALLOWED_ORIGINS = new Prop<>("API.AllowedOrigins", "*");
+  public static final Prop<Integer> API_NONCE_SUBMIT_QUEUE_SIZE = new Prop<>("API.NonceSubmitQueueSize", 10000);
+  public static final Prop<Integer> API_PUBLIC_KEY_CACHE_SIZE = new Prop<>("API.PublicKeyCacheSize", 1000);
+  public static final Prop<Integer> API_PUBLIC_KEY_CACHE_TTL_MS = new Prop<>("API.PublicKeyCacheTTL_ms", 1800000);
 
   public static final Prop<Boolean> JETTY_API_GZIP_FILTER = new Prop<>("JETTY.API.GzipFilter", true);
   public static final Prop<String> JETTY_API_GZIP_FILTER_METHODS = new Prop<>("JETTY.API.GZIPFilter.methods", "GET, POST");
@@ -5,6 +5,8 @@ import brs.BlockchainProcessor;
 import brs.BlockchainProcessor.BlockNotAcceptedException;
 import brs.BlockchainProcessor.BlockOutOfOrderException;
 
+import java.util.function.LongFunction;
+
 public interface BlockService {
 
   void preVerify(Block block) throws BlockchainProcessor.BlockNotAcceptedException, InterruptedException;
@@ -15,6 +17,12 @@ public interface BlockService {
 
   void calculateBaseTarget(Block block, Block lastBlock) throws BlockOutOfOrderException;
 
+  /**
+   * Like {@link #calculateBaseTarget(Block, Block)}, but looks up the ancestors of {@code lastBlock} with
+   * {@code blockLookup} instead of the download cache, so block headers that are not cached can be checked.
+   */
+  void calculateBaseTarget(Block block, Block lastBlock, LongFunction<Block> blockLookup) throws BlockOutOfOrderException;
+
   void setPrevious(Block block, Block previousBlock);
 
   boolean verifyGenerationSignature(Block block) throws BlockNotAcceptedException;
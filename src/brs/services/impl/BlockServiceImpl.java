@@ -3,18 +3,20 @@ package brs.services.impl;
 import brs.*;
 import brs.BlockchainProcessor.BlockOutOfOrderException;
 import brs.crypto.Crypto;
+import brs.crypto.SignatureVerifier;
 import brs.fluxcapacitor.FluxValues;
 import brs.services.AccountService;
 import brs.services.BlockService;
 import brs.services.TransactionService;
 import brs.util.Convert;
 import brs.util.DownloadCacheImpl;
-import brs.util.ThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongFunction;
 
 import static brs.Constants.*;
 
@@ -26,13 +28,16 @@ public class BlockServiceImpl implements BlockService {
     private final Blockchain blockchain;
     private final DownloadCacheImpl downloadCache;
     private final Generator generator;
+    private final SignatureVerifier signatureVerifier;
 
-    public BlockServiceImpl(AccountService accountService, TransactionService transactionService, Blockchain blockchain, DownloadCacheImpl downloadCache, Generator generator) {
+    public BlockServiceImpl(AccountService accountService, TransactionService transactionService, Blockchain blockchain, DownloadCacheImpl downloadCache, Generator generator,
+                            SignatureVerifier signatureVerifier) {
         this.accountService = accountService;
         this.transactionService = transactionService;
         this.blockchain = blockchain;
         this.downloadCache = downloadCache;
         this.generator = generator;
+        this.signatureVerifier = signatureVerifier;
     }
 
     @Override
@@ -109,31 +114,48 @@ public class BlockServiceImpl implements BlockService {
         if (block.isVerified()) {
             return;
         }
+        if (block.getVerificationFailure() != null) {
+            throw block.getVerificationFailure();
+        }
 
+        BigInteger pocTime = block.getHeaderHit();
         try {
-            // Pre-verify poc:
-            if (scoopData == null) {
-                block.setPocTime(generator.calculateHit(block.getGeneratorId(), block.getNonce(), block.getGenerationSignature(), getScoopNum(block), block.getHeight()));
+            // Pre-verify poc, unless the header of the block was checked already:
+            if (pocTime != null) {
+                logger.trace("PoC of block at height {} was verified with its header", block.getHeight());
+            } else if (scoopData == null) {
+                pocTime = generator.calculateHit(block.getGeneratorId(), block.getNonce(), block.getGenerationSignature(), getScoopNum(block), block.getHeight());
             } else {
-                block.setPocTime(generator.calculateHit(block.getGeneratorId(), block.getNonce(), block.getGenerationSignature(), scoopData));
+                pocTime = generator.calculateHit(block.getGeneratorId(), block.getNonce(), block.getGenerationSignature(), scoopData);
             }
         } catch (RuntimeException e) {
             logger.info("Error pre-verifying block generation signature", e);
-            return;
+            throw verificationFailed(block, new BlockchainProcessor.BlockNotAcceptedException("Error pre-verifying block generation signature at block height: "
+                    + block.getHeight() + ": " + e.toString()));
         }
 
-        for (Transaction transaction : block.getTransactions()) {
-            if (!transaction.verifySignature()) {
-                logger.info("Bad transaction signature during block pre-verification for tx: {} at block height: {}",
-                        Convert.toUnsignedLong(transaction.getId()), block.getHeight());
-                throw new BlockchainProcessor.TransactionNotAcceptedException("Invalid signature for tx: "
-                        + Convert.toUnsignedLong(transaction.getId()) + " at block height: " + block.getHeight(),
-                        transaction);
-            }
-            if (Thread.currentThread().isInterrupted() || !ThreadPool.running.get())
-                throw new InterruptedException();
+        List<Transaction> transactions = block.getTransactions();
+        SignatureVerifier.ParallelCheck signatures = signatureVerifier.newParallelCheck();
+        for (Transaction transaction : transactions) {
+            transaction.addSignatureCheck(signatures);
         }
+        int firstInvalid = signatures.findFirstInvalidInParallel();
+        if (firstInvalid >= 0) {
+            Transaction transaction = transactions.get(firstInvalid);
+            logger.info("Bad transaction signature during block pre-verification for tx: {} at block height: {}",
+                    Convert.toUnsignedLong(transaction.getId()), block.getHeight());
+            throw verificationFailed(block, new BlockchainProcessor.TransactionNotAcceptedException("Invalid signature for tx: "
+                    + Convert.toUnsignedLong(transaction.getId()) + " at block height: " + block.getHeight(),
+                    transaction));
+        }
+
+        // the import stage takes a block with a poc time as verified, so it is only set once every check passed
+        block.setPocTime(pocTime);
+    }
 
+    private BlockchainProcessor.BlockNotAcceptedException verificationFailed(Block block, BlockchainProcessor.BlockNotAcceptedException e) {
+        block.setVerificationFailure(e);
+        return e;
     }
 
     //todo 最后生成块的实现方法
@@ -227,6 +249,11 @@ public class BlockServiceImpl implements BlockService {
 
     @Override
     public void calculateBaseTarget(Block block, Block previousBlock) throws BlockOutOfOrderException {
+        calculateBaseTarget(block, previousBlock, downloadCache::getBlock);
+    }
+
+    @Override
+    public void calculateBaseTarget(Block block, Block previousBlock, LongFunction<Block> blockLookup) throws BlockOutOfOrderException {
         if (block.getId() == Genesis.GENESIS_BLOCK_ID && block.getPreviousBlockId() == 0) {
             block.setBaseTarget(Constants.INITIAL_BASE_TARGET);
             block.setCumulativeDifficulty(BigInteger.ZERO);
@@ -237,7 +264,11 @@ public class BlockServiceImpl implements BlockService {
             Block itBlock = previousBlock;
             BigInteger avgBaseTarget = BigInteger.valueOf(itBlock.getBaseTarget());
             do {
-                itBlock = downloadCache.getBlock(itBlock.getPreviousBlockId());
+                int previousHeight = itBlock.getHeight();
+                itBlock = blockLookup.apply(itBlock.getPreviousBlockId());
+                if (itBlock == null) {
+                    throw new BlockOutOfOrderException("Previous block does no longer exist for block height " + previousHeight);
+                }
                 avgBaseTarget = avgBaseTarget.add(BigInteger.valueOf(itBlock.getBaseTarget()));
             } while (itBlock.getHeight() > block.getHeight() - 4);
             avgBaseTarget = avgBaseTarget.divide(BigInteger.valueOf(4));
@@ -270,7 +301,7 @@ public class BlockServiceImpl implements BlockService {
             int blockCounter = 1;
             do {
                 int previousHeight = itBlock.getHeight();
-                itBlock = downloadCache.getBlock(itBlock.getPreviousBlockId());
+                itBlock = blockLookup.apply(itBlock.getPreviousBlockId());
                 if (itBlock == null) {
                     throw new BlockOutOfOrderException("Previous block does no longer exist for block height " + previousHeight);
                 }
@@ -4,8 +4,9 @@ import brs.services.TimeService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 public class StatisticsManagerImpl {
@@ -17,7 +18,7 @@ public class StatisticsManagerImpl {
   private int addedBlockCount;
   private int firstBlockAdded;
 
-  private final Map<String, CacheStatisticsOverview> cacheStatistics = new HashMap<>();
+  private final Map<String, CacheStatisticsOverview> cacheStatistics = new ConcurrentHashMap<>();
 
   public StatisticsManagerImpl(TimeService timeService) {
     this.timeService = timeService;
@@ -32,11 +33,7 @@ public class StatisticsManagerImpl {
   }
 
   private CacheStatisticsOverview getCacheStatisticsOverview(String cacheName) {
-    if(! this.cacheStatistics.containsKey(cacheName)) {
-      this.cacheStatistics.put(cacheName, new CacheStatisticsOverview(cacheName));
-    }
-
-    return cacheStatistics.get(cacheName);
+    return cacheStatistics.computeIfAbsent(cacheName, CacheStatisticsOverview::new);
   }
 
   public void blockAdded() {
@@ -57,8 +54,9 @@ public class StatisticsManagerImpl {
   private class CacheStatisticsOverview {
     private final String cacheName;
 
-    private long cacheHits;
-    private long cacheMisses;
+    // counted on every cache lookup, so without a lock
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
 
     private long totalCacheHits;
     private long totalCacheMisses;
@@ -67,24 +65,25 @@ public class StatisticsManagerImpl {
       this.cacheName = cacheName;
     }
 
-    private String getCacheInfoAndReset() {
-      final Float hitRatio = (cacheHits + cacheMisses) > 0 ? (float) cacheHits / (cacheHits + cacheMisses) : null;
-      final Float totalHitRatio = (totalCacheHits + totalCacheMisses) > 0 ? (float) totalCacheHits / (totalCacheHits + totalCacheMisses) : null;
+    private synchronized String getCacheInfoAndReset() {
+      final long hits = cacheHits.sumThenReset();
+      final long misses = cacheMisses.sumThenReset();
+      totalCacheHits += hits;
+      totalCacheMisses += misses;
 
-      cacheHits = 0;
-      cacheMisses = 0;
+      final float hitRatio = (hits + misses) > 0 ? (float) hits / (hits + misses) : 0;
+      final float totalHitRatio = (totalCacheHits + totalCacheMisses) > 0 ? (float) totalCacheHits / (totalCacheHits + totalCacheMisses) : 0;
+      final long lookups = hits + misses;
 
-      return String.format("%s cache hit ratio now/total:%.2f%%/%.2f%%", cacheName, hitRatio * 100, totalHitRatio * 100);
+      return String.format("%s cache hit ratio now/total:%.2f%%/%.2f%% (%d lookups)", cacheName, hitRatio * 100, totalHitRatio * 100, lookups);
     }
 
     private void cacheHit() {
-      cacheHits++;
-      totalCacheHits++;
+      cacheHits.increment();
     }
 
     private void cacheMiss() {
-      cacheMisses++;
-      totalCacheMisses++;
+      cacheMisses.increment();
     }
   }
 }
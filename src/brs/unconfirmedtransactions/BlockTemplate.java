@@ -0,0 +1,138 @@
+package brs.unconfirmedtransactions;
+
+import brs.Transaction;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static brs.Constants.FEE_QUANT;
+
+/**
+ * The unconfirmed transactions grouped by the block slot they compete for, kept up to date as transactions enter
+ * and leave the store so a block can be filled without sorting the whole store first.
+ * <p>
+ * Every slot gets its highest priority transaction, and a slot nobody pays for gets the next best transaction
+ * of the closest slot above it that has one left. Priorities depend on the timestamp of the block, so they are
+ * computed slot by slot when the block is made, and the checks a transaction has to pass are only run on the
+ * transactions that would be picked.
+ */
+public final class BlockTemplate {
+
+  static final long MULTI_OUT_SLOT = 1000;
+
+  private final ConcurrentHashMap<Long, Set<Transaction>> transactionsBySlot = new ConcurrentHashMap<>();
+
+  void add(Transaction transaction) {
+    transactionsBySlot.compute(slotOf(transaction), (slot, transactions) -> {
+      final Set<Transaction> slotTransactions = transactions != null ? transactions : ConcurrentHashMap.newKeySet();
+      slotTransactions.add(transaction);
+      return slotTransactions;
+    });
+  }
+
+  void remove(Transaction transaction) {
+    transactionsBySlot.computeIfPresent(slotOf(transaction), (slot, transactions) -> {
+      transactions.remove(transaction);
+      return transactions.isEmpty() ? null : transactions;
+    });
+  }
+
+  void clear() {
+    transactionsBySlot.clear();
+  }
+
+  /**
+   * @param eligible the checks a transaction has to pass to be picked, transactions failing them are skipped
+   * @return the transaction picked for every slot, by slot
+   */
+  public SortedMap<Long, Transaction> fillSlots(int blockTimestamp, Predicate<Transaction> eligible) {
+    final TreeMap<Long, SlotCursor> cursors = new TreeMap<>();
+    final SortedMap<Long, Transaction> transactionsBySlotToBeIncluded = new TreeMap<>();
+
+    for (Map.Entry<Long, Set<Transaction>> slot : transactionsBySlot.entrySet()) {
+      final SlotCursor cursor = new SlotCursor(slot.getValue(), blockTimestamp, eligible);
+      final Transaction best = cursor.next();
+      if (best != null) {
+        transactionsBySlotToBeIncluded.put(slot.getKey(), best);
+        cursors.put(slot.getKey(), cursor);
+      }
+    }
+
+    if (cursors.isEmpty()) {
+      return transactionsBySlotToBeIncluded;
+    }
+
+    // slots nobody pays for are filled from the closest slot above, starting with the highest one
+    for (long emptySlot = cursors.lastKey() - 1; emptySlot >= 1; emptySlot--) {
+      if (transactionsBySlotToBeIncluded.containsKey(emptySlot)) {
+        continue;
+      }
+      Transaction next = null;
+      for (Map.Entry<Long, SlotCursor> slotAbove = cursors.higherEntry(emptySlot); slotAbove != null && next == null; ) {
+        next = slotAbove.getValue().next();
+        if (next == null) {
+          cursors.remove(slotAbove.getKey());
+          slotAbove = cursors.higherEntry(slotAbove.getKey());
+        }
+      }
+      if (next == null) {
+        break;
+      }
+      transactionsBySlotToBeIncluded.put(emptySlot, next);
+    }
+
+    return transactionsBySlotToBeIncluded;
+  }
+
+  public static long slotOf(Transaction transaction) {
+    final byte transType = transaction.getTransType();
+    if (transType == 1 || transType == 2 || transType == 3) {
+      return MULTI_OUT_SLOT;
+    }
+    return (transaction.getFeeNQT() - (transaction.getFeeNQT() % FEE_QUANT)) / FEE_QUANT;
+  }
+
+  public static long priority(Transaction transaction, int blockTimestamp) {
+    int age = blockTimestamp + 1 - transaction.getTimestamp();
+    if (age < 0) age = 1;
+    return transaction.getTransType() != 0 ? ((long) age) * transaction.getTransType() : ((long) age) * transaction.getFeeNQT();
+  }
+
+  /**
+   * Walks the transactions of a slot from the highest priority down, sorting them only when first asked.
+   */
+  private static final class SlotCursor {
+    private final Set<Transaction> transactions;
+    private final int blockTimestamp;
+    private final Predicate<Transaction> eligible;
+    private List<Transaction> byPriority;
+    private int position;
+
+    private SlotCursor(Set<Transaction> transactions, int blockTimestamp, Predicate<Transaction> eligible) {
+      this.transactions = transactions;
+      this.blockTimestamp = blockTimestamp;
+      this.eligible = eligible;
+    }
+
+    private Transaction next() {
+      if (byPriority == null) {
+        byPriority = new ArrayList<>(transactions);
+        byPriority.sort(Comparator.<Transaction>comparingLong(t -> priority(t, blockTimestamp)).reversed().thenComparing(Transaction::getId));
+      }
+      while (position < byPriority.size()) {
+        final Transaction transaction = byPriority.get(position++);
+        if (eligible.test(transaction)) {
+          return transaction;
+        }
+      }
+      return null;
+    }
+  }
+}
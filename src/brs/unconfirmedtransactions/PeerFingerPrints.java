@@ -0,0 +1,208 @@
+package brs.unconfirmedtransactions;
+
+import brs.Transaction;
+import brs.peer.Peer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which peers already have which unconfirmed transactions, either because they sent them to us or
+ * because we sent them to them.
+ * <p>
+ * Every peer gets a small slot number and every transaction a bitset of the slots that have it, instead of a
+ * set of peers per transaction. Transactions are numbered in arrival order, and for every peer a watermark is
+ * kept below which it has all of them, so feeding a peer only looks at the transactions that arrived since.
+ * <p>
+ * The slots of peers that are gone are not reused right away: their bits are cleared for a batch of released
+ * slots at once, in a single pass over the transactions, so forgetting a peer does not walk the whole pool.
+ */
+class PeerFingerPrints {
+
+  private static final int SLOTS_CLEARED_AT_ONCE = 64;
+
+  private long nextSequence;
+  private final ConcurrentMap<Long, Entry> entriesById = new ConcurrentHashMap<>();
+  private final ConcurrentSkipListMap<Long, Entry> entriesBySequence = new ConcurrentSkipListMap<>();
+
+  private final ConcurrentMap<Peer, PeerFeed> feeds = new ConcurrentHashMap<>();
+  private final Deque<Integer> freeSlots = new ArrayDeque<>();
+  private long[] releasedSlots = new long[1];
+  private int releasedCount;
+  private int nextSlot;
+
+  /**
+   * @param from the peer the transaction came from, null if it is our own
+   */
+  void add(Transaction transaction, Peer from) {
+    final Entry entry;
+    // numbered and published in one go, a watermark must never pass a transaction that is not visible yet
+    synchronized (entriesBySequence) {
+      entry = new Entry(nextSequence++, transaction);
+      if (from != null) {
+        feed(from).mark(entry);
+      }
+      entriesById.put(transaction.getId(), entry);
+      entriesBySequence.put(entry.sequence, entry);
+    }
+  }
+
+  void remove(Transaction transaction) {
+    final Entry entry = entriesById.remove(transaction.getId());
+    if (entry != null) {
+      entriesBySequence.remove(entry.sequence);
+    }
+  }
+
+  void mark(Peer peer, Transaction transaction) {
+    final Entry entry = entriesById.get(transaction.getId());
+    if (entry != null && peer != null) {
+      feed(peer).mark(entry);
+    }
+  }
+
+  /**
+   * @return the transactions the peer does not have yet in arrival order, as long as their total size stays
+   * below the given number of bytes
+   */
+  List<Transaction> unseenBy(Peer peer, long maxBytes) {
+    final PeerFeed feed = feed(peer);
+    final ArrayList<Transaction> resultList = new ArrayList<>();
+
+    long roomLeft = maxBytes;
+    boolean allSeenSoFar = true;
+    final long watermark = feed.watermark.get();
+
+    for (Entry entry : entriesBySequence.tailMap(watermark).values()) {
+      if (entry.isSet(feed.slot)) {
+        if (allSeenSoFar) {
+          feed.advanceWatermark(entry.sequence + 1);
+        }
+        continue;
+      }
+      allSeenSoFar = false;
+
+      roomLeft -= entry.transaction.getSize();
+
+      if (roomLeft > 0) {
+        resultList.add(entry.transaction);
+      } else {
+        break;
+      }
+    }
+
+    return resultList;
+  }
+
+  /**
+   * Releases the slot of a peer that is gone, a new peer reuses it once its bits are cleared.
+   */
+  void forget(Peer peer) {
+    final PeerFeed feed = feeds.remove(peer);
+    if (feed == null) {
+      return;
+    }
+    // whoever still holds the feed can no longer mark transactions with its slot
+    feed.retire();
+    synchronized (freeSlots) {
+      final int word = feed.slot >>> 6;
+      if (word >= releasedSlots.length) {
+        releasedSlots = Arrays.copyOf(releasedSlots, word + 1);
+      }
+      releasedSlots[word] |= 1L << feed.slot;
+      releasedCount++;
+    }
+  }
+
+  void clear() {
+    entriesById.clear();
+    entriesBySequence.clear();
+  }
+
+  private PeerFeed feed(Peer peer) {
+    return feeds.computeIfAbsent(peer, p -> new PeerFeed(allocateSlot()));
+  }
+
+  private int allocateSlot() {
+    synchronized (freeSlots) {
+      if (freeSlots.isEmpty() && releasedCount >= SLOTS_CLEARED_AT_ONCE) {
+        clearReleasedSlots();
+      }
+      return freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+    }
+  }
+
+  private void clearReleasedSlots() {
+    for (Entry entry : entriesBySequence.values()) {
+      entry.clear(releasedSlots);
+    }
+    for (int word = 0; word < releasedSlots.length; word++) {
+      for (long bits = releasedSlots[word]; bits != 0; bits &= bits - 1) {
+        freeSlots.push((word << 6) + Long.numberOfTrailingZeros(bits));
+      }
+    }
+    releasedSlots = new long[1];
+    releasedCount = 0;
+  }
+
+  private static final class PeerFeed {
+    private final int slot;
+    private final AtomicLong watermark = new AtomicLong();
+    private boolean retired;
+
+    private PeerFeed(int slot) {
+      this.slot = slot;
+    }
+
+    private synchronized void mark(Entry entry) {
+      if (!retired) {
+        entry.set(slot);
+      }
+    }
+
+    private synchronized void retire() {
+      retired = true;
+    }
+
+    private void advanceWatermark(long sequence) {
+      watermark.accumulateAndGet(sequence, Math::max);
+    }
+  }
+
+  private static final class Entry {
+    private final long sequence;
+    private final Transaction transaction;
+    private long[] slots = new long[1];
+
+    private Entry(long sequence, Transaction transaction) {
+      this.sequence = sequence;
+      this.transaction = transaction;
+    }
+
+    private synchronized void set(int slot) {
+      final int word = slot >>> 6;
+      if (word >= slots.length) {
+        slots = Arrays.copyOf(slots, word + 1);
+      }
+      slots[word] |= 1L << slot;
+    }
+
+    private synchronized void clear(long[] releasedSlots) {
+      for (int word = Math.min(slots.length, releasedSlots.length) - 1; word >= 0; word--) {
+        slots[word] &= ~releasedSlots[word];
+      }
+    }
+
+    private synchronized boolean isSet(int slot) {
+      final int word = slot >>> 6;
+      return word < slots.length && (slots[word] & (1L << slot)) != 0;
+    }
+  }
+}
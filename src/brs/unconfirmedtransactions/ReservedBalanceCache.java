@@ -10,8 +10,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 class ReservedBalanceCache {
 
@@ -19,12 +23,12 @@ class ReservedBalanceCache {
 
   private final AccountStore accountStore;
 
-  private final HashMap<Long, Long> reservedBalanceCache;
+  private final ConcurrentHashMap<Long, Long> reservedBalanceCache;
 
   public ReservedBalanceCache(AccountStore accountStore) {
     this.accountStore = accountStore;
 
-    this.reservedBalanceCache = new HashMap<>();
+    this.reservedBalanceCache = new ConcurrentHashMap<>();
   }
 
   void reserveBalanceAndPut(Transaction transaction) throws BurstException.ValidationException {
@@ -34,6 +38,10 @@ class ReservedBalanceCache {
       senderAccount = accountStore.getAccountTable().get(accountStore.getAccountKeyFactory().newKey(transaction.getSenderId()));
     }
 
+    reserveBalanceAndPut(transaction, senderAccount);
+  }
+
+  private void reserveBalanceAndPut(Transaction transaction, Account senderAccount) throws BurstException.ValidationException {
     final Long amountNQT = Convert.safeAdd(
         reservedBalanceCache.getOrDefault(transaction.getSenderId(), 0L),
         transaction.getType().calculateTotalAmountNQT(transaction)
@@ -70,11 +78,39 @@ class ReservedBalanceCache {
   public List<Transaction> rebuild(List<Transaction> transactions) {
     clear();
 
+    final Set<Long> senderIds = new HashSet<>();
+    for (Transaction t : transactions) {
+      senderIds.add(t.getSenderId());
+    }
+
+    return revalidate(senderIds, transactions);
+  }
+
+  /**
+   * Reserves the balances of the given accounts again, leaving the reservations of all other accounts as
+   * they are. The accounts are loaded at once instead of one by one.
+   *
+   * @param transactions the unconfirmed transactions, only those sent by the given accounts are looked at
+   * @return the transactions of the given accounts that their balance does not cover anymore
+   */
+  public List<Transaction> revalidate(Collection<Long> accountIds, List<Transaction> transactions) {
     final List<Transaction> insufficientFundsTransactions = new ArrayList<>();
+    if (accountIds.isEmpty()) {
+      return insufficientFundsTransactions;
+    }
 
-    for(Transaction t : transactions) {
+    final Set<Long> senderIds = accountIds instanceof Set ? (Set<Long>) accountIds : new HashSet<>(accountIds);
+    final Map<Long, Account> senderAccounts = accountStore.getAccounts(senderIds);
+    for (Long senderId : senderIds) {
+      reservedBalanceCache.remove(senderId);
+    }
+
+    for (Transaction t : transactions) {
+      if (!senderIds.contains(t.getSenderId())) {
+        continue;
+      }
       try {
-        this.reserveBalanceAndPut(t);
+        this.reserveBalanceAndPut(t, t.getSenderId() != 0 ? senderAccounts.get(t.getSenderId()) : null);
       } catch (ValidationException e) {
         insufficientFundsTransactions.add(t);
       }
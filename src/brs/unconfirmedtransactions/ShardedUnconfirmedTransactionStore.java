@@ -0,0 +1,412 @@
+package brs.unconfirmedtransactions;
+
+import brs.BurstException.ValidationException;
+import brs.Constants;
+import brs.Transaction;
+import brs.db.store.AccountStore;
+import brs.peer.Peer;
+import brs.props.PropertyService;
+import brs.props.Props;
+import brs.services.TimeService;
+import brs.transactionduplicates.TransactionDuplicatesCheckerImpl;
+import brs.transactionduplicates.TransactionDuplicationResult;
+import brs.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Unconfirmed transaction store that does not serialise its readers and writers on a single monitor.
+ * <ul>
+ * <li>{@link #get}, {@link #exists}, {@link #getAll} and {@link #getAllFor} never block: transactions are indexed
+ * by id in a concurrent map and kept ordered cheapest first, by fee, expiration and id, in a concurrent
+ * skip list.</li>
+ * <li>Balance reservations are made under a lock striped by sender account, so transactions of different
+ * senders are added in parallel.</li>
+ * <li>Adding and removing single transactions share a read lock; only clearing the store and the
+ * reorganisation after a block is pushed take the write lock.</li>
+ * </ul>
+ * Accepts and evicts transactions by fee and expiration, lowest fee first, once the store is full.
+ */
+public class ShardedUnconfirmedTransactionStore implements UnconfirmedTransactionStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(ShardedUnconfirmedTransactionStore.class);
+
+  private static final int SENDER_STRIPES = 64;
+
+  private static final Comparator<Transaction> CHEAPEST_FIRST_TO_EXPIRE_FIRST =
+      Comparator.comparingLong(Transaction::getFeeNQT).thenComparing(Transaction::getExpiration).thenComparing(Transaction::getId);
+
+  private final TimeService timeService;
+  private final ReservedBalanceCache reservedBalanceCache;
+
+  private final TransactionDuplicatesCheckerImpl transactionDuplicatesChecker = new TransactionDuplicatesCheckerImpl();
+  private final Object duplicatesCheckerLock = new Object();
+
+  private final ConcurrentMap<Long, Transaction> transactionsById = new ConcurrentHashMap<>();
+  private final ConcurrentSkipListSet<Transaction> transactionsByFee = new ConcurrentSkipListSet<>(CHEAPEST_FIRST_TO_EXPIRE_FIRST);
+  private final ConcurrentMap<Long, Integer> amountSlotSizes = new ConcurrentHashMap<>();
+  private final PeerFingerPrints fingerPrints = new PeerFingerPrints();
+  private final BlockTemplate blockTemplate = new BlockTemplate();
+
+  private final ReadWriteLock storeLock = new ReentrantReadWriteLock();
+  private final Lock[] senderLocks = new Lock[SENDER_STRIPES];
+
+  private final AtomicInteger totalSize = new AtomicInteger();
+  private final int maxSize;
+
+  private final int maxRawUTBytesToSend;
+
+  private final AtomicInteger numberUnconfirmedTransactionsFullHash = new AtomicInteger();
+  private final int maxPercentageUnconfirmedTransactionsFullHash;
+
+  public ShardedUnconfirmedTransactionStore(TimeService timeService, PropertyService propertyService, AccountStore accountStore) {
+    this.timeService = timeService;
+
+    this.reservedBalanceCache = new ReservedBalanceCache(accountStore);
+
+    this.maxSize = propertyService.getInt(Props.P2P_MAX_UNCONFIRMED_TRANSACTIONS);
+    this.maxRawUTBytesToSend = propertyService.getInt(Props.P2P_MAX_UNCONFIRMED_TRANSACTIONS_RAW_SIZE_BYTES_TO_SEND);
+    this.maxPercentageUnconfirmedTransactionsFullHash = propertyService.getInt(Props.P2P_MAX_PERCENTAGE_UNCONFIRMED_TRANSACTIONS_FULL_HASH_REFERENCE);
+
+    for (int i = 0; i < SENDER_STRIPES; i++) {
+      senderLocks[i] = new ReentrantLock();
+    }
+
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    Runnable cleanupExpiredTransactions = () -> {
+      storeLock.readLock().lock();
+      try {
+        final int now = timeService.getEpochTime();
+        for (Transaction transaction : transactionsByFee) {
+          if (now > transaction.getExpiration()) {
+            removeTransaction(transaction, true);
+          }
+        }
+      } finally {
+        storeLock.readLock().unlock();
+      }
+    };
+    scheduler.scheduleWithFixedDelay(cleanupExpiredTransactions, 1, 1, TimeUnit.MINUTES);
+  }
+
+  @Override
+  public boolean put(Transaction transaction, Peer peer) throws ValidationException {
+    storeLock.readLock().lock();
+    try {
+      if (transactionsById.containsKey(transaction.getId())) {
+        if (peer != null) {
+          logger.info("Transaction {}: Added fingerprint of {}", transaction.getId(), peer.getPeerAddress());
+          fingerPrints.mark(peer, transaction);
+        }
+        return false;
+      }
+      if (!transactionCanBeAddedToCache(transaction)) {
+        return false;
+      }
+
+      final Transaction replacedDuplicate;
+      final Lock senderLock = senderLock(transaction.getSenderId());
+      senderLock.lock();
+      try {
+        if (transactionsById.containsKey(transaction.getId())) {
+          // the same transaction came in from another peer meanwhile
+          fingerPrints.mark(peer, transaction);
+          return false;
+        }
+
+        reservedBalanceCache.reserveBalanceAndPut(transaction);
+
+        final TransactionDuplicationResult duplicationInformation;
+        synchronized (duplicatesCheckerLock) {
+          duplicationInformation = transactionDuplicatesChecker.removeCheaperDuplicate(transaction);
+        }
+
+        if (duplicationInformation.isDuplicate()) {
+          replacedDuplicate = duplicationInformation.getTransaction();
+
+          if (replacedDuplicate == null || replacedDuplicate == transaction) {
+            logger.info("Transaction {}: Will not add a cheaper duplicate UT", transaction.getId());
+            reservedBalanceCache.refundBalance(transaction);
+            return true;
+          }
+
+          logger.info("Transaction {}: Adding more expensive duplicate transaction", transaction.getId());
+          addTransaction(transaction, peer);
+        } else {
+          replacedDuplicate = null;
+          addTransaction(transaction, peer);
+          final int size = totalSize.get();
+          if (size % 128 == 0) {
+            logger.info("Cache size: {}/{} added {} from sender {}", size, maxSize, transaction.getId(), transaction.getSenderId());
+          } else {
+            logger.debug("Cache size: {}/{} added {} from sender {}", size, maxSize, transaction.getId(), transaction.getSenderId());
+          }
+        }
+      } finally {
+        senderLock.unlock();
+      }
+
+      // done outside of the sender lock, the duplicate or the evicted transaction may be of another sender
+      if (replacedDuplicate != null) {
+        removeTransaction(replacedDuplicate, true);
+      }
+
+      while (totalSize.get() > maxSize && removeCheapestFirstToExpireTransaction()) {
+        // keep evicting, other threads may have added meanwhile
+      }
+
+      return true;
+    } finally {
+      storeLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Transaction get(Long transactionId) {
+    return transactionsById.get(transactionId);
+  }
+
+  @Override
+  public boolean exists(Long transactionId) {
+    return transactionsById.containsKey(transactionId);
+  }
+
+  @Override
+  public List<Transaction> getAll() {
+    return new ArrayList<>(transactionsByFee);
+  }
+
+  @Override
+  public List<Transaction> getAllFor(Peer peer) {
+    return fingerPrints.unseenBy(peer, maxRawUTBytesToSend);
+  }
+
+  @Override
+  public void remove(Transaction transaction) {
+    storeLock.readLock().lock();
+    try {
+      logger.debug("Removing " + transaction.getId());
+      removeTransaction(transaction, true);
+    } finally {
+      storeLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    storeLock.writeLock().lock();
+    try {
+      logger.info("Clearing UTStore");
+      transactionsById.clear();
+      transactionsByFee.clear();
+      amountSlotSizes.clear();
+      fingerPrints.clear();
+      blockTemplate.clear();
+      totalSize.set(0);
+      numberUnconfirmedTransactionsFullHash.set(0);
+      reservedBalanceCache.clear();
+      transactionDuplicatesChecker.clear();
+    } finally {
+      storeLock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void resetAccountBalances() {
+    storeLock.writeLock().lock();
+    try {
+      for (Transaction insufficientFundsTransaction : reservedBalanceCache.rebuild(getAll())) {
+        removeTransaction(insufficientFundsTransaction, false);
+      }
+    } finally {
+      storeLock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void resetAccountBalances(Collection<Long> accountIds) {
+    storeLock.writeLock().lock();
+    try {
+      for (Transaction insufficientFundsTransaction : reservedBalanceCache.revalidate(accountIds, getAll())) {
+        removeTransaction(insufficientFundsTransaction, false);
+      }
+    } finally {
+      storeLock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void markFingerPrintsOf(Peer peer, List<Transaction> transactions) {
+    for (Transaction transaction : transactions) {
+      fingerPrints.mark(peer, transaction);
+    }
+  }
+
+  @Override
+  public void forgetPeer(Peer peer) {
+    fingerPrints.forget(peer);
+  }
+
+  @Override
+  public void removeForgedTransactions(List<Transaction> transactions) {
+    storeLock.writeLock().lock();
+    try {
+      for (Transaction t : transactions) {
+        removeTransaction(t, true);
+      }
+    } finally {
+      storeLock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public BlockTemplate getBlockTemplate() {
+    return blockTemplate;
+  }
+
+  @Override
+  public int getAmount() {
+    return totalSize.get();
+  }
+
+  private Lock senderLock(long senderId) {
+    return senderLocks[Long.hashCode(senderId) & (SENDER_STRIPES - 1)];
+  }
+
+  private void refundBalance(Transaction transaction) {
+    final Lock senderLock = senderLock(transaction.getSenderId());
+    senderLock.lock();
+    try {
+      reservedBalanceCache.refundBalance(transaction);
+    } finally {
+      senderLock.unlock();
+    }
+  }
+
+  private boolean transactionCanBeAddedToCache(Transaction transaction) {
+    return transactionIsCurrentlyNotExpired(transaction)
+        && !cacheFullAndTransactionCheaperThanAllTheRest(transaction)
+        && !tooManyTransactionsWithReferencedFullHash(transaction)
+        && !tooManyTransactionsForSlotSize(transaction);
+  }
+
+  private boolean tooManyTransactionsForSlotSize(Transaction transaction) {
+    final long slotHeight = amountSlotForTransaction(transaction);
+    final Integer slotSize = amountSlotSizes.get(slotHeight);
+
+    if (slotSize != null && slotSize >= slotHeight * 360) {
+      logger.info("Transaction {}: Not added because slot {} is full", transaction.getId(), slotHeight);
+      return true;
+    }
+
+    return false;
+  }
+
+  private boolean tooManyTransactionsWithReferencedFullHash(Transaction transaction) {
+    if (!StringUtils.isEmpty(transaction.getReferencedTransactionFullHash()) && maxPercentageUnconfirmedTransactionsFullHash <= (((numberUnconfirmedTransactionsFullHash.get() + 1) * 100) / maxSize)) {
+      logger.info("Transaction {}: Not added because too many transactions with referenced full hash", transaction.getId());
+      return true;
+    }
+
+    return false;
+  }
+
+  private boolean cacheFullAndTransactionCheaperThanAllTheRest(Transaction transaction) {
+    if (totalSize.get() >= maxSize) {
+      final Iterator<Transaction> byFee = transactionsByFee.iterator();
+      if (byFee.hasNext() && amountSlotForTransaction(byFee.next()) > amountSlotForTransaction(transaction)) {
+        logger.info("Transaction {}: Not added because cache is full and transaction is cheaper than all the rest", transaction.getId());
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private boolean transactionIsCurrentlyNotExpired(Transaction transaction) {
+    if (timeService.getEpochTime() < transaction.getExpiration()) {
+      return true;
+    } else {
+      logger.info("Transaction {} past expiration: {}", transaction.getId(), transaction.getExpiration());
+      return false;
+    }
+  }
+
+  private void addTransaction(Transaction transaction, Peer peer) {
+    fingerPrints.add(transaction, peer);
+
+    transactionsByFee.add(transaction);
+    blockTemplate.add(transaction);
+    amountSlotSizes.merge(amountSlotForTransaction(transaction), 1, Integer::sum);
+    totalSize.incrementAndGet();
+
+    if (!StringUtils.isEmpty(transaction.getReferencedTransactionFullHash())) {
+      numberUnconfirmedTransactionsFullHash.incrementAndGet();
+    }
+
+    // published last, so whoever finds it by id also finds it everywhere else
+    transactionsById.put(transaction.getId(), transaction);
+
+    logger.debug("Adding Transaction {} from Peer {}", transaction.getId(), (peer == null ? "Ourself" : peer.getPeerAddress()));
+  }
+
+  private long amountSlotForTransaction(Transaction transaction) {
+    return transaction.getFeeNQT() / Constants.FEE_QUANT;
+  }
+
+  /**
+   * @return false if there was nothing left to evict
+   */
+  private boolean removeCheapestFirstToExpireTransaction() {
+    final Iterator<Transaction> byFee = transactionsByFee.iterator();
+    if (!byFee.hasNext()) {
+      return false;
+    }
+    removeTransaction(byFee.next(), true);
+    return true;
+  }
+
+  /**
+   * @param refund false if the balance of the transaction is not reserved anymore
+   */
+  private void removeTransaction(Transaction transaction, boolean refund) {
+    final Transaction removed = transactionsById.remove(transaction.getId());
+    if (removed == null) {
+      // not in the store, or another thread removed it first
+      return;
+    }
+
+    fingerPrints.remove(removed);
+    transactionsByFee.remove(removed);
+    blockTemplate.remove(removed);
+    totalSize.decrementAndGet();
+    synchronized (duplicatesCheckerLock) {
+      transactionDuplicatesChecker.removeTransaction(removed);
+    }
+
+    if (!StringUtils.isEmpty(removed.getReferencedTransactionFullHash())) {
+      numberUnconfirmedTransactionsFullHash.decrementAndGet();
+    }
+
+    final long amountSlotNumber = amountSlotForTransaction(removed);
+    amountSlotSizes.computeIfPresent(amountSlotNumber, (slot, size) -> size == 1 ? null : size - 1);
+
+    if (refund) {
+      refundBalance(removed);
+    }
+  }
+
+}
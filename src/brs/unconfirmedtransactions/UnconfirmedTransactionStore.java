@@ -4,6 +4,7 @@ import brs.BurstException;
 import brs.Transaction;
 import brs.peer.Peer;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface UnconfirmedTransactionStore {
@@ -28,9 +29,25 @@ public interface UnconfirmedTransactionStore {
    */
   void resetAccountBalances();
 
+  /**
+   * Review whether the transactions of the given accounts are still covered by their balance,
+   * the reservations of all other accounts are kept
+   */
+  void resetAccountBalances(Collection<Long> accountIds);
+
   void markFingerPrintsOf(Peer peer, List<Transaction> transactions);
 
+  /**
+   * Drops what is remembered about a peer that was removed
+   */
+  void forgetPeer(Peer peer);
+
   void removeForgedTransactions(List<Transaction> transactions);
 
+  /**
+   * @return the transactions of the store grouped by block slot, to fill the next block with
+   */
+  BlockTemplate getBlockTemplate();
+
   int getAmount();
 }
@@ -12,308 +12,247 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.util.*;
-import java.util.concurrent.locks.StampedLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Downloaded blocks waiting to be verified and pushed onto the chain.
+ * <p>
+ * The cache holds one contiguous run of blocks in a ring buffer indexed by height. Each slot carries the
+ * verification state of its block; blocks are verified and imported from the low end, so the unverified
+ * blocks are found directly from a cursor instead of by searching a list.
+ * Lookups by the import, PoC verification and download threads do not lock, changes are serialized.
+ */
 public final class DownloadCacheImpl {
-  private final int blockCacheMB;
 
-  private final Map<Long, Block> blockCache = new LinkedHashMap<>();
+  /** Smallest size a block is accounted with, used to size the ring for the configured byte budget. */
+  private static final int MIN_BLOCK_BYTES = 256;
+  private static final int MIN_SLOTS = 1 << 10;
+  private static final int MAX_SLOTS = 1 << 17;
+
+  private final long blockCacheBytes;
+
+  private final AtomicReferenceArray<Slot> slots;
+  private final int slotMask;
+  private final Map<Long, Integer> heightsById = new ConcurrentHashMap<>();
+  // filled by the download thread while the verification threads look blocks up, guarded by itself
   private final List<Block> forkCache = new ArrayList<>();
-  private final Map<Long, Long> reverseCache = new LinkedHashMap<>();
-  private final List<Long> unverified = new LinkedList<>();
 
   private final Logger logger = LoggerFactory.getLogger(DownloadCacheImpl.class);
 
   private final Blockchain blockchain;
   private final FluxCapacitor fluxCapacitor;
 
-  private int blockCacheSize = 0;
+  private final Object modificationLock = new Object();
+
+  private volatile int firstHeight = 0;
+  private volatile int lastHeight = -1;
+  private volatile int firstUnverifiedHeight = 0;
+  private volatile int size = 0;
+  private volatile int unverifiedSize = 0;
+  private volatile int blockCacheSize = 0;
+
+  private volatile Tip tip = null;
+
+  private volatile boolean lockedCache = false;
 
-  private Long lastBlockId = null;
-  private int lastHeight = -1;
-  private BigInteger highestCumulativeDifficulty = BigInteger.ZERO;
 
-  private final StampedLock dcsl = new StampedLock();
-  
-  private boolean lockedCache = false;
-  
-  
   public DownloadCacheImpl(PropertyService propertyService, FluxCapacitor fluxCapacitor, Blockchain blockchain) {
-    this.blockCacheMB = propertyService.getInt(Props.BRS_BLOCK_CACHE_MB);
+    this.blockCacheBytes = propertyService.getInt(Props.BRS_BLOCK_CACHE_MB) * 1024L * 1024L;
     this.fluxCapacitor = fluxCapacitor;
     this.blockchain = blockchain;
+
+    long wantedSlots = Math.max(Math.min(blockCacheBytes / MIN_BLOCK_BYTES, MAX_SLOTS), MIN_SLOTS);
+    int slotCount = Integer.highestOneBit((int) wantedSlots);
+    this.slots = new AtomicReferenceArray<>(slotCount);
+    this.slotMask = slotCount - 1;
   }
 
   private int getChainHeight() {
-    long stamp = dcsl.tryOptimisticRead();
-    int retVal = lastHeight;
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        retVal = lastHeight;
-      } finally {
-         dcsl.unlockRead(stamp);
-      }
-   }
-   if (retVal > -1) {
-      return retVal;
+    Tip currentTip = tip;
+    if (currentTip != null && currentTip.height > -1) {
+      return currentTip.height;
     }
     return blockchain.getHeight();
   }
+
   public void lockCache() {
-    long stamp = dcsl.writeLock();
-	try {
-	  lockedCache = true;
-	} finally {
-	  dcsl.unlockWrite(stamp);
-	}
-	setLastVars();
+    lockedCache = true;
+    setLastVars();
   }
+
   public void unlockCache() {
-    long stamp = dcsl.tryOptimisticRead();
-	boolean retVal = lockedCache;
-	if (!dcsl.validate(stamp)) {
-	  stamp = dcsl.readLock();
-	  try {
-	    retVal = lockedCache;
-	  } finally {
-	    dcsl.unlockRead(stamp);
-	  }
-	}
-	
-	if(retVal) {
-	  stamp = dcsl.writeLock();
-	  try {
-	    lockedCache = false;
-	  } finally {
-		dcsl.unlockWrite(stamp);
-      }	
-	}
-  }
-  private boolean getLockState() {
-    long stamp = dcsl.tryOptimisticRead();
-	boolean retVal = lockedCache;
-	if (!dcsl.validate(stamp)) {
-	  stamp = dcsl.readLock();
-	  try {
-	    retVal = lockedCache;
-      } finally {
-		dcsl.unlockRead(stamp);
-      }
-    }
-	return retVal;
+    lockedCache = false;
   }
-  
+
   public int getBlockCacheSize() {
-    long stamp = dcsl.tryOptimisticRead();
-    int retVal = blockCacheSize;
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        retVal = blockCacheSize;
-      } finally {
-         dcsl.unlockRead(stamp);
-      }
-   }
-    return retVal;
+    return blockCacheSize;
   }
- 
-  
+
   public boolean isFull() {
-    long stamp = dcsl.tryOptimisticRead();
-    int retVal = blockCacheSize;
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        retVal = blockCacheSize;
-      } finally {
-         dcsl.unlockRead(stamp);
-      }
-    }
-    return retVal > blockCacheMB * 1024 * 1024;
+    return blockCacheSize > blockCacheBytes || size >= slots.length();
   }
 
   public int getUnverifiedSize() {
-    long stamp = dcsl.tryOptimisticRead();
-    int retVal = unverified.size();
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        retVal = unverified.size();
-      } finally {
-         dcsl.unlockRead(stamp);
-      }
-    }
-    return retVal;
+    return unverifiedSize;
   }
 
   public BigInteger getCumulativeDifficulty() {
-    long stamp = dcsl.tryOptimisticRead();
-    Long lbID = lastBlockId;
-    BigInteger retVal = highestCumulativeDifficulty;
-    
-   
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        lbID = lastBlockId;
-        retVal = highestCumulativeDifficulty;
-      } finally {
-         dcsl.unlockRead(stamp);
-      }
+    Tip currentTip = tip;
+    if (currentTip == null) {
+      setLastVars();
+      currentTip = tip;
     }
-    if (lbID != null) {
-      return retVal;
+    return currentTip.cumulativeDifficulty;
+  }
+
+  public long getUnverifiedBlockIdFromPos(int pos) {
+    Slot slot = getUnverifiedSlot(pos);
+    if (slot == null) {
+      throw new IndexOutOfBoundsException("No unverified block at position " + pos);
     }
-    setLastVars();
-    stamp = dcsl.tryOptimisticRead();
-    retVal = highestCumulativeDifficulty;
-    if (!dcsl.validate(stamp)) {
-      stamp = dcsl.readLock();
-      try {
-        retVal = highestCumulativeDifficulty;
-      } finally {
-         dcsl.unlockRead(stamp);
+    return slot.block.getId();
+  }
+
+  private Slot getUnverifiedSlot(int pos) {
+    int from = firstUnverifiedHeight;
+    int to = lastHeight;
+    if (to - from + 1 == unverifiedSize) {
+      // the unverified blocks are the upper end of the cache, which is the usual case
+      Slot slot = getSlot(from + pos);
+      if (slot != null && !slot.verified) {
+        return slot;
       }
     }
-    return retVal;
+    int skipped = 0;
+    for (int height = from; height <= to; height++) {
+      Slot slot = getSlot(height);
+      if (slot != null && !slot.verified && skipped++ == pos) {
+        return slot;
+      }
+    }
+    return null;
   }
 
-  public long getUnverifiedBlockIdFromPos(int pos) {
-    long stamp = dcsl.tryOptimisticRead();
-    long reVal = unverified.get(pos);
-    
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        reVal = unverified.get(pos);
-      } finally {
-         dcsl.unlockRead(stamp);
+  /**
+   * @return the lowest block still waiting for verification, which is no longer regarded as unverified
+   * afterwards, or null if there is none
+   */
+  public Block getFirstUnverifiedBlock() {
+    synchronized (modificationLock) {
+      Slot slot = getUnverifiedSlot(0);
+      if (slot == null) {
+        return null;
       }
+      markVerified(slot);
+      return slot.block;
     }
-    return reVal;
   }
-  public Block getFirstUnverifiedBlock() {
-	 long stamp = dcsl.writeLock();
-	 try {
-		 long blockId = unverified.get(0);
-		 Block block = blockCache.get(blockId);
-		 unverified.remove(blockId);
-		 return block;
-	 } finally {
-      dcsl.unlockWrite(stamp);
+
+  /**
+   * Takes up to {@code max} of the lowest blocks waiting for verification, stopping at the first one that needs
+   * a different PoC version than the first, so they can be verified together.
+   *
+   * @return the blocks, which are no longer regarded as unverified afterwards, or an empty list if there are none
+   */
+  public List<Block> getFirstUnverifiedBlocks(int max) {
+    List<Block> blocks = new ArrayList<>(max);
+    synchronized (modificationLock) {
+      boolean poc2 = false;
+      while (blocks.size() < max) {
+        Slot slot = getUnverifiedSlot(0);
+        if (slot == null) {
+          break;
+        }
+        boolean slotPoc2 = fluxCapacitor.getValue(FluxValues.POC2, slot.block.getHeight());
+        if (blocks.isEmpty()) {
+          poc2 = slotPoc2;
+        } else if (slotPoc2 != poc2) {
+          break;
+        }
+        markVerified(slot);
+        blocks.add(slot.block);
+      }
     }
+    return blocks;
+  }
+
+  /**
+   * @return whether the block is cached and no verifier took it yet
+   */
+  public boolean isUnverified(long blockId) {
+    Slot slot = getSlotById(blockId);
+    return slot != null && !slot.verified;
   }
 
   public void removeUnverified(long blockId) {
-    long stamp = dcsl.writeLock();
-    try {
-      unverified.remove(blockId);
-    } finally {
-      dcsl.unlockWrite(stamp);
+    synchronized (modificationLock) {
+      Slot slot = getSlotById(blockId);
+      if (slot != null) {
+        markVerified(slot);
+      }
     }
   }
-  
+
   public void removeUnverifiedBatch(Collection<Block> blocks) {
-    long stamp = dcsl.writeLock();
-    try {
+    synchronized (modificationLock) {
       for (Block block : blocks) {
-        unverified.remove(block.getId());
+        Slot slot = getSlotById(block.getId());
+        if (slot != null) {
+          markVerified(slot);
+        }
       }
-    } finally {
-      dcsl.unlockWrite(stamp);
     }
   }
 
   public void resetCache() {
-    long stamp = dcsl.writeLock();
-    try {
-      blockCache.clear();
-      reverseCache.clear();
-      unverified.clear();
+    synchronized (modificationLock) {
+      for (int height = firstHeight; height <= lastHeight; height++) {
+        slots.set(height & slotMask, null);
+      }
+      heightsById.clear();
+      firstHeight = 0;
+      lastHeight = -1;
+      firstUnverifiedHeight = 0;
+      size = 0;
+      unverifiedSize = 0;
       blockCacheSize = 0;
       lockedCache = true;
-    } finally {
-     dcsl.unlockWrite(stamp);
     }
     setLastVars();
   }
 
   public Block getBlock(long BlockId) {
 	//search the forkCache if we have a forkList
-    if(!forkCache.isEmpty()) {
+    synchronized (forkCache) {
       for (Block block : forkCache) {
         if(block.getId() == BlockId) {
         	return block;
         }
       }
     }
-    long stamp = dcsl.tryOptimisticRead();
-    Block retVal = getBlockInt(BlockId);
-    if (!dcsl.validate(stamp)) {
-      stamp = dcsl.readLock();
-      try {
-        retVal = getBlockInt(BlockId);
-      } finally {
-         dcsl.unlockRead(stamp);
-      }
-    }
-    if(retVal != null) {
-      return retVal;
+    Slot slot = getSlotById(BlockId);
+    if (slot != null) {
+      return slot.block;
     }
     if (blockchain.hasBlock(BlockId)) {
       return blockchain.getBlock(BlockId);
     }
     return null;
   }
-  private Block getBlockInt(long BlockId) {
-    if (blockCache.containsKey(BlockId)) {
-      return blockCache.get(BlockId);
-    }
-    return null;
-  }
 
   public Block getNextBlock(long prevBlockId) {
-    long stamp = dcsl.tryOptimisticRead();
-    Block retVal = getNextBlockInt(prevBlockId);
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        retVal = getNextBlockInt(prevBlockId);
-      } finally {
-        dcsl.unlockRead(stamp);
-      }
-    }
-    return retVal;
-  }
-
-  private Block getNextBlockInt(long prevBlockId) {
-    if (reverseCache.containsKey(prevBlockId)) {
-      return blockCache.get(reverseCache.get(prevBlockId));
+    Integer prevHeight = heightsById.get(prevBlockId);
+    // a block not in the cache can only be followed by the first cached one
+    Slot slot = getSlot(prevHeight != null ? prevHeight + 1 : firstHeight);
+    if (slot != null && slot.block.getPreviousBlockId() == prevBlockId) {
+      return slot.block;
     }
     return null;
   }
 
   public boolean hasBlock(long BlockId) {
-    long stamp = dcsl.tryOptimisticRead();
-    boolean retVal =  blockCache.containsKey(BlockId);
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        retVal =  blockCache.containsKey(BlockId);
-      } finally {
-        dcsl.unlockRead(stamp);
-      }
-    }
-    if (retVal) {
+    if (getSlotById(BlockId) != null) {
       return true;
     }
     return blockchain.hasBlock(BlockId);
@@ -321,17 +260,8 @@ public final class DownloadCacheImpl {
 
   public boolean canBeFork(long oldBlockId) {
     int curHeight = getChainHeight();
-    long stamp = dcsl.tryOptimisticRead();
-    Block block = getBlockInt(oldBlockId);
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        block = getBlockInt(oldBlockId);
-      } finally {
-         dcsl.unlockRead(stamp);
-      }
-    }
+    Slot slot = getSlotById(oldBlockId);
+    Block block = slot != null ? slot.block : null;
     if (block == null && blockchain.hasBlock(oldBlockId)) {
       block = blockchain.getBlock(oldBlockId);
     }
@@ -341,167 +271,222 @@ public final class DownloadCacheImpl {
     return (curHeight - block.getHeight()) <= Constants.MAX_ROLLBACK;
   }
 
+  /**
+   * Appends a block to the cache. The block must have its height set and follow the last cached block.
+   *
+   * @return false if the cache is locked, full or the block does not follow the cached blocks
+   */
   public boolean addBlock(Block block) {
-    if(!getLockState()) {
-	  long stamp = dcsl.writeLock();
-      try {
-        blockCache.put(block.getId(), block);
-        reverseCache.put(block.getPreviousBlockId(), block.getId());
-        unverified.add(block.getId());
-        blockCacheSize += block.getByteLength();
-        lastBlockId = block.getId();
-        lastHeight = block.getHeight();
-        highestCumulativeDifficulty = block.getCumulativeDifficulty();
-        return true;
-      } finally {
-        dcsl.unlockWrite(stamp);
+    synchronized (modificationLock) {
+      if (lockedCache) {
+        return false;
       }
+      int height = block.getHeight();
+      if (size > 0) {
+        if (height != lastHeight + 1) {
+          logger.debug("Block " + block.getId() + " at height " + height + " does not follow cached height " + lastHeight);
+          return false;
+        }
+        if (size >= slots.length() || blockCacheSize + block.getByteLength() > blockCacheBytes) {
+          return false;
+        }
+      } else {
+        firstHeight = height;
+        firstUnverifiedHeight = height;
+      }
+      slots.set(height & slotMask, new Slot(height, block));
+      heightsById.put(block.getId(), height);
+      lastHeight = height;
+      size++;
+      unverifiedSize++;
+      blockCacheSize += block.getByteLength();
+      tip = new Tip(block.getId(), height, block.getCumulativeDifficulty());
+      return true;
     }
-    return false;
   }
   public void addForkBlock(Block block) {
-    forkCache.add(block);
+    synchronized (forkCache) {
+      forkCache.add(block);
+    }
   }
   public void resetForkBlocks() {
-    forkCache.clear();  
+    synchronized (forkCache) {
+      forkCache.clear();
+    }
   }
+  /**
+   * @return a copy of the fork blocks, later changes to the cache do not show in it
+   */
   public List<Block> getForkList(){
-    return forkCache;
+    synchronized (forkCache) {
+      return new ArrayList<>(forkCache);
+    }
   }
 
+  /**
+   * Removes a block from the cache. Blocks are normally removed from the low end as they are pushed;
+   * removing any other block also drops the blocks above it, as they no longer link to the chain.
+   */
   public boolean removeBlock(Block block) {
-    long stamp = dcsl.tryOptimisticRead();
-    boolean chkVal = blockCache.containsKey(block.getId());
-    long lastId = lastBlockId;
-    
-    if (!dcsl.validate(stamp)) {
-      stamp = dcsl.readLock();
-      try {
-        chkVal = blockCache.containsKey(block.getId());
-      } finally {
-         dcsl.unlockRead(stamp);
-      }
+    if (getSlotById(block.getId()) == null) { // make sure there is something to remove
+      return false;
     }
-    
-    if (chkVal) { // make sure there is something to remove
-      stamp = dcsl.writeLock();
-      try {
-    	unverified.remove(block.getId());
-        reverseCache.remove(block.getPreviousBlockId());
-        blockCache.remove(block.getId());
-        blockCacheSize -= block.getByteLength();
-      } finally {
-        dcsl.unlockWrite(stamp);
+
+    boolean removedLast;
+    synchronized (modificationLock) {
+      Slot slot = getSlotById(block.getId());
+      if (slot == null) {
+        return false;
       }
-      if (block.getId() == lastId) {
-        setLastVars();
+      if (slot.height == firstHeight && slot.height != lastHeight) {
+        clearSlot(slot.height);
+        firstHeight = slot.height + 1;
+        removedLast = false;
+      } else {
+        for (int height = lastHeight; height >= slot.height; height--) {
+          clearSlot(height);
+        }
+        lastHeight = slot.height - 1;
+        removedLast = true;
       }
-      return true;
+      if (size == 0) {
+        firstHeight = 0;
+        lastHeight = -1;
+        firstUnverifiedHeight = 0;
+      } else if (firstUnverifiedHeight < firstHeight) {
+        firstUnverifiedHeight = firstHeight;
+        advanceUnverifiedCursor();
+      }
+    }
+    if (removedLast) {
+      setLastVars();
     }
-    return false;
+    return true;
   }
 
   public int getPoCVersion(long blockId) {
     Block blockImpl = getBlock(blockId);
     return (blockImpl == null || ! fluxCapacitor.getValue(FluxValues.POC2, blockImpl.getHeight()) ) ? 1 : 2;
   }
-  
+
   public long getLastBlockId() {
-    Long lId = getLastCacheId();
-    if (lId != null) {
-      return lId;
+    Tip currentTip = tip;
+    if (currentTip != null) {
+      return currentTip.id;
     }
     return blockchain.getLastBlock().getId();
   }
-  private Long getLastCacheId() {
-    long stamp = dcsl.tryOptimisticRead();
-    Long lId = lastBlockId;
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        lId = lastBlockId;
-      } finally {
-        dcsl.unlockRead(stamp);
-      }
-    }
-    return lId;
-  }
-    
+
   public Block getLastBlock() {
-    Long iLd = getLastCacheId();
-    if (iLd != null && blockCache.containsKey(iLd)) {
-      long stamp = dcsl.tryOptimisticRead();
-      Block retBlock = blockCache.get(iLd);
-      if (!dcsl.validate(stamp)) {
-        stamp = dcsl.readLock();
-        try {
-          retBlock = blockCache.get(iLd);
-        } finally {
-          dcsl.unlockRead(stamp);
-        }
+    Tip currentTip = tip;
+    if (currentTip != null) {
+      Slot slot = getSlotById(currentTip.id);
+      if (slot != null) {
+        return slot.block;
       }
-      return retBlock;
     }
     return blockchain.getLastBlock();
   }
 
   public int size() {
-    long stamp = dcsl.tryOptimisticRead();
-    int size = blockCache.size();
-    if (!dcsl.validate(stamp)) {
-     
-      stamp = dcsl.readLock();
-      try {
-        size = blockCache.size();
-      } finally {
-        dcsl.unlockRead(stamp);
-      }
-    }
     return size;
   }
 
   public void printDebug() {
-/*    if (reverseCache.size() > 0) {
-      logger.debug("BlockCache First block key:" + blockCache.keySet().toArray()[0]);
-      logger.debug("revCache First block key:" + reverseCache.keySet().toArray()[0]);
-      logger.debug("revCache First block Val:" + reverseCache.get(reverseCache.keySet().toArray()[0]));
-      logger.debug("BlockCache size:" + blockCache.size());
-      logger.debug("revCache size:" + reverseCache.size());
-    } else {
-      logger.debug("BlockCache size:" + blockCache.size());
-      logger.debug("Unverified size:" + unverified.size());
-      logger.debug("Verified size:" + (blockCache.size() - unverified.size()));
-    }*/
-    logger.info("BlockCache size:" + blockCache.size());
-    logger.info("Unverified size:" + unverified.size());
-    logger.info("Verified size:" + (blockCache.size() - unverified.size()));
-    
-  }
-  private void PrintLastVars() {
-	logger.debug("Cache LastId:"+lastBlockId);
-	logger.debug("Cache lastHeight:"+lastHeight);
-  }
-    
+    logger.info("BlockCache size:" + size);
+    logger.info("Unverified size:" + unverifiedSize);
+    logger.info("Verified size:" + (size - unverifiedSize));
+  }
+
+  private Slot getSlot(int height) {
+    Slot slot = slots.get(height & slotMask);
+    return slot != null && slot.height == height ? slot : null;
+  }
+
+  private Slot getSlotById(long blockId) {
+    Integer height = heightsById.get(blockId);
+    if (height == null) {
+      return null;
+    }
+    Slot slot = getSlot(height);
+    return slot != null && slot.block.getId() == blockId ? slot : null;
+  }
+
+  private void clearSlot(int height) {
+    Slot slot = getSlot(height);
+    if (slot == null) {
+      return;
+    }
+    slots.set(height & slotMask, null);
+    heightsById.remove(slot.block.getId());
+    size--;
+    blockCacheSize -= slot.block.getByteLength();
+    if (!slot.verified) {
+      unverifiedSize--;
+    }
+  }
+
+  private void markVerified(Slot slot) {
+    if (!slot.verified) {
+      slot.verified = true;
+      unverifiedSize--;
+      advanceUnverifiedCursor();
+    }
+  }
+
+  private void advanceUnverifiedCursor() {
+    int height = firstUnverifiedHeight;
+    while (height <= lastHeight) {
+      Slot slot = getSlot(height);
+      if (slot != null && !slot.verified) {
+        break;
+      }
+      height++;
+    }
+    firstUnverifiedHeight = height;
+  }
+
+  private void printLastVars(Tip lastVars) {
+	logger.debug("Cache LastId:"+lastVars.id);
+	logger.debug("Cache lastHeight:"+lastVars.height);
+  }
 
   private void setLastVars() {
-    long stamp = dcsl.writeLock();
-    try {
-      if (! blockCache.isEmpty()) {
-        lastBlockId = blockCache.get(blockCache.keySet().toArray()[blockCache.keySet().size() - 1]).getId();
-        lastHeight = blockCache.get(lastBlockId).getHeight();
-        highestCumulativeDifficulty = blockCache.get(lastBlockId).getCumulativeDifficulty();
+    synchronized (modificationLock) {
+      Slot last = getSlot(lastHeight);
+      if (size > 0 && last != null) {
+        tip = new Tip(last.block.getId(), last.height, last.block.getCumulativeDifficulty());
         logger.debug("Cache set to CacheData");
-        PrintLastVars();
       } else {
-        lastBlockId = blockchain.getLastBlock().getId();
-        lastHeight = blockchain.getHeight();
-        highestCumulativeDifficulty = blockchain.getLastBlock().getCumulativeDifficulty();
+        Block lastBlock = blockchain.getLastBlock();
+        tip = new Tip(lastBlock.getId(), blockchain.getHeight(), lastBlock.getCumulativeDifficulty());
         logger.debug("Cache set to ChainData");
-        PrintLastVars();
       }
-    } finally {
-      dcsl.unlockWrite(stamp);
+      printLastVars(tip);
+    }
+  }
+
+  private static final class Slot {
+    private final int height;
+    private final Block block;
+    private volatile boolean verified;
+
+    private Slot(int height, Block block) {
+      this.height = height;
+      this.block = block;
+    }
+  }
+
+  /** Id, height and cumulative difficulty of the last block, published together. */
+  private static final class Tip {
+    private final long id;
+    private final int height;
+    private final BigInteger cumulativeDifficulty;
+
+    private Tip(long id, int height, BigInteger cumulativeDifficulty) {
+      this.id = id;
+      this.height = height;
+      this.cumulativeDifficulty = cumulativeDifficulty;
     }
   }
 }
@@ -0,0 +1,121 @@
+package brs.util;
+
+import brs.crypto.Crypto;
+import brs.crypto.Shabal256Lanes;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+import static brs.util.MiningPlot.PLOT_SIZE;
+import static brs.util.MiningPlot.SCOOPS_PER_PLOT;
+import static brs.util.MiningPlot.SCOOP_SIZE;
+
+/**
+ * Computes a single scoop of a nonce, as needed to verify a deadline, without building a whole {@link MiningPlot}.
+ * The Shabal hash chain still has to run over the full plot, but it is written into a buffer that is reused by
+ * the calling thread, and only the 64 bytes of the requested scoop are combined with the final hash.
+ * <p>
+ * {@link #getScoops} generates the scoops of up to {@value #LANES} nonces in lock-step with {@link Shabal256Lanes}.
+ */
+public final class ScoopGenerator {
+
+  private static final int HASH_SIZE = 32;
+  private static final int HASH_CAP = 4096;
+  private static final int BASE_SIZE = 16;
+
+  public static final int LANES = 8;
+
+  private static final ThreadLocal<byte[]> genData = ThreadLocal.withInitial(() -> new byte[PLOT_SIZE + BASE_SIZE]);
+  private static final ThreadLocal<MessageDigest> shabal256 = ThreadLocal.withInitial(Crypto::shabal256);
+  private static final ThreadLocal<byte[][]> laneGenData = ThreadLocal.withInitial(() -> new byte[LANES][PLOT_SIZE + BASE_SIZE]);
+  private static final ThreadLocal<Shabal256Lanes> shabal256Lanes = ThreadLocal.withInitial(() -> new Shabal256Lanes(LANES));
+
+  private ScoopGenerator() {
+  }
+
+  /**
+   * @return the scoop as {@link MiningPlot#getScoop(int)} would return it
+   */
+  public static byte[] getScoop(long addr, long nonce, int scoop, boolean poc2) {
+    byte[] scoopData = new byte[SCOOP_SIZE];
+    generateScoop(addr, nonce, scoop, poc2, scoopData);
+    return scoopData;
+  }
+
+  /**
+   * Feeds the scoop into the digest like {@link MiningPlot#hashScoop(MessageDigest, int)} does.
+   */
+  public static void hashScoop(MessageDigest digest, long addr, long nonce, int scoop, boolean poc2) {
+    digest.update(getScoop(addr, nonce, scoop, poc2));
+  }
+
+  /**
+   * Generates the scoops of several nonces, {@value #LANES} at a time.
+   *
+   * @return the scoop of every nonce, in the order of the arguments
+   */
+  public static byte[][] getScoops(long[] addrs, long[] nonces, int[] scoops, boolean poc2) {
+    byte[][] scoopData = new byte[addrs.length][SCOOP_SIZE];
+    byte[][] gendata = laneGenData.get();
+    Shabal256Lanes shabal = shabal256Lanes.get();
+    byte[][] finalHashes = new byte[LANES][HASH_SIZE];
+
+    for (int first = 0; first < addrs.length; first += LANES) {
+      int count = Math.min(LANES, addrs.length - first);
+      for (int l = 0; l < count; l++) {
+        checkScoop(scoops[first + l]);
+        writeBase(gendata[l], addrs[first + l], nonces[first + l]);
+      }
+      for (int i = PLOT_SIZE; i > 0; i -= HASH_SIZE) {
+        shabal.digest(gendata, i, Math.min(PLOT_SIZE + BASE_SIZE - i, HASH_CAP), count, gendata, i - HASH_SIZE);
+      }
+      shabal.digest(gendata, 0, PLOT_SIZE + BASE_SIZE, count, finalHashes, 0);
+      for (int l = 0; l < count; l++) {
+        extractScoop(gendata[l], finalHashes[l], scoops[first + l], poc2, scoopData[first + l]);
+      }
+    }
+    return scoopData;
+  }
+
+  private static void generateScoop(long addr, long nonce, int scoop, boolean poc2, byte[] scoopData) {
+    checkScoop(scoop);
+    byte[] gendata = genData.get();
+    MessageDigest shabal = shabal256.get();
+    shabal.reset();
+
+    writeBase(gendata, addr, nonce);
+    try {
+      for (int i = PLOT_SIZE; i > 0; i -= HASH_SIZE) {
+        int len = Math.min(PLOT_SIZE + BASE_SIZE - i, HASH_CAP);
+        shabal.update(gendata, i, len);
+        shabal.digest(gendata, i - HASH_SIZE, HASH_SIZE);
+      }
+    } catch (DigestException e) {
+      throw new IllegalStateException(e);
+    }
+    extractScoop(gendata, shabal.digest(gendata), scoop, poc2, scoopData);
+  }
+
+  private static void checkScoop(int scoop) {
+    if (scoop < 0 || scoop >= SCOOPS_PER_PLOT) {
+      throw new IllegalArgumentException("Invalid scoop " + scoop);
+    }
+  }
+
+  private static void writeBase(byte[] gendata, long addr, long nonce) {
+    for (int i = 0; i < 8; i++) {
+      gendata[PLOT_SIZE + i] = (byte) (addr >>> (56 - 8 * i));
+      gendata[PLOT_SIZE + 8 + i] = (byte) (nonce >>> (56 - 8 * i));
+    }
+  }
+
+  private static void extractScoop(byte[] gendata, byte[] finalHash, int scoop, boolean poc2, byte[] scoopData) {
+    // with PoC2 the second hash of every scoop is swapped with the one of the mirrored scoop
+    int firstHash = scoop * SCOOP_SIZE;
+    int secondHash = (poc2 ? SCOOPS_PER_PLOT - 1 - scoop : scoop) * SCOOP_SIZE + HASH_SIZE;
+    for (int i = 0; i < HASH_SIZE; i++) {
+      scoopData[i] = (byte) (gendata[firstHash + i] ^ finalHash[i]);
+      scoopData[HASH_SIZE + i] = (byte) (gendata[secondHash + i] ^ finalHash[i]);
+    }
+  }
+}
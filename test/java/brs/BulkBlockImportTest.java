@@ -0,0 +1,217 @@
+package brs;
+
+import brs.BlockchainProcessor.BlockNotAcceptedException;
+import brs.BulkBlockImport.BulkBlockNotAcceptedException;
+import brs.db.store.Stores;
+import brs.fluxcapacitor.FluxCapacitor;
+import brs.props.PropertyService;
+import brs.props.Props;
+import brs.util.DownloadCacheImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BulkBlockImportTest {
+
+  private BulkBlockImport t;
+
+  private Stores stores;
+  private BlockchainImpl blockchain;
+  private DownloadCacheImpl downloadCache;
+
+  private Block lastBlock;
+  private final List<Block> pushed = new ArrayList<>();
+  private final List<Block> announced = new ArrayList<>();
+  private final Set<Block> rejected = new HashSet<>();
+  private boolean stillBehind = true;
+
+  @Before
+  public void setUp() {
+    stores = mock(Stores.class);
+    blockchain = mock(BlockchainImpl.class);
+    when(blockchain.getLastBlock()).thenAnswer(invocation -> lastBlock);
+
+    PropertyService propertyService = mock(PropertyService.class);
+    when(propertyService.getInt(eq(Props.BRS_BLOCK_CACHE_MB))).thenReturn(40);
+    downloadCache = new DownloadCacheImpl(propertyService, mock(FluxCapacitor.class), blockchain);
+
+    lastBlock = block(100, 99, true);
+  }
+
+  @Test
+  public void push_commitsAllBlocksInOneTransaction() throws BlockNotAcceptedException {
+    t = bulkImport(10);
+    Block first = cacheBlocks(3);
+
+    assertEquals(3, t.push(first));
+
+    assertEquals(pushed, announced);
+    InOrder inOrder = inOrder(stores, blockchain);
+    inOrder.verify(blockchain).holdBackLastBlock();
+    inOrder.verify(stores).beginTransaction();
+    inOrder.verify(stores).commitTransaction();
+    inOrder.verify(stores).endTransaction();
+    inOrder.verify(blockchain).publishLastBlock();
+  }
+
+  @Test
+  public void push_stopsAtCommitInterval() throws BlockNotAcceptedException {
+    t = bulkImport(2);
+    Block first = cacheBlocks(5);
+
+    assertEquals(2, t.push(first));
+
+    assertEquals(Arrays.asList(101L, 102L), heights(announced));
+  }
+
+  @Test
+  public void push_stopsWhenCaughtUp() throws BlockNotAcceptedException {
+    t = bulkImport(10);
+    Block first = cacheBlocks(3);
+    stillBehind = false;
+
+    assertEquals(1, t.push(first));
+  }
+
+  @Test
+  public void push_stopsAtUnverifiedBlock() throws BlockNotAcceptedException {
+    t = bulkImport(10);
+    Block first = block(101, 100, true);
+    downloadCache.addBlock(first);
+    downloadCache.addBlock(block(102, 101, false));
+
+    assertEquals(1, t.push(first));
+  }
+
+  @Test
+  public void push_rejectedBlockCommitsBlocksBeforeIt() {
+    t = bulkImport(10);
+    Block first = cacheBlocks(4);
+    Block third = downloadCache.getNextBlock(102);
+    rejected.add(third);
+
+    try {
+      t.push(first);
+      fail();
+    } catch (BlockNotAcceptedException e) {
+      assertSame(third, ((BulkBlockNotAcceptedException) e).getBlock());
+    }
+
+    assertEquals(Arrays.asList(101L, 102L), heights(pushed));
+    verify(stores).commitTransaction();
+    verify(stores, never()).rollbackTransaction();
+    verify(blockchain).publishLastBlock();
+  }
+
+  @Test
+  public void push_announcesOnlyAfterCommit() {
+    t = bulkImport(10);
+    Block first = cacheBlocks(3);
+    rejected.add(downloadCache.getNextBlock(102));
+    // nothing may be announced while the blocks are not committed
+    doOnCommit(() -> assertEquals(Collections.emptyList(), announced));
+
+    try {
+      t.push(first);
+      fail();
+    } catch (BlockNotAcceptedException e) {
+      assertEquals(Arrays.asList(101L, 102L), heights(announced));
+    }
+  }
+
+  @Test
+  public void push_failureRollsBackAllBlocks() throws BlockNotAcceptedException {
+    t = new BulkBlockImport(stores, blockchain, downloadCache, block -> {
+      if (block.getHeight() == 102) {
+        throw new IllegalStateException();
+      }
+      pushBlock(block);
+    }, announced::add, () -> stillBehind, 10);
+    Block first = cacheBlocks(3);
+
+    try {
+      t.push(first);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+
+    verify(stores).rollbackTransaction();
+    verify(stores, never()).commitTransaction();
+    verify(stores).endTransaction();
+    verify(blockchain).discardLastBlock();
+    assertEquals(Collections.emptyList(), announced);
+    assertEquals(0, downloadCache.size());
+  }
+
+  private BulkBlockImport bulkImport(int commitInterval) {
+    return new BulkBlockImport(stores, blockchain, downloadCache, block -> {
+      if (rejected.contains(block)) {
+        // the block rolled back to its savepoint
+        throw new BlockNotAcceptedException("rejected " + block.getHeight());
+      }
+      pushBlock(block);
+    }, announced::add, () -> stillBehind, commitInterval);
+  }
+
+  private void pushBlock(Block block) {
+    pushed.add(block);
+    lastBlock = block;
+    downloadCache.removeBlock(block);
+  }
+
+  private void doOnCommit(Runnable check) {
+    doAnswer(invocation -> {
+      check.run();
+      return null;
+    }).when(stores).commitTransaction();
+  }
+
+  /**
+   * Caches verified blocks following the last block.
+   *
+   * @return the first of them
+   */
+  private Block cacheBlocks(int count) {
+    for (int height = 101; height < 101 + count; height++) {
+      downloadCache.addBlock(block(height, height - 1, true));
+    }
+    return downloadCache.getNextBlock(100);
+  }
+
+  private static List<Long> heights(List<Block> blocks) {
+    List<Long> heights = new ArrayList<>();
+    blocks.forEach(block -> heights.add((long) block.getHeight()));
+    return heights;
+  }
+
+  // block ids are their heights, to keep the chain easy to follow
+  private static Block block(int height, long previousId, boolean verified) {
+    Block block = mock(Block.class);
+    when(block.getId()).thenReturn((long) height);
+    when(block.getHeight()).thenReturn(height);
+    when(block.getPreviousBlockId()).thenReturn(previousId);
+    when(block.getByteLength()).thenReturn(1000);
+    when(block.getCumulativeDifficulty()).thenReturn(BigInteger.valueOf(height));
+    when(block.isVerified()).thenReturn(verified);
+    return block;
+  }
+}
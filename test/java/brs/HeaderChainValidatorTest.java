@@ -0,0 +1,266 @@
+package brs;
+
+import brs.crypto.Crypto;
+import brs.fluxcapacitor.FluxCapacitor;
+import brs.fluxcapacitor.FluxValues;
+import brs.peer.Peer;
+import brs.props.PropertyService;
+import brs.props.Props;
+import brs.services.BlockService;
+import brs.services.TimeService;
+import brs.util.Convert;
+import brs.util.DownloadCacheImpl;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HeaderChainValidatorTest {
+
+  private static final int BLOCK_TIME = 60;
+  private static final long BASE_TARGET = 10;
+  // the hit of a header whose deadline passed, and of one whose deadline did not
+  private static final BigInteger VALID_HIT = BigInteger.valueOf(100);
+  private static final BigInteger INVALID_HIT = BigInteger.valueOf(BLOCK_TIME * BASE_TARGET);
+
+  private HeaderChainValidator t;
+
+  private Generator generator;
+  private Peer peer;
+  private Block commonBlock;
+  private final byte[] generationSignature = new byte[32];
+
+  @BeforeClass
+  public static void setUpFluxCapacitor() throws ReflectiveOperationException {
+    // parsing a header checks the number of transactions against the limit of its height
+    FluxCapacitor fluxCapacitor = mock(FluxCapacitor.class);
+    when(fluxCapacitor.getValue(eq(FluxValues.MAX_NUMBER_TRANSACTIONS), anyInt())).thenReturn(255);
+    when(fluxCapacitor.getValue(eq(FluxValues.MAX_PAYLOAD_LENGTH), anyInt())).thenReturn(255 * 176);
+    Field field = Burst.class.getDeclaredField("fluxCapacitor");
+    field.setAccessible(true);
+    field.set(null, fluxCapacitor);
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    generator = mock(Generator.class);
+    when(generator.calculateGenerationSignature(any(), anyLong())).thenReturn(generationSignature);
+    when(generator.calculateHit(anyLong(), anyLong(), any(), anyInt(), anyInt())).thenReturn(VALID_HIT);
+
+    BlockService blockService = mock(BlockService.class);
+    doAnswer(invocation -> {
+      Block header = invocation.getArgument(0);
+      Block previous = invocation.getArgument(1);
+      header.setBaseTarget(BASE_TARGET);
+      header.setCumulativeDifficulty(previous.getCumulativeDifficulty().add(BigInteger.ONE));
+      return null;
+    }).when(blockService).calculateBaseTarget(any(), any(), any());
+
+    TimeService timeService = mock(TimeService.class);
+    when(timeService.getEpochTime()).thenReturn(Integer.MAX_VALUE / 2);
+
+    PropertyService propertyService = mock(PropertyService.class);
+    when(propertyService.getInt(eq(Props.BRS_BLOCK_CACHE_MB))).thenReturn(40);
+    DownloadCacheImpl downloadCache = new DownloadCacheImpl(propertyService, mock(FluxCapacitor.class), mock(Blockchain.class));
+
+    t = new HeaderChainValidator(blockService, generator, timeService, downloadCache);
+
+    peer = mock(Peer.class);
+    commonBlock = mock(Block.class);
+    when(commonBlock.getId()).thenReturn(1000L);
+    when(commonBlock.getHeight()).thenReturn(100);
+    when(commonBlock.getTimestamp()).thenReturn(10000);
+    when(commonBlock.getBaseTarget()).thenReturn(BASE_TARGET);
+    when(commonBlock.getGenerationSignature()).thenReturn(generationSignature);
+    when(commonBlock.getCumulativeDifficulty()).thenReturn(BigInteger.valueOf(500));
+  }
+
+  @Test
+  public void check_validChainIsConfirmed() throws Exception {
+    List<byte[]> headers = chain(5);
+    serve(headers);
+
+    assertEquals(HeaderChainValidator.Result.CONFIRMED, t.check(peer, commonBlock, null, BigInteger.valueOf(505)));
+
+    verify(peer, never()).blacklist(anyString());
+    assertEquals(VALID_HIT, t.checkBody(body(headers.get(2))));
+  }
+
+  @Test
+  public void check_noHeadersServed() {
+    assertEquals(HeaderChainValidator.Result.UNAVAILABLE, t.check(peer, commonBlock, null, BigInteger.ONE));
+  }
+
+  @Test
+  public void check_headerNotLinkingIsRejected() {
+    List<byte[]> headers = chain(3);
+    headers.set(2, header(headers.get(0), 3, 10000 + 3 * BLOCK_TIME));
+    serve(headers);
+
+    assertEquals(HeaderChainValidator.Result.REJECTED, t.check(peer, commonBlock, null, BigInteger.ONE));
+    verify(peer).blacklist(anyString());
+  }
+
+  @Test
+  public void check_deadlineNotPassedIsRejected() {
+    List<byte[]> headers = chain(3);
+    when(generator.calculateHit(anyLong(), eq(2L), any(), anyInt(), anyInt())).thenReturn(INVALID_HIT);
+    serve(headers);
+
+    assertEquals(HeaderChainValidator.Result.REJECTED, t.check(peer, commonBlock, null, BigInteger.ONE));
+    verify(peer).blacklist(anyString());
+  }
+
+  @Test
+  public void check_lessThanClaimedDifficultyIsRejected() {
+    serve(chain(3));
+
+    assertEquals(HeaderChainValidator.Result.REJECTED, t.check(peer, commonBlock, null, BigInteger.valueOf(504)));
+  }
+
+  @Test
+  public void check_forkNotBeatingOurChainIsRejected() {
+    serve(chain(3));
+
+    assertEquals(HeaderChainValidator.Result.REJECTED, t.check(peer, commonBlock, BigInteger.valueOf(503), BigInteger.valueOf(503)));
+  }
+
+  @Test
+  public void check_fullResponseChecksOnlySampledDeadlines() throws Exception {
+    List<byte[]> headers = chain(1440);
+    serve(headers);
+
+    assertEquals(HeaderChainValidator.Result.CONFIRMED, t.check(peer, commonBlock, null, BigInteger.ONE));
+
+    verify(generator, atMost(32)).calculateHit(anyLong(), anyLong(), any(), anyInt(), anyInt());
+    // the last header is always in the sample
+    assertEquals(VALID_HIT, t.checkBody(body(headers.get(1439))));
+    int withoutHit = 0;
+    for (byte[] header : headers) {
+      if (t.checkBody(body(header)) == null) {
+        withoutHit++;
+      }
+    }
+    assertEquals(1440 - 32, withoutHit);
+  }
+
+  @Test(expected = BlockchainProcessor.BlockNotAcceptedException.class)
+  public void checkBody_otherBlockAfterConfirmedHeaderIsRejected() throws Exception {
+    List<byte[]> headers = chain(3);
+    serve(headers);
+    t.check(peer, commonBlock, null, BigInteger.ONE);
+
+    Block block = mock(Block.class);
+    when(block.getPreviousBlockId()).thenReturn(id(headers.get(0)));
+    when(block.getId()).thenReturn(12345L);
+    t.checkBody(block);
+  }
+
+  @Test
+  public void checkBody_blockNotCoveredByHeaders() throws Exception {
+    Block block = mock(Block.class);
+    when(block.getPreviousBlockId()).thenReturn(999L);
+
+    assertNull(t.checkBody(block));
+  }
+
+  @Test
+  public void sampleHitChecks_fewHeadersAreAllChecked() {
+    Collection<Integer> sample = HeaderChainValidator.sampleHitChecks(5);
+
+    assertEquals(5, sample.size());
+    assertTrue(sample.contains(1) && sample.contains(5));
+  }
+
+  @Test
+  public void sampleHitChecks_manyHeadersAreSampled() {
+    Collection<Integer> sample = HeaderChainValidator.sampleHitChecks(1440);
+
+    assertEquals(32, sample.size());
+    assertTrue(sample.contains(1440));
+    for (int index : sample) {
+      assertTrue(index >= 1 && index <= 1440);
+    }
+  }
+
+  /**
+   * @return the bytes of the headers following the common block, the nonce of a header is its position
+   */
+  private List<byte[]> chain(int length) {
+    List<byte[]> headers = new ArrayList<>();
+    long previousId = commonBlock.getId();
+    for (int i = 1; i <= length; i++) {
+      byte[] header = header(previousId, i, 10000 + i * BLOCK_TIME);
+      headers.add(header);
+      previousId = id(header);
+    }
+    return headers;
+  }
+
+  private byte[] header(byte[] previous, long nonce, int timestamp) {
+    return header(id(previous), nonce, timestamp);
+  }
+
+  private byte[] header(long previousId, long nonce, int timestamp) {
+    ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + 8 + 8 + 4 + 32 + 32 + 32 + 32 + 8 + 64).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(3);
+    buffer.putInt(timestamp);
+    buffer.putLong(previousId);
+    buffer.putInt(0);
+    buffer.putLong(0);
+    buffer.putLong(0);
+    buffer.putInt(0);
+    buffer.put(new byte[32]);
+    buffer.put(new byte[32]);
+    buffer.put(generationSignature);
+    buffer.put(new byte[32]);
+    buffer.putLong(nonce);
+    buffer.put(new byte[64]);
+    return buffer.array();
+  }
+
+  private static long id(byte[] header) {
+    return Convert.fullHashToId(Crypto.sha256().digest(header));
+  }
+
+  private static Block body(byte[] header) {
+    Block block = mock(Block.class);
+    when(block.getId()).thenReturn(id(header));
+    when(block.getPreviousBlockId()).thenReturn(ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getLong(8));
+    return block;
+  }
+
+  private void serve(List<byte[]> headers) {
+    JsonArray blockHeaders = new JsonArray();
+    for (byte[] header : headers) {
+      blockHeaders.add(Convert.toHexString(header));
+    }
+    JsonObject response = new JsonObject();
+    response.add("blockHeaders", blockHeaders);
+    when(peer.send(any())).thenReturn(response);
+  }
+}
@@ -0,0 +1,90 @@
+package brs;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HitCacheTest {
+
+  private static final int HEIGHT = 100;
+
+  private HitCache t;
+
+  private final byte[] generationSignature = new byte[32];
+
+  @Before
+  public void setUp() {
+    t = new HitCache(3);
+    t.advance(generationSignature, HEIGHT);
+  }
+
+  @Test
+  public void get_returnsHitPut() {
+    t.put(1, 10, generationSignature, 5, HEIGHT, BigInteger.TEN);
+
+    assertEquals(BigInteger.TEN, t.get(1, 10, generationSignature, 5, HEIGHT));
+    assertNull(t.get(1, 10, generationSignature, 6, HEIGHT));
+    assertNull(t.get(2, 10, generationSignature, 5, HEIGHT));
+  }
+
+  @Test
+  public void put_fullCacheDropsLeastRecentlyUsed() {
+    t.put(1, 1, generationSignature, 0, HEIGHT, BigInteger.valueOf(1));
+    t.put(1, 2, generationSignature, 0, HEIGHT, BigInteger.valueOf(2));
+    t.put(1, 3, generationSignature, 0, HEIGHT, BigInteger.valueOf(3));
+    t.get(1, 1, generationSignature, 0, HEIGHT);
+
+    t.put(1, 4, generationSignature, 0, HEIGHT, BigInteger.valueOf(4));
+
+    assertEquals(BigInteger.valueOf(1), t.get(1, 1, generationSignature, 0, HEIGHT));
+    assertNull(t.get(1, 2, generationSignature, 0, HEIGHT));
+    assertEquals(BigInteger.valueOf(3), t.get(1, 3, generationSignature, 0, HEIGHT));
+    assertEquals(BigInteger.valueOf(4), t.get(1, 4, generationSignature, 0, HEIGHT));
+  }
+
+  @Test
+  public void put_otherGenerationSignatureIsNotCached() {
+    byte[] other = new byte[32];
+    other[0] = 1;
+
+    t.put(1, 10, other, 5, HEIGHT, BigInteger.TEN);
+
+    assertNull(t.get(1, 10, other, 5, HEIGHT));
+  }
+
+  @Test
+  public void advance_dropsHitsOfPreviousGeneration() {
+    t.put(1, 10, generationSignature, 5, HEIGHT, BigInteger.TEN);
+    byte[] next = new byte[32];
+    next[0] = 1;
+
+    t.advance(next, HEIGHT + 1);
+
+    assertNull(t.get(1, 10, generationSignature, 5, HEIGHT));
+    assertNull(t.get(1, 10, next, 5, HEIGHT + 1));
+  }
+
+  @Test
+  public void advance_sameGenerationKeepsHits() {
+    t.put(1, 10, generationSignature, 5, HEIGHT, BigInteger.TEN);
+
+    t.advance(generationSignature.clone(), HEIGHT);
+
+    assertEquals(BigInteger.TEN, t.get(1, 10, generationSignature, 5, HEIGHT));
+  }
+
+  @Test
+  public void clear_dropsHitsUntilNextAdvance() {
+    t.put(1, 10, generationSignature, 5, HEIGHT, BigInteger.TEN);
+
+    t.clear();
+    t.put(1, 11, generationSignature, 5, HEIGHT, BigInteger.ONE);
+
+    assertNull(t.get(1, 10, generationSignature, 5, HEIGHT));
+    assertNull(t.get(1, 11, generationSignature, 5, HEIGHT));
+  }
+}
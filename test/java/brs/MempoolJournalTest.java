@@ -0,0 +1,143 @@
+package brs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static brs.common.TransactionMocker.transaction;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+public class MempoolJournalTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private MempoolJournal t;
+
+  private Path path;
+  private final Transaction a = transaction(1).bytes(bytes(100, 1)).build();
+  private final Transaction b = transaction(2).bytes(bytes(200, 2)).build();
+  private final Transaction c = transaction(3).bytes(bytes(300, 3)).build();
+
+  @Before
+  public void setUp() {
+    path = folder.getRoot().toPath().resolve("mempool.journal");
+    t = new MempoolJournal(path.toString());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    t.close();
+  }
+
+  @Test
+  public void read_returnsAppendedTransactionsAfterRestart() throws IOException {
+    t.append(Arrays.asList(a, b));
+    t.append(Collections.singletonList(c));
+    t.close();
+
+    t = new MempoolJournal(path.toString());
+
+    assertTransactions(t.read(), a, b, c);
+  }
+
+  @Test
+  public void read_emptyJournal() {
+    assertTrue(t.read().isEmpty());
+  }
+
+  @Test
+  public void append_growsPastInitialSize() throws IOException {
+    Transaction[] transactions = new Transaction[40];
+    for (int i = 0; i < transactions.length; i++) {
+      transactions[i] = transaction(i).bytes(bytes(60000, i)).build();
+    }
+    t.append(Arrays.asList(transactions));
+    t.close();
+
+    t = new MempoolJournal(path.toString());
+
+    assertTransactions(t.read(), transactions);
+  }
+
+  @Test
+  public void compact_keepsOnlyUnconfirmedTransactions() throws IOException {
+    t.append(Arrays.asList(a, b, c));
+
+    t.compact(() -> Collections.singletonList(b));
+
+    assertTransactions(t.read(), b);
+    assertFalse(Files.exists(path.resolveSibling("mempool.journal.tmp")));
+    t.close();
+    t = new MempoolJournal(path.toString());
+    assertTransactions(t.read(), b);
+  }
+
+  @Test
+  public void compact_skippedWhileNothingAppended() {
+    AtomicInteger reads = new AtomicInteger();
+    t.append(Collections.singletonList(a));
+    t.compact(() -> {
+      reads.incrementAndGet();
+      return Collections.singletonList(a);
+    });
+
+    t.compact(() -> {
+      reads.incrementAndGet();
+      return Collections.emptyList();
+    });
+
+    assertEquals(1, reads.get());
+    assertTransactions(t.read(), a);
+  }
+
+  @Test
+  public void compact_keepsTransactionsAppendedWhileRewriting() throws Exception {
+    t.append(Arrays.asList(a, b));
+    // the rewrite asks for the bytes of b, another thread appends c then, which must not wait for it
+    AtomicBoolean appendedWhileRewriting = new AtomicBoolean();
+    when(b.getBytes()).thenAnswer(invocation -> {
+      if (appendedWhileRewriting.compareAndSet(false, true)) {
+        CompletableFuture.runAsync(() -> t.append(Collections.singletonList(c))).get(10, TimeUnit.SECONDS);
+      }
+      return bytes(200, 2);
+    });
+
+    t.compact(() -> Collections.singletonList(b));
+
+    assertTrue(appendedWhileRewriting.get());
+    assertTransactions(t.read(), b, c);
+    t.append(Collections.singletonList(a));
+    assertTransactions(t.read(), b, c, a);
+  }
+
+  private static void assertTransactions(List<byte[]> journaled, Transaction... expected) {
+    assertEquals(expected.length, journaled.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertArrayEquals(expected[i].getBytes(), journaled.get(i));
+    }
+  }
+
+  private static byte[] bytes(int length, int value) {
+    byte[] bytes = new byte[length];
+    Arrays.fill(bytes, (byte) value);
+    return bytes;
+  }
+}
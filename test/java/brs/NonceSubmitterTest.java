@@ -0,0 +1,167 @@
+package brs;
+
+import brs.grpc.proto.ApiException;
+import brs.services.AccountService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NonceSubmitterTest {
+
+  private static final String SECRET = "secret";
+  private static final int HEIGHT = 100;
+
+  private NonceSubmitter t;
+
+  private Blockchain blockchain;
+  private Generator generator;
+  private final Generator.GeneratorState state = mock(Generator.GeneratorState.class);
+
+  @Before
+  public void setUp() {
+    blockchain = mock(Blockchain.class);
+    when(blockchain.getHeight()).thenReturn(HEIGHT - 1);
+    generator = mock(Generator.class);
+    when(generator.addNonce(eq(SECRET), any(), any())).thenReturn(state);
+
+    t = new NonceSubmitter(blockchain, mock(AccountService.class), generator, 1, 1);
+  }
+
+  @After
+  public void tearDown() {
+    t.shutdown();
+  }
+
+  @Test
+  public void submit_completesWithGeneratorState() throws Exception {
+    assertSame(state, get(t.submit(SECRET, 5, 0, HEIGHT)));
+    assertSame(state, get(t.submit(SECRET, 6, 0, 0)));
+  }
+
+  @Test
+  public void submit_otherHeightIsRejected() {
+    assertRejected(t.submit(SECRET, 5, 0, HEIGHT + 1), "Given block height does not match current blockchain height");
+  }
+
+  @Test
+  public void submit_missingPassphraseIsRejected() {
+    assertRejected(t.submit("", 5, 0, HEIGHT), "Missing Passphrase");
+  }
+
+  @Test
+  public void submit_noGeneratorStateIsRejected() {
+    when(generator.addNonce(eq(SECRET), eq(5L), any())).thenReturn(null);
+
+    assertRejected(t.submit(SECRET, 5, 0, HEIGHT), "Failed to create generator");
+  }
+
+  @Test
+  public void submit_heightPassedWhileQueuedIsNotProcessed() throws Exception {
+    CountDownLatch release = blockWorker();
+    CompletableFuture<Generator.GeneratorState> queued = t.submit(SECRET, 5, 0, HEIGHT);
+
+    when(blockchain.getHeight()).thenReturn(HEIGHT);
+    release.countDown();
+
+    assertRejected(queued, "Given block height does not match current blockchain height");
+    verify(generator, never()).addNonce(eq(SECRET), eq(5L), any());
+  }
+
+  @Test
+  public void submit_sameNonceWhileQueuedIsProcessedOnce() throws Exception {
+    CountDownLatch release = blockWorker();
+    CompletableFuture<Generator.GeneratorState> first = t.submit(SECRET, 5, 0, HEIGHT);
+
+    CompletableFuture<Generator.GeneratorState> second = t.submit(SECRET, 5, 0, HEIGHT);
+    release.countDown();
+
+    assertSame(first, second);
+    assertSame(state, get(second));
+    verify(generator, times(1)).addNonce(eq(SECRET), eq(5L), any());
+  }
+
+  @Test
+  public void submit_fullQueueIsRejected() throws Exception {
+    CountDownLatch release = blockWorker();
+    CompletableFuture<Generator.GeneratorState> queued = t.submit(SECRET, 5, 0, HEIGHT);
+
+    CompletableFuture<Generator.GeneratorState> rejected = t.submit(SECRET, 6, 0, HEIGHT);
+    release.countDown();
+
+    assertRejected(rejected, "Too many nonces waiting to be processed");
+    assertSame(state, get(queued));
+  }
+
+  @Test
+  public void getBatch_returnsSubmissionsInOrder() throws Exception {
+    long batchId = t.submitBatch(SECRET, new long[] {0, 0}, new long[] {5, 6}, HEIGHT);
+
+    List<NonceSubmitter.BatchEntry> batch = t.getBatch(batchId);
+
+    assertEquals(2, batch.size());
+    assertEquals(5, batch.get(0).getNonce());
+    assertEquals(6, batch.get(1).getNonce());
+    assertSame(state, get(batch.get(0).getResult()));
+    assertNull(t.getBatch(batchId + 1));
+  }
+
+  @Test
+  public void getBatch_droppedOnceHeightPassed() {
+    long batchId = t.submitBatch(SECRET, new long[] {0}, new long[] {5}, HEIGHT);
+
+    when(blockchain.getHeight()).thenReturn(HEIGHT);
+
+    assertNull(t.getBatch(batchId));
+  }
+
+  /**
+   * Keeps the only worker busy until the returned latch is released.
+   */
+  private CountDownLatch blockWorker() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(generator.addNonce(eq(SECRET), eq(1L), any())).thenAnswer(invocation -> {
+      started.countDown();
+      release.await();
+      return state;
+    });
+    t.submit(SECRET, 1, 0, HEIGHT);
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    return release;
+  }
+
+  private static Generator.GeneratorState get(CompletableFuture<Generator.GeneratorState> result) throws Exception {
+    return result.get(10, TimeUnit.SECONDS);
+  }
+
+  private static void assertRejected(CompletableFuture<Generator.GeneratorState> result, String message) {
+    try {
+      get(result);
+      fail("Submission was not rejected");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof ApiException);
+      assertEquals(message, e.getCause().getMessage());
+    } catch (Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package brs;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScanCheckpointTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private ScanCheckpoint t;
+
+  private Path path;
+
+  @Before
+  public void setUp() {
+    path = folder.getRoot().toPath().resolve("scan.checkpoint");
+    t = new ScanCheckpoint(path.toString());
+  }
+
+  @Test
+  public void getHeight_noInterruptedScan() {
+    assertEquals(-1, t.getHeight());
+    assertFalse(t.isValidate());
+  }
+
+  @Test
+  public void save_isReadAfterRestart() {
+    t.save(1234, true);
+
+    ScanCheckpoint restarted = new ScanCheckpoint(path.toString());
+
+    assertEquals(1234, restarted.getHeight());
+    assertTrue(restarted.isValidate());
+  }
+
+  @Test
+  public void save_replacesPreviousCheckpoint() {
+    t.save(100, true);
+
+    t.save(200, false);
+
+    assertEquals(200, t.getHeight());
+    assertFalse(t.isValidate());
+    assertFalse(Files.exists(path.resolveSibling("scan.checkpoint.tmp")));
+  }
+
+  @Test
+  public void clear_endsInterruptedScan() {
+    t.save(100, false);
+
+    t.clear();
+    t.clear();
+
+    assertEquals(-1, t.getHeight());
+    assertFalse(Files.exists(path));
+  }
+}
@@ -0,0 +1,78 @@
+package brs.common;
+
+import brs.Transaction;
+import brs.TransactionType;
+import brs.transactionduplicates.TransactionDuplicationKey;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Builds mocked transactions, stubbing only what a test sets.
+ */
+public final class TransactionMocker {
+
+  private final Transaction transaction = mock(Transaction.class);
+
+  private TransactionMocker(long id) {
+    when(transaction.getId()).thenReturn(id);
+  }
+
+  public static TransactionMocker transaction(long id) {
+    return new TransactionMocker(id);
+  }
+
+  public TransactionMocker sender(long senderId) {
+    when(transaction.getSenderId()).thenReturn(senderId);
+    return this;
+  }
+
+  public TransactionMocker fee(long feeNQT) {
+    when(transaction.getFeeNQT()).thenReturn(feeNQT);
+    return this;
+  }
+
+  public TransactionMocker timestamp(int timestamp) {
+    when(transaction.getTimestamp()).thenReturn(timestamp);
+    return this;
+  }
+
+  public TransactionMocker expiration(int expiration) {
+    when(transaction.getExpiration()).thenReturn(expiration);
+    return this;
+  }
+
+  public TransactionMocker size(int size) {
+    when(transaction.getSize()).thenReturn(size);
+    return this;
+  }
+
+  public TransactionMocker bytes(byte[] bytes) {
+    when(transaction.getBytes()).thenReturn(bytes);
+    when(transaction.getSize()).thenReturn(bytes.length);
+    return this;
+  }
+
+  public TransactionMocker transType(int transType) {
+    when(transaction.getTransType()).thenReturn((byte) transType);
+    return this;
+  }
+
+  /**
+   * @param type a mocked type, answering the total amount of this transaction
+   */
+  public TransactionMocker totalAmount(TransactionType type, long totalAmountNQT) {
+    when(transaction.getType()).thenReturn(type);
+    when(type.calculateTotalAmountNQT(transaction)).thenReturn(totalAmountNQT);
+    return this;
+  }
+
+  public TransactionMocker duplicationKey(TransactionDuplicationKey duplicationKey) {
+    when(transaction.getDuplicationKey()).thenReturn(duplicationKey);
+    return this;
+  }
+
+  public Transaction build() {
+    return transaction;
+  }
+}
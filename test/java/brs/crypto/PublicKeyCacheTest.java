@@ -0,0 +1,98 @@
+package brs.crypto;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PublicKeyCacheTest {
+
+  private static final long TTL_MS = 60000;
+
+  private final AtomicInteger derivations = new AtomicInteger();
+  private final Function<String, byte[]> derive = secretPhrase -> {
+    derivations.incrementAndGet();
+    return ("key of " + secretPhrase).getBytes(StandardCharsets.UTF_8);
+  };
+  private final Function<byte[], Long> accountId = publicKey -> (long) publicKey.length;
+
+  @Before
+  public void setUp() {
+    derivations.set(0);
+  }
+
+  @Test
+  public void getPublicKey_derivesOncePerSecretPhrase() {
+    PublicKeyCache t = new PublicKeyCache(10, TTL_MS);
+
+    byte[] publicKey = t.getPublicKey("a", derive, accountId);
+    assertArrayEquals(publicKey, t.getPublicKey("a", derive, accountId));
+    assertEquals(publicKey.length, t.getAccountId("a", derive, accountId));
+    t.getAccountId("b", derive, accountId);
+
+    assertEquals(2, derivations.get());
+  }
+
+  @Test
+  public void getPublicKey_returnsACopy() {
+    PublicKeyCache t = new PublicKeyCache(10, TTL_MS);
+
+    byte[] publicKey = t.getPublicKey("a", derive, accountId);
+    byte[] expected = publicKey.clone();
+    publicKey[0] = 0;
+
+    assertArrayEquals(expected, t.getPublicKey("a", derive, accountId));
+  }
+
+  @Test
+  public void getPublicKey_derivesAgainOnceExpired() {
+    PublicKeyCache t = new PublicKeyCache(10, 0);
+
+    t.getPublicKey("a", derive, accountId);
+    t.getPublicKey("a", derive, accountId);
+
+    assertEquals(2, derivations.get());
+  }
+
+  @Test
+  public void getPublicKey_dropsTheLeastRecentlyUsedWhenFull() {
+    PublicKeyCache t = new PublicKeyCache(2, TTL_MS);
+    t.getPublicKey("a", derive, accountId);
+    t.getPublicKey("b", derive, accountId);
+    t.getPublicKey("a", derive, accountId);
+
+    t.getPublicKey("c", derive, accountId);
+    assertEquals(3, derivations.get());
+
+    t.getPublicKey("a", derive, accountId);
+    assertEquals(3, derivations.get());
+    t.getPublicKey("b", derive, accountId);
+    assertEquals(4, derivations.get());
+  }
+
+  @Test
+  public void getPublicKey_sizeZeroCachesNothing() {
+    PublicKeyCache t = new PublicKeyCache(0, TTL_MS);
+
+    t.getPublicKey("a", derive, accountId);
+    t.getPublicKey("a", derive, accountId);
+
+    assertEquals(2, derivations.get());
+  }
+
+  @Test
+  public void wipe_forgetsAllKeys() {
+    PublicKeyCache t = new PublicKeyCache(10, TTL_MS);
+    t.getPublicKey("a", derive, accountId);
+
+    t.wipe();
+    t.getPublicKey("a", derive, accountId);
+
+    assertEquals(2, derivations.get());
+  }
+}
@@ -0,0 +1,75 @@
+package brs.crypto;
+
+import brs.util.Convert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Shabal256LanesTest {
+
+  private static final String MESSAGE = "abcdefghijklmnopqrstuvwxyz-0123456789-ABCDEFGHIJKLMNOPQRSTUVWXYZ-0123456789-abcdefghijklmnopqrstuvwxyz";
+
+  private final Shabal256Lanes t = new Shabal256Lanes(4);
+
+  @Test
+  public void digest_matchesReferenceVectors() {
+    // the test vectors of the Shabal submission, as used by sphlib
+    assertEquals("aec750d11feee9f16271922fbaf5a9be142f62019ef8d720f858940070889014", Convert.toHexString(digest(new byte[0])));
+    assertEquals("b49f34bf51864c30533cc46cc2542bdec2f96fd06f5c539aff6ead5883f7327a", Convert.toHexString(digest(MESSAGE.getBytes(StandardCharsets.US_ASCII))));
+  }
+
+  @Test
+  public void digest_lanesAreIndependent() {
+    // lengths around the 64 byte block boundary
+    for (int length : new int[] {0, 1, 55, 63, 64, 65, 127, 128, 4096 + 16}) {
+      byte[][] inputs = new byte[4][length];
+      for (int l = 0; l < 4; l++) {
+        Arrays.fill(inputs[l], (byte) (l + 1));
+      }
+      byte[][] outputs = new byte[4][Shabal256Lanes.HASH_SIZE];
+
+      t.digest(inputs, 0, length, 4, outputs, 0);
+
+      for (int l = 0; l < 4; l++) {
+        assertArrayEquals("lane " + l + " length " + length, digest(inputs[l]), outputs[l]);
+      }
+    }
+  }
+
+  @Test
+  public void digest_fewerInputsThanLanes() {
+    byte[] message = MESSAGE.getBytes(StandardCharsets.US_ASCII);
+    byte[][] outputs = new byte[2][Shabal256Lanes.HASH_SIZE];
+
+    t.digest(new byte[][] {message, new byte[message.length]}, 0, message.length, 2, outputs, 0);
+
+    assertArrayEquals(digest(message), outputs[0]);
+    assertArrayEquals(digest(new byte[message.length]), outputs[1]);
+  }
+
+  @Test
+  public void digest_writesIntoInputAtOffset() {
+    byte[] message = MESSAGE.getBytes(StandardCharsets.US_ASCII);
+    byte[] data = new byte[Shabal256Lanes.HASH_SIZE + message.length];
+    System.arraycopy(message, 0, data, Shabal256Lanes.HASH_SIZE, message.length);
+
+    t.digest(new byte[][] {data}, Shabal256Lanes.HASH_SIZE, message.length, 1, new byte[][] {data}, 0);
+
+    assertArrayEquals(digest(message), Arrays.copyOf(data, Shabal256Lanes.HASH_SIZE));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void digest_moreInputsThanLanesAreRejected() {
+    t.digest(new byte[5][0], 0, 0, 5, new byte[5][Shabal256Lanes.HASH_SIZE], 0);
+  }
+
+  private static byte[] digest(byte[] message) {
+    byte[][] output = new byte[1][Shabal256Lanes.HASH_SIZE];
+    new Shabal256Lanes(1).digest(new byte[][] {message}, 0, message.length, 1, output, 0);
+    return output[0];
+  }
+}
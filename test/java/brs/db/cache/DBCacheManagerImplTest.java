@@ -0,0 +1,96 @@
+package brs.db.cache;
+
+import brs.db.BurstKey;
+import brs.props.Prop;
+import brs.props.PropertyService;
+import brs.statistics.StatisticsManagerImpl;
+import org.ehcache.Cache;
+import org.jooq.Record;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DBCacheManagerImplTest {
+
+  private DBCacheManagerImpl t;
+
+  private Cache<BurstKey, Record> accounts;
+
+  @Before
+  public void setUp() {
+    t = new DBCacheManagerImpl(cacheSize(16), mock(StatisticsManagerImpl.class));
+    accounts = t.getEntityCache("account", 16);
+  }
+
+  @After
+  public void tearDown() {
+    t.close();
+  }
+
+  @Test
+  public void putLoaded_keepsRowReadAtCurrentVersion() {
+    BurstKey key = mock(BurstKey.class);
+    Record row = mock(Record.class);
+
+    t.putLoaded("account", key, row, t.getVersion("account"));
+
+    assertSame(row, accounts.get(key));
+  }
+
+  @Test
+  public void putLoaded_dropsRowReadBeforeCommittedChange() {
+    BurstKey key = mock(BurstKey.class);
+    long version = t.getVersion("account");
+
+    t.remove("account", Collections.singleton(key));
+    t.putLoaded("account", key, mock(Record.class), version);
+
+    assertNull(accounts.get(key));
+  }
+
+  @Test
+  public void putLoaded_doesNotReplaceCachedRow() {
+    BurstKey key = mock(BurstKey.class);
+    Record row = mock(Record.class);
+
+    t.putLoaded("account", key, row, t.getVersion("account"));
+    t.putLoaded("account", key, mock(Record.class), t.getVersion("account"));
+
+    assertSame(row, accounts.get(key));
+  }
+
+  @Test
+  public void flushCache_dropsRows() {
+    BurstKey key = mock(BurstKey.class);
+
+    t.putLoaded("account", key, mock(Record.class), t.getVersion("account"));
+    t.flushCache();
+
+    assertNull(accounts.get(key));
+  }
+
+  @Test
+  public void getEntityCache_sizeZeroTurnsCacheOff() {
+    DBCacheManagerImpl disabled = new DBCacheManagerImpl(cacheSize(0), mock(StatisticsManagerImpl.class));
+    try {
+      assertNull(disabled.getEntityCache("account", 16));
+    } finally {
+      disabled.close();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static PropertyService cacheSize(int size) {
+    PropertyService propertyService = mock(PropertyService.class);
+    when(propertyService.getInt(any(Prop.class))).thenReturn(size);
+    return propertyService;
+  }
+}
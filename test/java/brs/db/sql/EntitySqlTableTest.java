@@ -0,0 +1,114 @@
+package brs.db.sql;
+
+import brs.db.BurstKey;
+import brs.db.cache.DBCacheManagerImpl;
+import brs.db.sql.TestDb.Assignment;
+import brs.db.store.DerivedTableManager;
+import brs.props.Prop;
+import brs.props.PropertyService;
+import brs.statistics.StatisticsManagerImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EntitySqlTableTest {
+
+  private EntitySqlTable<Assignment> t;
+
+  private DBCacheManagerImpl dbCacheManager;
+  private final BurstKey key = TestDb.ASSIGNMENT_KEYS.newKey(1);
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    PropertyService propertyService = mock(PropertyService.class);
+    when(propertyService.getInt(any(Prop.class))).thenReturn(16);
+    dbCacheManager = new DBCacheManagerImpl(propertyService, mock(StatisticsManagerImpl.class));
+    TestDb.init(dbCacheManager);
+    t = TestDb.assignmentTable(mock(DerivedTableManager.class));
+
+    TestDb.setHeight(10);
+    TestDb.inTransaction(() -> t.insert(new Assignment(1, 100)));
+  }
+
+  @After
+  public void tearDown() {
+    TestDb.shutdown();
+    dbCacheManager.close();
+  }
+
+  @Test
+  public void get_cacheHitIsNewInstance() {
+    Assignment first = t.get(key);
+    first.recipientId = 999;
+
+    Assignment second = t.get(key);
+
+    assertNotSame(first, second);
+    assertEquals(100, second.recipientId);
+    assertTrue(dbCacheManager.getEntityCache("reward_recip_assign", 16).containsKey(key));
+  }
+
+  @Test
+  public void get_transactionKeepsItsInstance() {
+    t.get(key);
+
+    TestDb.inTransaction(() -> assertSame(t.get(key), t.get(key)));
+  }
+
+  @Test
+  public void rollback_leavesCachedStateUnchanged() {
+    t.get(key);
+
+    try {
+      TestDb.inTransaction(() -> {
+        Assignment assignment = t.get(key);
+        assignment.recipientId = 999;
+        t.insert(assignment);
+        throw new IllegalStateException("block not accepted");
+      });
+    } catch (IllegalStateException expected) {
+    }
+
+    assertEquals(100, t.get(key).recipientId);
+  }
+
+  @Test
+  public void uncommittedChangeIsNotSeenByOtherThreads() {
+    t.get(key);
+
+    TestDb.setHeight(11);
+    TestDb.inTransaction(() -> {
+      Assignment assignment = t.get(key);
+      assignment.recipientId = 999;
+      t.insert(assignment);
+
+      assertEquals(999, t.get(key).recipientId);
+      assertEquals(100, CompletableFuture.supplyAsync(() -> t.get(key).recipientId).join().longValue());
+    });
+  }
+
+  @Test
+  public void commit_replacesCachedState() {
+    t.get(key);
+
+    TestDb.setHeight(11);
+    TestDb.inTransaction(() -> {
+      Assignment assignment = t.get(key);
+      assignment.recipientId = 999;
+      t.insert(assignment);
+    });
+
+    assertEquals(999, t.get(key).recipientId);
+  }
+}
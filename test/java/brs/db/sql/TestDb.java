@@ -0,0 +1,122 @@
+package brs.db.sql;
+
+import brs.Burst;
+import brs.BlockchainImpl;
+import brs.db.cache.DBCacheManagerImpl;
+import brs.db.store.DerivedTableManager;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.DSLContext;
+import org.jooq.Query;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static brs.schema.Tables.REWARD_RECIP_ASSIGN;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * An in-memory H2 database behind {@link Db}, holding a versioned table of reward recipient assignments for
+ * tests of the SQL tables. The migrations are written for MariaDB, so the table is created here.
+ */
+final class TestDb {
+
+  private static HikariDataSource dataSource;
+  private static BlockchainImpl blockchain;
+
+  private TestDb() {
+  }
+
+  static void init(DBCacheManagerImpl dbCacheManager) throws ReflectiveOperationException, SQLException {
+    HikariConfig config = new HikariConfig();
+    config.setJdbcUrl("jdbc:h2:mem:brs-test;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false");
+    config.setMaximumPoolSize(2);
+    dataSource = new HikariDataSource(config);
+    blockchain = mock(BlockchainImpl.class);
+
+    setStatic(Db.class, "cp", dataSource);
+    setStatic(Db.class, "dialect", SQLDialect.H2);
+    setStatic(Db.class, "dbCacheManager", dbCacheManager);
+    setStatic(Burst.class, "blockchain", blockchain);
+
+    try (Connection con = dataSource.getConnection(); Statement statement = con.createStatement()) {
+      statement.execute("DROP TABLE IF EXISTS reward_recip_assign");
+      statement.execute("CREATE TABLE reward_recip_assign (db_id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+          + "account_id BIGINT NOT NULL, prev_recip_id BIGINT NOT NULL, recip_id BIGINT NOT NULL, "
+          + "from_height INT NOT NULL, height INT NOT NULL, latest BOOLEAN DEFAULT TRUE NOT NULL)");
+    }
+  }
+
+  static void shutdown() {
+    dataSource.close();
+  }
+
+  static void setHeight(int height) {
+    when(blockchain.getHeight()).thenReturn(height);
+  }
+
+  static void inTransaction(Runnable work) {
+    Db.beginTransaction();
+    try {
+      work.run();
+      Db.commitTransaction();
+    } catch (RuntimeException e) {
+      Db.rollbackTransaction();
+      throw e;
+    } finally {
+      Db.endTransaction();
+    }
+  }
+
+  private static void setStatic(Class<?> owner, String name, Object value) throws ReflectiveOperationException {
+    Field field = owner.getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(null, value);
+  }
+
+  /**
+   * The recipient an account assigned, a new version of the row is written at every height it is saved at.
+   */
+  static final class Assignment {
+    final long accountId;
+    long recipientId;
+
+    Assignment(long accountId, long recipientId) {
+      this.accountId = accountId;
+      this.recipientId = recipientId;
+    }
+  }
+
+  static final DbKey.LongKeyFactory<Assignment> ASSIGNMENT_KEYS = new DbKey.LongKeyFactory<Assignment>(REWARD_RECIP_ASSIGN.ACCOUNT_ID) {
+    @Override
+    public DbKey newKey(Assignment assignment) {
+      return (DbKey) newKey(assignment.accountId);
+    }
+
+    @Override
+    public int getCacheSize() {
+      return 16;
+    }
+  };
+
+  static VersionedEntitySqlTable<Assignment> assignmentTable(DerivedTableManager derivedTableManager) {
+    return new VersionedEntitySqlTable<Assignment>("reward_recip_assign", REWARD_RECIP_ASSIGN, ASSIGNMENT_KEYS, derivedTableManager) {
+      @Override
+      protected Assignment load(DSLContext ctx, Record record) {
+        return new Assignment(record.get(REWARD_RECIP_ASSIGN.ACCOUNT_ID), record.get(REWARD_RECIP_ASSIGN.RECIP_ID));
+      }
+
+      @Override
+      protected Query saveQuery(DSLContext ctx, Assignment assignment) {
+        return ctx.insertInto(REWARD_RECIP_ASSIGN, REWARD_RECIP_ASSIGN.ACCOUNT_ID, REWARD_RECIP_ASSIGN.PREV_RECIP_ID,
+                REWARD_RECIP_ASSIGN.RECIP_ID, REWARD_RECIP_ASSIGN.FROM_HEIGHT, REWARD_RECIP_ASSIGN.HEIGHT, REWARD_RECIP_ASSIGN.LATEST)
+            .values(assignment.accountId, 0L, assignment.recipientId, 0, Burst.getBlockchain().getHeight(), true);
+      }
+    };
+  }
+}
@@ -0,0 +1,198 @@
+package brs.db.sql;
+
+import brs.db.BurstKey;
+import brs.db.cache.DBCacheManagerImpl;
+import brs.db.sql.TestDb.Assignment;
+import brs.db.store.DerivedTableManager;
+import org.jooq.DSLContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static brs.schema.Tables.REWARD_RECIP_ASSIGN;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class VersionedEntitySqlTableTest {
+
+  private VersionedEntitySqlTable<Assignment> t;
+
+  @Before
+  public void setUp() throws Exception {
+    TestDb.init(mock(DBCacheManagerImpl.class));
+    t = TestDb.assignmentTable(mock(DerivedTableManager.class));
+  }
+
+  @After
+  public void tearDown() {
+    TestDb.shutdown();
+  }
+
+  @Test
+  public void insert_newVersionTakesLatestFlag() {
+    save(10, new Assignment(1, 100));
+    save(11, new Assignment(1, 200));
+
+    assertEquals(listOf(10, 11), heights(1));
+    assertEquals(listOf(11), latestHeights(1));
+    assertEquals(200, t.get(TestDb.ASSIGNMENT_KEYS.newKey(1)).recipientId);
+  }
+
+  @Test
+  public void insert_leavesOtherKeysLatest() {
+    save(10, new Assignment(1, 100), new Assignment(2, 100));
+    save(11, new Assignment(1, 200));
+
+    assertEquals(listOf(11), latestHeights(1));
+    assertEquals(listOf(10), latestHeights(2));
+  }
+
+  @Test
+  public void insert_unsetsLatestOfManyKeysInOneBatch() {
+    Assignment[] assignments = new Assignment[50];
+    for (int i = 0; i < assignments.length; i++) {
+      assignments[i] = new Assignment(i + 1, 100);
+    }
+    save(10, assignments);
+    save(11, assignments);
+
+    for (int account = 1; account <= assignments.length; account++) {
+      assertEquals(listOf(11), latestHeights(account));
+    }
+  }
+
+  @Test
+  public void getCount_sendsWritesHeldBack() {
+    TestDb.setHeight(10);
+    TestDb.inTransaction(() -> {
+      t.insert(new Assignment(1, 100));
+
+      assertEquals(1, t.getCount());
+      assertEquals(listOf(10), latestHeights(1));
+    });
+  }
+
+  @Test
+  public void rollback_restoresLatestFlagOfNewestRemainingVersion() {
+    save(10, new Assignment(1, 100), new Assignment(2, 100));
+    save(11, new Assignment(1, 200));
+    save(12, new Assignment(1, 300));
+
+    TestDb.inTransaction(() -> t.rollback(10));
+
+    assertEquals(listOf(10), heights(1));
+    assertEquals(listOf(10), latestHeights(1));
+    assertEquals(listOf(10), latestHeights(2));
+    assertEquals(100, t.get(TestDb.ASSIGNMENT_KEYS.newKey(1)).recipientId);
+  }
+
+  @Test
+  public void rollback_keyCreatedAboveHeightIsGone() {
+    save(10, new Assignment(1, 100));
+    save(11, new Assignment(2, 100));
+
+    TestDb.inTransaction(() -> t.rollback(10));
+
+    assertEquals(listOf(), heights(2));
+    assertEquals(listOf(10), latestHeights(1));
+  }
+
+  @Test
+  public void rollback_versionsBelowNewestStayNotLatest() {
+    save(8, new Assignment(1, 100));
+    save(9, new Assignment(1, 200));
+    save(11, new Assignment(1, 300));
+
+    TestDb.inTransaction(() -> t.rollback(10));
+
+    assertEquals(listOf(8, 9), heights(1));
+    assertEquals(listOf(9), latestHeights(1));
+  }
+
+  @Test
+  public void rollback_nothingAboveHeightChangesNothing() {
+    save(10, new Assignment(1, 100));
+    save(11, new Assignment(1, 200));
+
+    TestDb.inTransaction(() -> t.rollback(11));
+
+    assertEquals(listOf(10, 11), heights(1));
+    assertEquals(listOf(11), latestHeights(1));
+  }
+
+  @Test
+  public void rollback_changedKeysOnlyTouchesThoseKeys() {
+    save(10, new Assignment(1, 100), new Assignment(2, 100));
+    save(11, new Assignment(1, 200), new Assignment(2, 200));
+
+    TestDb.inTransaction(() -> t.rollback(10, Collections.singletonList(TestDb.ASSIGNMENT_KEYS.newKey(1))));
+
+    assertEquals(listOf(10), heights(1));
+    assertEquals(listOf(10), latestHeights(1));
+    assertEquals(listOf(10, 11), heights(2));
+    assertEquals(listOf(11), latestHeights(2));
+  }
+
+  @Test
+  public void rollback_changedKeysThatDidNotChangeAreNoHarm() {
+    save(10, new Assignment(1, 100), new Assignment(2, 100));
+    save(11, new Assignment(1, 200));
+
+    TestDb.inTransaction(() -> t.rollback(10, Arrays.asList(TestDb.ASSIGNMENT_KEYS.newKey(1), TestDb.ASSIGNMENT_KEYS.newKey(2), TestDb.ASSIGNMENT_KEYS.newKey(3))));
+
+    assertEquals(listOf(10), latestHeights(1));
+    assertEquals(listOf(10), heights(2));
+    assertEquals(listOf(10), latestHeights(2));
+  }
+
+  @Test
+  public void rollback_changedKeysInSeveralChunks() {
+    List<BurstKey> keys = new ArrayList<>();
+    Assignment[] assignments = new Assignment[2500];
+    for (int i = 0; i < assignments.length; i++) {
+      assignments[i] = new Assignment(i + 1, 100);
+      keys.add(TestDb.ASSIGNMENT_KEYS.newKey(i + 1));
+    }
+    save(10, assignments);
+    save(11, assignments);
+
+    TestDb.inTransaction(() -> t.rollback(10, keys));
+
+    assertEquals(assignments.length, t.getRowCount());
+    assertEquals(assignments.length, t.getCount());
+    assertEquals(listOf(10), latestHeights(assignments.length));
+  }
+
+  private void save(int height, Assignment... assignments) {
+    TestDb.setHeight(height);
+    TestDb.inTransaction(() -> {
+      for (Assignment assignment : assignments) {
+        t.insert(assignment);
+      }
+    });
+  }
+
+  private List<Integer> heights(long accountId) {
+    DSLContext ctx = Db.getDSLContext();
+    return ctx.select(REWARD_RECIP_ASSIGN.HEIGHT).from(REWARD_RECIP_ASSIGN)
+        .where(REWARD_RECIP_ASSIGN.ACCOUNT_ID.eq(accountId))
+        .orderBy(REWARD_RECIP_ASSIGN.HEIGHT)
+        .fetch(REWARD_RECIP_ASSIGN.HEIGHT);
+  }
+
+  private List<Integer> latestHeights(long accountId) {
+    DSLContext ctx = Db.getDSLContext();
+    return ctx.select(REWARD_RECIP_ASSIGN.HEIGHT).from(REWARD_RECIP_ASSIGN)
+        .where(REWARD_RECIP_ASSIGN.ACCOUNT_ID.eq(accountId), REWARD_RECIP_ASSIGN.LATEST.isTrue())
+        .fetch(REWARD_RECIP_ASSIGN.HEIGHT);
+  }
+
+  private static List<Integer> listOf(Integer... heights) {
+    return Arrays.asList(heights);
+  }
+}
@@ -0,0 +1,159 @@
+package brs.db.store;
+
+import brs.Burst;
+import brs.Constants;
+import brs.db.BurstKey;
+import brs.db.DerivedTable;
+import brs.props.PropertyService;
+import brs.props.Props;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UndoLogTest {
+
+  private UndoLog t;
+
+  private DerivedTable accounts;
+  private DerivedTable assets;
+
+  @BeforeClass
+  public static void setUpConstants() throws ReflectiveOperationException {
+    // Constants reads the maximum rollback from the properties of the running node
+    PropertyService propertyService = mock(PropertyService.class);
+    when(propertyService.getInt(eq(Props.DB_MAX_ROLLBACK))).thenReturn(1440);
+    Field field = Burst.class.getDeclaredField("propertyService");
+    field.setAccessible(true);
+    if (field.get(null) == null) {
+      field.set(null, propertyService);
+    }
+  }
+
+  @Before
+  public void setUp() {
+    t = new UndoLog();
+    accounts = mock(DerivedTable.class);
+    assets = mock(DerivedTable.class);
+  }
+
+  @Test
+  public void changesAbove_beforeStartIsNotCovered() {
+    t.record(accounts, 10, key(1));
+
+    assertNull(t.changesAbove(9));
+  }
+
+  @Test
+  public void changesAbove_belowCoveredHeightIsNotCovered() {
+    t.start(100);
+    t.record(accounts, 101, key(1));
+
+    assertNull(t.changesAbove(99));
+  }
+
+  @Test
+  public void changesAbove_collectsKeysByTableAboveTheHeight() {
+    t.start(100);
+    t.record(accounts, 101, key(1));
+    t.record(accounts, 102, key(2));
+    t.record(accounts, 102, key(1));
+    t.record(assets, 103, key(3));
+
+    Map<DerivedTable, Set<BurstKey>> changes = t.changesAbove(100);
+
+    assertEquals(2, changes.size());
+    assertEquals(keys(1, 2), changes.get(accounts));
+    assertEquals(keys(3), changes.get(assets));
+  }
+
+  @Test
+  public void changesAbove_leavesOutTheHeightItself() {
+    t.start(100);
+    t.record(accounts, 101, key(1));
+    t.record(assets, 102, key(2));
+
+    Map<DerivedTable, Set<BurstKey>> changes = t.changesAbove(101);
+
+    assertEquals(Collections.singletonMap(assets, keys(2)), changes);
+  }
+
+  @Test
+  public void changesAbove_nothingChangedIsEmpty() {
+    t.start(100);
+
+    assertTrue(t.changesAbove(100).isEmpty());
+  }
+
+  @Test
+  public void rollback_dropsTheHeightsAbove() {
+    t.start(100);
+    t.record(accounts, 101, key(1));
+    t.record(accounts, 102, key(2));
+
+    t.rollback(101);
+
+    assertEquals(keys(1), t.changesAbove(100).get(accounts));
+    assertTrue(t.changesAbove(101).isEmpty());
+  }
+
+  @Test
+  public void record_prunesHeightsOlderThanTheMaximumRollback() {
+    t.start(100);
+    t.record(accounts, 101, key(1));
+    t.record(accounts, 102, key(2));
+    t.record(accounts, 102 + Constants.MAX_ROLLBACK, key(3));
+
+    // the oldest recorded heights are gone, so are rollbacks reaching down to them
+    assertNull(t.changesAbove(100));
+    assertNull(t.changesAbove(101));
+    assertEquals(keys(3), t.changesAbove(102).get(accounts));
+  }
+
+  private static BurstKey key(long id) {
+    return new TestKey(id);
+  }
+
+  private static Set<BurstKey> keys(long... ids) {
+    Set<BurstKey> keys = new HashSet<>();
+    for (long id : ids) {
+      keys.add(key(id));
+    }
+    return keys;
+  }
+
+  private static final class TestKey implements BurstKey {
+    private final long id;
+
+    private TestKey(long id) {
+      this.id = id;
+    }
+
+    @Override
+    public long[] getPKValues() {
+      return new long[]{id};
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof TestKey && ((TestKey) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(id);
+    }
+  }
+}
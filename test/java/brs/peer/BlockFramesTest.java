@@ -0,0 +1,156 @@
+package brs.peer;
+
+import brs.Block;
+import brs.Transaction;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlockFramesTest {
+
+  @Test
+  public void read_returnsWrittenBlocks() throws IOException {
+    Block block1 = block(3, 11, bytes(40, 1), bytes(10, 2), bytes(20, 3));
+    Block block2 = block(3, 22, bytes(50, 4));
+
+    BlockFrames t = BlockFrames.read(new ByteArrayInputStream(write(block1, block2)));
+
+    assertTrue(t.isBinary());
+    assertEquals(2, t.size());
+    assertArrayEquals(block1.getBytes(), toArray(t.getFrame(0).getBlockBytes()));
+    List<ByteBuffer> transactions = t.getFrame(0).getTransactionBytes();
+    assertEquals(2, transactions.size());
+    assertArrayEquals(bytes(10, 2), toArray(transactions.get(0)));
+    assertArrayEquals(bytes(20, 3), toArray(transactions.get(1)));
+    assertEquals(4 + 40 + 4 + 4 + 10 + 4 + 20, t.getFrame(0).getLength());
+    assertEquals(Collections.emptyList(), t.getFrame(1).getTransactionBytes());
+  }
+
+  @Test
+  public void getPreviousBlockId_readsBlockHeader() throws IOException {
+    BlockFrames t = BlockFrames.read(new ByteArrayInputStream(write(block(3, 1234567L))));
+
+    assertEquals(1234567L, t.getPreviousBlockId(0));
+  }
+
+  @Test
+  public void getBlockBytes_isLittleEndian() throws IOException {
+    BlockFrames t = BlockFrames.read(new ByteArrayInputStream(write(block(3, 1))));
+
+    assertEquals(ByteOrder.LITTLE_ENDIAN, t.getFrame(0).getBlockBytes().order());
+  }
+
+  @Test
+  public void read_largerThanInitialBuffer() throws IOException {
+    Block block = block(3, 1, bytes(40, 0), bytes(100 * 1024, 7));
+
+    BlockFrames t = BlockFrames.read(new ByteArrayInputStream(write(block)));
+
+    assertArrayEquals(bytes(100 * 1024, 7), toArray(t.getFrame(0).getTransactionBytes().get(0)));
+  }
+
+  @Test
+  public void read_exactlyMaxBytes() throws IOException {
+    byte[] data = write(block(3, 1));
+
+    assertEquals(1, BlockFrames.read(new ByteArrayInputStream(data), data.length).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_longerThanMaxBytesIsRejected() throws IOException {
+    byte[] data = write(block(3, 1));
+
+    BlockFrames.read(new ByteArrayInputStream(data), data.length - 1);
+  }
+
+  @Test
+  public void maxResponseBytes_coversLargestBlocks() {
+    assertTrue(BlockFrames.MAX_RESPONSE_BYTES > BlockFrames.MAX_BLOCKS * 1020 * 176);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_tooManyBlocksIsRejected() {
+    BlockFrames.read(ByteBuffer.allocate(4).putInt(0, BlockFrames.MAX_BLOCKS + 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_truncatedFrameIsRejected() throws IOException {
+    byte[] data = write(block(3, 1, bytes(40, 0), bytes(10, 1)));
+
+    BlockFrames.read(ByteBuffer.wrap(Arrays.copyOf(data, data.length - 1)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_frameLengthPastEndIsRejected() {
+    ByteBuffer data = ByteBuffer.allocate(12).putInt(1).putInt(100).putInt(0);
+    data.flip();
+
+    BlockFrames.read(data);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void read_trailingBytesAreRejected() throws IOException {
+    byte[] data = write(block(3, 1));
+
+    BlockFrames.read(ByteBuffer.wrap(Arrays.copyOf(data, data.length + 1)));
+  }
+
+  @Test
+  public void canEncode_onlyFromVersion3() {
+    assertTrue(BlockFrames.canEncode(Arrays.asList(block(3, 1), block(4, 2))));
+    assertFalse(BlockFrames.canEncode(Arrays.asList(block(3, 1), block(2, 2))));
+  }
+
+  private static byte[] write(Block... blocks) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BlockFrames.write(Arrays.asList(blocks), out);
+    return out.toByteArray();
+  }
+
+  /**
+   * A block whose bytes carry the previous block id where {@link Block#getBytes()} has it.
+   */
+  private static Block block(int version, long previousBlockId) {
+    return block(version, previousBlockId, bytes(40, 0));
+  }
+
+  private static Block block(int version, long previousBlockId, byte[] blockBytes, byte[]... transactionBytes) {
+    ByteBuffer.wrap(blockBytes).order(ByteOrder.LITTLE_ENDIAN).putLong(8, previousBlockId);
+    Block block = mock(Block.class);
+    when(block.getVersion()).thenReturn(version);
+    when(block.getBytes()).thenReturn(blockBytes);
+    Transaction[] transactions = new Transaction[transactionBytes.length];
+    for (int i = 0; i < transactionBytes.length; i++) {
+      transactions[i] = mock(Transaction.class);
+      when(transactions[i].getBytes()).thenReturn(transactionBytes[i]);
+    }
+    when(block.getTransactions()).thenReturn(Arrays.asList(transactions));
+    return block;
+  }
+
+  private static byte[] bytes(int length, int value) {
+    byte[] bytes = new byte[length];
+    Arrays.fill(bytes, (byte) value);
+    return bytes;
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+}
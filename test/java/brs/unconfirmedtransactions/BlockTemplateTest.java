@@ -0,0 +1,134 @@
+package brs.unconfirmedtransactions;
+
+import brs.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static brs.Constants.FEE_QUANT;
+import static brs.common.TransactionMocker.transaction;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BlockTemplateTest {
+
+  private static final int BLOCK_TIMESTAMP = 1000;
+
+  private BlockTemplate t;
+
+  @Before
+  public void setUp() {
+    t = new BlockTemplate();
+  }
+
+  @Test
+  public void slotOf_isTheFeeInQuants() {
+    assertEquals(1, BlockTemplate.slotOf(transaction(1).fee(FEE_QUANT).build()));
+    assertEquals(2, BlockTemplate.slotOf(transaction(2).fee(2 * FEE_QUANT + FEE_QUANT / 2).build()));
+  }
+
+  @Test
+  public void slotOf_multiOutTransactionsShareTheirOwnSlot() {
+    assertEquals(BlockTemplate.MULTI_OUT_SLOT, BlockTemplate.slotOf(transaction(1).fee(FEE_QUANT).transType(1).build()));
+    assertEquals(BlockTemplate.MULTI_OUT_SLOT, BlockTemplate.slotOf(transaction(2).fee(FEE_QUANT).transType(3).build()));
+  }
+
+  @Test
+  public void priority_growsWithAgeAndFee() {
+    Transaction older = transaction(1).fee(FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).build();
+    Transaction newer = transaction(2).fee(FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 5).build();
+    Transaction pricier = transaction(3).fee(2 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 5).build();
+
+    assertTrue(BlockTemplate.priority(older, BLOCK_TIMESTAMP) > BlockTemplate.priority(newer, BLOCK_TIMESTAMP));
+    assertTrue(BlockTemplate.priority(pricier, BLOCK_TIMESTAMP) > BlockTemplate.priority(newer, BLOCK_TIMESTAMP));
+  }
+
+  @Test
+  public void fillSlots_emptyTemplateFillsNothing() {
+    assertTrue(t.fillSlots(BLOCK_TIMESTAMP, transaction -> true).isEmpty());
+  }
+
+  @Test
+  public void fillSlots_everySlotGetsItsHighestPriorityTransaction() {
+    Transaction slot1 = transaction(1).fee(FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).build();
+    Transaction slot2Older = transaction(2).fee(2 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).build();
+    Transaction slot2Newer = transaction(3).fee(2 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 5).build();
+    t.add(slot1);
+    t.add(slot2Newer);
+    t.add(slot2Older);
+
+    SortedMap<Long, Transaction> expected = new TreeMap<>();
+    expected.put(1L, slot1);
+    expected.put(2L, slot2Older);
+    assertEquals(expected, t.fillSlots(BLOCK_TIMESTAMP, transaction -> true));
+  }
+
+  @Test
+  public void fillSlots_emptySlotsAreFilledFromTheClosestSlotAbove() {
+    Transaction slot2 = transaction(1).fee(2 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).build();
+    Transaction slot4First = transaction(2).fee(4 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).build();
+    Transaction slot4Second = transaction(3).fee(4 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 5).build();
+    t.add(slot2);
+    t.add(slot4First);
+    t.add(slot4Second);
+
+    SortedMap<Long, Transaction> expected = new TreeMap<>();
+    expected.put(4L, slot4First);
+    expected.put(3L, slot4Second);
+    expected.put(2L, slot2);
+    assertEquals(expected, t.fillSlots(BLOCK_TIMESTAMP, transaction -> true));
+  }
+
+  @Test
+  public void fillSlots_stopsOnceNoTransactionIsLeft() {
+    Transaction slot3 = transaction(1).fee(3 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).build();
+    t.add(slot3);
+
+    SortedMap<Long, Transaction> filled = t.fillSlots(BLOCK_TIMESTAMP, transaction -> true);
+
+    assertEquals(1, filled.size());
+    assertEquals(slot3, filled.get(3L));
+  }
+
+  @Test
+  public void fillSlots_skipsTransactionsThatAreNotEligible() {
+    Transaction ineligible = transaction(1).fee(2 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).build();
+    Transaction eligible = transaction(2).fee(2 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 5).build();
+    Transaction onlyIneligible = transaction(3).fee(5 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 5).build();
+    t.add(ineligible);
+    t.add(eligible);
+    t.add(onlyIneligible);
+
+    SortedMap<Long, Transaction> filled = t.fillSlots(BLOCK_TIMESTAMP, transaction -> transaction == eligible);
+
+    assertEquals(1, filled.size());
+    assertEquals(eligible, filled.get(2L));
+  }
+
+  @Test
+  public void remove_takesTheTransactionOutOfItsSlot() {
+    Transaction slot1 = transaction(1).fee(FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).build();
+    Transaction slot2 = transaction(2).fee(2 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).build();
+    t.add(slot1);
+    t.add(slot2);
+
+    t.remove(slot2);
+    t.remove(transaction(3).fee(3 * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).build());
+
+    SortedMap<Long, Transaction> filled = t.fillSlots(BLOCK_TIMESTAMP, transaction -> true);
+    assertEquals(1, filled.size());
+    assertEquals(slot1, filled.get(1L));
+  }
+
+  @Test
+  public void clear_dropsAllTransactions() {
+    t.add(transaction(1).fee(FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).build());
+    t.add(transaction(2).fee(BlockTemplate.MULTI_OUT_SLOT * FEE_QUANT).timestamp(BLOCK_TIMESTAMP - 10).transType(1).build());
+
+    t.clear();
+
+    assertTrue(t.fillSlots(BLOCK_TIMESTAMP, transaction -> true).isEmpty());
+  }
+}
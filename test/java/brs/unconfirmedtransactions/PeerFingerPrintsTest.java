@@ -0,0 +1,144 @@
+package brs.unconfirmedtransactions;
+
+import brs.Transaction;
+import brs.peer.Peer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static brs.common.TransactionMocker.transaction;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class PeerFingerPrintsTest {
+
+  private PeerFingerPrints t;
+
+  private Peer peer1;
+  private Peer peer2;
+
+  @Before
+  public void setUp() {
+    t = new PeerFingerPrints();
+    peer1 = mock(Peer.class);
+    peer2 = mock(Peer.class);
+  }
+
+  @Test
+  public void unseenBy_returnsTransactionsInArrivalOrder() {
+    Transaction tx1 = transaction(1).size(100).build();
+    Transaction tx2 = transaction(2).size(100).build();
+    Transaction tx3 = transaction(3).size(100).build();
+    t.add(tx2, null);
+    t.add(tx1, null);
+    t.add(tx3, null);
+
+    assertEquals(Arrays.asList(tx2, tx1, tx3), t.unseenBy(peer1, 1000));
+  }
+
+  @Test
+  public void unseenBy_leavesOutWhatThePeerSentOrWasSent() {
+    Transaction tx1 = transaction(1).size(100).build();
+    Transaction tx2 = transaction(2).size(100).build();
+    Transaction tx3 = transaction(3).size(100).build();
+    t.add(tx1, peer1);
+    t.add(tx2, null);
+    t.add(tx3, null);
+    t.mark(peer1, tx3);
+
+    assertEquals(Collections.singletonList(tx2), t.unseenBy(peer1, 1000));
+    assertEquals(Arrays.asList(tx1, tx2, tx3), t.unseenBy(peer2, 1000));
+  }
+
+  @Test
+  public void unseenBy_staysBelowTheMaximumBytes() {
+    Transaction tx1 = transaction(1).size(100).build();
+    Transaction tx2 = transaction(2).size(100).build();
+    Transaction tx3 = transaction(3).size(100).build();
+    t.add(tx1, null);
+    t.add(tx2, null);
+    t.add(tx3, null);
+
+    assertEquals(Arrays.asList(tx1, tx2), t.unseenBy(peer1, 250));
+  }
+
+  @Test
+  public void unseenBy_findsTransactionsAddedAfterTheWatermarkMoved() {
+    Transaction tx1 = transaction(1).size(100).build();
+    Transaction tx2 = transaction(2).size(100).build();
+    t.add(tx1, peer1);
+    assertTrue(t.unseenBy(peer1, 1000).isEmpty());
+
+    t.add(tx2, null);
+
+    assertEquals(Collections.singletonList(tx2), t.unseenBy(peer1, 1000));
+  }
+
+  @Test
+  public void remove_leavesOutTheTransaction() {
+    Transaction tx1 = transaction(1).size(100).build();
+    Transaction tx2 = transaction(2).size(100).build();
+    t.add(tx1, null);
+    t.add(tx2, null);
+
+    t.remove(tx1);
+
+    assertEquals(Collections.singletonList(tx2), t.unseenBy(peer1, 1000));
+  }
+
+  @Test
+  public void mark_ofUnknownTransactionIsIgnored() {
+    Transaction tx1 = transaction(1).size(100).build();
+    t.mark(peer1, tx1);
+    t.add(tx1, null);
+
+    assertEquals(Collections.singletonList(tx1), t.unseenBy(peer1, 1000));
+  }
+
+  @Test
+  public void clear_dropsAllTransactions() {
+    t.add(transaction(1).size(100).build(), null);
+    t.add(transaction(2).size(100).build(), peer1);
+
+    t.clear();
+
+    assertTrue(t.unseenBy(peer1, 1000).isEmpty());
+    assertTrue(t.unseenBy(peer2, 1000).isEmpty());
+  }
+
+  @Test
+  public void forget_peerStartsOverWhenItComesBack() {
+    Transaction tx1 = transaction(1).size(100).build();
+    t.add(tx1, peer1);
+
+    t.forget(peer1);
+
+    assertEquals(Collections.singletonList(tx1), t.unseenBy(peer1, 1000));
+  }
+
+  @Test
+  public void forget_reusedSlotsDoNotCarryTheFingerPrintsOfForgottenPeers() {
+    Transaction tx1 = transaction(1).size(100).build();
+    t.add(tx1, null);
+
+    // enough peers for their slots to be cleared and handed out again
+    List<Peer> forgotten = new ArrayList<>();
+    for (int i = 0; i < 64; i++) {
+      Peer peer = mock(Peer.class);
+      t.mark(peer, tx1);
+      forgotten.add(peer);
+    }
+    for (Peer peer : forgotten) {
+      t.forget(peer);
+    }
+
+    for (int i = 0; i < 64; i++) {
+      assertEquals(Collections.singletonList(tx1), t.unseenBy(mock(Peer.class), 1000));
+    }
+  }
+}
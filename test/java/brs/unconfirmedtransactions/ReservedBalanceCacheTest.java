@@ -0,0 +1,159 @@
+package brs.unconfirmedtransactions;
+
+import brs.Account;
+import brs.BurstException;
+import brs.Transaction;
+import brs.TransactionType;
+import brs.db.BurstKey;
+import brs.db.VersionedBatchEntityTable;
+import brs.db.store.AccountStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static brs.common.TransactionMocker.transaction;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReservedBalanceCacheTest {
+
+  private static final long SENDER_1 = 1L;
+  private static final long SENDER_2 = 2L;
+
+  private ReservedBalanceCache t;
+
+  private AccountStore accountStore;
+  private VersionedBatchEntityTable<Account> accountTable;
+  private BurstKey.LongKeyFactory<Account> accountKeyFactory;
+  private TransactionType transactionType;
+  private final Map<Long, Account> accounts = new HashMap<>();
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    accountStore = mock(AccountStore.class);
+    accountTable = mock(VersionedBatchEntityTable.class);
+    accountKeyFactory = mock(BurstKey.LongKeyFactory.class);
+    transactionType = mock(TransactionType.class);
+
+    when(accountStore.getAccountTable()).thenReturn(accountTable);
+    when(accountStore.getAccountKeyFactory()).thenReturn(accountKeyFactory);
+    when(accountStore.getAccounts(any())).thenReturn(accounts);
+
+    t = new ReservedBalanceCache(accountStore);
+  }
+
+  @Test
+  public void reserveBalanceAndPut_withinBalance() throws BurstException.ValidationException {
+    account(SENDER_1, 100);
+
+    t.reserveBalanceAndPut(transaction(1).sender(SENDER_1).totalAmount(transactionType, 60).build());
+    t.reserveBalanceAndPut(transaction(2).sender(SENDER_1).totalAmount(transactionType, 40).build());
+  }
+
+  @Test(expected = BurstException.NotCurrentlyValidException.class)
+  public void reserveBalanceAndPut_beyondBalanceIsRefused() throws BurstException.ValidationException {
+    account(SENDER_1, 100);
+
+    t.reserveBalanceAndPut(transaction(1).sender(SENDER_1).totalAmount(transactionType, 60).build());
+    t.reserveBalanceAndPut(transaction(2).sender(SENDER_1).totalAmount(transactionType, 41).build());
+  }
+
+  @Test
+  public void reserveBalanceAndPut_beyondBalanceIsNotCheckedForOtherTransTypes() throws BurstException.ValidationException {
+    account(SENDER_1, 100);
+
+    t.reserveBalanceAndPut(transaction(1).sender(SENDER_1).totalAmount(transactionType, 60).transType(1).build());
+    t.reserveBalanceAndPut(transaction(2).sender(SENDER_1).totalAmount(transactionType, 60).transType(1).build());
+  }
+
+  @Test(expected = BurstException.NotCurrentlyValidException.class)
+  public void reserveBalanceAndPut_unknownAccountIsRefused() throws BurstException.ValidationException {
+    t.reserveBalanceAndPut(transaction(1).sender(SENDER_1).totalAmount(transactionType, 1).build());
+  }
+
+  @Test
+  public void refundBalance_makesRoomForOtherTransactions() throws BurstException.ValidationException {
+    account(SENDER_1, 100);
+    Transaction tx1 = transaction(1).sender(SENDER_1).totalAmount(transactionType, 60).build();
+    t.reserveBalanceAndPut(tx1);
+
+    t.refundBalance(tx1);
+
+    t.reserveBalanceAndPut(transaction(2).sender(SENDER_1).totalAmount(transactionType, 100).build());
+  }
+
+  @Test
+  public void rebuild_returnsTheTransactionsTheBalanceDoesNotCover() {
+    account(SENDER_1, 100);
+    account(SENDER_2, 100);
+    Transaction tx1 = transaction(1).sender(SENDER_1).totalAmount(transactionType, 60).build();
+    Transaction tx2 = transaction(2).sender(SENDER_1).totalAmount(transactionType, 60).build();
+    Transaction tx3 = transaction(3).sender(SENDER_2).totalAmount(transactionType, 100).build();
+
+    assertEquals(Collections.singletonList(tx2), t.rebuild(Arrays.asList(tx1, tx2, tx3)));
+  }
+
+  @Test
+  public void rebuild_forgetsFormerReservations() throws BurstException.ValidationException {
+    account(SENDER_1, 100);
+    t.reserveBalanceAndPut(transaction(1).sender(SENDER_1).totalAmount(transactionType, 100).build());
+
+    assertTrue(t.rebuild(Collections.emptyList()).isEmpty());
+
+    t.reserveBalanceAndPut(transaction(2).sender(SENDER_1).totalAmount(transactionType, 100).build());
+  }
+
+  @Test
+  public void revalidate_reservesTheGivenAccountsAgain() throws BurstException.ValidationException {
+    account(SENDER_1, 100);
+    Transaction tx1 = transaction(1).sender(SENDER_1).totalAmount(transactionType, 60).build();
+    Transaction tx2 = transaction(2).sender(SENDER_1).totalAmount(transactionType, 30).build();
+    t.reserveBalanceAndPut(tx1);
+    t.reserveBalanceAndPut(tx2);
+
+    account(SENDER_1, 70);
+
+    assertEquals(Collections.singletonList(tx2), t.revalidate(Collections.singleton(SENDER_1), Arrays.asList(tx1, tx2)));
+  }
+
+  @Test(expected = BurstException.NotCurrentlyValidException.class)
+  public void revalidate_leavesTheReservationsOfOtherAccounts() throws BurstException.ValidationException {
+    account(SENDER_1, 100);
+    account(SENDER_2, 100);
+    Transaction tx1 = transaction(1).sender(SENDER_1).totalAmount(transactionType, 60).build();
+    Transaction tx2 = transaction(2).sender(SENDER_2).totalAmount(transactionType, 60).build();
+    t.reserveBalanceAndPut(tx1);
+    t.reserveBalanceAndPut(tx2);
+
+    assertTrue(t.revalidate(Collections.singleton(SENDER_1), Arrays.asList(tx1, tx2)).isEmpty());
+
+    t.reserveBalanceAndPut(transaction(3).sender(SENDER_2).totalAmount(transactionType, 60).build());
+  }
+
+  @Test
+  public void clear_dropsAllReservations() throws BurstException.ValidationException {
+    account(SENDER_1, 100);
+    t.reserveBalanceAndPut(transaction(1).sender(SENDER_1).totalAmount(transactionType, 100).build());
+
+    t.clear();
+
+    t.reserveBalanceAndPut(transaction(2).sender(SENDER_1).totalAmount(transactionType, 100).build());
+  }
+
+  private void account(long id, long unconfirmedBalanceNQT) {
+    Account account = mock(Account.class);
+    when(account.getUnconfirmedBalanceNQT()).thenReturn(unconfirmedBalanceNQT);
+    BurstKey key = mock(BurstKey.class);
+    when(accountKeyFactory.newKey(id)).thenReturn(key);
+    when(accountTable.get(key)).thenReturn(account);
+    accounts.put(id, account);
+  }
+}
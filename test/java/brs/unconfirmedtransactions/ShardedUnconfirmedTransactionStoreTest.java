@@ -0,0 +1,255 @@
+package brs.unconfirmedtransactions;
+
+import brs.Account;
+import brs.BurstException;
+import brs.Transaction;
+import brs.TransactionType;
+import brs.db.BurstKey;
+import brs.db.VersionedBatchEntityTable;
+import brs.db.store.AccountStore;
+import brs.peer.Peer;
+import brs.props.PropertyService;
+import brs.props.Props;
+import brs.services.TimeService;
+import brs.transactionduplicates.TransactionDuplicationKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static brs.Constants.FEE_QUANT;
+import static brs.common.TransactionMocker.transaction;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ShardedUnconfirmedTransactionStoreTest {
+
+  private static final int NOW = 1000;
+  private static final int MAX_SIZE = 3;
+
+  private static final long SENDER_1 = 1L;
+  private static final long SENDER_2 = 2L;
+
+  private ShardedUnconfirmedTransactionStore t;
+
+  private VersionedBatchEntityTable<Account> accountTable;
+  private BurstKey.LongKeyFactory<Account> accountKeyFactory;
+  private TransactionType transactionType;
+  private final Map<Long, Account> accounts = new HashMap<>();
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    TimeService timeService = mock(TimeService.class);
+    when(timeService.getEpochTime()).thenReturn(NOW);
+
+    PropertyService propertyService = mock(PropertyService.class);
+    when(propertyService.getInt(Props.P2P_MAX_UNCONFIRMED_TRANSACTIONS)).thenReturn(MAX_SIZE);
+    when(propertyService.getInt(Props.P2P_MAX_UNCONFIRMED_TRANSACTIONS_RAW_SIZE_BYTES_TO_SEND)).thenReturn(175000);
+    when(propertyService.getInt(Props.P2P_MAX_PERCENTAGE_UNCONFIRMED_TRANSACTIONS_FULL_HASH_REFERENCE)).thenReturn(5);
+
+    AccountStore accountStore = mock(AccountStore.class);
+    accountTable = mock(VersionedBatchEntityTable.class);
+    accountKeyFactory = mock(BurstKey.LongKeyFactory.class);
+    when(accountStore.getAccountTable()).thenReturn(accountTable);
+    when(accountStore.getAccountKeyFactory()).thenReturn(accountKeyFactory);
+    when(accountStore.getAccounts(any())).thenReturn(accounts);
+
+    transactionType = mock(TransactionType.class);
+
+    account(SENDER_1, 1000);
+    account(SENDER_2, 1000);
+
+    t = new ShardedUnconfirmedTransactionStore(timeService, propertyService, accountStore);
+  }
+
+  @Test
+  public void put_makesTheTransactionAvailable() throws BurstException.ValidationException {
+    Transaction tx1 = unconfirmed(1, SENDER_1, 2, 10);
+
+    assertTrue(t.put(tx1, null));
+
+    assertEquals(tx1, t.get(1L));
+    assertTrue(t.exists(1L));
+    assertEquals(Collections.singletonList(tx1), t.getAll());
+    assertEquals(1, t.getAmount());
+    assertEquals(tx1, t.getBlockTemplate().fillSlots(NOW, transaction -> true).get(2L));
+  }
+
+  @Test
+  public void put_sameTransactionTwiceIsNotAddedAgain() throws BurstException.ValidationException {
+    Transaction tx1 = unconfirmed(1, SENDER_1, 2, 10);
+    Peer peer = mock(Peer.class);
+
+    assertTrue(t.put(tx1, null));
+    assertFalse(t.put(tx1, peer));
+
+    assertEquals(1, t.getAmount());
+    // the peer that sent it already has it
+    assertTrue(t.getAllFor(peer).isEmpty());
+  }
+
+  @Test
+  public void put_expiredTransactionIsNotAdded() throws BurstException.ValidationException {
+    Transaction expired = unconfirmed(1, SENDER_1, 2, 10);
+    when(expired.getExpiration()).thenReturn(NOW);
+
+    assertFalse(t.put(expired, null));
+    assertFalse(t.exists(1L));
+  }
+
+  @Test(expected = BurstException.NotCurrentlyValidException.class)
+  public void put_transactionTheBalanceDoesNotCoverIsRefused() throws BurstException.ValidationException {
+    t.put(unconfirmed(1, SENDER_1, 2, 600), null);
+    t.put(unconfirmed(2, SENDER_1, 2, 600), null);
+  }
+
+  @Test
+  public void put_fullStoreEvictsTheCheapestTransaction() throws BurstException.ValidationException {
+    Transaction tx1 = unconfirmed(1, SENDER_1, 1, 10);
+    Transaction tx2 = unconfirmed(2, SENDER_1, 2, 10);
+    Transaction tx3 = unconfirmed(3, SENDER_1, 3, 10);
+    Transaction tx4 = unconfirmed(4, SENDER_2, 4, 10);
+    t.put(tx3, null);
+    t.put(tx1, null);
+    t.put(tx2, null);
+
+    assertTrue(t.put(tx4, null));
+
+    assertEquals(Arrays.asList(tx2, tx3, tx4), t.getAll());
+    assertEquals(MAX_SIZE, t.getAmount());
+  }
+
+  @Test
+  public void put_fullStoreRefusesTransactionsCheaperThanAllTheRest() throws BurstException.ValidationException {
+    t.put(unconfirmed(1, SENDER_1, 2, 10), null);
+    t.put(unconfirmed(2, SENDER_1, 3, 10), null);
+    t.put(unconfirmed(3, SENDER_1, 4, 10), null);
+
+    assertFalse(t.put(unconfirmed(4, SENDER_2, 1, 10), null));
+
+    assertFalse(t.exists(4L));
+    assertEquals(MAX_SIZE, t.getAmount());
+  }
+
+  @Test
+  public void put_moreExpensiveDuplicateReplacesTheCheaperOne() throws BurstException.ValidationException {
+    Transaction cheaper = unconfirmed(1, SENDER_1, 2, 600);
+    Transaction pricier = unconfirmed(2, SENDER_1, 3, 400);
+    TransactionDuplicationKey duplicationKey = new TransactionDuplicationKey(transactionType, "alias");
+    when(cheaper.getDuplicationKey()).thenReturn(duplicationKey);
+    when(pricier.getDuplicationKey()).thenReturn(duplicationKey);
+
+    t.put(cheaper, null);
+    assertTrue(t.put(pricier, null));
+
+    assertEquals(Collections.singletonList(pricier), t.getAll());
+    // the balance reserved by the replaced transaction was refunded
+    assertTrue(t.put(unconfirmed(3, SENDER_1, 2, 600), null));
+  }
+
+  @Test
+  public void remove_refundsTheBalance() throws BurstException.ValidationException {
+    Transaction tx1 = unconfirmed(1, SENDER_1, 2, 1000);
+    t.put(tx1, null);
+
+    t.remove(tx1);
+
+    assertNull(t.get(1L));
+    assertEquals(0, t.getAmount());
+    assertTrue(t.getBlockTemplate().fillSlots(NOW, transaction -> true).isEmpty());
+    assertTrue(t.put(unconfirmed(2, SENDER_1, 2, 1000), null));
+  }
+
+  @Test
+  public void removeForgedTransactions_refundsTheBalance() throws BurstException.ValidationException {
+    Transaction tx1 = unconfirmed(1, SENDER_1, 2, 1000);
+    Transaction tx2 = unconfirmed(2, SENDER_2, 2, 10);
+    t.put(tx1, null);
+    t.put(tx2, null);
+
+    t.removeForgedTransactions(Collections.singletonList(tx1));
+
+    assertEquals(Collections.singletonList(tx2), t.getAll());
+    assertTrue(t.put(unconfirmed(3, SENDER_1, 2, 1000), null));
+  }
+
+  @Test
+  public void resetAccountBalances_removesTransactionsTheBalanceDoesNotCoverAnymore() throws BurstException.ValidationException {
+    Transaction tx1 = unconfirmed(1, SENDER_1, 3, 600);
+    Transaction tx2 = unconfirmed(2, SENDER_1, 2, 300);
+    Transaction tx3 = unconfirmed(3, SENDER_2, 2, 600);
+    t.put(tx1, null);
+    t.put(tx2, null);
+    t.put(tx3, null);
+
+    account(SENDER_1, 700);
+    account(SENDER_2, 700);
+    t.resetAccountBalances(Collections.singleton(SENDER_1));
+
+    // reserved again cheapest first, so the pricier transaction no longer fits
+    assertFalse(t.exists(1L));
+    assertTrue(t.exists(2L));
+    assertTrue(t.exists(3L));
+    assertEquals(2, t.getAmount());
+  }
+
+  @Test
+  public void getAllFor_leavesOutWhatThePeerHas() throws BurstException.ValidationException {
+    Peer peer = mock(Peer.class);
+    Transaction tx1 = unconfirmed(1, SENDER_1, 2, 10);
+    Transaction tx2 = unconfirmed(2, SENDER_1, 2, 10);
+    Transaction tx3 = unconfirmed(3, SENDER_1, 2, 10);
+    t.put(tx1, peer);
+    t.put(tx2, null);
+    t.put(tx3, null);
+
+    t.markFingerPrintsOf(peer, Collections.singletonList(tx3));
+
+    assertEquals(Collections.singletonList(tx2), t.getAllFor(peer));
+  }
+
+  @Test
+  public void clear_dropsAllTransactionsAndReservations() throws BurstException.ValidationException {
+    t.put(unconfirmed(1, SENDER_1, 2, 1000), null);
+
+    t.clear();
+
+    assertTrue(t.getAll().isEmpty());
+    assertEquals(0, t.getAmount());
+    assertTrue(t.getBlockTemplate().fillSlots(NOW, transaction -> true).isEmpty());
+    assertTrue(t.put(unconfirmed(2, SENDER_1, 2, 1000), null));
+  }
+
+  private void account(long id, long unconfirmedBalanceNQT) {
+    Account account = mock(Account.class);
+    when(account.getUnconfirmedBalanceNQT()).thenReturn(unconfirmedBalanceNQT);
+    BurstKey key = mock(BurstKey.class);
+    when(accountKeyFactory.newKey(id)).thenReturn(key);
+    when(accountTable.get(key)).thenReturn(account);
+    accounts.put(id, account);
+  }
+
+  /**
+   * A transaction that has not expired yet and has no duplicates.
+   */
+  private Transaction unconfirmed(long id, long senderId, long feeQuants, long totalAmountNQT) {
+    return transaction(id)
+        .sender(senderId)
+        .fee(feeQuants * FEE_QUANT)
+        .timestamp(NOW - 10)
+        .expiration(NOW + 1440)
+        .size(100)
+        .totalAmount(transactionType, totalAmountNQT)
+        .duplicationKey(TransactionDuplicationKey.IS_NEVER_DUPLICATE)
+        .build();
+  }
+}
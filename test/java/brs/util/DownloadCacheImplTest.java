@@ -0,0 +1,225 @@
+package brs.util;
+
+import brs.Block;
+import brs.Blockchain;
+import brs.fluxcapacitor.FluxCapacitor;
+import brs.fluxcapacitor.FluxValues;
+import brs.props.PropertyService;
+import brs.props.Props;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DownloadCacheImplTest {
+
+  private static final int CHAIN_HEIGHT = 99;
+  // one block per height, the id of a block is its height plus this
+  private static final long ID_OFFSET = 1000;
+
+  private DownloadCacheImpl t;
+
+  private FluxCapacitor fluxCapacitor;
+  private Blockchain blockchain;
+
+  @Before
+  public void setUp() {
+    PropertyService propertyService = mock(PropertyService.class);
+    when(propertyService.getInt(eq(Props.BRS_BLOCK_CACHE_MB))).thenReturn(1);
+    fluxCapacitor = mock(FluxCapacitor.class);
+    blockchain = mock(Blockchain.class);
+    Block lastBlock = block(CHAIN_HEIGHT);
+    when(blockchain.getLastBlock()).thenReturn(lastBlock);
+    when(blockchain.getHeight()).thenReturn(CHAIN_HEIGHT);
+    when(blockchain.hasBlock(anyLong())).thenReturn(false);
+
+    t = new DownloadCacheImpl(propertyService, fluxCapacitor, blockchain);
+  }
+
+  @Test
+  public void addBlock_followingBlocksAreCached() {
+    Block first = block(100);
+    Block second = block(101);
+
+    assertTrue(t.addBlock(first));
+    assertTrue(t.addBlock(second));
+
+    assertEquals(2, t.size());
+    assertEquals(2, t.getUnverifiedSize());
+    assertSame(first, t.getBlock(first.getId()));
+    assertSame(first, t.getNextBlock(first.getPreviousBlockId()));
+    assertSame(second, t.getNextBlock(first.getId()));
+    assertNull(t.getNextBlock(second.getId()));
+    assertEquals(second.getId(), t.getLastBlockId());
+    assertEquals(BigInteger.valueOf(101), t.getCumulativeDifficulty());
+  }
+
+  @Test
+  public void addBlock_notFollowingIsRejected() {
+    t.addBlock(block(100));
+
+    assertFalse(t.addBlock(block(102)));
+    assertFalse(t.addBlock(block(100)));
+    assertEquals(1, t.size());
+  }
+
+  @Test
+  public void addBlock_lockedCacheIsRejected() {
+    t.lockCache();
+
+    assertFalse(t.addBlock(block(100)));
+
+    t.unlockCache();
+    assertTrue(t.addBlock(block(100)));
+  }
+
+  @Test
+  public void addBlock_beyondByteBudgetIsRejected() {
+    assertTrue(t.addBlock(block(100, 600 * 1024)));
+
+    assertFalse(t.addBlock(block(101, 600 * 1024)));
+    assertTrue(t.addBlock(block(101, 300 * 1024)));
+    assertEquals(900 * 1024, t.getBlockCacheSize());
+  }
+
+  @Test
+  public void addBlock_firstBlockIsAlwaysAccepted() {
+    assertTrue(t.addBlock(block(100, 2 * 1024 * 1024)));
+
+    assertTrue(t.isFull());
+  }
+
+  @Test
+  public void ring_wrapsAroundAsBlocksArePushed() {
+    // more heights than the 4096 slots of a 1 MB cache, while only a few blocks are cached at any time
+    for (int height = 100; height < 5000; height++) {
+      Block block = block(height);
+      assertTrue(t.addBlock(block));
+      if (height >= 110) {
+        assertTrue(t.removeBlock(t.getBlock(id(height - 10))));
+      }
+    }
+
+    assertEquals(10, t.size());
+    assertNull(t.getBlock(id(4989)));
+    assertEquals(id(4990), t.getNextBlock(id(4989)).getId());
+    assertEquals(id(4995), t.getNextBlock(id(4994)).getId());
+    assertEquals(id(4999), t.getLastBlockId());
+  }
+
+  @Test
+  public void getFirstUnverifiedBlock_isTakenOnce() {
+    t.addBlock(block(100));
+    t.addBlock(block(101));
+
+    assertEquals(id(100), t.getFirstUnverifiedBlock().getId());
+    assertFalse(t.isUnverified(id(100)));
+    assertTrue(t.isUnverified(id(101)));
+    assertEquals(id(101), t.getFirstUnverifiedBlock().getId());
+    assertNull(t.getFirstUnverifiedBlock());
+    assertEquals(0, t.getUnverifiedSize());
+  }
+
+  @Test
+  public void getFirstUnverifiedBlocks_stopsAtOtherPocVersion() {
+    when(fluxCapacitor.getValue(eq(FluxValues.POC2), anyInt())).thenAnswer(invocation -> (int) invocation.getArgument(1) >= 103);
+    for (int height = 100; height < 106; height++) {
+      t.addBlock(block(height));
+    }
+
+    assertEquals(Arrays.asList(id(100), id(101)), ids(t.getFirstUnverifiedBlocks(2)));
+    assertEquals(Arrays.asList(id(102)), ids(t.getFirstUnverifiedBlocks(10)));
+    assertEquals(Arrays.asList(id(103), id(104), id(105)), ids(t.getFirstUnverifiedBlocks(10)));
+    assertTrue(t.getFirstUnverifiedBlocks(10).isEmpty());
+  }
+
+  @Test
+  public void getUnverifiedBlockIdFromPos_skipsVerifiedBlocks() {
+    for (int height = 100; height < 104; height++) {
+      t.addBlock(block(height));
+    }
+    t.removeUnverified(id(101));
+
+    assertEquals(id(100), t.getUnverifiedBlockIdFromPos(0));
+    assertEquals(id(102), t.getUnverifiedBlockIdFromPos(1));
+    assertEquals(id(103), t.getUnverifiedBlockIdFromPos(2));
+  }
+
+  @Test
+  public void removeBlock_aboveFirstDropsBlocksAboveIt() {
+    for (int height = 100; height < 105; height++) {
+      t.addBlock(block(height));
+    }
+
+    assertTrue(t.removeBlock(t.getBlock(id(102))));
+
+    assertEquals(2, t.size());
+    assertNull(t.getBlock(id(103)));
+    assertEquals(id(101), t.getLastBlockId());
+    assertTrue(t.addBlock(block(102)));
+  }
+
+  @Test
+  public void removeBlock_lastBlockFallsBackToChain() {
+    Block block = block(100);
+    t.addBlock(block);
+
+    assertTrue(t.removeBlock(block));
+    assertFalse(t.removeBlock(block));
+
+    assertEquals(0, t.size());
+    assertEquals(id(CHAIN_HEIGHT), t.getLastBlockId());
+    assertTrue(t.addBlock(block(100)));
+  }
+
+  @Test
+  public void resetCache_dropsBlocksAndLocks() {
+    t.addBlock(block(100));
+
+    t.resetCache();
+
+    assertEquals(0, t.size());
+    assertEquals(0, t.getBlockCacheSize());
+    assertNull(t.getBlock(id(100)));
+    assertFalse(t.addBlock(block(100)));
+  }
+
+  private static long id(int height) {
+    return height + ID_OFFSET;
+  }
+
+  private static Block block(int height) {
+    return block(height, 1000);
+  }
+
+  private static Block block(int height, int byteLength) {
+    Block block = mock(Block.class);
+    when(block.getId()).thenReturn(id(height));
+    when(block.getPreviousBlockId()).thenReturn(id(height - 1));
+    when(block.getHeight()).thenReturn(height);
+    when(block.getByteLength()).thenReturn(byteLength);
+    when(block.getCumulativeDifficulty()).thenReturn(BigInteger.valueOf(height));
+    return block;
+  }
+
+  private static List<Long> ids(List<Block> blocks) {
+    Long[] ids = new Long[blocks.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = blocks.get(i).getId();
+    }
+    return Arrays.asList(ids);
+  }
+}
@@ -0,0 +1,83 @@
+package brs.util;
+
+import brs.fluxcapacitor.FluxCapacitor;
+import brs.fluxcapacitor.FluxValues;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ScoopGeneratorTest {
+
+  private static final int POC1_HEIGHT = 100;
+  private static final int POC2_HEIGHT = 200;
+  private static final long ADDRESS = 0x8F1E2D3C4B5A6978L;
+  private static final long NONCE = 123456789L;
+  private static final int[] SCOOPS = {0, 1, 2047, 2048, 4094, 4095};
+
+  private FluxCapacitor fluxCapacitor;
+
+  @Before
+  public void setUp() {
+    fluxCapacitor = mock(FluxCapacitor.class);
+    when(fluxCapacitor.getValue(eq(FluxValues.POC2), anyInt())).thenAnswer(invocation -> (int) invocation.getArgument(1) >= POC2_HEIGHT);
+  }
+
+  @Test
+  public void getScoop_isScoopOfPoc1Plot() {
+    MiningPlot plot = new MiningPlot(ADDRESS, NONCE, POC1_HEIGHT, fluxCapacitor);
+
+    for (int scoop : SCOOPS) {
+      assertArrayEquals("scoop " + scoop, plot.getScoop(scoop), ScoopGenerator.getScoop(ADDRESS, NONCE, scoop, false));
+    }
+  }
+
+  @Test
+  public void getScoop_isScoopOfPoc2Plot() {
+    MiningPlot plot = new MiningPlot(ADDRESS, NONCE, POC2_HEIGHT, fluxCapacitor);
+
+    for (int scoop : SCOOPS) {
+      assertArrayEquals("scoop " + scoop, plot.getScoop(scoop), ScoopGenerator.getScoop(ADDRESS, NONCE, scoop, true));
+    }
+  }
+
+  @Test
+  public void getScoop_reusedBufferKeepsNoneOfPreviousNonce() {
+    ScoopGenerator.getScoop(ADDRESS, NONCE + 1, 7, true);
+
+    assertArrayEquals(new MiningPlot(ADDRESS, NONCE, POC2_HEIGHT, fluxCapacitor).getScoop(7), ScoopGenerator.getScoop(ADDRESS, NONCE, 7, true));
+  }
+
+  @Test
+  public void getScoops_isScoopOfEveryNonce() {
+    // one nonce more than lanes, so the second round only uses one lane
+    int count = ScoopGenerator.LANES + 1;
+    long[] addresses = new long[count];
+    long[] nonces = new long[count];
+    int[] scoops = new int[count];
+    for (int i = 0; i < count; i++) {
+      addresses[i] = ADDRESS + i % 2;
+      nonces[i] = NONCE + i;
+      scoops[i] = SCOOPS[i % SCOOPS.length];
+    }
+
+    byte[][] poc1Scoops = ScoopGenerator.getScoops(addresses, nonces, scoops, false);
+    byte[][] poc2Scoops = ScoopGenerator.getScoops(addresses, nonces, scoops, true);
+
+    for (int i = 0; i < count; i++) {
+      assertArrayEquals("nonce " + i, ScoopGenerator.getScoop(addresses[i], nonces[i], scoops[i], false), poc1Scoops[i]);
+      assertArrayEquals("nonce " + i, ScoopGenerator.getScoop(addresses[i], nonces[i], scoops[i], true), poc2Scoops[i]);
+    }
+    MiningPlot plot = new MiningPlot(addresses[count - 1], nonces[count - 1], POC2_HEIGHT, fluxCapacitor);
+    assertArrayEquals(plot.getScoop(scoops[count - 1]), poc2Scoops[count - 1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void getScoop_scoopOutsidePlotIsRejected() {
+    ScoopGenerator.getScoop(ADDRESS, NONCE, MiningPlot.SCOOPS_PER_PLOT, false);
+  }
+}